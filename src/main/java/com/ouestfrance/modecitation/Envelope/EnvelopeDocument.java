@@ -0,0 +1,27 @@
+/*
+ * Nom         : EnvelopeDocument.java
+ *
+ * Description : Article transmis dans une enveloppe : identifiant choisi par l'appelant et contenu XML.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Envelope;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnvelopeDocument {
+
+    //Identifiant reporté sur le résultat, rang dans l'enveloppe s'il est absent
+    private String id;
+
+    private String xml;
+}
@@ -0,0 +1,184 @@
+/*
+ * Nom         : EnvelopeProcessor.java
+ *
+ * Description : Traitement d'une enveloppe de plusieurs articles en un seul appel. L'enveloppe est découpée en
+ *               tranches de envelope.chunk.documents articles, soumises ensemble au groupe de traitement : une
+ *               grosse enveloppe se répartit sur plusieurs threads au lieu d'en occuper un seul, et chaque
+ *               tranche traite ses articles à la suite avec l'analyseur et le sérialiseur de son thread et un
+ *               tampon de sortie réutilisé. Les résultats sont rendus dans l'ordre de l'enveloppe et la réponse
+ *               est écrite d'un bloc. Chaque article a son résultat ou son erreur, sans interrompre les autres.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Envelope;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Scheduling.PriorityScheduler;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Log4j2
+public class EnvelopeProcessor {
+
+    private static final String STAGE = "envelope";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    //Les flux restent ouverts : l'appelant en garde la maîtrise
+    private static final ObjectReader REQUEST_READER = OBJECT_MAPPER.readerFor(EnvelopeRequest.class)
+            .without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private static final ObjectWriter RESPONSE_WRITER = OBJECT_MAPPER.writerFor(EnvelopeResponse.class)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    //Nombre maximal d'articles par enveloppe, 0 pour ne pas en fixer
+    @Value("${envelope.max.documents:1000}")
+    private int maxDocuments;
+
+    //Nombre d'articles par tranche soumise au groupe de traitement
+    @Value("${envelope.chunk.documents:16}")
+    private int chunkDocuments;
+
+    //Classe de priorité des enveloppes : interactive ou bulk
+    @Value("${envelope.priority:interactive}")
+    private String priority;
+
+    @Autowired
+    private ModeCitationProcessor modeCitationProcessor;
+
+    @Autowired
+    private PriorityScheduler priorityScheduler;
+
+    //Lit une enveloppe JSON, la traite et écrit la réponse JSON ; une enveloppe illisible ou trop grosse est
+    //refusée en entier, une erreur sur un article n'est portée que par son résultat
+    public EnvelopeResponse process(InputStream inputStream, OutputStream outputStream) throws CustomAppException {
+        EnvelopeRequest request;
+        try {
+            request = REQUEST_READER.readValue(inputStream);
+        } catch (IOException e) {
+            throw new CustomAppException("Enveloppe illisible : " + e.getMessage(), e);
+        }
+        EnvelopeResponse response = process(request);
+        try {
+            RESPONSE_WRITER.writeValue(outputStream, response);
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new CustomAppException("Erreur lors de l'écriture de la réponse", e);
+        }
+        return response;
+    }
+
+    public EnvelopeResponse process(EnvelopeRequest request) throws CustomAppException {
+        if (request == null || request.getDocuments() == null) {
+            throw new CustomAppException("Enveloppe sans liste de documents");
+        }
+        if (maxDocuments > 0 && request.getDocuments().size() > maxDocuments) {
+            throw new CustomAppException("Enveloppe de " + request.getDocuments().size()
+                    + " documents, au-delà du maximum de " + maxDocuments);
+        }
+        Priority envelopePriority = Priority.of(priority);
+        List<EnvelopeDocument> documents = request.getDocuments();
+        long start = System.nanoTime();
+        List<EnvelopeResult> results = new ArrayList<>(documents.size());
+        if (priorityScheduler == null) {
+            results.addAll(processChunk(documents, 0, envelopePriority));
+        } else {
+            int chunkSize = Math.max(1, chunkDocuments);
+            List<Future<List<EnvelopeResult>>> chunks = new ArrayList<>();
+            for (int from = 0; from < documents.size(); from += chunkSize) {
+                int offset = from;
+                List<EnvelopeDocument> chunk = documents.subList(from, Math.min(from + chunkSize, documents.size()));
+                chunks.add(priorityScheduler.submit(envelopePriority, () -> processChunk(chunk, offset, envelopePriority)));
+            }
+            try {
+                for (Future<List<EnvelopeResult>> chunk : chunks) {
+                    results.addAll(chunk.get());
+                }
+            } catch (InterruptedException e) {
+                // Les tranches en cours sont interrompues et s'arrêtent à leur point d'arrêt suivant ; le groupe
+                // efface l'interruption de ses threads après chaque traitement
+                for (Future<List<EnvelopeResult>> chunk : chunks) {
+                    chunk.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new DocumentCancelledException("Traitement de l'enveloppe interrompu", e);
+            } catch (ExecutionException e) {
+                // processChunk rend une erreur par article : seule une erreur inattendue arrive ici
+                throw new CustomAppException("Erreur lors du traitement de l'enveloppe", e.getCause());
+            }
+        }
+        int failed = 0;
+        for (EnvelopeResult result : results) {
+            if (result.getXml() == null) {
+                failed++;
+            }
+        }
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.debug("Enveloppe de {} document(s) traitée en {} ms, {} en échec", documents.size(), durationMillis, failed);
+        return new EnvelopeResponse(documents.size(), failed, durationMillis, results);
+    }
+
+    //Traite une tranche d'articles à la suite dans le thread courant : dans le groupe de traitement, chaque appel
+    //au processeur s'y exécute directement ; offset est la position du premier article dans l'enveloppe
+    private List<EnvelopeResult> processChunk(List<EnvelopeDocument> documents, int offset, Priority envelopePriority) {
+        List<EnvelopeResult> results = new ArrayList<>(documents.size());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        for (int i = 0; i < documents.size(); i++) {
+            results.add(process(documents.get(i), offset + i, buffer, envelopePriority));
+        }
+        return results;
+    }
+
+    private EnvelopeResult process(EnvelopeDocument document, int index, ByteArrayOutputStream buffer, Priority envelopePriority) {
+        String id = document != null && document.getId() != null ? document.getId() : String.valueOf(index);
+        DocumentReport report;
+        try {
+            if (document == null || document.getXml() == null) {
+                throw new CustomAppException("Champ \"xml\" absent");
+            }
+            buffer.reset();
+            report = modeCitationProcessor.process(id, XmlService.utf8Bytes(document.getXml()), buffer, envelopePriority);
+            return new EnvelopeResult(id, buffer.toString(StandardCharsets.UTF_8), report);
+        } catch (DocumentLimitException e) {
+            report = new DocumentReport(id);
+            report.limitExceeded(STAGE, e, false);
+            log.warn("Document {} de l'enveloppe abandonné : {}", id, e.getMessage());
+        } catch (DocumentCancelledException e) {
+            report = new DocumentReport(id);
+            report.cancelled(STAGE, e);
+            log.warn("Document {} de l'enveloppe annulé : {}", id, e.getMessage());
+        } catch (Exception e) {
+            report = new DocumentReport(id);
+            report.fail(STAGE, e);
+            log.error("Échec du document {} de l'enveloppe : {}", id, e.getMessage());
+        }
+        return new EnvelopeResult(id, null, report);
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Nom         : EnvelopeRequest.java
+ *
+ * Description : Enveloppe de plusieurs articles soumis en un seul appel : {"documents": [{"id": ..., "xml": ...}]}.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Envelope;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnvelopeRequest {
+
+    private List<EnvelopeDocument> documents = new ArrayList<>();
+}
@@ -0,0 +1,31 @@
+/*
+ * Nom         : EnvelopeResponse.java
+ *
+ * Description : Réponse à une enveloppe : un résultat par article, dans l'ordre de la demande, et le décompte
+ *               des échecs.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Envelope;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@JsonPropertyOrder({"documents", "failed", "durationMillis", "results"})
+public class EnvelopeResponse {
+
+    private final int documents;
+
+    private final int failed;
+
+    private final long durationMillis;
+
+    private final List<EnvelopeResult> results;
+}
@@ -0,0 +1,30 @@
+/*
+ * Nom         : EnvelopeResult.java
+ *
+ * Description : Résultat d'un article de l'enveloppe : document produit et bilan, ou bilan d'échec seul.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Envelope;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"id", "xml", "report"})
+public class EnvelopeResult {
+
+    private final String id;
+
+    //Document produit, null si le traitement a échoué
+    private final String xml;
+
+    private final DocumentReport report;
+}
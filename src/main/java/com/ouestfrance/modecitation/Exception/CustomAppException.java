@@ -26,4 +26,9 @@ public class CustomAppException extends Exception {
     public CustomAppException(Throwable cause) {
         super(cause);
     }
+
+    //Exception sans pile d'appels : la cause conserve la sienne, seule l'enveloppe est allégée
+    public CustomAppException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
+    }
 }
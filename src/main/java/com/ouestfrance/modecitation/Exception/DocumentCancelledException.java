@@ -0,0 +1,23 @@
+/*
+ * Nom         : DocumentCancelledException.java
+ *
+ * Description : Levée lorsque le traitement d'un document est annulé (interruption du thread qui le traite).
+ *               Distincte d'un dépassement de limite : un document annulé n'est jamais recopié tel quel, il est
+ *               marqué CANCELLED et reste à traiter. Sans pile d'appels : ce n'est pas un bug.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Exception;
+
+public class DocumentCancelledException extends CustomAppException {
+
+    public DocumentCancelledException(String message) {
+        super(message, null, false);
+    }
+
+    public DocumentCancelledException(String message, Throwable cause) {
+        super(message, cause, false);
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ * Nom         : DocumentLimitException.java
+ *
+ * Description : Levée lorsqu'un document dépasse une limite de traitement (taille, nombre de noeuds,
+ *               durée). Sans pile d'appels : ce n'est pas un bug.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Exception;
+
+public class DocumentLimitException extends CustomAppException {
+
+    public DocumentLimitException(String message) {
+        super(message, null, false);
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Nom         : FeedItem.java
+ *
+ * Description : Emplacement d'un article dans un fichier de flux projeté en mémoire.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Feed;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class FeedItem {
+
+    //Rang de l'article dans le flux, à partir de 0
+    private final long index;
+
+    //Début des octets qui séparent l'article du précédent (ou du début du fichier), recopiés tels quels
+    private final long gapStart;
+
+    //Octets [start, end[ de l'élément article, de sa balise ouvrante à sa balise fermante incluses
+    private final long start;
+
+    private final long end;
+}
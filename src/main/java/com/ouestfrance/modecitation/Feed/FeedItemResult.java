@@ -0,0 +1,26 @@
+/*
+ * Nom         : FeedItemResult.java
+ *
+ * Description : Résultat du traitement d'un article de flux, en attente d'écriture à sa place dans le flux produit.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Feed;
+
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class FeedItemResult {
+
+    private final FeedItem item;
+
+    //Article traité, null si l'article d'origine est recopié sans modification
+    private final byte[] output;
+
+    private final DocumentReport report;
+}
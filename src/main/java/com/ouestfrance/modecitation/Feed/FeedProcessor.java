@@ -0,0 +1,148 @@
+/*
+ * Nom         : FeedProcessor.java
+ *
+ * Description : Traitement d'un gros fichier de flux article par article : le fichier est projeté en mémoire,
+ *               découpé par un parcours des octets, et chaque article est traité en parallèle comme un document
+ *               indépendant. Le flux produit reprend les octets d'origine entre les articles et les articles
+ *               traités dans leur ordre d'origine ; la mémoire retenue est bornée par le nombre d'articles en cours.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Feed;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.Pipe.ReorderingBuffer;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Report.JsonLinesWriter;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+@Log4j2
+public class FeedProcessor {
+
+    private static final String STAGE = "feed";
+
+    //Nom de l'élément article du flux : item (RSS), entry (Atom), article...
+    @Value("${feed.item.element:item}")
+    private String itemElement;
+
+    @Value("${feed.threads:4}")
+    private int threads;
+
+    //Nombre maximal d'articles découpés et pas encore écrits
+    @Value("${feed.window:64}")
+    private int window;
+
+    @Autowired
+    private ModeCitationProcessor modeCitationProcessor;
+
+    public FeedSummary run(Path input, OutputStream outputStream, JsonLinesWriter reportWriter) throws CustomAppException {
+        long start = System.nanoTime();
+        String feedName = input.getFileName().toString();
+        LongAdder unchanged = new LongAdder();
+        AtomicInteger workerNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads),
+                runnable -> new Thread(runnable, "feed-worker-" + workerNumber.getAndIncrement()));
+        try (MappedFeed feed = MappedFeed.open(input)) {
+            log.info("Découpage du flux {} ({} octets) en éléments {} : {} thread(s), {} article(s) en cours au plus",
+                    feedName, feed.size(), itemElement, threads, window);
+            FeedSplitter splitter = new FeedSplitter(feed, itemElement);
+            ReorderingBuffer<FeedItemResult> buffer = new ReorderingBuffer<>(window, new ReorderingBuffer.Sink<>() {
+                @Override
+                public void write(FeedItemResult result) throws IOException {
+                    feed.writeTo(outputStream, result.getItem().getGapStart(), result.getItem().getStart());
+                    if (result.getOutput() != null) {
+                        outputStream.write(result.getOutput());
+                    } else {
+                        feed.writeTo(outputStream, result.getItem().getStart(), result.getItem().getEnd());
+                    }
+                    if (reportWriter != null) {
+                        reportWriter.write(result.getReport());
+                    }
+                }
+
+                @Override
+                public void flush() {
+                    // Le flux de sortie n'est vidé qu'à la fin, en un seul fichier
+                }
+            });
+
+            long items = 0;
+            for (FeedItem item = splitter.next(); item != null; item = splitter.next()) {
+                buffer.reserve();
+                buffer.checkFailure();
+                items++;
+                byte[] content = splitter.content(item);
+                FeedItem current = item;
+                workers.execute(() -> {
+                    FeedItemResult result = process(feedName + "#" + current.getIndex(), current, content);
+                    if (result.getOutput() == null) {
+                        unchanged.increment();
+                    }
+                    buffer.complete(current.getIndex(), result);
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            buffer.checkFailure();
+            feed.writeTo(outputStream, splitter.getPosition(), feed.size());
+            outputStream.flush();
+
+            FeedSummary summary = new FeedSummary(items, unchanged.sum(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("Flux {} traité : {} article(s), {} recopié(s) sans modification, {} ms", feedName,
+                    summary.getItems(), summary.getUnchanged(), summary.getDurationMillis());
+            return summary;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomAppException("Traitement du flux " + feedName + " interrompu", e);
+        } catch (IOException e) {
+            log.error("Erreur lors de la lecture ou de l'écriture du flux {}", feedName, e);
+            throw new CustomAppException("Erreur lors de la lecture ou de l'écriture du flux " + feedName, e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    //Traite un article ; en cas d'erreur ou de dépassement de limite, l'article d'origine est conservé pour que
+    //le flux produit reste complet
+    private FeedItemResult process(String name, FeedItem item, byte[] content) {
+        DocumentReport report;
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(content.length + 1024);
+            report = modeCitationProcessor.processFragment(name, content, outputStream, Priority.BULK);
+            return new FeedItemResult(item, report.getStatus() == DocumentReport.Status.PASSTHROUGH ? null : outputStream.toByteArray(), report);
+        } catch (DocumentLimitException e) {
+            report = new DocumentReport(name);
+            report.limitExceeded(STAGE, e, true);
+            log.warn("Article {} recopié sans modification : {}", name, e.getMessage());
+        } catch (DocumentCancelledException e) {
+            report = new DocumentReport(name);
+            report.cancelled(STAGE, e);
+            log.warn("Article {} annulé, conservé sans modification : {}", name, e.getMessage());
+        } catch (Exception e) {
+            report = new DocumentReport(name);
+            report.fail(STAGE, e);
+            log.error("Échec de l'article {}, recopié sans modification : {}", name, e.getMessage());
+        }
+        return new FeedItemResult(item, null, report);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Nom         : FeedSplitter.java
+ *
+ * Description : Découpage d'un fichier de flux projeté en mémoire en articles, par un simple parcours des octets
+ *               à la recherche des balises de l'élément article : le flux n'est jamais analysé en entier. Les
+ *               commentaires, sections CDATA, instructions de traitement et valeurs d'attributs sont sautés,
+ *               ce qui évite de prendre pour une balise le texte qu'ils contiennent.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Feed;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class FeedSplitter {
+
+    private static final Pattern ENCODING = Pattern.compile("^\\uFEFF?\\s*<\\?xml[^>]*\\sencoding\\s*=\\s*[\"']([^\"']+)[\"']");
+
+    private static final Pattern NAMESPACE = Pattern.compile("\\sxmlns(:[^\\s=]+)?\\s*=\\s*(\"[^\"]*\"|'[^']*')");
+
+    private final MappedFeed feed;
+
+    private final byte[] itemName;
+
+    private long position;
+
+    private long index;
+
+    //Déclarations d'espaces de noms de l'en-tête (préfixe, "" pour l'espace par défaut, vers la déclaration),
+    //relevées avant le premier article
+    private Map<String, String> namespaces;
+
+    public FeedSplitter(MappedFeed feed, String itemElement) {
+        this.feed = feed;
+        this.itemName = itemElement.getBytes(StandardCharsets.UTF_8);
+    }
+
+    //Article suivant, null quand il n'y en a plus : les octets restants forment la fin du flux
+    public FeedItem next() throws CustomAppException {
+        long gapStart = position;
+        long start = findItemStart(position);
+        if (start < 0) {
+            return null;
+        }
+        if (namespaces == null) {
+            readHeader(start);
+        }
+        long end = findItemEnd(start);
+        if (end < 0) {
+            throw new CustomAppException("Élément " + new String(itemName, StandardCharsets.UTF_8)
+                    + " non fermé à partir de l'octet " + start);
+        }
+        position = end;
+        return new FeedItem(index++, gapStart, start, end);
+    }
+
+    //Début des octets qui suivent le dernier article lu
+    public long getPosition() {
+        return position;
+    }
+
+    //Contenu d'un article analysable seul : les espaces de noms déclarés dans l'en-tête du flux, et utilisés par
+    //l'article sans y être redéclarés, sont ajoutés à sa balise ouvrante
+    public byte[] content(FeedItem item) {
+        byte[] bytes = feed.copy(item.getStart(), item.getEnd());
+        if (namespaces.isEmpty()) {
+            return bytes;
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        int tagEnd = (int) (skipTag(item.getStart()) - item.getStart());
+        String startTag = new String(bytes, 0, tagEnd, StandardCharsets.UTF_8);
+        StringBuilder declarations = new StringBuilder();
+        for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+            String prefix = namespace.getKey();
+            boolean declared = startTag.contains(prefix.isEmpty() ? "xmlns=" : "xmlns:" + prefix + "=");
+            boolean used = prefix.isEmpty() || text.contains("<" + prefix + ":") || text.contains(" " + prefix + ":");
+            if (!declared && used) {
+                declarations.append(namespace.getValue());
+            }
+        }
+        if (declarations.length() == 0) {
+            return bytes;
+        }
+        int nameEnd = 1 + itemName.length;
+        return (text.substring(0, nameEnd) + declarations + text.substring(nameEnd)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    //Lit l'en-tête du flux : encodage (seul UTF-8, ou son sous-ensemble ASCII, est pris en charge car les articles
+    //sont réécrits en UTF-8) et espaces de noms déclarés par les éléments englobants
+    private void readHeader(long firstItemStart) throws CustomAppException {
+        String header = new String(feed.copy(0, firstItemStart), StandardCharsets.UTF_8);
+        Matcher encoding = ENCODING.matcher(header);
+        if (encoding.find() && !"UTF-8".equalsIgnoreCase(encoding.group(1)) && !"US-ASCII".equalsIgnoreCase(encoding.group(1))) {
+            throw new CustomAppException("Encodage du flux non pris en charge : " + encoding.group(1));
+        }
+        namespaces = new LinkedHashMap<>();
+        Matcher namespace = NAMESPACE.matcher(header);
+        while (namespace.find()) {
+            namespaces.put(namespace.group(1) != null ? namespace.group(1).substring(1) : "", namespace.group());
+        }
+    }
+
+    //Position de la prochaine balise ouvrante d'article à partir de from, -1 s'il n'y en a plus
+    private long findItemStart(long from) {
+        long size = feed.size();
+        long current = from;
+        while (current < size) {
+            if (feed.get(current) != '<') {
+                current++;
+                continue;
+            }
+            if (isItemTag(current + 1)) {
+                return current;
+            }
+            current = skipMarkup(current);
+            if (current < 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    //Position qui suit la balise fermante de l'article ouvert en start, -1 s'il n'est pas fermé ; les éléments
+    //de même nom imbriqués dans l'article sont comptés
+    private long findItemEnd(long start) {
+        long size = feed.size();
+        int depth = 0;
+        long current = start;
+        while (current < size) {
+            if (feed.get(current) != '<') {
+                current++;
+                continue;
+            }
+            boolean closing = current + 1 < size && feed.get(current + 1) == '/';
+            boolean item = isItemTag(current + (closing ? 2 : 1));
+            long next = skipMarkup(current);
+            if (next < 0) {
+                return -1;
+            }
+            if (item && closing) {
+                depth--;
+            } else if (item && feed.get(next - 2) != '/') {
+                depth++;
+            }
+            if (item && depth == 0) {
+                return next;
+            }
+            current = next;
+        }
+        return -1;
+    }
+
+    //Vrai si le nom de l'élément article commence en position et n'est pas le début d'un nom plus long
+    private boolean isItemTag(long position) {
+        if (position + itemName.length >= feed.size()) {
+            return false;
+        }
+        for (int i = 0; i < itemName.length; i++) {
+            if (feed.get(position + i) != itemName[i]) {
+                return false;
+            }
+        }
+        byte after = feed.get(position + itemName.length);
+        return after == '>' || after == '/' || after == ' ' || after == '\t' || after == '\n' || after == '\r';
+    }
+
+    //Saute la construction qui commence par '<' en position : commentaire, CDATA, instruction de traitement,
+    //déclaration ou balise ; retourne la position qui la suit, -1 si elle n'est pas terminée
+    private long skipMarkup(long position) {
+        if (startsWith(position, "<!--")) {
+            return indexAfter(position + 4, "-->");
+        }
+        if (startsWith(position, "<![CDATA[")) {
+            return indexAfter(position + 9, "]]>");
+        }
+        if (startsWith(position, "<?")) {
+            return indexAfter(position + 2, "?>");
+        }
+        return skipTag(position);
+    }
+
+    //Position qui suit le '>' terminant la balise, en ignorant ceux des valeurs d'attributs
+    private long skipTag(long position) {
+        long size = feed.size();
+        byte quote = 0;
+        for (long current = position + 1; current < size; current++) {
+            byte b = feed.get(current);
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return current + 1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean startsWith(long position, String prefix) {
+        if (position + prefix.length() > feed.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (feed.get(position + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long indexAfter(long from, String terminator) {
+        for (long current = from; current + terminator.length() <= feed.size(); current++) {
+            if (startsWith(current, terminator)) {
+                return current + terminator.length();
+            }
+        }
+        return -1;
+    }
+}
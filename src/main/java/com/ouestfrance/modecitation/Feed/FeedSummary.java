@@ -0,0 +1,25 @@
+/*
+ * Nom         : FeedSummary.java
+ *
+ * Description : Bilan du traitement d'un fichier de flux découpé en articles.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Feed;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class FeedSummary {
+
+    private final long items;
+
+    //Articles recopiés sans modification après une erreur ou un dépassement de limite
+    private final long unchanged;
+
+    private final long durationMillis;
+}
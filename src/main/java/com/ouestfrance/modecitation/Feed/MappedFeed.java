@@ -0,0 +1,95 @@
+/*
+ * Nom         : MappedFeed.java
+ *
+ * Description : Fichier de flux (RSS, export d'articles) projeté en mémoire en lecture seule. Le fichier est
+ *               découpé en segments projetés séparément, ce qui lève la limite de 2 Go d'une projection unique ;
+ *               les pages ne sont chargées par le système qu'à leur lecture et peuvent être libérées à tout moment,
+ *               la taille du fichier n'entre donc pas dans la mémoire du processus.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Feed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedFeed implements Closeable {
+
+    //Taille d'un segment projeté (1 Go)
+    private static final int SEGMENT_SHIFT = 30;
+
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] segments;
+
+    private final long size;
+
+    private MappedFeed(FileChannel channel, MappedByteBuffer[] segments, long size) {
+        this.channel = channel;
+        this.segments = segments;
+        this.size = size;
+    }
+
+    public static MappedFeed open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_MASK + 1, size - position));
+            }
+            return new MappedFeed(channel, segments, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    //Octet à la position donnée, sans contrôle de bornes au-delà de celui de la projection
+    public byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    //Copie des octets [start, end[ ; une plage est limitée à la taille d'un tableau
+    public byte[] copy(long start, long end) {
+        byte[] bytes = new byte[Math.toIntExact(end - start)];
+        int offset = 0;
+        for (long position = start; position < end; ) {
+            MappedByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+            int index = (int) (position & SEGMENT_MASK);
+            int length = (int) Math.min(end - position, segment.capacity() - index);
+            segment.get(index, bytes, offset, length);
+            offset += length;
+            position += length;
+        }
+        return bytes;
+    }
+
+    //Recopie des octets [start, end[ dans un flux, par blocs, sans copier toute la plage en mémoire
+    public void writeTo(OutputStream outputStream, long start, long end) throws IOException {
+        for (long position = start; position < end; position += COPY_BUFFER_SIZE) {
+            outputStream.write(copy(position, Math.min(end, position + COPY_BUFFER_SIZE)));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
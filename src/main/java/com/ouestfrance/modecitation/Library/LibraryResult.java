@@ -0,0 +1,23 @@
+/*
+ * Nom         : LibraryResult.java
+ *
+ * Description : Résultat d'un document traité en mémoire par la bibliothèque : document produit et bilan.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Library;
+
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LibraryResult {
+
+    private final byte[] output;
+
+    private final DocumentReport report;
+}
@@ -0,0 +1,183 @@
+/*
+ * Nom         : ModeCitationLibrary.java
+ *
+ * Description : Point d'entrée pour intégrer le mode citation dans un autre service JVM, sans contexte Spring :
+ *               les documents sont transmis en tableau d'octets, en flux ou en chemins de fichiers, et chaque appel
+ *               rend aussitôt un CompletableFuture exécuté sur l'exécuteur de l'appelant ou sur celui de la
+ *               bibliothèque. L'annulation d'un résultat (cancel) interrompt le traitement en cours, qui s'arrête au
+ *               point d'arrêt suivant de l'application des règles.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Library;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ModeCitationLibrary implements AutoCloseable {
+
+    private final ModeCitationProcessor processor;
+
+    private final XmlService xmlService;
+
+    private final Executor executor;
+
+    //Exécuteur créé par la bibliothèque, arrêté par close() ; null si l'exécuteur est fourni par l'appelant
+    private final ExecutorService ownExecutor;
+
+    //Bibliothèque aux jeux de règles donnés ; sans exécuteur, un groupe de threads démons à la taille de la machine
+    //est créé, et arrêté par close()
+    public ModeCitationLibrary(RuleSets ruleSets, Executor executor) {
+        this.xmlService = new XmlService();
+        this.processor = ModeCitationProcessor.standalone(ruleSets, xmlService);
+        if (executor != null) {
+            this.executor = executor;
+            this.ownExecutor = null;
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.ownExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "modecitation-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownExecutor;
+        }
+    }
+
+    //Compile les règles d'un fichier JSON (format de rules.json.path) et utilise l'exécuteur de la bibliothèque
+    public static ModeCitationLibrary create(Path rulesJson) throws CustomAppException {
+        return create(rulesJson, null, null);
+    }
+
+    //Idem avec un répertoire de jeux de règles par publication (null pour aucun) et l'exécuteur donné (null pour
+    //celui de la bibliothèque)
+    public static ModeCitationLibrary create(Path rulesJson, Path rulesDirectory, Executor executor) throws CustomAppException {
+        RuleSets ruleSets = new RulesService().loadRuleSets(rulesJson.toString(), rulesDirectory != null ? rulesDirectory.toString() : null);
+        return new ModeCitationLibrary(ruleSets, executor);
+    }
+
+    //Traite un document en mémoire
+    public CompletableFuture<LibraryResult> process(String name, byte[] content) {
+        return process(name, content, executor);
+    }
+
+    public CompletableFuture<LibraryResult> process(String name, byte[] content, Executor callerExecutor) {
+        return submit(() -> {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(content.length + 1024);
+            DocumentReport report = processor.process(name, content, outputStream);
+            return new LibraryResult(outputStream.toByteArray(), report);
+        }, callerExecutor);
+    }
+
+    //Lit le flux d'entrée en entier puis écrit le document produit dans le flux de sortie ; les flux restent
+    //ouverts. La lecture et l'écriture ont lieu sur l'exécuteur
+    public CompletableFuture<DocumentReport> process(String name, InputStream inputStream, OutputStream outputStream) {
+        return process(name, inputStream, outputStream, executor);
+    }
+
+    public CompletableFuture<DocumentReport> process(String name, InputStream inputStream, OutputStream outputStream,
+                                                     Executor callerExecutor) {
+        return submit(() -> processor.process(name, inputStream, outputStream), callerExecutor);
+    }
+
+    //Traite un fichier (éventuellement compressé en .gz) et écrit le document produit dans le fichier de sortie
+    public CompletableFuture<DocumentReport> process(Path input, Path output) {
+        return process(input, output, executor);
+    }
+
+    public CompletableFuture<DocumentReport> process(Path input, Path output, Executor callerExecutor) {
+        return submit(() -> {
+            byte[] content;
+            try {
+                content = xmlService.readBytesFromSource(input.toString());
+            } catch (IOException e) {
+                throw new CustomAppException("Erreur lors de la lecture du document " + input, e);
+            }
+            // Le document est produit en mémoire : un échec ne laisse pas de fichier de sortie partiel
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length + 1024);
+            DocumentReport report = processor.process(input.getFileName().toString(), content, buffer);
+            try (OutputStream outputStream = xmlService.openOutputFile(output)) {
+                buffer.writeTo(outputStream);
+            } catch (IOException e) {
+                throw new CustomAppException("Erreur lors de l'écriture du document " + output, e);
+            }
+            return report;
+        }, callerExecutor);
+    }
+
+    //Arrête l'exécuteur de la bibliothèque ; sans effet sur un exécuteur fourni par l'appelant
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    private static <T> CompletableFuture<T> submit(Callable<T> task, Executor executor) {
+        InterruptibleFuture<T> future = new InterruptibleFuture<>();
+        try {
+            executor.execute(() -> future.run(task));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    //Résultat dont l'annulation interrompt le thread qui exécute le traitement
+    private static final class InterruptibleFuture<T> extends CompletableFuture<T> {
+
+        private Thread runner;
+
+        private void run(Callable<T> task) {
+            synchronized (this) {
+                if (isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                complete(task.call());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                // L'interruption due à une annulation ne doit pas atteindre la tâche suivante du même thread
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                synchronized (this) {
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                }
+            }
+            return cancelled;
+        }
+    }
+}
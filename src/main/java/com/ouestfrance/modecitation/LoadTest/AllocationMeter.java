@@ -0,0 +1,111 @@
+/*
+ * Nom         : AllocationMeter.java
+ *
+ * Description : Mesure des octets alloués sur le tas pendant un intervalle, tous threads confondus, y compris ceux
+ *               terminés entre-temps (les threads des étages du pipeline). Le volume est déduit de l'occupation du
+ *               tas avant et après chaque ramasse-miettes : ce qui a été libéré par une collecte avait été alloué.
+ *               Les compteurs par thread de la JVM (ThreadAllocations) donnent un plancher exact pour les threads
+ *               vivants du début à la fin de l'intervalle, retenu quand l'estimation par collectes est en deçà
+ *               (intervalle sans collecte).
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.LoadTest;
+
+import com.ouestfrance.modecitation.Monitoring.ThreadAllocations;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.Closeable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class AllocationMeter implements Closeable {
+
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    private final NotificationListener listener = this::gcCompleted;
+
+    //Zones du tas : les collectes rapportent aussi les zones hors tas (métadonnées, code compilé)
+    private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .map(MemoryPoolMXBean::getName)
+            .collect(Collectors.toSet());
+
+    //Octets alloués jusqu'à la dernière collecte, et occupation du tas à la sortie de celle-ci
+    private long allocatedBeforeLastGc;
+
+    private long usedAfterLastGc;
+
+    private long collections;
+
+    //Octets déjà alloués par chaque thread vivant au début de l'intervalle
+    private final Map<Long, Long> threadsAtStart = ThreadAllocations.liveThreadAllocatedBytes();
+
+    public AllocationMeter() {
+        usedAfterLastGc = heapUsed();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(listener, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    //Octets alloués depuis la création ; estimation à la granularité des collectes pour la part déjà collectée,
+    //jamais inférieure à ce qu'ont alloué les threads présents depuis le début
+    public synchronized long getAllocatedBytes() {
+        long estimated = allocatedBeforeLastGc + Math.max(0, heapUsed() - usedAfterLastGc);
+        return Math.max(estimated, ThreadAllocations.allocatedSince(threadsAtStart));
+    }
+
+    public synchronized long getCollections() {
+        return collections;
+    }
+
+    private synchronized void gcCompleted(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long before = heapUsed(info.getGcInfo().getMemoryUsageBeforeGc());
+        long after = heapUsed(info.getGcInfo().getMemoryUsageAfterGc());
+        allocatedBeforeLastGc += Math.max(0, before - usedAfterLastGc);
+        usedAfterLastGc = after;
+        collections++;
+    }
+
+    private long heapUsed(Map<String, MemoryUsage> usage) {
+        return usage.entrySet().stream().filter(pool -> heapPools.contains(pool.getKey())).mapToLong(pool -> pool.getValue().getUsed()).sum();
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException e) {
+                // Déjà retiré
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Nom         : CorpusGenerator.java
+ *
+ * Description : Génère un corpus reproductible d'articles synthétiques au schéma des articles traités (tetiere,
+ *               titraille, texte/p avec ou sans classe, mises en forme b/i/u), pour mesurer le traitement sur un
+ *               volume réaliste. Chaque article ne dépend que de la graine et de son rang : un article peut être
+ *               régénéré seul. Utilisable seul : CorpusGenerator <répertoire> <documents> [graine]
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.LoadTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+public class CorpusGenerator {
+
+    //Description du corpus écrite à côté des articles, pour ne régénérer que si les paramètres changent
+    public static final String SPEC_FILE_NAME = "corpus.json";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String[] WORDS = {"lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit",
+            "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua", "été",
+            "côte", "marée", "équipage", "régate", "départ", "arrivée", "voilier", "conseil", "municipal", "élu",
+            "mairie", "école", "quartier", "fête", "musée", "à", "la", "le", "les", "des", "du", "un", "une"};
+
+    //Classes des paragraphes du texte : les quatre premières sont celles des règles par défaut
+    private static final String[] PARAGRAPH_CLASSES = {null, "textesansalinea", "textealinea", "texte", "question", "intertitre"};
+
+    private static final String[] CHANNELS = {"ouest-france.fr", "!ouest-france.fr,!voilesetvoiliers.com,!Edition du Soir",
+            "voilesetvoiliers.com", "Edition du Soir", "letelegramme.fr"};
+
+    private static final String[] FORMATTING = {"b", "i", "u"};
+
+    private final CorpusSpec spec;
+
+    public CorpusGenerator(CorpusSpec spec) {
+        this.spec = spec;
+    }
+
+    //Écrit les articles article000000.xml... dans le répertoire ; un corpus déjà présent avec les mêmes
+    //paramètres est conservé. Retourne le nombre d'octets du corpus
+    public long generate(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path specPath = directory.resolve(SPEC_FILE_NAME);
+        if (Files.exists(specPath) && spec.equals(OBJECT_MAPPER.readValue(specPath.toFile(), CorpusSpec.class))) {
+            long bytes = 0;
+            for (int i = 0; i < spec.getDocuments(); i++) {
+                bytes += Files.size(directory.resolve(fileName(i)));
+            }
+            return bytes;
+        }
+        Files.deleteIfExists(specPath);
+        long bytes = 0;
+        for (int i = 0; i < spec.getDocuments(); i++) {
+            byte[] article = article(i).getBytes(StandardCharsets.UTF_8);
+            Files.write(directory.resolve(fileName(i)), article);
+            bytes += article.length;
+        }
+        // La description n'est écrite qu'une fois le corpus complet
+        OBJECT_MAPPER.writeValue(specPath.toFile(), spec);
+        return bytes;
+    }
+
+    public static String fileName(int index) {
+        return String.format("article%06d.xml", index);
+    }
+
+    //Contenu de l'article de rang index
+    public String article(int index) {
+        SplittableRandom random = new SplittableRandom(spec.getSeed() * 0x9E3779B97F4A7C15L + index);
+        StringBuilder out = new StringBuilder(spec.getParagraphs() * 400 + 1024);
+        out.append("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>\n<doc xml:lang=\"fr\">\n\t<article>\n");
+        out.append("\t\t<tetiere channel=\"").append(CHANNELS[random.nextInt(CHANNELS.length)]).append("\" id=\"")
+                .append(id(random)).append("\">\n\t\t\t<p/>\n\t\t</tetiere>\n");
+        out.append("\t\t<titraille id=\"").append(id(random)).append("\">\n\t\t\t<titre>\n\t\t\t\t<p xsm-preserve=\"true\">");
+        words(out, random, 4 + random.nextInt(8));
+        out.append("</p>\n\t\t\t</titre>\n\t\t\t<accroche>\n\t\t\t\t<p>");
+        paragraph(out, random);
+        out.append("</p>\n\t\t\t</accroche>\n\t\t</titraille>\n");
+        out.append("\t\t<texte id=\"").append(id(random)).append("\">\n");
+        int paragraphs = Math.max(1, spec.getParagraphs() / 2 + random.nextInt(Math.max(1, spec.getParagraphs() + 1)));
+        for (int i = 0; i < paragraphs; i++) {
+            String paragraphClass = PARAGRAPH_CLASSES[random.nextInt(PARAGRAPH_CLASSES.length)];
+            out.append("\t\t\t<p").append(paragraphClass != null ? " class=\"" + paragraphClass + "\"" : "").append('>');
+            paragraph(out, random);
+            out.append("</p>\n");
+        }
+        out.append("\t\t</texte>\n\t</article>\n</doc>\n");
+        return out.toString();
+    }
+
+    //Un paragraphe : une suite de segments (texte, citation, mise en forme) terminée par un point
+    private void paragraph(StringBuilder out, SplittableRandom random) {
+        int segments = 1 + random.nextInt(5);
+        for (int i = 0; i < segments; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            segment(out, random, 0);
+        }
+        out.append('.');
+    }
+
+    private void segment(StringBuilder out, SplittableRandom random, int depth) {
+        double draw = random.nextDouble();
+        if (draw < spec.getQuoteDensity()) {
+            quote(out, random, depth);
+        } else if (depth < spec.getNesting() && draw < spec.getQuoteDensity() + spec.getFormattingRate()) {
+            formatted(out, random, depth);
+        } else {
+            words(out, random, 3 + random.nextInt(10));
+        }
+    }
+
+    private void quote(StringBuilder out, SplittableRandom random, int depth) {
+        if (random.nextDouble() < spec.getMalformedRate()) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    words(out.append('«'), random, 1 + random.nextInt(6));
+                    break;
+                case 1:
+                    words(out, random, 1 + random.nextInt(6)).append('»');
+                    break;
+                default:
+                    words(out.append("««"), random, 1 + random.nextInt(6)).append('»');
+                    break;
+            }
+            return;
+        }
+        out.append('«');
+        if (depth < spec.getNesting() && random.nextDouble() < spec.getFormattingRate()) {
+            formatted(out, random, depth);
+        } else {
+            words(out, random, 1 + random.nextInt(6));
+        }
+        out.append('»');
+    }
+
+    private void formatted(StringBuilder out, SplittableRandom random, int depth) {
+        String tag = FORMATTING[random.nextInt(FORMATTING.length)];
+        out.append('<').append(tag).append('>');
+        segment(out, random, depth + 1);
+        out.append("</").append(tag).append('>');
+    }
+
+    private static StringBuilder words(StringBuilder out, SplittableRandom random, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            out.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return out;
+    }
+
+    private static String id(SplittableRandom random) {
+        StringBuilder id = new StringBuilder("R");
+        for (int i = 0; i < 22; i++) {
+            int c = random.nextInt(62);
+            id.append((char) (c < 10 ? '0' + c : c < 36 ? 'a' + c - 10 : 'A' + c - 36));
+        }
+        return id.toString();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage : CorpusGenerator <répertoire> <documents> [graine]");
+            System.exit(2);
+        }
+        CorpusSpec spec = new CorpusSpec(args.length == 3 ? Long.parseLong(args[2]) : 42, Integer.parseInt(args[1]),
+                20, 0.3, 0.2, 2, 0.05);
+        try {
+            long bytes = new CorpusGenerator(spec).generate(Path.of(args[0]));
+            System.out.println(spec.getDocuments() + " article(s), " + bytes + " octets : " + spec);
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la génération du corpus : " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Nom         : CorpusSpec.java
+ *
+ * Description : Paramètres d'un corpus d'articles synthétiques. Deux corpus de mêmes paramètres sont identiques
+ *               octet pour octet.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.LoadTest;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorpusSpec {
+
+    private long seed;
+
+    private int documents;
+
+    //Nombre moyen de paragraphes du texte d'un article (de la moitié à une fois et demie)
+    private int paragraphs;
+
+    //Probabilité qu'un segment de paragraphe soit une citation
+    private double quoteDensity;
+
+    //Probabilité qu'un segment soit mis en forme (b, i, u), et profondeur maximale des mises en forme imbriquées
+    private double formattingRate;
+
+    private int nesting;
+
+    //Probabilité qu'une citation soit mal formée : guillemet non fermé, non ouvert ou doublé
+    private double malformedRate;
+
+    @Override
+    public String toString() {
+        return String.format("graine=%d, documents=%d, paragraphes=%d, citations=%.2f, mise en forme=%.2f (profondeur %d), mal formées=%.2f",
+                seed, documents, paragraphs, quoteDensity, formattingRate, nesting, malformedRate);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Nom         : LoadTestResult.java
+ *
+ * Description : Mesures d'un essai de charge du pipeline sur un corpus synthétique.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.LoadTest;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonPropertyOrder({"corpus", "documents", "bytes", "failed", "elapsedMillis", "documentsPerSecond", "megabytesPerSecond",
+        "p50Millis", "p99Millis", "maxMillis", "allocatedBytesPerDocument", "collections"})
+public class LoadTestResult {
+
+    private final CorpusSpec corpus;
+
+    private final long documents;
+
+    private final long bytes;
+
+    private final long failed;
+
+    private final long elapsedMillis;
+
+    private final double documentsPerSecond;
+
+    private final double megabytesPerSecond;
+
+    //Durée de traitement d'un document, de sa lecture à son écriture (attente dans les files comprise)
+    private final double p50Millis;
+
+    private final double p99Millis;
+
+    private final double maxMillis;
+
+    private final long allocatedBytesPerDocument;
+
+    //Nombre de passages du ramasse-miettes pendant la mesure
+    private final long collections;
+
+    @Override
+    public String toString() {
+        return String.format("%d document(s), %d échec(s), %.1f doc/s, %.2f Mo/s, latence p50=%.2f ms p99=%.2f ms max=%.2f ms, "
+                        + "%d octets alloués par document, %d collecte(s)",
+                documents, failed, documentsPerSecond, megabytesPerSecond, p50Millis, p99Millis, maxMillis,
+                allocatedBytesPerDocument, collections);
+    }
+}
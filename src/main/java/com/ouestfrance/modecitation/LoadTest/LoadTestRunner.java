@@ -0,0 +1,137 @@
+/*
+ * Nom         : LoadTestRunner.java
+ *
+ * Description : Essai de charge de bout en bout : génère (ou réutilise) un corpus synthétique, le fait traiter par le
+ *               pipeline du mode batch après un passage de chauffe, puis mesure débit, latence par document et
+ *               allocations. Le résultat est journalisé et écrit en JSON dans le répertoire de sortie.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.LoadTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Treatment.ModeCitationPipeline;
+import com.ouestfrance.modecitation.Treatment.StageStatistics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Log4j2
+public class LoadTestRunner {
+
+    public static final String RESULT_FILE_NAME = "loadtest.json";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Value("${corpus.seed:42}")
+    private long seed;
+
+    @Value("${corpus.documents:2000}")
+    private int documents;
+
+    @Value("${corpus.paragraphs:20}")
+    private int paragraphs;
+
+    @Value("${corpus.quote.density:0.3}")
+    private double quoteDensity;
+
+    @Value("${corpus.formatting.rate:0.2}")
+    private double formattingRate;
+
+    @Value("${corpus.nesting:2}")
+    private int nesting;
+
+    @Value("${corpus.malformed.rate:0.05}")
+    private double malformedRate;
+
+    //Passages du corpus non mesurés, pour laisser le compilateur à la volée optimiser le code
+    @Value("${loadtest.warmup.runs:1}")
+    private int warmupRuns;
+
+    @Autowired
+    private ModeCitationPipeline modeCitationPipeline;
+
+    public CorpusSpec getCorpusSpec() {
+        return new CorpusSpec(seed, documents, paragraphs, quoteDensity, formattingRate, nesting, malformedRate);
+    }
+
+    public LoadTestResult run(Path corpusDirectory, Path outputDirectory, RuleSets ruleSets) throws CustomAppException {
+        CorpusSpec spec = getCorpusSpec();
+        try {
+            log.info("Préparation du corpus dans {} : {}", corpusDirectory, spec);
+            long bytes = new CorpusGenerator(spec).generate(corpusDirectory);
+            List<Path> inputs = new ArrayList<>();
+            for (int i = 0; i < spec.getDocuments(); i++) {
+                inputs.add(corpusDirectory.resolve(CorpusGenerator.fileName(i)));
+            }
+            Files.createDirectories(outputDirectory);
+
+            for (int i = 0; i < warmupRuns; i++) {
+                log.info("Passage de chauffe {}/{}", i + 1, warmupRuns);
+                modeCitationPipeline.run(inputs, outputDirectory, ruleSets);
+            }
+
+            long[] latencies = new long[inputs.size()];
+            AtomicInteger completed = new AtomicInteger();
+            List<StageStatistics> statistics;
+            long allocated;
+            long collections;
+            long start;
+            long elapsed;
+            try (AllocationMeter allocationMeter = new AllocationMeter()) {
+                start = System.nanoTime();
+                statistics = modeCitationPipeline.run(inputs, outputDirectory, ruleSets, null, null,
+                        latency -> latencies[completed.getAndIncrement()] = latency);
+                elapsed = System.nanoTime() - start;
+                allocated = allocationMeter.getAllocatedBytes();
+                collections = allocationMeter.getCollections();
+            }
+
+            long[] sorted = Arrays.copyOf(latencies, completed.get());
+            Arrays.sort(sorted);
+            double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos(1);
+            long failed = statistics.stream().mapToLong(StageStatistics::getFailed).sum();
+            LoadTestResult result = new LoadTestResult(spec, sorted.length, bytes, failed, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    sorted.length / seconds, bytes / 1_000_000.0 / seconds,
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)), millis(percentile(sorted, 1.0)),
+                    sorted.length > 0 ? allocated / sorted.length : 0, collections);
+
+            Path resultPath = outputDirectory.resolve(RESULT_FILE_NAME);
+            OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(resultPath.toFile(), result);
+            log.info("Essai de charge : {}", result);
+            log.info("Résultat écrit dans : {}", resultPath);
+            return result;
+        } catch (IOException e) {
+            log.error("Erreur lors de la préparation du corpus ou de l'écriture du résultat", e);
+            throw new CustomAppException("Erreur lors de la préparation du corpus ou de l'écriture du résultat", e);
+        }
+    }
+
+    //Valeur au rang q (0 à 1) d'un tableau trié, méthode du rang le plus proche
+    static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -9,6 +9,7 @@
 
 package com.ouestfrance.modecitation;
 
+import org.springframework.boot.Banner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -17,6 +18,25 @@ public class ModeCitationApplication {
 
 	//Lance l'application Spring Boot.
 	public static void main(String[] args) {
-		SpringApplication.run(ModeCitationApplication.class, args);
+		SpringApplication application = new SpringApplication(ModeCitationApplication.class);
+		if (isStandardOutputMode(args)) {
+			//En mode pipe ou envelope, la sortie standard ne porte que les résultats : logs et bannière vont sur la sortie d'erreur
+			System.setProperty("log.console.target", "SYSTEM_ERR");
+			application.setBannerMode(Banner.Mode.OFF);
+		}
+		application.run(args);
+	}
+
+	private static boolean isStandardOutputMode(String[] args) {
+		for (String arg : args) {
+			if ("--run.mode=pipe".equals(arg) || "--run.mode=envelope".equals(arg)) {
+				return true;
+			}
+		}
+		return isStandardOutputMode(System.getProperty("run.mode")) || isStandardOutputMode(System.getenv("RUN_MODE"));
+	}
+
+	private static boolean isStandardOutputMode(String runMode) {
+		return "pipe".equals(runMode) || "envelope".equals(runMode);
 	}
 }
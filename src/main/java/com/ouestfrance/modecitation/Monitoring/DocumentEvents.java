@@ -0,0 +1,68 @@
+/*
+ * Nom         : DocumentEvents.java
+ *
+ * Description : Outils communs aux évènements JFR du mode citation.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Monitoring;
+
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+public final class DocumentEvents {
+
+    private DocumentEvents() {
+    }
+
+    //Termine l'évènement de chargement et renseigne le bilan du document : taille et, si l'évènement est
+    //enregistré, nombre de noeuds repris par les évènements suivants
+    public static void loaded(DocumentLoadEvent event, DocumentReport report, Document document, long sizeBytes) {
+        event.end();
+        report.setSizeBytes(sizeBytes);
+        if (!event.isEnabled()) {
+            return;
+        }
+        report.setNodeCount(countNodes(document));
+        if (event.shouldCommit()) {
+            event.document = report.getDocument();
+            event.sizeBytes = sizeBytes;
+            event.nodeCount = report.getNodeCount();
+            event.commit();
+        }
+    }
+
+    //Termine l'évènement d'écriture d'un document
+    public static void written(DocumentWriteEvent event, DocumentReport report, String format) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.document = report.getDocument();
+            event.format = format;
+            event.sizeBytes = report.getSizeBytes();
+            event.nodeCount = report.getNodeCount();
+            event.commit();
+        }
+    }
+
+    //Compte les noeuds d'un document par un parcours itératif ; appelé seulement si les évènements sont enregistrés
+    public static long countNodes(Document document) {
+        long count = 0;
+        Node root = document.getDocumentElement();
+        Node node = root;
+        while (node != null) {
+            count++;
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+                continue;
+            }
+            while (node != null && node != root && node.getNextSibling() == null) {
+                node = node.getParentNode();
+            }
+            node = node == null || node == root ? null : node.getNextSibling();
+        }
+        return count;
+    }
+}
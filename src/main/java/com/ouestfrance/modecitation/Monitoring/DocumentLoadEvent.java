@@ -0,0 +1,37 @@
+/*
+ * Nom         : DocumentLoadEvent.java
+ *
+ * Description : Évènement JFR couvrant l'analyse d'un document XML en arbre DOM.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.ouestfrance.modecitation.DocumentLoad")
+@Label("Chargement du document")
+@Description("Analyse d'un document XML en arbre DOM")
+@Category({"Mode citation", "Document"})
+@StackTrace(false)
+public class DocumentLoadEvent extends Event {
+
+    @Label("Document")
+    public String document;
+
+    @Label("Taille")
+    @DataAmount
+    public long sizeBytes;
+
+    @Label("Noeuds")
+    @Description("Nombre de noeuds de l'arbre DOM")
+    public long nodeCount;
+}
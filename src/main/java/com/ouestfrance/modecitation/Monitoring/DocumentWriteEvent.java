@@ -0,0 +1,41 @@
+/*
+ * Nom         : DocumentWriteEvent.java
+ *
+ * Description : Évènement JFR couvrant la sérialisation d'un document (document complet ou correctif).
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.ouestfrance.modecitation.DocumentWrite")
+@Label("Écriture du document")
+@Description("Sérialisation d'un document vers sa destination")
+@Category({"Mode citation", "Document"})
+@StackTrace(false)
+public class DocumentWriteEvent extends Event {
+
+    @Label("Document")
+    public String document;
+
+    @Label("Format")
+    @Description("document, patch ou passthrough (recopie du contenu d'origine)")
+    public String format;
+
+    @Label("Taille")
+    @DataAmount
+    public long sizeBytes;
+
+    @Label("Noeuds")
+    @Description("Nombre de noeuds de l'arbre DOM au chargement")
+    public long nodeCount;
+}
@@ -0,0 +1,43 @@
+/*
+ * Nom         : PipelineStageEvent.java
+ *
+ * Description : Évènement JFR couvrant le passage d'un document dans un étage du pipeline de traitement par lot.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.ouestfrance.modecitation.PipelineStage")
+@Label("Étage du pipeline")
+@Description("Traitement d'un document par un étage du pipeline (lecture, analyse, application, écriture)")
+@Category({"Mode citation", "Pipeline"})
+@StackTrace(false)
+public class PipelineStageEvent extends Event {
+
+    @Label("Étage")
+    public String stage;
+
+    @Label("Document")
+    public String document;
+
+    @Label("Échec")
+    public boolean failed;
+
+    @Label("Taille")
+    @DataAmount
+    public long sizeBytes;
+
+    @Label("Noeuds")
+    @Description("Nombre de noeuds de l'arbre DOM au chargement, 0 avant l'analyse")
+    public long nodeCount;
+}
@@ -0,0 +1,47 @@
+/*
+ * Nom         : RuleApplicationEvent.java
+ *
+ * Description : Évènement JFR couvrant l'application d'une règle à un document.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.ouestfrance.modecitation.RuleApplication")
+@Label("Application d'une règle")
+@Description("Sélection des noeuds d'une règle et pose des citations")
+@Category({"Mode citation", "Règles"})
+@StackTrace(false)
+public class RuleApplicationEvent extends Event {
+
+    @Label("Document")
+    public String document;
+
+    @Label("Règle")
+    @Description("Description (desc) de la règle")
+    public String rule;
+
+    @Label("Noeuds sélectionnés")
+    public int matches;
+
+    @Label("Citations posées")
+    public int quotesWrapped;
+
+    @Label("Taille")
+    @DataAmount
+    public long sizeBytes;
+
+    @Label("Noeuds")
+    @Description("Nombre de noeuds de l'arbre DOM au chargement")
+    public long nodeCount;
+}
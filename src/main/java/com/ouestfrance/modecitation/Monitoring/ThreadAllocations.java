@@ -0,0 +1,63 @@
+/*
+ * Nom         : ThreadAllocations.java
+ *
+ * Description : Octets alloués sur le tas par thread, d'après les compteurs de la JVM : pour le thread courant,
+ *               ou pour l'ensemble des threads vivants entre deux relevés. Un thread terminé n'est plus mesurable :
+ *               ce qu'il a alloué doit être relevé par lui-même avant sa fin.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class ThreadAllocations {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private ThreadAllocations() {
+    }
+
+    //Octets alloués par le thread courant depuis son démarrage, 0 si la JVM ne les mesure pas
+    public static long currentThreadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    //Octets alloués depuis leur démarrage par chaque thread vivant, par identifiant de thread ; vide si la JVM ne
+    //les mesure pas
+    public static Map<Long, Long> liveThreadAllocatedBytes() {
+        Map<Long, Long> allocated = new HashMap<>();
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return allocated;
+        }
+        long[] ids = THREADS.getAllThreadIds();
+        long[] bytes = ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            // -1 : thread terminé entre-temps ou mesure désactivée
+            if (bytes[i] >= 0) {
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+
+    //Octets alloués depuis le relevé donné par les threads qui y figurent et sont encore vivants
+    public static long allocatedSince(Map<Long, Long> before) {
+        long allocated = 0;
+        for (Map.Entry<Long, Long> thread : liveThreadAllocatedBytes().entrySet()) {
+            Long start = before.get(thread.getKey());
+            if (start != null) {
+                allocated += thread.getValue() - start;
+            }
+        }
+        return allocated;
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Nom         : ArchiveIndexEntry.java
+ *
+ * Description : Ligne de l'index d'une archive de sortie : fichier d'entrée, entrée produite et tailles.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Output;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ArchiveIndexEntry {
+
+    private final String input;
+
+    private final String entry;
+
+    private final long size;
+
+    private final long compressedSize;
+}
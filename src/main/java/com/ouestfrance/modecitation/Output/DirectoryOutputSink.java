@@ -0,0 +1,49 @@
+/*
+ * Nom         : DirectoryOutputSink.java
+ *
+ * Description : Écrit chaque document dans son propre fichier, compressé en gzip au fil de l'eau
+ *               si demandé.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Output;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Services.XmlService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+public class DirectoryOutputSink implements OutputSink {
+
+    private final Path outputDirectory;
+
+    private final boolean gzip;
+
+    private final XmlService xmlService;
+
+    public DirectoryOutputSink(Path outputDirectory, boolean gzip, XmlService xmlService) {
+        this.outputDirectory = outputDirectory;
+        this.gzip = gzip;
+        this.xmlService = xmlService;
+    }
+
+    //Les fichiers étant indépendants, plusieurs threads peuvent écrire en parallèle ; la compression découle de
+    //l'extension .gz, comme pour tout fichier de sortie (XmlService.openOutputFile)
+    @Override
+    public String write(String inputName, String outputName, Content content) throws IOException, CustomAppException {
+        String fileName = gzip ? outputName + ".gz" : outputName;
+        try (OutputStream outputStream = xmlService.openOutputFile(outputDirectory.resolve(fileName))) {
+            content.writeTo(outputStream);
+        }
+        return fileName;
+    }
+
+    @Override
+    public void close() {
+        // Chaque fichier est fermé dès son écriture terminée
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Nom         : OutputSink.java
+ *
+ * Description : Destination des documents produits par le traitement par lot (répertoire de
+ *               fichiers, éventuellement compressés, ou archive ZIP unique).
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Output;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Services.XmlService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+public interface OutputSink extends Closeable {
+
+    //Contenu d'un document, écrit directement dans le flux de la destination
+    @FunctionalInterface
+    interface Content {
+        void writeTo(OutputStream outputStream) throws IOException, CustomAppException;
+    }
+
+    //Écrit un document et retourne le nom du fichier ou de l'entrée produit
+    String write(String inputName, String outputName, Content content) throws IOException, CustomAppException;
+
+    //Un document est lisible dès le retour de write ; faux pour une archive, lisible seulement une fois terminée
+    default boolean isReadablePerDocument() {
+        return true;
+    }
+
+    //Crée la destination correspondant au mode de compression configuré : none, gzip ou zip
+    static OutputSink create(String compression, Path outputDirectory, String archiveName, XmlService xmlService) throws IOException {
+        switch (compression) {
+            case "none":
+                return new DirectoryOutputSink(outputDirectory, false, xmlService);
+            case "gzip":
+                return new DirectoryOutputSink(outputDirectory, true, xmlService);
+            case "zip":
+                return new ZipArchiveOutputSink(outputDirectory.resolve(archiveName));
+            default:
+                throw new IllegalArgumentException("Mode de compression de sortie inconnu : " + compression);
+        }
+    }
+
+    //Nom de sortie d'un fichier d'entrée : l'éventuelle extension .gz est retirée
+    static String outputNameOf(String inputName) {
+        return inputName.toLowerCase().endsWith(".gz") ? inputName.substring(0, inputName.length() - 3) : inputName;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Nom         : ZipArchiveOutputSink.java
+ *
+ * Description : Regroupe tous les documents d'un lot dans une seule archive ZIP. Chaque document est
+ *               d'abord sérialisé en mémoire, hors verrou : un échec d'écriture ne laisse pas d'entrée tronquée
+ *               dans l'archive, et seule la compression est faite à la suite. Un index (index.jsonl) est
+ *               ajouté en dernière entrée.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Output;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Report.JsonLinesWriter;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Log4j2
+public class ZipArchiveOutputSink implements OutputSink {
+
+    public static final String INDEX_ENTRY_NAME = "index.jsonl";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+
+    private final ZipOutputStream zipOutputStream;
+
+    private final List<ArchiveIndexEntry> index = new ArrayList<>();
+
+    private final Set<String> entryNames = new HashSet<>();
+
+    public ZipArchiveOutputSink(Path archivePath) throws IOException {
+        this.channel = FileChannel.open(archivePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+    }
+
+    //Les entrées ne sont lisibles qu'avec le répertoire central, écrit à la fermeture de l'archive
+    @Override
+    public boolean isReadablePerDocument() {
+        return false;
+    }
+
+    //Le document entier est produit avant l'ouverture de son entrée : l'archive ne contient jamais de document
+    //partiel, et un échec laisse l'entrée suivante s'écrire normalement
+    @Override
+    public String write(String inputName, String outputName, Content content) throws IOException, CustomAppException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+        content.writeTo(buffer);
+        return writeEntry(inputName, outputName, buffer);
+    }
+
+    //Une archive ZIP s'écrit séquentiellement : les entrées sont compressées l'une après l'autre
+    private synchronized String writeEntry(String inputName, String outputName, ByteArrayOutputStream buffer) throws IOException {
+        String entryName = uniqueEntryName(outputName);
+        ZipEntry entry = new ZipEntry(entryName);
+        zipOutputStream.putNextEntry(entry);
+        buffer.writeTo(zipOutputStream);
+        zipOutputStream.closeEntry();
+        index.add(new ArchiveIndexEntry(inputName, entryName, buffer.size(), entry.getCompressedSize()));
+        return entryName;
+    }
+
+    //Ajoute l'index en dernière entrée, termine l'archive et la force sur disque : les documents ne sont inscrits
+    //au journal de reprise qu'ensuite
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            zipOutputStream.putNextEntry(new ZipEntry(INDEX_ENTRY_NAME));
+            JsonLinesWriter indexWriter = new JsonLinesWriter(
+                    new OutputStreamWriter(CloseShieldOutputStream.wrap(zipOutputStream), StandardCharsets.UTF_8));
+            index.forEach(indexWriter::write);
+            indexWriter.close();
+            zipOutputStream.closeEntry();
+            zipOutputStream.finish();
+            zipOutputStream.flush();
+            channel.force(false);
+            log.info("Archive terminée : {} document(s)", index.size());
+        } finally {
+            zipOutputStream.close();
+        }
+    }
+
+    //Deux fichiers d'entrée peuvent produire le même nom (a.xml et a.xml.gz) : le second est suffixé
+    private String uniqueEntryName(String outputName) {
+        String entryName = outputName;
+        for (int i = 2; !entryNames.add(entryName); i++) {
+            entryName = outputName + "." + i;
+        }
+        return entryName;
+    }
+}
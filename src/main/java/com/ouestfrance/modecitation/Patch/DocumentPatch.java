@@ -0,0 +1,63 @@
+/*
+ * Nom         : DocumentPatch.java
+ *
+ * Description : Correctif d'un document : liste des citations à baliser dans le contenu d'origine,
+ *               à la place d'une réécriture complète du document.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Patch;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"document", "sourceLength", "sourceCrc32", "edits"})
+public class DocumentPatch {
+
+    public static final String EXTENSION = ".patch.json";
+
+    //La destination (fichier, entrée d'archive) reste maîtresse de la fermeture du flux
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    private String document;
+
+    //Taille et somme de contrôle du contenu d'origine, vérifiées avant application
+    private int sourceLength;
+
+    private long sourceCrc32;
+
+    //Modifications triées par position croissante, sans chevauchement
+    private List<PatchEdit> edits = new ArrayList<>();
+
+    public static long checksum(byte[] content) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        return crc32.getValue();
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        OBJECT_MAPPER.writeValue(outputStream, this);
+    }
+
+    public static DocumentPatch read(InputStream inputStream) throws IOException {
+        return OBJECT_MAPPER.readValue(inputStream, DocumentPatch.class);
+    }
+}
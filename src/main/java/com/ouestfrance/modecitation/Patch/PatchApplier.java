@@ -0,0 +1,77 @@
+/*
+ * Nom         : PatchApplier.java
+ *
+ * Description : Applique un correctif au contenu d'origine d'un document. Utilisable seul :
+ *               PatchApplier <document d'origine> <correctif .patch.json> <document produit>
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Patch;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Services.XmlService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+public final class PatchApplier {
+
+    private PatchApplier() {
+    }
+
+    //Écrit le contenu d'origine modifié par le correctif ; seules les plages touchées sont réécrites
+    public static void apply(byte[] original, DocumentPatch patch, OutputStream outputStream) throws CustomAppException, IOException {
+        if (original.length != patch.getSourceLength() || DocumentPatch.checksum(original) != patch.getSourceCrc32()) {
+            throw new CustomAppException("Le contenu d'origine ne correspond pas au correctif du document " + patch.getDocument());
+        }
+        int position = 0;
+        for (PatchEdit edit : patch.getEdits()) {
+            if (edit.getStart() < position || edit.getEnd() < edit.getStart() || edit.getEnd() > original.length) {
+                throw new CustomAppException("Modification invalide ou chevauchante à la position " + edit.getStart()
+                        + " du correctif du document " + patch.getDocument());
+            }
+            outputStream.write(original, position, edit.getStart() - position);
+            outputStream.write(edit.getOpen().getBytes(StandardCharsets.UTF_8));
+            if (edit.getType() == PatchEdit.Type.WRAP) {
+                outputStream.write(original, edit.getStart(), edit.getEnd() - edit.getStart());
+            } else {
+                outputStream.write(escape(edit.getText()).getBytes(StandardCharsets.UTF_8));
+            }
+            outputStream.write(edit.getClose().getBytes(StandardCharsets.UTF_8));
+            position = edit.getEnd();
+        }
+        outputStream.write(original, position, original.length - position);
+    }
+
+    //Échappe un texte pour l'insérer dans le contenu XML
+    static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage : PatchApplier <document d'origine> <correctif .patch.json> <document produit>");
+            System.exit(2);
+        }
+        XmlService xmlService = new XmlService();
+        try {
+            byte[] original = xmlService.readBytesFromSource(args[0]);
+            DocumentPatch patch;
+            try (InputStream patchStream = xmlService.openSource(args[1])) {
+                patch = DocumentPatch.read(patchStream);
+            }
+            try (OutputStream outputStream = xmlService.openOutputFile(Path.of(args[2]))) {
+                apply(original, patch, outputStream);
+            }
+            System.out.println(patch.getEdits().size() + " modification(s) appliquée(s) à " + args[0]);
+        } catch (IOException | CustomAppException e) {
+            System.err.println("Échec de l'application du correctif : " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
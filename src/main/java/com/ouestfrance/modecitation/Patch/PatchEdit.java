@@ -0,0 +1,48 @@
+/*
+ * Nom         : PatchEdit.java
+ *
+ * Description : Modification élémentaire d'un correctif : une citation balisée dans le contenu d'origine,
+ *               repérée par le paragraphe concerné et la plage d'octets [start, end[ touchée.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Patch;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"type", "location", "start", "end", "open", "close", "text"})
+public class PatchEdit {
+
+    public enum Type {
+        //La plage d'origine est conservée et entourée des balises open et close
+        WRAP,
+        //La plage d'origine (un élément de mise en forme) est remplacée par open, le texte échappé et close
+        REPLACE
+    }
+
+    private Type type;
+
+    //Chemin du paragraphe dans le document, par exemple /doc[1]/article[1]/texte[1]/p[3]
+    private String location;
+
+    private int start;
+
+    private int end;
+
+    private String open;
+
+    private String close;
+
+    //Texte de la citation
+    private String text;
+}
@@ -0,0 +1,109 @@
+/*
+ * Nom         : PatchRecorder.java
+ *
+ * Description : Enregistre, pendant l'application des règles, les citations balisées sous forme de
+ *               modifications du contenu d'origine, pour produire le correctif du document.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Patch;
+
+import com.ouestfrance.modecitation.Report.NodeLocation;
+import lombok.Getter;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class PatchRecorder {
+
+    private final String document;
+
+    private final byte[] content;
+
+    private final List<PatchEdit> edits = new ArrayList<>();
+
+    //Raison pour laquelle le document ne peut pas être décrit par un correctif, null sinon
+    @Getter
+    private String unavailableReason;
+
+    private PatchRecorder(String document, byte[] content) {
+        this.document = document;
+        this.content = content;
+    }
+
+    //Prépare l'enregistrement des modifications d'un document analysé à partir de son contenu d'origine
+    public static PatchRecorder attach(String document, byte[] content, Document parsed) {
+        PatchRecorder recorder = new PatchRecorder(document, content);
+        if (!SourceMapper.attach(content, parsed)) {
+            recorder.unavailableReason = "contenu d'origine non rapprochable de l'arbre XML";
+        }
+        return recorder;
+    }
+
+    public boolean isAvailable() {
+        return unavailableReason == null;
+    }
+
+    //Citation balisée par l'élément quote à l'intérieur d'un noeud texte, entre les caractères start et end
+    public void quoteWrapped(Node text, int start, int end, Element quote) {
+        if (!isAvailable()) {
+            return;
+        }
+        SourceRef ref = SourceMapper.of(text);
+        int[] offsets = ref != null ? SourceMapper.byteOffsets(content, ref, text.getNodeValue()) : null;
+        if (offsets == null) {
+            unavailable("citation dans un texte absent du contenu d'origine", text);
+            return;
+        }
+        edits.add(new PatchEdit(PatchEdit.Type.WRAP, NodeLocation.of(text), offsets[start], offsets[end],
+                openTag(quote), closeTag(quote), text.getNodeValue().substring(start, end)));
+    }
+
+    //Élément de mise en forme remplacé par l'élément quote ; les modifications qu'il contenait sont remplacées avec lui
+    public void quoteReplaced(Node formatting, Element quote) {
+        if (!isAvailable()) {
+            return;
+        }
+        SourceRef ref = SourceMapper.of(formatting);
+        if (ref == null) {
+            unavailable("élément de mise en forme absent du contenu d'origine", formatting);
+            return;
+        }
+        edits.removeIf(edit -> edit.getStart() >= ref.getStart() && edit.getEnd() <= ref.getEnd());
+        edits.add(new PatchEdit(PatchEdit.Type.REPLACE, NodeLocation.of(formatting.getParentNode()), ref.getStart(), ref.getEnd(),
+                openTag(quote), closeTag(quote), quote.getTextContent()));
+    }
+
+    public DocumentPatch toPatch() {
+        List<PatchEdit> sorted = new ArrayList<>(edits);
+        sorted.sort(Comparator.comparingInt(PatchEdit::getStart));
+        return new DocumentPatch(document, content.length, DocumentPatch.checksum(content), sorted);
+    }
+
+    private void unavailable(String reason, Node node) {
+        unavailableReason = reason + " (" + NodeLocation.of(node) + ")";
+        edits.clear();
+    }
+
+    private static String openTag(Element element) {
+        StringBuilder tag = new StringBuilder("<").append(element.getTagName());
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            tag.append(' ').append(attribute.getNodeName()).append("=\"")
+                    .append(PatchApplier.escape(attribute.getNodeValue()).replace("\"", "&quot;")).append('"');
+        }
+        return tag.append('>').toString();
+    }
+
+    private static String closeTag(Element element) {
+        return "</" + element.getTagName() + ">";
+    }
+}
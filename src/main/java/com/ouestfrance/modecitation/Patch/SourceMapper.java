@@ -0,0 +1,285 @@
+/*
+ * Nom         : SourceMapper.java
+ *
+ * Description : Rapproche l'arbre DOM d'un document des octets d'origine dont il est issu, afin de
+ *               pouvoir exprimer les modifications en positions dans le fichier d'origine.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Patch;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+public final class SourceMapper {
+
+    private static final String SOURCE_KEY = "modecitation.source";
+
+    private SourceMapper() {
+    }
+
+    //Associe à chaque élément et noeud texte la plage d'octets qu'il occupe dans le contenu d'origine.
+    //Retourne false si le contenu ne peut pas être rapproché de l'arbre (DOCTYPE, encodage autre qu'UTF-8...)
+    public static boolean attach(byte[] content, Document document) {
+        List<int[]> tokens = tokenize(content);
+        if (tokens == null) {
+            return false;
+        }
+        List<Node> nodes = collect(document);
+        if (nodes == null || nodes.size() != tokens.size()) {
+            return false;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i).getNodeType() != tokens.get(i)[0]) {
+                return false;
+            }
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            int[] token = tokens.get(i);
+            if (token[0] == Node.ELEMENT_NODE || token[0] == Node.TEXT_NODE) {
+                nodes.get(i).setUserData(SOURCE_KEY, new SourceRef(token[1], token[2]), null);
+            }
+        }
+        return true;
+    }
+
+    //Plage d'origine d'un noeud, null pour un noeud créé pendant le traitement
+    public static SourceRef of(Node node) {
+        return (SourceRef) node.getUserData(SOURCE_KEY);
+    }
+
+    //Position en octets, dans le contenu d'origine, de chaque caractère du texte d'un noeud (et de sa fin).
+    //Retourne null si les octets d'origine ne se décodent pas exactement en ce texte
+    public static int[] byteOffsets(byte[] content, SourceRef ref, String text) {
+        int[] offsets = new int[text.length() + 1];
+        StringBuilder decoded = new StringBuilder(text.length());
+        int i = ref.getStart();
+        while (i < ref.getEnd()) {
+            int position = i;
+            int b = content[i] & 0xFF;
+            int codePoint;
+            if (b == '&') {
+                int semicolon = indexOf(content, i, ref.getEnd(), ";");
+                codePoint = semicolon < 0 ? -1 : decodeReference(new String(content, i + 1, semicolon - i - 1, StandardCharsets.US_ASCII));
+                i = semicolon + 1;
+            } else if (b == '\r') {
+                // Les fins de ligne sont normalisées par l'analyseur
+                codePoint = '\n';
+                i += i + 1 < ref.getEnd() && content[i + 1] == '\n' ? 2 : 1;
+            } else {
+                int length = b < 0x80 ? 1 : b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+                codePoint = i + length <= ref.getEnd() ? decodeUtf8(content, i, length) : -1;
+                i += length;
+            }
+            if (codePoint < 0 || decoded.length() + Character.charCount(codePoint) > text.length()) {
+                return null;
+            }
+            int index = decoded.length();
+            decoded.appendCodePoint(codePoint);
+            for (int k = index; k < decoded.length(); k++) {
+                offsets[k] = position;
+            }
+        }
+        if (!decoded.toString().equals(text)) {
+            return null;
+        }
+        offsets[text.length()] = ref.getEnd();
+        return offsets;
+    }
+
+    //Découpe le contenu en éléments, textes, sections CDATA, commentaires et instructions de traitement,
+    //dans l'ordre du document ; chaque jeton vaut {type de noeud DOM, début, fin}
+    private static List<int[]> tokenize(byte[] content) {
+        if (content.length >= 2 && ((content[0] & 0xFF) == 0xFE || (content[0] & 0xFF) == 0xFF)) {
+            // Marque d'ordre des octets UTF-16
+            return null;
+        }
+        int i = startsWith(content, 0, "\uFEFF") ? 3 : 0;
+        if (startsWith(content, i, "<?xml") && i + 5 < content.length && isWhitespace(content[i + 5])) {
+            int end = indexOf(content, i, content.length, "?>");
+            if (end < 0 || !isUtf8Declaration(new String(content, i, end - i, StandardCharsets.US_ASCII))) {
+                return null;
+            }
+            i = end + 2;
+        }
+
+        List<int[]> tokens = new ArrayList<>();
+        Deque<int[]> openElements = new ArrayDeque<>();
+        int textStart = -1;
+        while (i < content.length) {
+            if (content[i] != '<') {
+                if (textStart < 0) {
+                    textStart = i;
+                }
+                i++;
+                continue;
+            }
+            if (textStart >= 0 && !openElements.isEmpty()) {
+                tokens.add(new int[]{Node.TEXT_NODE, textStart, i});
+            }
+            textStart = -1;
+
+            int end;
+            if (startsWith(content, i, "<!--")) {
+                end = endOf(content, i, "-->");
+                tokens.add(new int[]{Node.COMMENT_NODE, i, end});
+            } else if (startsWith(content, i, "<![CDATA[")) {
+                end = endOf(content, i, "]]>");
+                tokens.add(new int[]{Node.CDATA_SECTION_NODE, i, end});
+            } else if (startsWith(content, i, "<!")) {
+                // DOCTYPE : des entités peuvent y être déclarées, le texte d'origine n'est plus fiable
+                return null;
+            } else if (startsWith(content, i, "<?")) {
+                end = endOf(content, i, "?>");
+                tokens.add(new int[]{Node.PROCESSING_INSTRUCTION_NODE, i, end});
+            } else if (startsWith(content, i, "</")) {
+                end = endOf(content, i, ">");
+                if (openElements.isEmpty()) {
+                    return null;
+                }
+                openElements.pop()[2] = end;
+            } else {
+                end = endOfStartTag(content, i);
+                if (end < 0) {
+                    return null;
+                }
+                int[] element = {Node.ELEMENT_NODE, i, end};
+                tokens.add(element);
+                if (content[end - 2] != '/') {
+                    openElements.push(element);
+                }
+            }
+            if (end < 0) {
+                return null;
+            }
+            i = end;
+        }
+        return openElements.isEmpty() ? tokens : null;
+    }
+
+    //Noeuds du document dans l'ordre de lecture, hors noeud document ; null si l'arbre contient un type non géré
+    private static List<Node> collect(Document document) {
+        List<Node> nodes = new ArrayList<>();
+        Node node = document.getFirstChild();
+        while (node != null) {
+            switch (node.getNodeType()) {
+                case Node.ELEMENT_NODE, Node.TEXT_NODE, Node.CDATA_SECTION_NODE, Node.COMMENT_NODE, Node.PROCESSING_INSTRUCTION_NODE:
+                    nodes.add(node);
+                    break;
+                default:
+                    return null;
+            }
+            Node next = node.getFirstChild();
+            while (next == null && node != null) {
+                next = node.getNextSibling();
+                node = node.getParentNode();
+            }
+            node = next;
+        }
+        return nodes;
+    }
+
+    //Fin d'une balise ouvrante, en ignorant les '>' contenus dans les valeurs d'attributs
+    private static int endOfStartTag(byte[] content, int from) {
+        byte quote = 0;
+        for (int i = from + 1; i < content.length; i++) {
+            byte b = content[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isUtf8Declaration(String declaration) {
+        int index = declaration.indexOf("encoding");
+        if (index < 0) {
+            return true;
+        }
+        String rest = declaration.substring(index + "encoding".length()).replaceAll("[\\s=\"']", " ").trim();
+        String encoding = rest.split(" ")[0];
+        return encoding.equalsIgnoreCase("UTF-8") || encoding.equalsIgnoreCase("UTF8");
+    }
+
+    private static int decodeReference(String name) {
+        try {
+            if (name.startsWith("#x")) {
+                return Integer.parseInt(name.substring(2), 16);
+            }
+            if (name.startsWith("#")) {
+                return Integer.parseInt(name.substring(1));
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        switch (name) {
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "amp":
+                return '&';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                return -1;
+        }
+    }
+
+    private static int decodeUtf8(byte[] content, int i, int length) {
+        int b = content[i] & 0xFF;
+        int codePoint = length == 1 ? b : length == 2 ? b & 0x1F : length == 3 ? b & 0x0F : b & 0x07;
+        for (int k = 1; k < length; k++) {
+            codePoint = (codePoint << 6) | (content[i + k] & 0x3F);
+        }
+        return codePoint;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static boolean startsWith(byte[] content, int from, String prefix) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        if (from + bytes.length > content.length) {
+            return false;
+        }
+        for (int k = 0; k < bytes.length; k++) {
+            if (content[from + k] != bytes[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] content, int from, int to, String marker) {
+        for (int i = from; i < to; i++) {
+            if (startsWith(content, i, marker) && i + marker.length() <= to) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //Position qui suit le marqueur de fin, -1 s'il est absent
+    private static int endOf(byte[] content, int from, String marker) {
+        int index = indexOf(content, from, content.length, marker);
+        return index < 0 ? -1 : index + marker.length();
+    }
+}
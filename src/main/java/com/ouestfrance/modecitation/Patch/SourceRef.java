@@ -0,0 +1,22 @@
+/*
+ * Nom         : SourceRef.java
+ *
+ * Description : Plage d'octets [start, end[ occupée par un noeud dans le contenu XML d'origine.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Patch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SourceRef {
+
+    private final int start;
+
+    private final int end;
+}
@@ -0,0 +1,139 @@
+/*
+ * Nom         : JsonLinesPipeCodec.java
+ *
+ * Description : Documents du mode pipe en JSON Lines : une ligne {"id": ..., "xml": "..."} par document en
+ *               entrée, une ligne {"id": ..., "xml": "...", "report": {...}} par résultat en sortie (sans
+ *               "xml" si le traitement a échoué). Le contenu XML est transmis en UTF-8 : l'encodage déclaré par
+ *               un document est réécrit en UTF-8 avant son analyse. Une ligne plus longue que la taille
+ *               maximale d'un document est lue jusqu'à sa fin sans être retenue et donne un document en échec.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Pipe;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ouestfrance.modecitation.Services.XmlService;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+public class JsonLinesPipeCodec implements PipeCodec {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final InputStream inputStream;
+
+    private final Writer writer;
+
+    //Taille maximale d'une ligne en octets, 0 pour ne pas en fixer
+    private final long maxLineBytes;
+
+    //Octets lus sur le flux et pas encore découpés en lignes
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int position;
+
+    private int limit;
+
+    //Octets de la ligne en cours de lecture, réutilisés d'une ligne à l'autre
+    private final ByteArrayOutputStream lineBytes = new ByteArrayOutputStream();
+
+    private long sequence;
+
+    public JsonLinesPipeCodec(InputStream inputStream, OutputStream outputStream) {
+        this(inputStream, outputStream, 0);
+    }
+
+    public JsonLinesPipeCodec(InputStream inputStream, OutputStream outputStream, long maxLineBytes) {
+        this.inputStream = inputStream;
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    @Override
+    public PipeDocument read() throws IOException {
+        long length = readLine();
+        while (length >= 0 && length <= lineBytes.size() && lineBytes.toString(StandardCharsets.UTF_8).isBlank()) {
+            length = readLine();
+        }
+        if (length < 0) {
+            return null;
+        }
+        long current = sequence++;
+        if (length > lineBytes.size()) {
+            return new PipeDocument(current, String.valueOf(current), null,
+                    "Ligne de " + length + " octets supérieure à la limite de " + maxLineBytes + " octets");
+        }
+        //Une ligne illisible donne un document en échec plutôt que l'arrêt du flux
+        try {
+            JsonNode node = OBJECT_MAPPER.readTree(lineBytes.toByteArray());
+            String id = node.hasNonNull("id") ? node.get("id").asText() : String.valueOf(current);
+            if (!node.path("xml").isTextual()) {
+                return new PipeDocument(current, id, null, "Champ \"xml\" absent ou non textuel");
+            }
+            return new PipeDocument(current, id, XmlService.utf8Bytes(node.get("xml").asText()), null);
+        } catch (JsonProcessingException e) {
+            return new PipeDocument(current, String.valueOf(current), null, "Ligne JSON invalide : " + e.getOriginalMessage());
+        }
+    }
+
+    //Lit la ligne suivante dans lineBytes, sans sa fin de ligne, et rend sa longueur en octets (-1 en fin de flux) ;
+    //au-delà de la limite, la suite de la ligne est comptée sans être retenue
+    private long readLine() throws IOException {
+        lineBytes.reset();
+        long length = 0;
+        while (true) {
+            if (position == limit) {
+                int read = inputStream.read(buffer, 0, buffer.length);
+                position = 0;
+                limit = Math.max(read, 0);
+                if (read < 0) {
+                    return length == 0 ? -1 : length;
+                }
+            }
+            int end = position;
+            while (end < limit && buffer[end] != '\n') {
+                end++;
+            }
+            int count = end - position;
+            long kept = maxLineBytes > 0 ? Math.min(count, Math.max(0, maxLineBytes - length)) : count;
+            lineBytes.write(buffer, position, (int) kept);
+            length += count;
+            position = end;
+            if (end < limit) {
+                position++;
+                return length;
+            }
+        }
+    }
+
+    @Override
+    public void write(PipeResult result) throws IOException {
+        ObjectNode line = OBJECT_MAPPER.createObjectNode();
+        line.put("id", result.getId());
+        if (result.getOutput() != null) {
+            line.put("xml", new String(result.getOutput(), StandardCharsets.UTF_8));
+        }
+        line.set("report", OBJECT_MAPPER.valueToTree(result.getReport()));
+        writer.write(OBJECT_MAPPER.writeValueAsString(line));
+        writer.write('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
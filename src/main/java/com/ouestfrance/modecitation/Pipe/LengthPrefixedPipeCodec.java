@@ -0,0 +1,89 @@
+/*
+ * Nom         : LengthPrefixedPipeCodec.java
+ *
+ * Description : Trames binaires du mode pipe : chaque document est précédé de sa longueur en octets sur
+ *               4 octets gros-boutiens. Un document en échec est rendu sous forme de trame vide, afin que
+ *               la sortie compte toujours autant de trames que l'entrée. Une trame plus longue que la taille
+ *               maximale d'un document est sautée sans être chargée et donne un document en échec.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Pipe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class LengthPrefixedPipeCodec implements PipeCodec {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataInputStream inputStream;
+
+    private final DataOutputStream outputStream;
+
+    //Taille maximale d'une trame, 0 pour ne pas en fixer
+    private final long maxDocumentBytes;
+
+    private long sequence;
+
+    public LengthPrefixedPipeCodec(InputStream inputStream, OutputStream outputStream) {
+        this(inputStream, outputStream, 0);
+    }
+
+    public LengthPrefixedPipeCodec(InputStream inputStream, OutputStream outputStream, long maxDocumentBytes) {
+        this.inputStream = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+        this.maxDocumentBytes = maxDocumentBytes;
+    }
+
+    @Override
+    public PipeDocument read() throws IOException {
+        int first = inputStream.read();
+        if (first < 0) {
+            return null;
+        }
+        int length = (first << 24) | (inputStream.readUnsignedByte() << 16) | (inputStream.readUnsignedByte() << 8)
+                | inputStream.readUnsignedByte();
+        if (length < 0) {
+            throw new IOException("Longueur de trame invalide : " + Integer.toUnsignedString(length));
+        }
+        long current = sequence;
+        if (maxDocumentBytes > 0 && length > maxDocumentBytes) {
+            try {
+                inputStream.skipNBytes(length);
+            } catch (EOFException e) {
+                throw new IOException("Flux interrompu au milieu de la trame " + current, e);
+            }
+            sequence++;
+            return new PipeDocument(current, String.valueOf(current), null,
+                    "Trame de " + length + " octets supérieure à la limite de " + maxDocumentBytes + " octets");
+        }
+        // Lecture par blocs : la mémoire suit les octets effectivement reçus, pas la longueur annoncée
+        byte[] content = inputStream.readNBytes(length);
+        if (content.length < length) {
+            throw new IOException("Flux interrompu au milieu de la trame " + current);
+        }
+        sequence++;
+        return new PipeDocument(current, String.valueOf(current), content, null);
+    }
+
+    @Override
+    public void write(PipeResult result) throws IOException {
+        byte[] output = result.getOutput() != null ? result.getOutput() : new byte[0];
+        outputStream.writeInt(output.length);
+        outputStream.write(output);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Nom         : PipeCodec.java
+ *
+ * Description : Découpage du flux d'entrée du mode pipe en documents et écriture des résultats sur le flux de
+ *               sortie, dans le même format : trames préfixées par leur longueur ou JSON Lines.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Pipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface PipeCodec {
+
+    //Lit le document suivant, null en fin de flux
+    PipeDocument read() throws IOException;
+
+    //Écrit le résultat d'un document ; les résultats sont écrits dans l'ordre des documents lus
+    void write(PipeResult result) throws IOException;
+
+    void flush() throws IOException;
+
+    //Crée le format configuré : ndjson ou length-prefixed
+    static PipeCodec create(String format, InputStream inputStream, OutputStream outputStream) {
+        return create(format, inputStream, outputStream, 0);
+    }
+
+    //Idem avec une taille maximale de document (0 pour ne pas en fixer) : une trame ou une ligne plus longue est
+    //écartée sans être chargée en mémoire
+    static PipeCodec create(String format, InputStream inputStream, OutputStream outputStream, long maxDocumentBytes) {
+        switch (format) {
+            case "ndjson":
+                return new JsonLinesPipeCodec(inputStream, outputStream, maxDocumentBytes);
+            case "length-prefixed":
+                return new LengthPrefixedPipeCodec(inputStream, outputStream, maxDocumentBytes);
+            default:
+                throw new IllegalArgumentException("Format de flux inconnu : " + format);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Nom         : PipeDocument.java
+ *
+ * Description : Document lu sur l'entrée standard en mode pipe, numéroté dans l'ordre d'arrivée.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Pipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PipeDocument {
+
+    //Rang du document dans le flux d'entrée, à partir de 0
+    private final long sequence;
+
+    private final String id;
+
+    //Contenu XML, null si la trame n'a pas pu être lue
+    private final byte[] content;
+
+    //Motif du rejet de la trame, null si elle est valide
+    private final String error;
+}
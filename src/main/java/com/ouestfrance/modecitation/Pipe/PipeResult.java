@@ -0,0 +1,28 @@
+/*
+ * Nom         : PipeResult.java
+ *
+ * Description : Résultat du traitement d'un document du mode pipe, en attente d'écriture dans l'ordre d'entrée.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Pipe;
+
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PipeResult {
+
+    private final long sequence;
+
+    private final String id;
+
+    //Document produit, null si le traitement a échoué
+    private final byte[] output;
+
+    private final DocumentReport report;
+}
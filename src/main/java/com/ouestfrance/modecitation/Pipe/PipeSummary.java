@@ -0,0 +1,27 @@
+/*
+ * Nom         : PipeSummary.java
+ *
+ * Description : Bilan d'une exécution du mode pipe.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Pipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PipeSummary {
+
+    private final long documents;
+
+    private final long failed;
+
+    //Documents servis par le traitement simultané d'un document identique
+    private final long coalesced;
+
+    private final long durationMillis;
+}
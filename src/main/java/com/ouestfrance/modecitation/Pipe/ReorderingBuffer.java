@@ -0,0 +1,93 @@
+/*
+ * Nom         : ReorderingBuffer.java
+ *
+ * Description : Remet dans l'ordre d'entrée des résultats produits dans le désordre par plusieurs threads.
+ *               Chaque résultat est écrit dès que tous ceux qui le précèdent l'ont été ; le nombre de
+ *               documents en cours (lus mais pas encore écrits) est borné par une fenêtre, ce qui limite la
+ *               mémoire quand un document lent retient les suivants.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Pipe;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+public class ReorderingBuffer<T> {
+
+    //Destination des résultats remis dans l'ordre
+    public interface Sink<T> {
+        void write(T item) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private final Semaphore window;
+
+    private final Sink<T> sink;
+
+    private final Map<Long, T> pending = new HashMap<>();
+
+    private long next;
+
+    private int maxPending;
+
+    private IOException failure;
+
+    public ReorderingBuffer(int capacity, Sink<T> sink) {
+        this.window = new Semaphore(Math.max(1, capacity));
+        this.sink = sink;
+    }
+
+    //Réserve la place d'un document avant sa lecture, en bloquant tant que la fenêtre est pleine
+    public void reserve() throws InterruptedException {
+        window.acquire();
+    }
+
+    //Dépose le résultat du document de rang sequence et écrit tous les résultats devenus consécutifs ;
+    //après une erreur d'écriture, les résultats sont écartés sans bloquer les producteurs
+    public synchronized void complete(long sequence, T item) {
+        pending.put(sequence, item);
+        maxPending = Math.max(maxPending, pending.size());
+        int written = 0;
+        for (T ready = pending.remove(next); ready != null; ready = pending.remove(next)) {
+            next++;
+            written++;
+            if (failure == null) {
+                try {
+                    sink.write(ready);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        if (written > 0 && failure == null) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        window.release(written);
+    }
+
+    //Nombre de résultats remis dans l'ordre
+    public synchronized long getWritten() {
+        return next;
+    }
+
+    //Nombre maximal de résultats arrivés en avance et retenus en attente de leurs prédécesseurs
+    public synchronized int getMaxPending() {
+        return maxPending;
+    }
+
+    public synchronized void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
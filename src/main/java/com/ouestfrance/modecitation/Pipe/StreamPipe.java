@@ -0,0 +1,161 @@
+/*
+ * Nom         : StreamPipe.java
+ *
+ * Description : Mode pipe : lit une suite de documents sur un flux (l'entrée standard), les traite sur un
+ *               groupe de threads et écrit les résultats sur un autre flux (la sortie standard) dans l'ordre
+ *               d'entrée, pour s'insérer dans un enchaînement de commandes sans fichier intermédiaire.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Pipe;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+@Log4j2
+public class StreamPipe {
+
+    private static final String STAGE = "pipe";
+
+    //Format du flux : ndjson (une ligne JSON par document) ou length-prefixed (longueur sur 4 octets puis contenu)
+    @Value("${pipe.format:ndjson}")
+    private String format;
+
+    @Value("${pipe.threads:4}")
+    private int threads;
+
+    //Nombre maximal de documents lus et pas encore écrits
+    @Value("${pipe.window:64}")
+    private int window;
+
+    //Classe de priorité des documents reçus : interactive (envois à l'unité) ou bulk (reprise de masse)
+    @Value("${pipe.priority:interactive}")
+    private String priority;
+
+    //Taille maximale d'un document, vérifiée dès la lecture des trames
+    @Value("${limits.max.input.bytes:0}")
+    private long maxInputBytes;
+
+    @Autowired
+    private ModeCitationProcessor modeCitationProcessor;
+
+    public PipeSummary run(InputStream inputStream, OutputStream outputStream) throws CustomAppException {
+        long start = System.nanoTime();
+        PipeCodec codec = PipeCodec.create(format, inputStream, outputStream, maxInputBytes);
+        Priority documentPriority = Priority.of(priority);
+        ReorderingBuffer<PipeResult> buffer = new ReorderingBuffer<>(window, new ReorderingBuffer.Sink<>() {
+            @Override
+            public void write(PipeResult result) throws IOException {
+                codec.write(result);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                codec.flush();
+            }
+        });
+        LongAdder failed = new LongAdder();
+        LongAdder coalesced = new LongAdder();
+        AtomicInteger workerNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads),
+                runnable -> new Thread(runnable, "pipe-worker-" + workerNumber.getAndIncrement()));
+        long documents = 0;
+        try {
+            log.info("Mode pipe ({}) : {} thread(s), {} document(s) en cours au plus", format, threads, window);
+            for (PipeDocument document = codec.read(); document != null; document = codec.read()) {
+                buffer.reserve();
+                buffer.checkFailure();
+                documents++;
+                PipeDocument current = document;
+                workers.execute(() -> {
+                    PipeResult result = null;
+                    try {
+                        result = process(current, documentPriority);
+                    } catch (Error e) {
+                        result = failed(current, e);
+                        throw e;
+                    } finally {
+                        // La place du document est toujours remplie : sinon la remise en ordre attendrait
+                        // indéfiniment ce résultat et retiendrait tous les suivants
+                        if (result.getOutput() == null) {
+                            failed.increment();
+                        }
+                        if (Boolean.TRUE.equals(result.getReport().getCoalesced())) {
+                            coalesced.increment();
+                        }
+                        buffer.complete(current.getSequence(), result);
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            buffer.checkFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomAppException("Mode pipe interrompu", e);
+        } catch (IOException e) {
+            log.error("Erreur de lecture ou d'écriture du flux", e);
+            throw new CustomAppException("Erreur de lecture ou d'écriture du flux", e);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        PipeSummary summary = new PipeSummary(documents, failed.sum(), coalesced.sum(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Mode pipe terminé : {} document(s), {} en échec, {} servi(s) par un traitement identique simultané, {} ms ({} résultat(s) retenu(s) au plus pour remise en ordre)",
+                summary.getDocuments(), summary.getFailed(), summary.getCoalesced(), summary.getDurationMillis(), buffer.getMaxPending());
+        return summary;
+    }
+
+    //Traite un document ; toute erreur donne un résultat en échec, afin que chaque document d'entrée ait sa sortie
+    private PipeResult process(PipeDocument document, Priority documentPriority) {
+        DocumentReport report;
+        try {
+            if (document.getError() != null) {
+                throw new CustomAppException(document.getError());
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(document.getContent().length + 1024);
+            report = modeCitationProcessor.process(document.getId(), document.getContent(), outputStream, documentPriority);
+            return new PipeResult(document.getSequence(), document.getId(), outputStream.toByteArray(), report);
+        } catch (DocumentLimitException e) {
+            report = new DocumentReport(document.getId());
+            report.limitExceeded(STAGE, e, false);
+            log.warn("Document {} abandonné : {}", document.getId(), e.getMessage());
+        } catch (DocumentCancelledException e) {
+            report = new DocumentReport(document.getId());
+            report.cancelled(STAGE, e);
+            log.warn("Document {} annulé : {}", document.getId(), e.getMessage());
+        } catch (Exception e) {
+            return failed(document, e);
+        }
+        return new PipeResult(document.getSequence(), document.getId(), null, report);
+    }
+
+    //Résultat en échec d'un document dont le traitement a levé une exception ou une erreur
+    private PipeResult failed(PipeDocument document, Throwable cause) {
+        DocumentReport report = new DocumentReport(document.getId());
+        report.fail(STAGE, cause);
+        log.error("Échec du document {} : {}", document.getId(), cause.getMessage());
+        return new PipeResult(document.getSequence(), document.getId(), null, report);
+    }
+}
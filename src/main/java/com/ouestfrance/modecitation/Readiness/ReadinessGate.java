@@ -0,0 +1,78 @@
+/*
+ * Nom         : ReadinessGate.java
+ *
+ * Description : Indicateur de disponibilité des modes de longue durée, levé une fois la mise en température
+ *               terminée. Sans serveur HTTP, il est exposé par un fichier (readiness.file) que l'orchestrateur peut
+ *               sonder : créé au passage à l'état prêt avec le bilan de la mise en température, supprimé à l'arrêt.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Readiness;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+@Service
+@Log4j2
+public class ReadinessGate {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    //Fichier créé quand l'application est prête, vide pour ne pas en écrire
+    @Value("${readiness.file:}")
+    private String readinessFile;
+
+    private volatile boolean ready;
+
+    private volatile WarmUpResult warmUp;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    //Bilan de la mise en température, null si elle n'a pas eu lieu
+    public WarmUpResult getWarmUp() {
+        return warmUp;
+    }
+
+    //Passe à l'état prêt ; le fichier est écrit à part puis renommé pour n'être jamais lu à moitié
+    public void markReady(WarmUpResult result) {
+        warmUp = result;
+        if (readinessFile != null && !readinessFile.isEmpty()) {
+            Path path = Path.of(readinessFile).toAbsolutePath();
+            try {
+                Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+                Files.createDirectories(path.getParent());
+                Files.write(temporary, OBJECT_MAPPER.writeValueAsBytes(result != null ? result : OBJECT_MAPPER.createObjectNode()));
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // L'indicateur en mémoire reste juste : l'échec n'empêche pas le traitement
+                log.error("Impossible d'écrire le fichier de disponibilité {} : {}", path, e.getMessage());
+            }
+        }
+        ready = true;
+        log.info("Application prête");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ready = false;
+        if (readinessFile != null && !readinessFile.isEmpty()) {
+            try {
+                Files.deleteIfExists(Path.of(readinessFile));
+            } catch (IOException e) {
+                log.warn("Impossible de supprimer le fichier de disponibilité {} : {}", readinessFile, e.getMessage());
+            }
+        }
+    }
+}
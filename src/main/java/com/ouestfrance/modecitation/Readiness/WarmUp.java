@@ -0,0 +1,134 @@
+/*
+ * Nom         : WarmUp.java
+ *
+ * Description : Mise en température avant l'ouverture des modes de longue durée : un corpus d'échantillons livré
+ *               avec l'application (articles d'exemple et articles synthétiques reproductibles) passe par le
+ *               traitement complet (analyse, application des règles, sérialisation) par séries, jusqu'à ce que la
+ *               latence moyenne d'une série à l'autre se stabilise. Les premiers documents réels ne paient plus
+ *               l'interprétation et la compilation du code.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Readiness;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.LoadTest.CorpusGenerator;
+import com.ouestfrance.modecitation.LoadTest.CorpusSpec;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Log4j2
+public class WarmUp {
+
+    //Articles d'exemple livrés dans les ressources
+    private static final String[] SAMPLES = {"/XMLinput/ContenuEnEntree.xml", "/XMLinput/ContenuEnEntree2.xml"};
+
+    //Articles synthétiques ajoutés aux exemples, pour varier tailles, mises en forme et citations
+    private static final CorpusSpec SYNTHETIC = new CorpusSpec(42, 48, 20, 0.3, 0.2, 2, 0);
+
+    @Value("${warmup.enabled:false}")
+    private boolean enabled;
+
+    //Documents par série ; la latence moyenne est comparée d'une série à la suivante
+    @Value("${warmup.batch.documents:50}")
+    private int batchDocuments;
+
+    //Écart relatif de latence moyenne en deçà duquel deux séries consécutives sont jugées stables
+    @Value("${warmup.stability.tolerance:0.1}")
+    private double stabilityTolerance;
+
+    //Séries stables consécutives exigées avant de terminer
+    @Value("${warmup.stable.batches:2}")
+    private int stableBatches;
+
+    //Bornes de la mise en température, atteintes si le débit ne se stabilise pas
+    @Value("${warmup.max.documents:5000}")
+    private long maxDocuments;
+
+    @Value("${warmup.max.millis:60000}")
+    private long maxMillis;
+
+    @Autowired
+    private ModeCitationProcessor modeCitationProcessor;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //Traite le corpus d'échantillons par séries jusqu'à stabilisation ; une erreur de traitement sur un
+    //échantillon signale une configuration inutilisable et interrompt le démarrage
+    public WarmUpResult run() throws CustomAppException {
+        List<byte[]> corpus = corpus();
+        log.info("Mise en température sur {} échantillon(s), séries de {} document(s)", corpus.size(), batchDocuments);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        OutputStream discard = OutputStream.nullOutputStream();
+        long documents = 0;
+        int batches = 0;
+        int stable = 0;
+        double first = 0;
+        double previous = 0;
+        while (stable < stableBatches && documents < maxDocuments && System.nanoTime() - deadline < 0) {
+            long batchNanos = 0;
+            int batchSize = (int) Math.min(batchDocuments, maxDocuments - documents);
+            for (int i = 0; i < batchSize; i++) {
+                byte[] content = corpus.get((int) (documents % corpus.size()));
+                long documentStart = System.nanoTime();
+                modeCitationProcessor.process("warmup", content, discard, Priority.BULK);
+                batchNanos += System.nanoTime() - documentStart;
+                documents++;
+            }
+            double mean = batchNanos / 1000.0 / batchSize;
+            batches++;
+            if (batches == 1) {
+                first = mean;
+            } else if (Math.abs(mean - previous) <= stabilityTolerance * previous) {
+                stable++;
+            } else {
+                stable = 0;
+            }
+            log.debug("Mise en température, série {} : {} µs par document", batches, String.format("%.1f", mean));
+            previous = mean;
+        }
+        WarmUpResult result = new WarmUpResult(documents, batches, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                first, previous, stable >= stableBatches);
+        log.info("Mise en température {} en {} ms ({} document(s), {} série(s)) : {} µs par document au départ, {} µs à la fin",
+                result.isStabilized() ? "terminée" : "interrompue avant stabilisation", result.getDurationMillis(),
+                result.getDocuments(), result.getBatches(), String.format("%.1f", result.getFirstLatencyMicros()),
+                String.format("%.1f", result.getLastLatencyMicros()));
+        return result;
+    }
+
+    private List<byte[]> corpus() throws CustomAppException {
+        List<byte[]> corpus = new ArrayList<>();
+        for (String sample : SAMPLES) {
+            try (InputStream inputStream = getClass().getResourceAsStream(sample)) {
+                if (inputStream != null) {
+                    corpus.add(inputStream.readAllBytes());
+                }
+            } catch (IOException e) {
+                throw new CustomAppException("Erreur lors de la lecture de l'échantillon " + sample, e);
+            }
+        }
+        CorpusGenerator generator = new CorpusGenerator(SYNTHETIC);
+        for (int i = 0; i < SYNTHETIC.getDocuments(); i++) {
+            corpus.add(generator.article(i).getBytes(StandardCharsets.UTF_8));
+        }
+        return corpus;
+    }
+}
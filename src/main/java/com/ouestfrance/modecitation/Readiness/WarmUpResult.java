@@ -0,0 +1,36 @@
+/*
+ * Nom         : WarmUpResult.java
+ *
+ * Description : Bilan de la mise en température : durée, documents traités et latence moyenne par document de la
+ *               première et de la dernière série.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Readiness;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonPropertyOrder({"documents", "batches", "durationMillis", "firstLatencyMicros", "lastLatencyMicros", "stabilized"})
+public class WarmUpResult {
+
+    private final long documents;
+
+    private final int batches;
+
+    private final long durationMillis;
+
+    //Latence moyenne par document de la première série, sur un code encore interprété
+    private final double firstLatencyMicros;
+
+    //Latence moyenne par document de la dernière série
+    private final double lastLatencyMicros;
+
+    //Faux si la durée ou le nombre de documents maximal a été atteint avant que le débit ne se stabilise
+    private final boolean stabilized;
+}
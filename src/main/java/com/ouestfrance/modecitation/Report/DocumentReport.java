@@ -0,0 +1,209 @@
+/*
+ * Nom         : DocumentReport.java
+ *
+ * Description : Bilan du traitement d'un document : citations posées, anomalies relevées par
+ *               paragraphe et, le cas échéant, l'erreur qui a interrompu le traitement.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Report;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.Patch.PatchRecorder;
+import lombok.Getter;
+import lombok.Setter;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"document", "status", "ruleSet", "quotesWrapped", "warnings", "failedStage", "error", "durationMillis", "coalesced"})
+public class DocumentReport {
+
+    public enum Status {
+        SUCCESS,
+        FAILED,
+        //Limite dépassée ou traitement annulé : le document n'a pas été produit
+        CANCELLED,
+        //Limite dépassée : le document a été recopié sans modification
+        PASSTHROUGH
+    }
+
+    private static final int MAX_EXCERPT_LENGTH = 200;
+
+    private final String document;
+
+    private Status status = Status.SUCCESS;
+
+    //Nom du jeu de règles appliqué au document
+    @Setter
+    private String ruleSet;
+
+    private int quotesWrapped;
+
+    private final List<ReportWarning> warnings = new ArrayList<>();
+
+    private String failedStage;
+
+    private String error;
+
+    @Setter
+    private long durationMillis;
+
+    //Vrai si le document a été servi par le traitement simultané d'un document identique, absent sinon
+    private Boolean coalesced;
+
+    //Description de la règle en cours d'application, reportée sur les anomalies relevées
+    @JsonIgnore
+    @Setter
+    private String currentRule;
+
+    //Échéance (System.nanoTime) au-delà de laquelle le traitement du document est abandonné, 0 si aucune
+    @JsonIgnore
+    private long deadlineNanos;
+
+    //Enregistrement des citations sous forme de correctif, en sortie au format patch uniquement
+    @JsonIgnore
+    @Setter
+    private PatchRecorder patch;
+
+    //Citations relevées au fil de l'application des règles, null si le relevé n'est pas demandé
+    @JsonIgnore
+    private List<QuoteRecord> quotes;
+
+    @JsonIgnore
+    private int quoteContextChars;
+
+    //Taille du contenu d'entrée et nombre de noeuds au chargement, reportés sur les évènements JFR ;
+    //les noeuds ne sont comptés que si ces évènements sont enregistrés
+    @JsonIgnore
+    @Setter
+    private long sizeBytes;
+
+    @JsonIgnore
+    @Setter
+    private long nodeCount;
+
+    public DocumentReport(String document) {
+        this.document = document;
+    }
+
+    public void addWarning(WarningType type, Node node, String text) {
+        warnings.add(new ReportWarning(type, node != null ? NodeLocation.of(node) : null, currentRule, excerpt(text)));
+    }
+
+    //Active le relevé des citations, avec contextChars caractères de contexte de part et d'autre de chacune
+    public void collectQuotes(int contextChars) {
+        quotes = new ArrayList<>();
+        quoteContextChars = contextChars;
+    }
+
+    //Citation balisée par l'élément quote entre les caractères start et end d'un noeud texte
+    public void quoteWrapped(Node text, int start, int end, Element quote) {
+        quotesWrapped++;
+        if (quotes != null) {
+            quotes.add(QuoteRecord.of(document, currentRule, text, start, end, quote.getTextContent(), quoteContextChars));
+        }
+        if (patch != null) {
+            patch.quoteWrapped(text, start, end, quote);
+        }
+    }
+
+    //Élément de mise en forme entièrement remplacé par l'élément quote
+    public void quoteReplaced(Node formatting, Element quote) {
+        quotesWrapped++;
+        if (quotes != null) {
+            quotes.add(QuoteRecord.of(document, currentRule, formatting, 0, formatting.getTextContent().length(),
+                    quote.getTextContent(), quoteContextChars));
+        }
+        if (patch != null) {
+            patch.quoteReplaced(formatting, quote);
+        }
+    }
+
+    //Bilan d'un document identique traité une seule fois pour plusieurs demandes simultanées, repris au nom
+    //d'une autre demande ; les citations relevées sont rattachées à ce nom
+    public DocumentReport coalescedAs(String document) {
+        DocumentReport copy = new DocumentReport(document);
+        copy.status = status;
+        copy.ruleSet = ruleSet;
+        copy.quotesWrapped = quotesWrapped;
+        copy.warnings.addAll(warnings);
+        copy.failedStage = failedStage;
+        copy.error = error;
+        copy.durationMillis = durationMillis;
+        copy.coalesced = true;
+        copy.sizeBytes = sizeBytes;
+        copy.nodeCount = nodeCount;
+        if (quotes != null) {
+            copy.collectQuotes(quoteContextChars);
+            for (QuoteRecord quote : quotes) {
+                copy.quotes.add(new QuoteRecord(document, quote.getLocation(), quote.getRule(), quote.getText(),
+                        quote.getBefore(), quote.getAfter()));
+            }
+        }
+        return copy;
+    }
+
+    //Marque le document en échec ; seul le message est conservé, la pile d'appels reste dans les logs
+    public void fail(String stage, Throwable cause) {
+        status = Status.FAILED;
+        failedStage = stage;
+        error = cause.getMessage();
+        for (Throwable current = cause.getCause(); current != null; current = current.getCause()) {
+            error += " : " + current.getMessage();
+        }
+    }
+
+    //Marque le document comme abandonné pour dépassement de limite, recopié tel quel ou non produit
+    public void limitExceeded(String stage, DocumentLimitException cause, boolean passthrough) {
+        status = passthrough ? Status.PASSTHROUGH : Status.CANCELLED;
+        failedStage = stage;
+        error = cause.getMessage();
+    }
+
+    //Marque le document comme annulé : il n'est pas produit, ni recopié, et reste à traiter
+    public void cancelled(String stage, DocumentCancelledException cause) {
+        status = Status.CANCELLED;
+        failedStage = stage;
+        error = cause.getMessage();
+    }
+
+    @JsonIgnore
+    public boolean isFailed() {
+        return status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    //Fixe la durée maximale de traitement à partir de maintenant ; 0 ou moins pour ne pas en fixer
+    public void startDeadline(long maxDurationMillis) {
+        deadlineNanos = maxDurationMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDurationMillis) : 0;
+    }
+
+    //Point d'arrêt coopératif : interrompt le traitement si l'échéance est passée (dépassement de limite) ou si le
+    //thread est interrompu (annulation, jamais recopiée telle quelle)
+    public void checkDeadline() throws DocumentLimitException, DocumentCancelledException {
+        if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos > 0) {
+            throw new DocumentLimitException("Durée maximale de traitement dépassée");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new DocumentCancelledException("Traitement annulé");
+        }
+    }
+
+    private static String excerpt(String text) {
+        if (text == null || text.length() <= MAX_EXCERPT_LENGTH) {
+            return text;
+        }
+        return text.substring(0, MAX_EXCERPT_LENGTH) + "…";
+    }
+}
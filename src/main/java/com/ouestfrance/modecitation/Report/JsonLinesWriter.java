@@ -0,0 +1,58 @@
+/*
+ * Nom         : JsonLinesWriter.java
+ *
+ * Description : Écriture d'objets au format JSON Lines (un objet JSON par ligne), partageable
+ *               entre les threads du traitement par lot.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Log4j2
+public class JsonLinesWriter implements Closeable {
+
+    private static final ObjectWriter OBJECT_WRITER = new ObjectMapper().writer();
+
+    private final Writer writer;
+
+    public JsonLinesWriter(Path path) throws IOException {
+        this(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+    }
+
+    public JsonLinesWriter(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+    }
+
+    //Ajoute un objet sur une nouvelle ligne ; une erreur d'écriture est journalisée sans interrompre le traitement
+    public synchronized void write(Object value) {
+        try {
+            writer.write(OBJECT_WRITER.writeValueAsString(value));
+            writer.write('\n');
+        } catch (IOException e) {
+            log.error("Erreur lors de l'écriture d'une ligne JSON", e);
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
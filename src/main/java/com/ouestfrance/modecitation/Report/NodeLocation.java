@@ -0,0 +1,47 @@
+/*
+ * Nom         : NodeLocation.java
+ *
+ * Description : Calcule l'emplacement d'un noeud DOM sous forme de chemin indexé
+ *               (/doc[1]/article[1]/texte[1]/p[3]), stable d'un traitement à l'autre.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Report;
+
+import org.w3c.dom.Node;
+
+public final class NodeLocation {
+
+    private NodeLocation() {
+    }
+
+    //Retourne le chemin de l'élément contenant le noeud (le noeud lui-même s'il s'agit d'un élément)
+    public static String of(Node node) {
+        Node element = node;
+        while (element != null && element.getNodeType() != Node.ELEMENT_NODE) {
+            element = element.getParentNode();
+        }
+        if (element == null) {
+            return null;
+        }
+
+        StringBuilder path = new StringBuilder();
+        for (Node current = element; current != null && current.getNodeType() == Node.ELEMENT_NODE; current = current.getParentNode()) {
+            path.insert(0, "/" + current.getNodeName() + "[" + indexAmongSameName(current) + "]");
+        }
+        return path.toString();
+    }
+
+    //Rang (à partir de 1) de l'élément parmi les frères portant le même nom
+    private static int indexAmongSameName(Node element) {
+        int index = 1;
+        for (Node sibling = element.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+            if (sibling.getNodeType() == Node.ELEMENT_NODE && sibling.getNodeName().equals(element.getNodeName())) {
+                index++;
+            }
+        }
+        return index;
+    }
+}
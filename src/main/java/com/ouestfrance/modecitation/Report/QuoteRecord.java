@@ -0,0 +1,74 @@
+/*
+ * Nom         : QuoteRecord.java
+ *
+ * Description : Citation balisée dans un document, avec le texte qui l'entoure dans le paragraphe
+ *               (où figure généralement l'auteur de la citation), pour les analyses en aval.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Report;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.w3c.dom.Node;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"document", "location", "rule", "text", "before", "after"})
+public class QuoteRecord {
+
+    private final String document;
+
+    //Chemin du paragraphe dans le document, par exemple /doc[1]/article[1]/texte[1]/p[3]
+    private final String location;
+
+    //Description de la règle qui a balisé la citation
+    private final String rule;
+
+    private final String text;
+
+    //Texte du paragraphe qui précède et qui suit la citation, espaces normalisés
+    private final String before;
+
+    private final String after;
+
+    //Relève la citation couvrant les caractères [start, end[ du noeud source (texte ou élément de mise en forme),
+    //avant modification de l'arbre, avec au plus contextChars caractères de contexte de part et d'autre
+    public static QuoteRecord of(String document, String rule, Node source, int start, int end, String text, int contextChars) {
+        Node paragraph = source.getParentNode();
+        String paragraphText = paragraph.getTextContent();
+        int offset = textOffset(paragraph, source);
+        int quoteStart = Math.min(offset + start, paragraphText.length());
+        int quoteEnd = Math.min(offset + end, paragraphText.length());
+        String before = paragraphText.substring(Math.max(0, quoteStart - contextChars), quoteStart);
+        String after = paragraphText.substring(quoteEnd, Math.min(paragraphText.length(), quoteEnd + contextChars));
+        return new QuoteRecord(document, NodeLocation.of(paragraph), rule, text, normalize(before), normalize(after));
+    }
+
+    //Position du noeud cible dans le texte du paragraphe : longueur des textes qui le précèdent
+    private static int textOffset(Node paragraph, Node target) {
+        int offset = 0;
+        Node node = paragraph.getFirstChild();
+        while (node != null && node != target) {
+            if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+                offset += node.getNodeValue().length();
+            }
+            Node next = node.getFirstChild();
+            while (next == null && node != paragraph) {
+                next = node.getNextSibling();
+                node = node.getParentNode();
+            }
+            node = next;
+        }
+        return offset;
+    }
+
+    private static String normalize(String text) {
+        return text.replaceAll("\\s+", " ").strip();
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Nom         : ReportWarning.java
+ *
+ * Description : Anomalie relevée sur un document, avec l'emplacement du paragraphe concerné.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Report;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReportWarning {
+
+    private final WarningType type;
+
+    //Chemin du paragraphe dans le document, par exemple /doc[1]/article[1]/texte[1]/p[3]
+    private final String location;
+
+    //Description de la règle en cours d'application
+    private final String rule;
+
+    //Extrait du texte en cause
+    private final String text;
+}
@@ -0,0 +1,25 @@
+/*
+ * Nom         : WarningType.java
+ *
+ * Description : Types d'anomalies non bloquantes relevées lors de l'application du mode citation.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Report;
+
+public enum WarningType {
+
+    //Guillemets ouvrants et fermants non appariés : le paragraphe est laissé tel quel
+    UNBALANCED_QUOTES,
+
+    //Citations imbriquées : le texte est ignoré
+    NESTED_QUOTES_SKIPPED,
+
+    //La règle n'a sélectionné aucun noeud dans le document
+    RULE_MATCHED_NOTHING,
+
+    //Sortie au format patch impossible pour ce document : le document complet est écrit à la place
+    PATCH_UNAVAILABLE
+}
@@ -0,0 +1,59 @@
+/*
+ * Nom         : AttributeCondition.java
+ *
+ * Description : Condition portant sur un attribut d'élément, évaluée directement sur le DOM.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.w3c.dom.Element;
+
+@Getter
+@AllArgsConstructor
+public class AttributeCondition {
+
+    public enum Operator {
+        //L'attribut a exactement la valeur attendue
+        EQUALS,
+        //L'attribut n'est pas présent
+        ABSENT,
+        //L'attribut est absent ou vide, comme not(string-length(@attr)) en XPath
+        EMPTY
+    }
+
+    private final String name;
+
+    private final Operator operator;
+
+    private final String value;
+
+    public boolean test(Element element) {
+        switch (operator) {
+            case EQUALS:
+                return element.hasAttribute(name) && element.getAttribute(name).equals(value);
+            case ABSENT:
+                return !element.hasAttribute(name);
+            case EMPTY:
+                return element.getAttribute(name).isEmpty();
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (operator) {
+            case EQUALS:
+                return "@" + name + "='" + value + "'";
+            case ABSENT:
+                return "not(@" + name + ")";
+            default:
+                return "not(string-length(@" + name + "))";
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Nom         : CompiledRule.java
+ *
+ * Description : Règle du mode citation prête à l'emploi : sa description et son matcher compilé.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CompiledRule {
+
+    private final String desc;
+
+    private final RuleMatcher matcher;
+}
@@ -0,0 +1,102 @@
+/*
+ * Nom         : ElementRuleMatcher.java
+ *
+ * Description : Sélection native, sans moteur XPath : éléments d'un nom donné, dont la chaîne de
+ *               parents et les attributs vérifient la règle, ou les noeuds texte de ces éléments.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Rules;
+
+import lombok.Getter;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class ElementRuleMatcher implements RuleMatcher {
+
+    public enum Target {
+        //Les éléments eux-mêmes
+        ELEMENT,
+        //Les noeuds texte enfants des éléments, comme /text() en XPath
+        TEXT
+    }
+
+    private final String element;
+
+    //Noms des ancêtres attendus, du parent direct vers la racine
+    private final List<String> parents;
+
+    private final List<AttributeCondition> attributes;
+
+    private final Target target;
+
+    public ElementRuleMatcher(String element, List<String> parents, List<AttributeCondition> attributes, Target target) {
+        this.element = element;
+        this.parents = List.copyOf(parents);
+        this.attributes = List.copyOf(attributes);
+        this.target = target;
+    }
+
+    @Override
+    public List<Node> select(Document document) {
+        List<Node> selection = new ArrayList<>();
+        NodeList candidates = document.getElementsByTagName(element);
+        for (int i = 0; i < candidates.getLength(); i++) {
+            Element candidate = (Element) candidates.item(i);
+            if (!matches(candidate)) {
+                continue;
+            }
+            if (target == Target.ELEMENT) {
+                selection.add(candidate);
+            } else {
+                for (Node child = candidate.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                        selection.add(child);
+                    }
+                }
+            }
+        }
+        return selection;
+    }
+
+    public boolean matches(Element candidate) {
+        Node ancestor = candidate.getParentNode();
+        for (String parent : parents) {
+            if (ancestor == null || ancestor.getNodeType() != Node.ELEMENT_NODE || !ancestor.getNodeName().equals(parent)) {
+                return false;
+            }
+            ancestor = ancestor.getParentNode();
+        }
+        for (AttributeCondition attribute : attributes) {
+            if (!attribute.test(candidate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Équivalent XPath de la sélection, pour les bilans et la comparaison avec les règles historiques
+    @Override
+    public String describe() {
+        StringBuilder xpath = new StringBuilder("/");
+        for (int i = parents.size() - 1; i >= 0; i--) {
+            xpath.append('/').append(parents.get(i));
+        }
+        xpath.append('/').append(element);
+        for (AttributeCondition attribute : attributes) {
+            xpath.append('[').append(attribute).append(']');
+        }
+        if (target == Target.TEXT) {
+            xpath.append("/text()");
+        }
+        return xpath.toString();
+    }
+}
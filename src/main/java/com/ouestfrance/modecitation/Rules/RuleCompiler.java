@@ -0,0 +1,97 @@
+/*
+ * Nom         : RuleCompiler.java
+ *
+ * Description : Compile les règles JSON en matchers. Une règle porte un "type" :
+ *               - "element" : sélection native (element, parents, attributes, select) ;
+ *               - "xpath"   : expression XPath, type implicite des règles sans "type".
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Rules;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class RuleCompiler {
+
+    private RuleCompiler() {
+    }
+
+    public static List<CompiledRule> compile(JsonNode allRulesNode) throws CustomAppException {
+        List<CompiledRule> rules = new ArrayList<>();
+        for (JsonNode ruleNode : allRulesNode) {
+            rules.add(compileRule(ruleNode));
+        }
+        return rules;
+    }
+
+    public static CompiledRule compileRule(JsonNode ruleNode) throws CustomAppException {
+        String type = ruleNode.path("type").asText("xpath");
+        RuleMatcher matcher;
+        switch (type) {
+            case "xpath":
+                matcher = new XPathRuleMatcher(requiredText(ruleNode, "xpath"));
+                break;
+            case "element":
+                matcher = compileElementMatcher(ruleNode);
+                break;
+            default:
+                throw new CustomAppException("Type de règle inconnu : " + type);
+        }
+        String desc = ruleNode.hasNonNull("desc") ? ruleNode.get("desc").asText() : matcher.describe();
+        return new CompiledRule(desc, matcher);
+    }
+
+    private static ElementRuleMatcher compileElementMatcher(JsonNode ruleNode) throws CustomAppException {
+        List<String> parents = new ArrayList<>();
+        for (JsonNode parent : ruleNode.path("parents")) {
+            parents.add(parent.asText());
+        }
+
+        List<AttributeCondition> attributes = new ArrayList<>();
+        for (JsonNode attribute : ruleNode.path("attributes")) {
+            attributes.add(compileAttributeCondition(attribute));
+        }
+
+        String select = ruleNode.path("select").asText("text");
+        ElementRuleMatcher.Target target;
+        switch (select) {
+            case "text":
+                target = ElementRuleMatcher.Target.TEXT;
+                break;
+            case "element":
+                target = ElementRuleMatcher.Target.ELEMENT;
+                break;
+            default:
+                throw new CustomAppException("Valeur de 'select' inconnue : " + select);
+        }
+        return new ElementRuleMatcher(requiredText(ruleNode, "element"), parents, attributes, target);
+    }
+
+    //Une condition d'attribut porte un "name" et l'une des clés "equals", "absent" ou "empty"
+    private static AttributeCondition compileAttributeCondition(JsonNode attribute) throws CustomAppException {
+        String name = requiredText(attribute, "name");
+        if (attribute.has("equals")) {
+            return new AttributeCondition(name, AttributeCondition.Operator.EQUALS, attribute.get("equals").asText());
+        }
+        if (attribute.path("absent").asBoolean(false)) {
+            return new AttributeCondition(name, AttributeCondition.Operator.ABSENT, null);
+        }
+        if (attribute.path("empty").asBoolean(false)) {
+            return new AttributeCondition(name, AttributeCondition.Operator.EMPTY, null);
+        }
+        throw new CustomAppException("Condition d'attribut invalide pour '" + name + "' : 'equals', 'absent' ou 'empty' attendu");
+    }
+
+    private static String requiredText(JsonNode node, String field) throws CustomAppException {
+        if (!node.hasNonNull(field)) {
+            throw new CustomAppException("Règle invalide : clé '" + field + "' manquante dans " + node);
+        }
+        return node.get(field).asText();
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Nom         : RuleMatcher.java
+ *
+ * Description : Sélection des noeuds d'un document auxquels une règle du mode citation s'applique.
+ *               Les implémentations sont immuables et utilisables par plusieurs threads à la fois.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Rules;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import java.util.List;
+
+public interface RuleMatcher {
+
+    //Retourne, dans l'ordre du document, une copie figée des noeuds sélectionnés : le document peut
+    //ensuite être modifié sans affecter la sélection
+    List<Node> select(Document document) throws CustomAppException;
+
+    //Description lisible de la sélection, reprise dans les bilans
+    String describe();
+}
@@ -0,0 +1,27 @@
+/*
+ * Nom         : RuleSet.java
+ *
+ * Description : Jeu de règles compilé d'une publication : son nom, les canaux qu'il dessert et ses règles.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class RuleSet {
+
+    private final String name;
+
+    //Valeurs de l'attribut channel de la tetiere routées vers ce jeu, vide pour le jeu par défaut
+    private final List<String> channels;
+
+    private final List<CompiledRule> rules;
+}
@@ -0,0 +1,59 @@
+/*
+ * Nom         : RuleSetRegistry.java
+ *
+ * Description : Jeux de règles compilés une seule fois (jeu par défaut et un jeu par publication du
+ *               répertoire de règles), puis partagés par tous les documents traités.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Rules;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Services.RulesService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+@Log4j2
+public class RuleSetRegistry {
+
+    @Value("${rules.json.path}")
+    private String rulesJsonPath;
+
+    //Répertoire des jeux de règles par publication, vide pour n'utiliser que le jeu par défaut
+    @Value("${rules.directory:}")
+    private String rulesDirectory;
+
+    @Autowired
+    private RulesService rulesService;
+
+    //Jeux de règles compilés, immuables une fois publiés
+    private volatile RuleSets ruleSets;
+
+    //Registre aux jeux de règles déjà compilés, hors contexte Spring
+    public static RuleSetRegistry of(RuleSets ruleSets) {
+        RuleSetRegistry registry = new RuleSetRegistry();
+        registry.ruleSets = ruleSets;
+        return registry;
+    }
+
+    //Compile les jeux de règles au premier appel et les conserve pour les suivants ; seul le premier
+    //chargement est verrouillé, les appels suivants lisent le champ sans synchronisation
+    public RuleSets getRuleSets() throws CustomAppException {
+        RuleSets loaded = ruleSets;
+        if (loaded != null) {
+            return loaded;
+        }
+        synchronized (this) {
+            if (ruleSets == null) {
+                ruleSets = rulesService.loadRuleSets(rulesJsonPath, rulesDirectory);
+                log.info("{} jeu(x) de règles compilé(s)", ruleSets.size());
+            }
+            return ruleSets;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Nom         : RuleSets.java
+ *
+ * Description : Ensemble des jeux de règles compilés, et choix du jeu à appliquer à un document
+ *               d'après l'attribut channel de sa tetiere.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Rules;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import lombok.Getter;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RuleSets {
+
+    public static final String DEFAULT_NAME = "default";
+
+    private static final String TETIERE = "tetiere";
+
+    private static final String CHANNEL = "channel";
+
+    @Getter
+    private final RuleSet defaultSet;
+
+    private final Map<String, RuleSet> byChannel = new HashMap<>();
+
+    //Un canal ne peut être desservi que par un seul jeu de règles
+    public RuleSets(RuleSet defaultSet, List<RuleSet> channelSets) throws CustomAppException {
+        this.defaultSet = defaultSet;
+        for (RuleSet ruleSet : channelSets) {
+            for (String channel : ruleSet.getChannels()) {
+                RuleSet previous = byChannel.putIfAbsent(channel, ruleSet);
+                if (previous != null) {
+                    throw new CustomAppException("Canal " + channel + " déclaré par les jeux de règles "
+                            + previous.getName() + " et " + ruleSet.getName());
+                }
+            }
+        }
+    }
+
+    private RuleSets(RuleSet defaultSet) {
+        this.defaultSet = defaultSet;
+    }
+
+    //Jeu unique appliqué à tous les documents
+    public static RuleSets of(List<CompiledRule> rules) {
+        return new RuleSets(new RuleSet(DEFAULT_NAME, List.of(), rules));
+    }
+
+    public int size() {
+        return 1 + (int) byChannel.values().stream().distinct().count();
+    }
+
+    //Jeu du premier canal de la tetiere qui en possède un ; les canaux préfixés de '!' sont des exclusions
+    //et ne désignent jamais de jeu. À défaut, le jeu par défaut
+    public RuleSet select(Document document) {
+        String channels = channelAttribute(document);
+        if (channels != null) {
+            for (String token : channels.split(",")) {
+                String channel = token.strip();
+                if (channel.isEmpty() || channel.startsWith("!")) {
+                    continue;
+                }
+                RuleSet ruleSet = byChannel.get(channel);
+                if (ruleSet != null) {
+                    return ruleSet;
+                }
+            }
+        }
+        return defaultSet;
+    }
+
+    //Attribut channel de la première tetiere, en s'arrêtant dès qu'elle est trouvée (elle ouvre l'article)
+    private static String channelAttribute(Document document) {
+        Node root = document.getDocumentElement();
+        Node node = root;
+        while (node != null) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && TETIERE.equals(localName(node))) {
+                return ((Element) node).hasAttribute(CHANNEL) ? ((Element) node).getAttribute(CHANNEL) : null;
+            }
+            Node next = node.getFirstChild();
+            while (next == null && node != root) {
+                next = node.getNextSibling();
+                node = node.getParentNode();
+            }
+            node = next;
+        }
+        return null;
+    }
+
+    private static String localName(Node node) {
+        return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Nom         : XPathRuleMatcher.java
+ *
+ * Description : Sélection par expression XPath, évaluée par le moteur XPath du JDK. Conservée pour
+ *               les règles historiques et les sélections que les matchers natifs ne couvrent pas.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Rules;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+public class XPathRuleMatcher implements RuleMatcher {
+
+    private final String xpath;
+
+    //Les expressions XPath compilées ne sont pas thread-safe : une par thread
+    private final ThreadLocal<XPathExpression> expression;
+
+    public XPathRuleMatcher(String xpath) throws CustomAppException {
+        this.xpath = xpath;
+        // Compilation immédiate pour signaler une expression invalide dès le chargement des règles
+        compile(xpath);
+        this.expression = ThreadLocal.withInitial(() -> {
+            try {
+                return compile(xpath);
+            } catch (CustomAppException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Override
+    public List<Node> select(Document document) throws CustomAppException {
+        try {
+            NodeList nodes = (NodeList) expression.get().evaluate(document, XPathConstants.NODESET);
+            List<Node> selection = new ArrayList<>(nodes.getLength());
+            for (int i = 0; i < nodes.getLength(); i++) {
+                selection.add(nodes.item(i));
+            }
+            return selection;
+        } catch (XPathExpressionException e) {
+            throw new CustomAppException("Erreur lors de l'application de XPath: " + xpath, e, false);
+        }
+    }
+
+    @Override
+    public String describe() {
+        return xpath;
+    }
+
+    private static XPathExpression compile(String xpath) throws CustomAppException {
+        try {
+            return XPathFactory.newInstance().newXPath().compile(xpath);
+        } catch (XPathExpressionException e) {
+            throw new CustomAppException("Expression XPath invalide : " + xpath, e);
+        }
+    }
+}
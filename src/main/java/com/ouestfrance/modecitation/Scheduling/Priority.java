@@ -0,0 +1,35 @@
+/*
+ * Nom         : Priority.java
+ *
+ * Description : Classes de priorité des traitements : les documents soumis à l'unité (article d'actualité envoyé
+ *               par un éditeur) passent avant les traitements de masse (lot, reprise d'archives).
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Scheduling;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import lombok.Getter;
+
+@Getter
+public enum Priority {
+    INTERACTIVE("interactive"),
+    BULK("bulk");
+
+    private final String name;
+
+    Priority(String name) {
+        this.name = name;
+    }
+
+    public static Priority of(String name) throws CustomAppException {
+        for (Priority priority : values()) {
+            if (priority.name.equals(name)) {
+                return priority;
+            }
+        }
+        throw new CustomAppException("Priorité inconnue : " + name + " (interactive ou bulk)");
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Nom         : PriorityClassStatistics.java
+ *
+ * Description : Instantané de l'activité et de l'attente en file d'une classe de priorité.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Scheduling;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PriorityClassStatistics {
+
+    private final Priority priority;
+
+    private final long submitted;
+
+    private final long completed;
+
+    //Traitements en attente d'un thread au moment de l'instantané
+    private final int queued;
+
+    private final double meanWaitMillis;
+
+    //Centile 99 de l'attente, arrondi à la puissance de 2 de microsecondes supérieure
+    private final double p99WaitMillis;
+
+    private final double maxWaitMillis;
+
+    @Override
+    public String toString() {
+        return String.format("%s[soumis=%d, terminés=%d, en file=%d, attente moyenne=%.2f ms, p99=%.2f ms, max=%.2f ms]",
+                priority.getName(), submitted, completed, queued, meanWaitMillis, p99WaitMillis, maxWaitMillis);
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Nom         : PriorityScheduler.java
+ *
+ * Description : Groupe de threads de traitement partagé entre les classes de priorité. Un thread libre prend un
+ *               traitement interactif de préférence ; tant que les deux files sont occupées, la part
+ *               processing.bulk.share des traitements démarrés revient aux traitements de masse, qui ne sont donc
+ *               jamais affamés. Une file vide laisse tous les threads à l'autre classe. Sans thread configuré, les
+ *               traitements s'exécutent directement dans le thread appelant.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Scheduling;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@Log4j2
+public class PriorityScheduler {
+
+    //Traitement soumis, pouvant lever une exception vérifiée d'un type donné
+    @FunctionalInterface
+    public interface Task<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    //0 : pas de groupe de threads, chaque traitement s'exécute dans le thread qui le soumet
+    @Value("${processing.threads:0}")
+    private int threads;
+
+    //Part minimale des démarrages réservée aux traitements de masse quand des traitements interactifs attendent
+    @Value("${processing.bulk.share:0.25}")
+    private double bulkShare;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Map<Priority, ArrayDeque<Entry>> queues = new EnumMap<>(Priority.class);
+
+    private final Map<Priority, WaitStatistics> statistics = new EnumMap<>(Priority.class);
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    //Crédit des traitements de masse, augmenté de bulkShare à chaque démarrage disputé
+    private double bulkCredit;
+
+    private boolean started;
+
+    private boolean shutdown;
+
+    //Threads du groupe : un traitement soumis depuis l'un d'eux s'exécute directement, sans risque d'interblocage
+    private final ThreadLocal<Boolean> worker = ThreadLocal.withInitial(() -> false);
+
+    private static final class Entry {
+        private final Priority priority;
+        private final FutureTask<?> task;
+        private final long enqueuedNanos = System.nanoTime();
+
+        private Entry(Priority priority, FutureTask<?> task) {
+            this.priority = priority;
+            this.task = task;
+        }
+    }
+
+    public PriorityScheduler() {
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            statistics.put(priority, new WaitStatistics());
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public boolean isEnabled() {
+        return threads > 0;
+    }
+
+    //Le thread appelant est un thread du groupe : ses traitements s'exécutent directement
+    public boolean isWorkerThread() {
+        return worker.get();
+    }
+
+    //Exécute le traitement dans la classe de priorité donnée et attend son résultat ; les exceptions du
+    //traitement sont relancées telles quelles dans le thread appelant
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T call(Priority priority, Task<T, E> task) throws E, InterruptedException {
+        WaitStatistics classStatistics = statistics.get(priority);
+        if (!isEnabled() || worker.get()) {
+            classStatistics.submitted();
+            classStatistics.started(0);
+            try {
+                return task.call();
+            } finally {
+                classStatistics.completed();
+            }
+        }
+        FutureTask<T> future = new FutureTask<>(task::call);
+        enqueue(new Entry(priority, future));
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (E) cause;
+        }
+    }
+
+    //Soumet le traitement dans la classe de priorité donnée sans attendre son résultat, pour répartir un travail
+    //sur plusieurs threads du groupe ; sans groupe ou depuis un thread du groupe, il est exécuté aussitôt et le
+    //résultat rendu est déjà terminé
+    public <T> Future<T> submit(Priority priority, Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        if (!isEnabled() || worker.get()) {
+            WaitStatistics classStatistics = statistics.get(priority);
+            classStatistics.submitted();
+            classStatistics.started(0);
+            future.run();
+            classStatistics.completed();
+            return future;
+        }
+        enqueue(new Entry(priority, future));
+        return future;
+    }
+
+    //Instantané de l'attente en file de chaque classe
+    public List<PriorityClassStatistics> getStatistics() {
+        List<PriorityClassStatistics> snapshot = new ArrayList<>();
+        for (Priority priority : Priority.values()) {
+            int queued;
+            lock.lock();
+            try {
+                queued = queues.get(priority).size();
+            } finally {
+                lock.unlock();
+            }
+            snapshot.add(statistics.get(priority).snapshot(priority, queued));
+        }
+        return snapshot;
+    }
+
+    public void logStatistics() {
+        for (PriorityClassStatistics classStatistics : getStatistics()) {
+            log.info("Priorité {}", classStatistics);
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException("Groupe de threads de traitement arrêté");
+            }
+            if (!started) {
+                start();
+            }
+            queues.get(entry.priority).addLast(entry);
+            statistics.get(entry.priority).submitted();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Démarre les threads à la première soumission
+    private void start() {
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::work, "processing-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+        started = true;
+        log.info("Groupe de traitement démarré : {} thread(s), part minimale des traitements de masse {}", threads, bulkShare);
+    }
+
+    private void work() {
+        worker.set(true);
+        while (true) {
+            Entry entry;
+            lock.lock();
+            try {
+                while ((entry = next()) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    notEmpty.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Un traitement annulé pendant son attente (appelant interrompu) n'est pas exécuté
+            if (entry.task.isCancelled()) {
+                continue;
+            }
+            WaitStatistics classStatistics = statistics.get(entry.priority);
+            classStatistics.started(System.nanoTime() - entry.enqueuedNanos);
+            try {
+                entry.task.run();
+            } finally {
+                // L'interruption due à l'annulation d'un traitement ne doit pas atteindre le traitement suivant
+                Thread.interrupted();
+            }
+            classStatistics.completed();
+        }
+    }
+
+    //Choisit le prochain traitement, sous verrou
+    private Entry next() {
+        ArrayDeque<Entry> interactive = queues.get(Priority.INTERACTIVE);
+        ArrayDeque<Entry> bulk = queues.get(Priority.BULK);
+        if (bulk.isEmpty()) {
+            return interactive.pollFirst();
+        }
+        if (interactive.isEmpty()) {
+            return bulk.pollFirst();
+        }
+        bulkCredit += bulkShare;
+        if (bulkCredit >= 1) {
+            bulkCredit -= 1;
+            return bulk.pollFirst();
+        }
+        return interactive.pollFirst();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (started) {
+            logStatistics();
+        }
+    }
+}
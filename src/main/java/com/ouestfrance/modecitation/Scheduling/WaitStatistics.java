@@ -0,0 +1,73 @@
+/*
+ * Nom         : WaitStatistics.java
+ *
+ * Description : Relevé de l'attente en file des traitements d'une classe de priorité : compteurs et histogramme
+ *               logarithmique (un compartiment par puissance de 2 de microsecondes), alimentés sans verrou.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Scheduling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+class WaitStatistics {
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    //Compartiment i : attentes de 2^(i-1) (exclu) à 2^i microsecondes, le compartiment 0 pour moins d'une microseconde
+    private final AtomicLongArray histogram = new AtomicLongArray(Long.SIZE);
+
+    void submitted() {
+        submitted.increment();
+    }
+
+    void started(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        histogram.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(TimeUnit.NANOSECONDS.toMicros(waitNanos)));
+    }
+
+    void completed() {
+        completed.increment();
+    }
+
+    PriorityClassStatistics snapshot(Priority priority, int queued) {
+        long started = 0;
+        long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram.get(i);
+            started += counts[i];
+        }
+        return new PriorityClassStatistics(priority, submitted.sum(), completed.sum(), queued,
+                started > 0 ? millis(totalWaitNanos.sum() / started) : 0,
+                percentileMillis(counts, started, 0.99), millis(maxWaitNanos.get()));
+    }
+
+    //Borne supérieure du compartiment qui atteint le centile demandé : surestime au plus d'un facteur 2
+    private static double percentileMillis(long[] counts, long total, double q) {
+        long threshold = (long) Math.ceil(q * total);
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulated += counts[i];
+            if (total > 0 && cumulated >= threshold) {
+                return i == 0 ? 0.001 : (1L << i) / 1000.0;
+            }
+        }
+        return 0;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Nom         : DomBackend.java
+ *
+ * Description : Implémentation de l'arbre DOM utilisée pour charger les documents XML : analyseur du JDK ou
+ *               Apache Xerces, avec construction complète de l'arbre ou expansion différée des noeuds, ou arbre
+ *               allégé de Xerces limité au DOM de base (ni événements de mutation, ni parcours, ni plages).
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Services;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import lombok.Getter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+@Getter
+public enum DomBackend {
+
+    //Analyseur intégré au JDK, arbre construit en entier à l'analyse
+    JDK("jdk", false),
+    //Analyseur intégré au JDK, noeuds matérialisés à leur premier parcours
+    JDK_DEFERRED("jdk-deferred", true),
+    //Apache Xerces (xercesImpl), arbre construit en entier à l'analyse
+    XERCES("xerces", false),
+    //Apache Xerces, noeuds matérialisés à leur premier parcours : implémentation retenue jusqu'ici par la
+    //découverte JAXP, xercesImpl étant présent dans le classpath
+    XERCES_DEFERRED("xerces-deferred", true),
+    //Apache Xerces, arbre complet sur le document du DOM de base : sans le suivi des événements de mutation, des
+    //itérateurs et des plages que le document standard met à jour à chaque modification de l'arbre
+    XERCES_CORE("xerces-core", false, "org.apache.xerces.dom.CoreDocumentImpl");
+
+    private static final String DEFER_NODE_EXPANSION = "http://apache.org/xml/features/dom/defer-node-expansion";
+
+    private static final String DOCUMENT_CLASS_NAME = "http://apache.org/xml/properties/dom/document-class-name";
+
+    private final String name;
+
+    private final boolean deferred;
+
+    //Classe du document construit par l'analyseur, null pour celle par défaut
+    private final String documentClassName;
+
+    DomBackend(String name, boolean deferred) {
+        this(name, deferred, null);
+    }
+
+    DomBackend(String name, boolean deferred, String documentClassName) {
+        this.name = name;
+        this.deferred = deferred;
+        this.documentClassName = documentClassName;
+    }
+
+    public static DomBackend of(String name) throws CustomAppException {
+        for (DomBackend backend : values()) {
+            if (backend.name.equals(name)) {
+                return backend;
+            }
+        }
+        throw new CustomAppException("Implémentation DOM inconnue : " + name + " (jdk, jdk-deferred, xerces, xerces-deferred ou xerces-core)");
+    }
+
+    //Crée une fabrique configurée comme l'étaient les chargements de documents : espaces de noms,
+    //blancs ignorables supprimés
+    public DocumentBuilderFactory newFactory() throws ParserConfigurationException {
+        DocumentBuilderFactory factory = this == JDK || this == JDK_DEFERRED
+                ? DocumentBuilderFactory.newDefaultInstance()
+                : new org.apache.xerces.jaxp.DocumentBuilderFactoryImpl();
+        factory.setNamespaceAware(true);
+        factory.setIgnoringElementContentWhitespace(true);
+        factory.setFeature(DEFER_NODE_EXPANSION, deferred);
+        if (documentClassName != null) {
+            factory.setAttribute(DOCUMENT_CLASS_NAME, documentClassName);
+        }
+        return factory;
+    }
+}
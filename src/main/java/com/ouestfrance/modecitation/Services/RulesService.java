@@ -3,6 +3,14 @@ package com.ouestfrance.modecitation.Services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Monitoring.RuleApplicationEvent;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Report.WarningType;
+import com.ouestfrance.modecitation.Rules.CompiledRule;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleMatcher;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSets;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 import org.w3c.dom.*;
@@ -14,15 +22,17 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 @Log4j2
@@ -48,6 +58,54 @@ public class RulesService {
         }
     }
 
+    //Compile le jeu de règles par défaut et, si un répertoire est fourni, un jeu par fichier JSON qu'il contient.
+    //Chaque fichier du répertoire déclare les canaux qu'il dessert : { "channels": [...], "all": [...] }
+    public RuleSets loadRuleSets(String rulesJsonPath, String rulesDirectory) throws CustomAppException {
+        RuleSet defaultSet = new RuleSet(RuleSets.DEFAULT_NAME, List.of(), compileRules(readRules(rulesJsonPath)));
+        if (rulesDirectory == null || rulesDirectory.isBlank()) {
+            return new RuleSets(defaultSet, List.of());
+        }
+
+        List<RuleSet> channelSets = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Path.of(rulesDirectory))) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(".json")).sorted().toList()) {
+                channelSets.add(readRuleSet(file));
+            }
+        } catch (IOException e) {
+            log.error("Erreur lors du parcours du répertoire des règles", e);
+            throw new CustomAppException("Erreur lors du parcours du répertoire des règles : " + rulesDirectory, e);
+        }
+        log.info("{} jeu(x) de règles par publication lu(s) depuis : {}", channelSets.size(), rulesDirectory);
+        return new RuleSets(defaultSet, channelSets);
+    }
+
+    private RuleSet readRuleSet(Path file) throws CustomAppException {
+        String fileName = file.getFileName().toString();
+        String name = fileName.substring(0, fileName.length() - ".json".length());
+        JsonNode rulesNode = readJson(file.toFile());
+        JsonNode channelsNode = rulesNode.get("channels");
+        JsonNode allRulesNode = rulesNode.get("all");
+        if (channelsNode == null || !channelsNode.isArray() || channelsNode.isEmpty()
+                || allRulesNode == null || !allRulesNode.isArray()) {
+            log.error("Jeu de règles {} invalide : clés 'channels' et 'all' attendues, sous forme de tableaux", name);
+            throw new CustomAppException("Jeu de règles " + name + " invalide : clés 'channels' et 'all' attendues, sous forme de tableaux");
+        }
+        List<String> channels = new ArrayList<>();
+        for (JsonNode channel : channelsNode) {
+            channels.add(channel.asText().strip());
+        }
+        return new RuleSet(name, channels, compileRules(allRulesNode));
+    }
+
+    private JsonNode readJson(File file) throws CustomAppException {
+        try {
+            return new ObjectMapper().readTree(file);
+        } catch (IOException e) {
+            log.error("Erreur lors de la lecture du fichier JSON des règles", e);
+            throw new CustomAppException("Erreur lors de la lecture du fichier JSON des règles : " + file, e);
+        }
+    }
+
     public Document reloadDocument(Document document) throws CustomAppException {
         try {
             log.info("Rechargement du document XML");
@@ -68,71 +126,139 @@ public class RulesService {
         }
     }
 
+    //Compile les règles JSON une fois pour toutes, afin de les appliquer à autant de documents que nécessaire
+    public List<CompiledRule> compileRules(JsonNode allRulesNode) throws CustomAppException {
+        return RuleCompiler.compile(allRulesNode);
+    }
+
     public void applyRules(Document document, JsonNode allRulesNode) throws CustomAppException {
+        applyRules(document, allRulesNode, new DocumentReport(null));
+    }
+
+    public void applyRules(Document document, JsonNode allRulesNode, DocumentReport report) throws CustomAppException {
+        applyRules(document, compileRules(allRulesNode), report);
+    }
+
+    //Applique les règles en consignant les anomalies rencontrées dans le bilan du document
+    public void applyRules(Document document, List<CompiledRule> rules, DocumentReport report) throws CustomAppException {
         try {
-            log.info("Début de l'application des règles sur le document XML");
-            for (JsonNode ruleNode : allRulesNode) {
-                String xpath = ruleNode.get("xpath").asText();
-                log.info("Application de la règle avec XPath : {}", xpath);
-                applyFormattingAndQuotesToMatchingParagraphs(document, xpath);
+            log.debug("Début de l'application des règles sur le document {}", report.getDocument());
+            for (CompiledRule rule : rules) {
+                report.checkDeadline();
+                log.debug("Application de la règle : {}", rule.getDesc());
+                report.setCurrentRule(rule.getDesc());
+                RuleApplicationEvent event = new RuleApplicationEvent();
+                event.begin();
+                int quotesBefore = report.getQuotesWrapped();
+                int matches = applyFormattingAndQuotesToMatchingParagraphs(document, rule.getMatcher(), report);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.document = report.getDocument();
+                    event.rule = rule.getDesc();
+                    event.matches = matches;
+                    event.quotesWrapped = report.getQuotesWrapped() - quotesBefore;
+                    event.sizeBytes = report.getSizeBytes();
+                    event.nodeCount = report.getNodeCount();
+                    event.commit();
+                }
             }
-            log.info("Fin de l'application des règles sur le document XML");
+            report.setCurrentRule(null);
+            // Seul bilan par document au niveau INFO : le détail par règle et par noeud est en DEBUG
+            log.info("Règles appliquées au document {} : {} règle(s), {} citation(s) balisée(s), {} avertissement(s)",
+                    report.getDocument(), rules.size(), report.getQuotesWrapped(), report.getWarnings().size());
         } catch (Exception e) {
-            log.error("Erreur lors de l'application des règles au document", e);
-            throw new CustomAppException("Erreur lors de l'application des règles au document", e);
+            throw failure("Erreur lors de l'application des règles au document", e);
         }
     }
 
-    private void applyFormattingAndQuotesToMatchingParagraphs(Document document, String xpath) throws CustomAppException {
+    //Applique une règle et retourne le nombre de noeuds qu'elle a sélectionnés
+    private int applyFormattingAndQuotesToMatchingParagraphs(Document document, RuleMatcher matcher, DocumentReport report) throws CustomAppException {
         try {
-            XPath xPath = XPathFactory.newInstance().newXPath();
-            NodeList nodes = (NodeList) xPath.evaluate(xpath, document, XPathConstants.NODESET);
-            log.info("Nombre de noeuds trouvés avec XPath {}: {}", xpath, nodes.getLength());
+            List<Node> nodes = matcher.select(document);
+            if (log.isDebugEnabled()) {
+                log.debug("Nombre de noeuds trouvés avec {}: {}", matcher.describe(), nodes.size());
+            }
+            if (nodes.isEmpty()) {
+                report.addWarning(WarningType.RULE_MATCHED_NOTHING, null, matcher.describe());
+            }
 
-            for (int i = 0; i < nodes.getLength(); i++) {
-                Node node = nodes.item(i);
-                log.info("Traitement du noeud {}: {}", i, node.getTextContent());
+            for (int i = 0; i < nodes.size(); i++) {
+                report.checkDeadline();
+                Node node = nodes.get(i);
+                if (log.isDebugEnabled()) {
+                    log.debug("Traitement du noeud {}: {}", i, node.getTextContent());
+                }
                 if (node.getNodeType() == Node.TEXT_NODE) {
-                    processFormattingTagsOutsideQuotes(node.getParentNode());
+                    processFormattingTagsOutsideQuotes(node.getParentNode(), report);
                 } else {
-                    processFormattingTagsOutsideQuotes(node);
+                    processFormattingTagsOutsideQuotes(node, report);
                 }
-                deepCheck(node, document);
+                deepCheck(node, document, report);
             }
+            return nodes.size();
         } catch (Exception e) {
-            log.error("Erreur lors de l'application de XPath: " + xpath, e);
-            throw new CustomAppException("Erreur lors de l'application de XPath: " + xpath, e);
+            throw failure("Erreur lors de l'application de la règle : " + matcher.describe(), e);
         }
     }
 
     public void deepCheck(Node node, Document document) throws CustomAppException {
+        deepCheck(node, document, new DocumentReport(null));
+    }
+
+    public void deepCheck(Node node, Document document, DocumentReport report) throws CustomAppException {
         try {
-            log.info("Début de deepCheck sur le noeud : {}", node.getNodeName());
+            report.checkDeadline();
+            log.debug("Début de deepCheck sur le noeud : {}", node.getNodeName());
 
             if (node.getNodeType() == Node.TEXT_NODE) {
                 String textContent = node.getTextContent();
-                log.info("Contenu du noeud texte : {}", textContent);
+                log.debug("Contenu du noeud texte : {}", textContent);
                 if (containsNestedQuotes(textContent)) {
-                    log.info("Texte contient des citations imbriquées : {}", textContent);
+                    report.addWarning(WarningType.NESTED_QUOTES_SKIPPED, node, textContent);
                     return;
                 }
-                applySurroundedContents(node, document);
+                applySurroundedContents(node, document, report);
             } else if (node.getNodeType() == Node.ELEMENT_NODE || node.getNodeType() == Node.DOCUMENT_NODE) {
                 NodeList childNodes = node.getChildNodes();
                 for (int i = 0; i < childNodes.getLength(); i++) {
-                    deepCheck(childNodes.item(i), document);
+                    deepCheck(childNodes.item(i), document, report);
                 }
             }
         } catch (Exception e) {
-            log.error("Erreur lors de la vérification approfondie", e);
-            throw new CustomAppException("Erreur lors de la vérification approfondie", e);
+            throw failure("Erreur lors de la vérification approfondie", e);
         }
     }
 
+    //Équivalent linéaire de l'expression «[^«]*«.*»[^«]*?» : un guillemet ouvrant qui n'est pas le premier,
+    //suivi sur la même ligne d'un fermant lui-même suivi d'un autre fermant sans ouvrant intermédiaire.
+    //Les fins de ligne sont celles que « . » exclut : \n, \r, U+0085, U+2028 et U+2029.
+    //Le parcours se fait de droite à gauche pour éviter le retour arrière de l'expression régulière.
     public boolean containsNestedQuotes(String text) {
-        Pattern nestedQuotePattern = Pattern.compile("«[^«]*«.*»[^«]*?»");
-        Matcher matcher = nestedQuotePattern.matcher(text);
-        return matcher.find();
+        int firstOpen = text.indexOf('«');
+        if (firstOpen < 0) {
+            return false;
+        }
+        boolean closeAhead = false;
+        boolean validCloseOnLine = false;
+        for (int i = text.length() - 1; i > firstOpen; i--) {
+            char ch = text.charAt(i);
+            if (isLineTerminator(ch)) {
+                validCloseOnLine = false;
+            } else if (ch == '»') {
+                validCloseOnLine |= closeAhead;
+                closeAhead = true;
+            } else if (ch == '«') {
+                if (validCloseOnLine) {
+                    return true;
+                }
+                closeAhead = false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLineTerminator(char ch) {
+        return ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
     }
 
     public boolean containsMultipleQuotesInSameB(String text) {
@@ -157,11 +283,15 @@ public class RulesService {
     }
 
     public void applySurroundedContents(Node node, Document document) throws CustomAppException {
+        applySurroundedContents(node, document, new DocumentReport(null));
+    }
+
+    public void applySurroundedContents(Node node, Document document, DocumentReport report) throws CustomAppException {
         try {
             String textContent = node.getTextContent();
 
             if (!areQuotesProperlyNested(textContent)) {
-                log.warn("Quotes non correctement imbriquées trouvées : {}", textContent);
+                report.addWarning(WarningType.UNBALANCED_QUOTES, node, textContent);
                 return;
             }
 
@@ -194,6 +324,7 @@ public class RulesService {
                 q.setAttribute("class", "containsQuotes");
                 q.appendChild(document.createTextNode(inside));
                 fragment.appendChild(q);
+                report.quoteWrapped(node, start, end, q);
             }
 
             String after = textContent.substring(lastIndex);
@@ -202,9 +333,9 @@ public class RulesService {
             }
 
             parentNode.replaceChild(fragment, node);
-            log.info("Balise <q> appliquée autour du texte : {}", textContent);
+            log.debug("Balise <q> appliquée autour du texte : {}", textContent);
         } catch (Exception e) {
-            throw new CustomAppException("Erreur lors de l'application des contenus entourés", e);
+            throw failure("Erreur lors de l'application des contenus entourés", e);
         }
     }
 
@@ -215,28 +346,35 @@ public class RulesService {
     }
 
     public void processFormattingTagsOutsideQuotes(Node pNode) throws CustomAppException {
+        processFormattingTagsOutsideQuotes(pNode, new DocumentReport(null));
+    }
+
+    public void processFormattingTagsOutsideQuotes(Node pNode, DocumentReport report) throws CustomAppException {
         try {
-            log.info("Début de processFormattingTagsOutsideQuotes pour le noeud : {}", pNode.getTextContent());
+            if (log.isDebugEnabled()) {
+                log.debug("Début de processFormattingTagsOutsideQuotes pour le noeud : {}", pNode.getTextContent());
+            }
             NodeList formattingNodes = pNode.getChildNodes();
             for (int i = 0; i < formattingNodes.getLength(); i++) {
                 Node formattingNode = formattingNodes.item(i);
-                log.info("Traitement du noeud enfant : {}", formattingNode.getNodeName());
+                log.debug("Traitement du noeud enfant : {}", formattingNode.getNodeName());
                 if (formattingNode.getNodeName().matches("b|i|u")) {
                     String formattingTextContent = formattingNode.getTextContent().trim();
-                    log.info("Contenu du texte sous balise de formatage : {}", formattingTextContent);
+                    log.debug("Contenu du texte sous balise de formatage : {}", formattingTextContent);
 
                     // Check if the content has properly nested quotes
                     if (!containsNestedQuotes(formattingTextContent) && !isNestedWithinQuotes(formattingNode) && formattingTextContent.startsWith("«") && formattingTextContent.endsWith("»") && !containsMultipleQuotesInSameB(formattingTextContent)) {
                         Element qElement = pNode.getOwnerDocument().createElement("q");
                         qElement.setAttribute("class", "containsQuotes");
                         qElement.setTextContent(formattingTextContent);
+                        report.quoteReplaced(formattingNode, qElement);
                         formattingNode.getParentNode().replaceChild(qElement, formattingNode);
-                        log.info("Balise <q> appliquée autour du texte : {}", formattingTextContent);
+                        log.debug("Balise <q> appliquée autour du texte : {}", formattingTextContent);
                     }
                 }
             }
         } catch (Exception e) {
-            throw new CustomAppException("Erreur lors du traitement des balises de formatage en dehors des citations", e);
+            throw failure("Erreur lors du traitement des balises de formatage en dehors des citations", e);
         }
     }
 
@@ -272,4 +410,12 @@ public class RulesService {
         }
         return result.toString();
     }
-}
\ No newline at end of file
+
+    //Propage telle quelle une erreur déjà qualifiée ; sinon l'enveloppe sans recalculer de pile d'appels
+    private CustomAppException failure(String message, Exception e) {
+        if (e instanceof CustomAppException customAppException) {
+            return customAppException;
+        }
+        return new CustomAppException(message, e, false);
+    }
+}
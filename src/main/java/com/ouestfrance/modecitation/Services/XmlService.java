@@ -11,8 +11,8 @@ package com.ouestfrance.modecitation.Services;
 
 import com.ouestfrance.modecitation.Exception.CustomAppException;
 import lombok.Getter;
-import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
@@ -30,14 +30,94 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 
 @Service
 @Log4j2
-@Setter
 public class XmlService {
 
-    private TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    //Encodage de la déclaration XML en tête d'un document (après une éventuelle marque d'ordre des octets)
+    private static final Pattern DECLARED_ENCODING = Pattern.compile("^(\\uFEFF?<\\?xml[^?>]*?\\bencoding\\s*=\\s*)([\"'])[^\"']*\\2");
+
+    //Les fabriques et analyseurs JAXP ne sont pas thread-safe : chaque thread dispose de son analyseur et de
+    //son sérialiseur, créés une fois ; les champs ne changent qu'à la configuration et sont publiés en volatile
+    private volatile TransformerFactory transformerFactory;
+
+    private volatile ThreadLocal<Transformer> serializers;
+
+    @Getter
+    private volatile DomBackend domBackend;
+
+    private volatile ThreadLocal<DocumentBuilder> documentBuilders;
+
+    public XmlService() {
+        setDomBackend(DomBackend.XERCES_DEFERRED);
+        setTransformerFactory(TransformerFactory.newInstance());
+    }
+
+    public void setTransformerFactory(TransformerFactory factory) {
+        transformerFactory = factory;
+        serializers = ThreadLocal.withInitial(() -> {
+            try {
+                Transformer transformer = newTransformer(factory);
+                transformer.setOutputProperty(OutputKeys.INDENT, "no");
+                transformer.setOutputProperty(OutputKeys.METHOD, "xml");
+                transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+                transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+                return transformer;
+            } catch (TransformerException e) {
+                throw new IllegalStateException("Création impossible du sérialiseur XML", e);
+            }
+        });
+    }
+
+    //La fabrique n'étant pas garantie thread-safe, les créations sont sérialisées ; elles n'ont lieu qu'une
+    //fois par thread pour l'écriture des documents
+    private static Transformer newTransformer(TransformerFactory factory) throws TransformerException {
+        synchronized (factory) {
+            return factory.newTransformer();
+        }
+    }
+
+    //Implémentation DOM des documents chargés : jdk, jdk-deferred, xerces ou xerces-deferred
+    @Value("${xml.dom.backend:xerces-deferred}")
+    public void setDomBackendName(String name) throws CustomAppException {
+        setDomBackend(DomBackend.of(name));
+    }
+
+    public void setDomBackend(DomBackend backend) {
+        DocumentBuilderFactory factory;
+        try {
+            factory = backend.newFactory();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Configuration impossible de l'analyseur XML " + backend.getName(), e);
+        }
+        domBackend = backend;
+        documentBuilders = ThreadLocal.withInitial(() -> {
+            try {
+                synchronized (factory) {
+                    return factory.newDocumentBuilder();
+                }
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException("Création impossible de l'analyseur XML " + backend.getName(), e);
+            }
+        });
+    }
+
+    //Analyseur du thread courant, remis à zéro avant chaque document
+    private DocumentBuilder documentBuilder() {
+        DocumentBuilder builder = documentBuilders.get();
+        builder.reset();
+        return builder;
+    }
 
 
     //Charge un document XML à partir d'une source spécifiée
@@ -60,10 +140,46 @@ public class XmlService {
         }
     }
 
+    //Lit le contenu brut (octets) d'une source XML, fichier ou URL, sans décodage
+    public byte[] readBytesFromSource(String source) throws IOException {
+        try (InputStream inputStream = openSource(source)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    //Ouvre une source XML, fichier ou URL, décompressée si besoin
+    public InputStream openSource(String source) throws IOException {
+        InputStream rawStream = source.startsWith("http://") || source.startsWith("https://")
+                ? new URL(source).openStream()
+                : Files.newInputStream(Path.of(source));
+        return decompressIfNeeded(source, rawStream);
+    }
+
+    //Décompresse à la volée les sources dont le nom se termine par .gz
+    public InputStream decompressIfNeeded(String source, InputStream inputStream) throws IOException {
+        if (isGzip(source)) {
+            return new GZIPInputStream(inputStream, BUFFER_SIZE);
+        }
+        return inputStream;
+    }
+
+    //Ouvre un fichier de sortie, compressé en gzip si son nom se termine par .gz
+    public OutputStream openOutputFile(Path path) throws IOException {
+        OutputStream outputStream = Files.newOutputStream(path);
+        if (isGzip(path.toString())) {
+            return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(outputStream, BUFFER_SIZE);
+    }
+
+    private static boolean isGzip(String name) {
+        return name.toLowerCase().endsWith(".gz");
+    }
+
     //Lit le contenu XML à partir d'un fichier
     public String readXMLFromFile(String filePath) throws IOException {
         log.info("Lecture du fichier XML : {}", filePath);
-        try (InputStream inputStream = new FileInputStream(new File(filePath));
+        try (InputStream inputStream = decompressIfNeeded(filePath, new FileInputStream(new File(filePath)));
              BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
             StringBuilder content = new StringBuilder();
             String line;
@@ -80,7 +196,7 @@ public class XmlService {
     //Lit le contenu XML à partir d'une URL
     public String readXMLFromURL(String urlString) throws IOException {
         log.info("Lecture du contenu XML depuis l'URL : {}", urlString);
-        try (InputStream inputStream = new URL(urlString).openStream();
+        try (InputStream inputStream = decompressIfNeeded(urlString, new URL(urlString).openStream());
              BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
             StringBuilder content = new StringBuilder();
             String line;
@@ -98,11 +214,7 @@ public class XmlService {
     public Document loadXMLFromString(String xml) throws ParserConfigurationException, IOException, SAXException, CustomAppException {
         log.info("Chargement du contenu XML depuis une chaîne de caractères");
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            factory.setIgnoringElementContentWhitespace(true);
-
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = documentBuilder();
             try (Reader reader = new StringReader(xml)) {
                 InputSource is = new InputSource(reader);
                 is.setEncoding("UTF-8");
@@ -111,41 +223,74 @@ public class XmlService {
                 log.info("Document XML chargé avec succès");
                 return document;
             }
-        } catch (ParserConfigurationException | IOException | SAXException e) {
+        } catch (IOException | SAXException e) {
             log.error("Erreur lors du chargement du contenu XML depuis une chaîne", e);
             throw new CustomAppException("Erreur lors du chargement du contenu XML depuis une chaîne", e);
         }
     }
 
+    //Charge un document XML à partir de son contenu brut, l'encodage étant lu dans le prologue
+    public Document loadXMLFromBytes(byte[] xml) throws CustomAppException {
+        try {
+            DocumentBuilder builder = documentBuilder();
+            Document document = builder.parse(new ByteArrayInputStream(xml));
+            document.getDocumentElement().normalize();
+            return document;
+        } catch (IOException | SAXException e) {
+            log.error("Erreur lors du chargement du contenu XML depuis un tableau d'octets", e);
+            throw new CustomAppException("Erreur lors du chargement du contenu XML depuis un tableau d'octets", e);
+        }
+    }
+
     //Sauvegarde un document XML dans un fichier
     public void saveDocumentToFile(Document document, String filePath) throws CustomAppException {
         log.info("Enregistrement du document dans le fichier : {}", filePath);
-        try {
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "no");
-            transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        try (OutputStream outputStream = openOutputFile(Path.of(filePath))) {
+            writeDocument(document, outputStream);
+            log.info("Document XML enregistré avec succès");
+        } catch (IOException e) {
+            log.error("Erreur lors de l'enregistrement du document XML", e);
+            throw new CustomAppException("Erreur lors de l'enregistrement du document XML", e);
+        }
+    }
 
-            StringWriter writer = new StringWriter();
-            transformer.transform(new DOMSource(document), new StreamResult(writer));
+    //Sérialise un document XML directement dans un flux, sans passer par une chaîne intermédiaire
+    public void writeDocument(Document document, OutputStream outputStream) throws CustomAppException {
+        write(document, outputStream, true);
+    }
 
-            String xmlContent = writer.toString().replaceFirst("\\?>", "?>\n");
+    //Sérialise un document XML sans déclaration, pour l'insérer tel quel dans un document englobant (UTF-8)
+    public void writeFragment(Document document, OutputStream outputStream) throws CustomAppException {
+        write(document, outputStream, false);
+    }
 
-            try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(filePath, StandardCharsets.UTF_8))) {
-                bufferedWriter.write(xmlContent);
+    private void write(Document document, OutputStream outputStream, boolean withDeclaration) throws CustomAppException {
+        ThreadLocal<Transformer> threadSerializers = serializers;
+        try {
+            Transformer transformer = threadSerializers.get();
+
+            if (withDeclaration) {
+                // La déclaration est écrite à la main pour conserver le retour à la ligne qui la suit
+                // Les octets sont toujours écrits en UTF-8 : seule la casse déclarée en entrée est conservée
+                String encoding = "UTF-8".equalsIgnoreCase(document.getXmlEncoding()) ? document.getXmlEncoding() : "UTF-8";
+                String declaration = "<?xml version=\"" + document.getXmlVersion() + "\" encoding=\"" + encoding
+                        + "\" standalone=\"" + (document.getXmlStandalone() ? "yes" : "no") + "\"?>\n";
+                outputStream.write(declaration.getBytes(StandardCharsets.UTF_8));
             }
-            log.info("Document XML enregistré avec succès");
+            transformer.transform(new DOMSource(document), new StreamResult(outputStream));
+            outputStream.flush();
         } catch (TransformerException | IOException e) {
-            log.error("Erreur lors de l'enregistrement du document XML", e);
-            throw new CustomAppException("Erreur lors de l'enregistrement du document XML", e);
+            // Le sérialiseur interrompu n'est pas réutilisé
+            threadSerializers.remove();
+            log.error("Erreur lors de la sérialisation du document XML", e);
+            throw new CustomAppException("Erreur lors de la sérialisation du document XML", e);
         }
     }
 
     // Convertit un document XML en chaîne de caractères
     public String documentToString(Document document) throws CustomAppException {
         try {
-            Transformer transformer = transformerFactory.newTransformer();
+            Transformer transformer = newTransformer(transformerFactory);
             transformer.setOutputProperty(OutputKeys.INDENT, "yes");
             transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
             transformer.setOutputProperty(OutputKeys.METHOD, "xml");
@@ -168,4 +313,13 @@ public class XmlService {
         }
     }
 
+    //Octets UTF-8 d'un document reçu sous forme de texte (enveloppe, JSON Lines) : l'encodage déclaré, qui ne
+    //décrit plus ces octets, est remplacé par UTF-8
+    public static byte[] utf8Bytes(String xml) {
+        Matcher matcher = DECLARED_ENCODING.matcher(xml);
+        if (matcher.find()) {
+            xml = matcher.replaceFirst("$1$2UTF-8$2");
+        }
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Nom         : ShadowCapture.java
+ *
+ * Description : Document en cours de traitement par la configuration active et retenu pour le mode shadow : la
+ *               sortie est produite dans un tampon dimensionné d'avance, comme celle de la candidate, et la
+ *               latence et l'allocation du thread de traitement sont mesurées jusqu'à la fin de cette écriture.
+ *               Le tampon n'est recopié dans le flux d'origine qu'une fois la mesure arrêtée : ni la recopie ni
+ *               le flux de l'appelant ne pèsent sur la comparaison.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shadow;
+
+import com.ouestfrance.modecitation.Monitoring.ThreadAllocations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class ShadowCapture {
+
+    private final OutputStream target;
+
+    private final ByteArrayOutputStream copy;
+
+    private final long startNanos;
+
+    private final long startAllocatedBytes;
+
+    private long elapsedNanos;
+
+    private long allocatedBytes;
+
+    //Le tampon est alloué avant le début de la mesure
+    ShadowCapture(OutputStream target, int expectedBytes) {
+        this.target = target;
+        this.copy = new ByteArrayOutputStream(expectedBytes);
+        this.startNanos = System.nanoTime();
+        this.startAllocatedBytes = ThreadAllocations.currentThreadAllocatedBytes();
+    }
+
+    //Flux à utiliser pour la sortie du document à la place du flux d'origine
+    public OutputStream getOutput() {
+        return copy;
+    }
+
+    //Arrête la mesure, puis écrit la sortie retenue dans le flux d'origine
+    public void complete() throws IOException {
+        elapsedNanos = System.nanoTime() - startNanos;
+        allocatedBytes = ThreadAllocations.currentThreadAllocatedBytes() - startAllocatedBytes;
+        copy.writeTo(target);
+        target.flush();
+    }
+
+    byte[] getCopy() {
+        return copy.toByteArray();
+    }
+
+    long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    long allocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Nom         : ShadowComparator.java
+ *
+ * Description : Comparaison paragraphe par paragraphe (éléments p, dans l'ordre du document) de deux documents
+ *               produits à partir de la même entrée ; les paragraphes sont comparés sérialisés, balises comprises.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shadow;
+
+import com.ouestfrance.modecitation.Report.NodeLocation;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+final class ShadowComparator {
+
+    private static final String PARAGRAPH = "p";
+
+    private static final int MAX_EXCERPT_LENGTH = 500;
+
+    private static final ThreadLocal<Transformer> SERIALIZERS = ThreadLocal.withInitial(() -> {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            transformer.setOutputProperty(OutputKeys.INDENT, "no");
+            return transformer;
+        } catch (TransformerException e) {
+            throw new IllegalStateException("Création impossible du sérialiseur XML", e);
+        }
+    });
+
+    private ShadowComparator() {
+    }
+
+    static List<Node> paragraphs(Document document) {
+        NodeList nodes = document.getElementsByTagName(PARAGRAPH);
+        List<Node> paragraphs = new ArrayList<>(nodes.getLength());
+        for (int i = 0; i < nodes.getLength(); i++) {
+            paragraphs.add(nodes.item(i));
+        }
+        return paragraphs;
+    }
+
+    //Paragraphes qui diffèrent, y compris ceux présents d'un seul côté
+    static List<ShadowDifference> compare(List<Node> primary, List<Node> candidate) throws TransformerException {
+        List<ShadowDifference> differences = new ArrayList<>();
+        for (int i = 0; i < Math.max(primary.size(), candidate.size()); i++) {
+            Node primaryParagraph = i < primary.size() ? primary.get(i) : null;
+            Node candidateParagraph = i < candidate.size() ? candidate.get(i) : null;
+            String primaryText = serialize(primaryParagraph);
+            String candidateText = serialize(candidateParagraph);
+            if (primaryText == null || !primaryText.equals(candidateText)) {
+                differences.add(new ShadowDifference(i, NodeLocation.of(primaryParagraph != null ? primaryParagraph : candidateParagraph),
+                        excerpt(primaryText), excerpt(candidateText)));
+            }
+        }
+        return differences;
+    }
+
+    private static String serialize(Node node) throws TransformerException {
+        if (node == null) {
+            return null;
+        }
+        StringWriter writer = new StringWriter();
+        SERIALIZERS.get().transform(new DOMSource(node), new StreamResult(writer));
+        return writer.toString();
+    }
+
+    private static String excerpt(String text) {
+        if (text == null || text.length() <= MAX_EXCERPT_LENGTH) {
+            return text;
+        }
+        return text.substring(0, MAX_EXCERPT_LENGTH) + "…";
+    }
+}
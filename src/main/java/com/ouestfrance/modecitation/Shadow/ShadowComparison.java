@@ -0,0 +1,53 @@
+/*
+ * Nom         : ShadowComparison.java
+ *
+ * Description : Comparaison d'un document traité par la configuration active et par la configuration candidate :
+ *               paragraphes différents, écarts de latence et d'allocation (candidate moins active).
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shadow;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"document", "paragraphs", "differences", "primaryQuotes", "candidateQuotes", "primaryLatencyMicros",
+        "candidateLatencyMicros", "latencyDeltaMicros", "primaryAllocatedBytes", "candidateAllocatedBytes",
+        "allocationDeltaBytes", "candidateError"})
+public class ShadowComparison {
+
+    private final String document;
+
+    //Paragraphes du document produit par la configuration active
+    private final int paragraphs;
+
+    private final List<ShadowDifference> differences;
+
+    private final int primaryQuotes;
+
+    private final int candidateQuotes;
+
+    private final long primaryLatencyMicros;
+
+    private final long candidateLatencyMicros;
+
+    private final long latencyDeltaMicros;
+
+    private final long primaryAllocatedBytes;
+
+    private final long candidateAllocatedBytes;
+
+    private final long allocationDeltaBytes;
+
+    //Erreur de la configuration candidate sur ce document, null si elle l'a traité
+    private final String candidateError;
+}
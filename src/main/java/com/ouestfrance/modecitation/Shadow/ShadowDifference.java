@@ -0,0 +1,32 @@
+/*
+ * Nom         : ShadowDifference.java
+ *
+ * Description : Paragraphe produit différemment par la configuration active et par la configuration candidate.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shadow;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"paragraph", "location", "primary", "candidate"})
+public class ShadowDifference {
+
+    //Rang du paragraphe dans le document, à partir de 0
+    private final int paragraph;
+
+    private final String location;
+
+    //Paragraphe sérialisé de chaque côté, absent si ce côté compte moins de paragraphes
+    private final String primary;
+
+    private final String candidate;
+}
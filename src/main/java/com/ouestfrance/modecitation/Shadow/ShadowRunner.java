@@ -0,0 +1,316 @@
+/*
+ * Nom         : ShadowRunner.java
+ *
+ * Description : Mode shadow : les documents traités par ModeCitationProcessor (modes pipe, envelope et feed) sont
+ *               retraités avec une configuration candidate (règles, implémentation DOM) par des threads à part,
+ *               hors du chemin critique. La sortie active est retenue dans un tampon avant d'être écrite dans
+ *               son flux, puis comparée paragraphe par paragraphe à celle de la candidate, avec les écarts de
+ *               latence et d'allocation mesurés dans les mêmes conditions (tampon alloué hors mesure) ; une ligne par
+ *               document est écrite dans shadow.report.file. La file est bornée : quand elle est pleine le document
+ *               n'est pas comparé. La candidate ne touche jamais la sortie active : ses erreurs restent dans le
+ *               rapport.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shadow;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Monitoring.ThreadAllocations;
+import com.ouestfrance.modecitation.Readiness.ReadinessGate;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Report.JsonLinesWriter;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Services.DomBackend;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+@Log4j2
+public class ShadowRunner {
+
+    //Remis à faux si la configuration candidate ne peut pas être mise en place
+    @Value("${shadow.enabled:false}")
+    private volatile boolean enabled;
+
+    //Règles candidates ; vide pour reprendre celles de rules.json.path et rules.directory (changement de moteur seul)
+    @Value("${shadow.rules.json.path:}")
+    private String candidateRulesJsonPath;
+
+    @Value("${shadow.rules.directory:}")
+    private String candidateRulesDirectory;
+
+    @Value("${rules.json.path:}")
+    private String rulesJsonPath;
+
+    @Value("${rules.directory:}")
+    private String rulesDirectory;
+
+    //Implémentation DOM candidate, vide pour reprendre xml.dom.backend
+    @Value("${shadow.dom.backend:}")
+    private String candidateDomBackend;
+
+    @Value("${xml.dom.backend:xerces-deferred}")
+    private String domBackend;
+
+    @Value("${shadow.threads:1}")
+    private int threads;
+
+    //Documents en attente de comparaison au plus ; au-delà, les suivants ne sont pas comparés
+    @Value("${shadow.queue.capacity:64}")
+    private int queueCapacity;
+
+    @Value("${shadow.report.file:shadow.jsonl}")
+    private String reportFile;
+
+    @Autowired
+    private RulesService rulesService;
+
+    //Seul le trafic réel est comparé : rien n'est retenu avant la fin de la mise en température
+    @Autowired
+    private ReadinessGate readinessGate;
+
+    private final LongAdder compared = new LongAdder();
+
+    private final LongAdder differing = new LongAdder();
+
+    private final LongAdder candidateFailed = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder latencyDeltaMicros = new LongAdder();
+
+    private final LongAdder allocationDeltaBytes = new LongAdder();
+
+    //Configuration candidate et file, créées au premier document retenu ; la file est publiée en dernier
+    private volatile ThreadPoolExecutor executor;
+
+    private XmlService candidateXmlService;
+
+    private XmlService comparisonXmlService;
+
+    private RuleSets candidateRuleSets;
+
+    private CustomAppException candidateLoadError;
+
+    private JsonLinesWriter reportWriter;
+
+    private boolean shutdown;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //Retient le document sur le point d'être traité si le mode est actif et la file a de la place ; null sinon,
+    //et le traitement écrit directement dans son flux
+    public ShadowCapture begin(OutputStream outputStream, int contentBytes) {
+        if (!enabled || (readinessGate != null && !readinessGate.isReady())) {
+            return null;
+        }
+        ThreadPoolExecutor current = executor();
+        if (current == null || current.getQueue().remainingCapacity() == 0) {
+            dropped.increment();
+            return null;
+        }
+        return new ShadowCapture(outputStream, expectedOutputBytes(contentBytes));
+    }
+
+    //Taille du tampon de sortie, pour la configuration active comme pour la candidate : le document d'entrée et
+    //un quart de marge pour les balises de citation ajoutées
+    private static int expectedOutputBytes(int contentBytes) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, contentBytes + contentBytes / 4L + 1024);
+    }
+
+    //Confie à la file le document traité par la configuration active ; ne lève jamais d'exception
+    public void submit(ShadowCapture capture, String name, byte[] content, boolean fragment, DocumentReport report) {
+        long primaryNanos = capture.elapsedNanos();
+        long primaryAllocated = capture.allocatedBytes();
+        byte[] primaryOutput = capture.getCopy();
+        int primaryQuotes = report.getQuotesWrapped();
+        ThreadPoolExecutor current = executor();
+        if (current == null) {
+            dropped.increment();
+            return;
+        }
+        // Refus de la file (pleine ou arrêtée) : compté par la politique de rejet
+        current.execute(() -> {
+            try {
+                compare(name, content, fragment, primaryOutput, primaryQuotes, primaryNanos, primaryAllocated);
+            } catch (RuntimeException e) {
+                log.error("Erreur lors de la comparaison shadow du document {}", name, e);
+            }
+        });
+    }
+
+    public ShadowSummary getSummary() {
+        long count = compared.sum();
+        return new ShadowSummary(count, differing.sum(), candidateFailed.sum(), dropped.sum(),
+                count > 0 ? (double) latencyDeltaMicros.sum() / count : 0,
+                count > 0 ? (double) allocationDeltaBytes.sum() / count : 0);
+    }
+
+    //Termine les comparaisons en attente (dans la limite de 30 s), puis écrit le bilan
+    @PreDestroy
+    public void shutdown() {
+        ThreadPoolExecutor current;
+        synchronized (this) {
+            shutdown = true;
+            current = executor;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(30, TimeUnit.SECONDS)) {
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (reportWriter != null) {
+                try {
+                    reportWriter.close();
+                } catch (IOException e) {
+                    log.error("Erreur lors de la fermeture du rapport shadow", e);
+                }
+            }
+        }
+        ShadowSummary summary = getSummary();
+        log.info("Mode shadow : {} document(s) comparé(s), {} différent(s), {} en échec côté candidate, {} non comparé(s) (file pleine), "
+                        + "écart moyen {} µs et {} octets alloués par document (candidate moins active)",
+                summary.getCompared(), summary.getDiffering(), summary.getCandidateFailed(), summary.getDropped(),
+                String.format("%.1f", summary.getMeanLatencyDeltaMicros()), String.format("%.0f", summary.getMeanAllocationDeltaBytes()));
+    }
+
+    private ThreadPoolExecutor executor() {
+        ThreadPoolExecutor current = executor;
+        return current != null ? current : createExecutor();
+    }
+
+    private synchronized ThreadPoolExecutor createExecutor() {
+        if (executor == null && !shutdown) {
+            candidateXmlService = new XmlService();
+            comparisonXmlService = new XmlService();
+            try {
+                candidateXmlService.setDomBackend(DomBackend.of(candidateDomBackend.isEmpty() ? domBackend : candidateDomBackend));
+                reportWriter = new JsonLinesWriter(Files.createDirectories(Path.of(reportFile).toAbsolutePath().getParent())
+                        .resolve(Path.of(reportFile).getFileName()));
+            } catch (CustomAppException | IOException e) {
+                log.error("Mode shadow désactivé : {}", e.getMessage());
+                enabled = false;
+                return null;
+            }
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                        Thread thread = new Thread(runnable, "shadow-" + threadNumber.getAndIncrement());
+                        thread.setDaemon(true);
+                        // Les comparaisons cèdent la place au traitement actif
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }, (runnable, pool) -> dropped.increment());
+            log.info("Mode shadow actif : règles candidates {}, implémentation DOM {}, rapport dans {}",
+                    candidateRulesJsonPath.isEmpty() ? rulesJsonPath : candidateRulesJsonPath,
+                    candidateXmlService.getDomBackend().getName(), reportFile);
+        }
+        return executor;
+    }
+
+    //Règles candidates compilées au premier besoin ; un échec de chargement est gardé pour ne pas être retenté
+    private synchronized RuleSets candidateRuleSets() throws CustomAppException {
+        if (candidateRuleSets == null && candidateLoadError == null) {
+            try {
+                candidateRuleSets = candidateRulesJsonPath.isEmpty() ? rulesService.loadRuleSets(rulesJsonPath, rulesDirectory)
+                        : rulesService.loadRuleSets(candidateRulesJsonPath, candidateRulesDirectory);
+            } catch (CustomAppException e) {
+                log.error("Règles candidates inutilisables : {}", e.getMessage());
+                candidateLoadError = e;
+            }
+        }
+        if (candidateLoadError != null) {
+            throw candidateLoadError;
+        }
+        return candidateRuleSets;
+    }
+
+    private void compare(String name, byte[] content, boolean fragment, byte[] primaryOutput, int primaryQuotes,
+                         long primaryNanos, long primaryAllocated) {
+        // Tampon alloué hors mesure, comme celui de la configuration active
+        ByteArrayOutputStream candidateOutput = new ByteArrayOutputStream(expectedOutputBytes(content.length));
+        long start = System.nanoTime();
+        long startAllocated = ThreadAllocations.currentThreadAllocatedBytes();
+        DocumentReport candidateReport = new DocumentReport(name);
+        String candidateError = null;
+        try {
+            Document document = candidateXmlService.loadXMLFromBytes(content);
+            RuleSet ruleSet = candidateRuleSets().select(document);
+            candidateReport.setRuleSet(ruleSet.getName());
+            rulesService.applyRules(document, ruleSet.getRules(), candidateReport);
+            if (fragment) {
+                candidateXmlService.writeFragment(document, candidateOutput);
+            } else {
+                candidateXmlService.writeDocument(document, candidateOutput);
+            }
+        } catch (Exception e) {
+            candidateError = e.getMessage();
+        }
+        long candidateNanos = System.nanoTime() - start;
+        long candidateAllocated = ThreadAllocations.currentThreadAllocatedBytes() - startAllocated;
+
+        List<ShadowDifference> differences = List.of();
+        int paragraphs = 0;
+        try {
+            List<Node> primaryParagraphs = ShadowComparator.paragraphs(comparisonXmlService.loadXMLFromBytes(primaryOutput));
+            paragraphs = primaryParagraphs.size();
+            if (candidateError == null) {
+                differences = ShadowComparator.compare(primaryParagraphs,
+                        ShadowComparator.paragraphs(comparisonXmlService.loadXMLFromBytes(candidateOutput.toByteArray())));
+            }
+        } catch (Exception e) {
+            candidateError = "Comparaison impossible : " + e.getMessage();
+        }
+
+        ShadowComparison comparison = new ShadowComparison(name, paragraphs, differences, primaryQuotes,
+                candidateReport.getQuotesWrapped(), TimeUnit.NANOSECONDS.toMicros(primaryNanos),
+                TimeUnit.NANOSECONDS.toMicros(candidateNanos), TimeUnit.NANOSECONDS.toMicros(candidateNanos - primaryNanos),
+                primaryAllocated, candidateAllocated, candidateAllocated - primaryAllocated, candidateError);
+        compared.increment();
+        if (candidateError != null) {
+            candidateFailed.increment();
+        } else if (!differences.isEmpty()) {
+            differing.increment();
+        }
+        latencyDeltaMicros.add(comparison.getLatencyDeltaMicros());
+        allocationDeltaBytes.add(comparison.getAllocationDeltaBytes());
+        reportWriter.write(comparison);
+        try {
+            reportWriter.flush();
+        } catch (IOException e) {
+            log.error("Erreur lors de l'écriture du rapport shadow", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Nom         : ShadowSummary.java
+ *
+ * Description : Bilan cumulé du mode shadow : documents comparés, différents, en échec côté candidate, écartés
+ *               faute de place dans la file, et écarts moyens de latence et d'allocation.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shadow;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ShadowSummary {
+
+    private final long compared;
+
+    private final long differing;
+
+    private final long candidateFailed;
+
+    private final long dropped;
+
+    private final double meanLatencyDeltaMicros;
+
+    private final double meanAllocationDeltaBytes;
+}
@@ -0,0 +1,43 @@
+/*
+ * Nom         : ProgressReport.java
+ *
+ * Description : Avancement consolidé de toutes les parties du lot, tous processus confondus.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shard;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@Getter
+@Setter
+@JsonPropertyOrder({"shardCount", "shardsDone", "shardsRunning", "shardsPending", "documents", "written", "failed", "shardsDoneByWorker", "updatedAt"})
+public class ProgressReport {
+
+    private int shardCount;
+
+    private int shardsDone;
+
+    //Parties sous bail valide, en cours de traitement
+    private int shardsRunning;
+
+    //Parties jamais prises ou dont le bail a expiré
+    private int shardsPending;
+
+    private long documents;
+
+    private long written;
+
+    private long failed;
+
+    private Map<String, Integer> shardsDoneByWorker = new TreeMap<>();
+
+    private long updatedAt;
+}
@@ -0,0 +1,212 @@
+/*
+ * Nom         : ShardCoordinator.java
+ *
+ * Description : Coordination de plusieurs processus de traitement par lot à travers un répertoire partagé :
+ *               répartition des fichiers en parties, baux par partie, marqueurs de fin et avancement.
+ *
+ *               Un bail est un fichier shard-NNN.gG créé de façon exclusive (CREATE_NEW) : un seul processus
+ *               obtient la génération G. Son détenteur le renouvelle en mettant à jour sa date de modification ;
+ *               un bail non renouvelé pendant la durée de validité est repris en créant la génération G+1.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+@Log4j2
+public class ShardCoordinator {
+
+    private static final Pattern LEASE_NAME = Pattern.compile("shard-(\\d+)\\.g(\\d+)");
+
+    private static final Pattern DONE_NAME = Pattern.compile("shard-(\\d+)\\.done");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path leaseDirectory;
+
+    private final Path progressDirectory;
+
+    private final Path progressFile;
+
+    @Getter
+    private final int shardCount;
+
+    @Getter
+    private final String workerId;
+
+    @Getter
+    private final long leaseTtlMillis;
+
+    public ShardCoordinator(Path workDirectory, int shardCount, String workerId, long leaseTtlMillis) throws IOException {
+        this.leaseDirectory = Files.createDirectories(workDirectory.resolve("leases"));
+        this.progressDirectory = Files.createDirectories(workDirectory.resolve("progress"));
+        this.progressFile = workDirectory.resolve("progress.json");
+        this.shardCount = shardCount;
+        this.workerId = workerId;
+        this.leaseTtlMillis = leaseTtlMillis;
+    }
+
+    public static String shardName(int shard) {
+        return String.format("shard-%03d", shard);
+    }
+
+    //Partie d'un fichier, d'après son chemin relatif au répertoire d'entrée : identique pour tous les processus,
+    //quel que soit le point de montage du répertoire partagé
+    public int shardOf(String relativePath) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(relativePath.replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+        return (int) (crc32.getValue() % shardCount);
+    }
+
+    //État de toutes les parties, lu en un seul parcours du répertoire des baux
+    public ShardState[] snapshot() throws IOException {
+        ShardState[] states = new ShardState[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            states[shard] = new ShardState(shard);
+        }
+        try (Stream<Path> files = Files.list(leaseDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher lease = LEASE_NAME.matcher(name);
+                Matcher done = DONE_NAME.matcher(name);
+                if (lease.matches() && Integer.parseInt(lease.group(1)) < shardCount) {
+                    try {
+                        states[Integer.parseInt(lease.group(1))].leased(Long.parseLong(lease.group(2)),
+                                Files.getLastModifiedTime(file).toMillis());
+                    } catch (NoSuchFileException e) {
+                        // Bail supprimé pendant le parcours
+                    }
+                } else if (done.matches() && Integer.parseInt(done.group(1)) < shardCount) {
+                    states[Integer.parseInt(done.group(1))].done();
+                }
+            }
+        }
+        return states;
+    }
+
+    //Prend la génération suivante du bail d'une partie ; null si un autre processus l'a prise ou a terminé la partie
+    public ShardLease tryAcquire(int shard, long currentGeneration) throws IOException {
+        long generation = currentGeneration + 1;
+        Path path = leasePath(shard, generation);
+        try {
+            Files.write(path, (workerId + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException e) {
+            return null;
+        }
+        if (Files.exists(donePath(shard))) {
+            // Partie terminée depuis le relevé d'état
+            return null;
+        }
+        return new ShardLease(shard, generation, path);
+    }
+
+    //Le bail est toujours détenu tant que la génération suivante n'a pas été créée
+    public boolean isHeld(ShardLease lease) {
+        return !Files.exists(leasePath(lease.getShard(), lease.getGeneration() + 1));
+    }
+
+    //Prolonge le bail ; false s'il a été repris entre-temps par un autre processus
+    public boolean renew(ShardLease lease) throws IOException {
+        if (!isHeld(lease)) {
+            return false;
+        }
+        Files.setLastModifiedTime(lease.getPath(), FileTime.fromMillis(System.currentTimeMillis()));
+        return true;
+    }
+
+    //Marque la partie comme terminée si le bail est toujours détenu
+    public boolean complete(ShardLease lease) throws IOException {
+        if (!isHeld(lease)) {
+            return false;
+        }
+        try {
+            Files.write(donePath(lease.getShard()), (workerId + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException e) {
+            log.info("Partie {} déjà marquée comme terminée", shardName(lease.getShard()));
+        }
+        return true;
+    }
+
+    public void writeProgress(ShardProgress progress) throws IOException {
+        writeAtomically(progressDirectory.resolve(shardName(progress.getShard()) + ".json"), progress);
+    }
+
+    //Consolide l'avancement publié par tous les processus et l'écrit dans progress.json
+    public ProgressReport mergeProgress() throws IOException {
+        ShardState[] states = snapshot();
+        long now = System.currentTimeMillis();
+        ProgressReport report = new ProgressReport();
+        report.setShardCount(shardCount);
+        for (ShardState state : states) {
+            if (state.isDone()) {
+                report.setShardsDone(report.getShardsDone() + 1);
+            } else if (state.isLeased() && !state.isExpired(now, leaseTtlMillis)) {
+                report.setShardsRunning(report.getShardsRunning() + 1);
+            } else {
+                report.setShardsPending(report.getShardsPending() + 1);
+            }
+        }
+        for (ShardProgress progress : readProgress()) {
+            report.setDocuments(report.getDocuments() + progress.getDocuments());
+            if (progress.getState() == ShardProgress.State.DONE) {
+                report.setWritten(report.getWritten() + progress.getWritten());
+                report.setFailed(report.getFailed() + progress.getFailed());
+                report.getShardsDoneByWorker().merge(progress.getWorker(), 1, Integer::sum);
+            }
+        }
+        report.setUpdatedAt(now);
+        writeAtomically(progressFile, report);
+        return report;
+    }
+
+    private List<ShardProgress> readProgress() throws IOException {
+        List<ShardProgress> progress = new ArrayList<>();
+        try (Stream<Path> files = Files.list(progressDirectory)) {
+            for (Path file : (Iterable<Path>) files.filter(path -> path.getFileName().toString().endsWith(".json"))::iterator) {
+                try {
+                    progress.add(OBJECT_MAPPER.readValue(file.toFile(), ShardProgress.class));
+                } catch (FileNotFoundException e) {
+                    // Fichier remplacé pendant la lecture
+                }
+            }
+        }
+        return progress;
+    }
+
+    //Écrit dans un fichier temporaire propre au processus puis le renomme, pour ne jamais exposer de fichier partiel
+    private void writeAtomically(Path target, Object value) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + "." + workerId.replaceAll("[^A-Za-z0-9._-]", "_") + ".tmp");
+        OBJECT_MAPPER.writeValue(temporary.toFile(), value);
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path leasePath(int shard, long generation) {
+        return leaseDirectory.resolve(shardName(shard) + ".g" + generation);
+    }
+
+    private Path donePath(int shard) {
+        return leaseDirectory.resolve(shardName(shard) + ".done");
+    }
+}
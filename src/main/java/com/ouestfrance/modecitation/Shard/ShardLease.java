@@ -0,0 +1,27 @@
+/*
+ * Nom         : ShardLease.java
+ *
+ * Description : Bail détenu par un processus sur une partie du lot, pour une génération donnée.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shard;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+@Getter
+@AllArgsConstructor
+public class ShardLease {
+
+    private final int shard;
+
+    //Les générations se succèdent de 1 en 1 : un bail est perdu dès que la génération suivante existe
+    private final long generation;
+
+    private final Path path;
+}
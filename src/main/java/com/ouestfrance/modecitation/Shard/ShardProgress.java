@@ -0,0 +1,48 @@
+/*
+ * Nom         : ShardProgress.java
+ *
+ * Description : Avancement d'une partie du lot, publié par le processus qui la traite.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shard;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"shard", "worker", "generation", "state", "documents", "written", "failed", "startedAt", "durationMillis"})
+public class ShardProgress {
+
+    public enum State {
+        RUNNING,
+        DONE
+    }
+
+    private int shard;
+
+    private String worker;
+
+    private long generation;
+
+    private State state;
+
+    private int documents;
+
+    //Documents produits et documents en échec, connus une fois la partie terminée
+    private long written;
+
+    private long failed;
+
+    private long startedAt;
+
+    private long durationMillis;
+}
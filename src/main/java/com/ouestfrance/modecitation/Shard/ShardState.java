@@ -0,0 +1,50 @@
+/*
+ * Nom         : ShardState.java
+ *
+ * Description : État d'une partie du lot vu depuis le répertoire des baux : dernière génération de bail,
+ *               date de son dernier renouvellement et marqueur de fin.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shard;
+
+import lombok.Getter;
+
+@Getter
+public class ShardState {
+
+    private final int shard;
+
+    //Dernière génération de bail, 0 si la partie n'a jamais été prise
+    private long generation;
+
+    private long renewedAtMillis;
+
+    private boolean done;
+
+    public ShardState(int shard) {
+        this.shard = shard;
+    }
+
+    void leased(long generation, long renewedAtMillis) {
+        if (generation > this.generation) {
+            this.generation = generation;
+            this.renewedAtMillis = renewedAtMillis;
+        }
+    }
+
+    void done() {
+        done = true;
+    }
+
+    public boolean isLeased() {
+        return generation > 0;
+    }
+
+    //Bail non renouvelé depuis plus de ttlMillis : son détenteur est considéré comme arrêté
+    public boolean isExpired(long nowMillis, long ttlMillis) {
+        return isLeased() && nowMillis - renewedAtMillis > ttlMillis;
+    }
+}
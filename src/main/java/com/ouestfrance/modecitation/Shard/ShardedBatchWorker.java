@@ -0,0 +1,174 @@
+/*
+ * Nom         : ShardedBatchWorker.java
+ *
+ * Description : Processus de traitement par lot coopérant avec d'autres processus, sur une ou plusieurs
+ *               machines partageant un système de fichiers : le lot est réparti en parties par hachage du
+ *               chemin des fichiers, chaque partie est traitée sous bail par le pipeline, et les parties d'un
+ *               processus arrêté sont reprises par les autres à l'expiration de son bail.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Shard;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Treatment.ModeCitationPipeline;
+import com.ouestfrance.modecitation.Treatment.StageStatistics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+@Log4j2
+public class ShardedBatchWorker {
+
+    //Nombre de parties du lot, identique pour tous les processus
+    @Value("${shard.count:64}")
+    private int shardCount;
+
+    //Répertoire partagé des baux et de l'avancement
+    @Value("${shard.work.directory:}")
+    private String workDirectory;
+
+    //Identifiant du processus, par défaut nom de la machine et numéro de processus
+    @Value("${shard.worker.id:}")
+    private String workerId;
+
+    //Durée au-delà de laquelle un bail non renouvelé est repris ; à choisir au-dessus des écarts d'horloge entre machines
+    @Value("${shard.lease.ttl.seconds:120}")
+    private long leaseTtlSeconds;
+
+    //Intervalle d'attente des parties détenues par d'autres processus
+    @Value("${shard.poll.millis:2000}")
+    private long pollMillis;
+
+    @Autowired
+    private ModeCitationPipeline modeCitationPipeline;
+
+    //Traite les parties disponibles jusqu'à ce que toutes soient terminées, par ce processus ou par les autres
+    public ProgressReport run(Path inputDirectory, List<Path> inputs, Path outputDirectory, RuleSets ruleSets) throws CustomAppException {
+        try {
+            String worker = workerId == null || workerId.isBlank() ? defaultWorkerId() : workerId;
+            ShardCoordinator coordinator = new ShardCoordinator(Path.of(workDirectory), shardCount, worker,
+                    TimeUnit.SECONDS.toMillis(leaseTtlSeconds));
+            List<List<Path>> shards = partition(coordinator, inputDirectory, inputs);
+            log.info("Processus {} : {} fichier(s) répartis en {} partie(s)", worker, inputs.size(), shardCount);
+
+            // Chaque processus commence son parcours à une partie différente pour limiter les collisions
+            int offset = Math.floorMod(worker.hashCode(), shardCount);
+            while (true) {
+                boolean waiting = false;
+                ShardState[] states = coordinator.snapshot();
+                for (int k = 0; k < shardCount; k++) {
+                    ShardState state = states[(offset + k) % shardCount];
+                    if (state.isDone()) {
+                        continue;
+                    }
+                    if (state.isLeased() && !state.isExpired(System.currentTimeMillis(), coordinator.getLeaseTtlMillis())) {
+                        waiting = true;
+                        continue;
+                    }
+                    ShardLease lease = coordinator.tryAcquire(state.getShard(), state.getGeneration());
+                    if (lease == null) {
+                        waiting = true;
+                        continue;
+                    }
+                    if (state.isLeased()) {
+                        log.warn("Bail expiré de la partie {} repris par {} (génération {})",
+                                ShardCoordinator.shardName(state.getShard()), worker, lease.getGeneration());
+                    }
+                    processShard(coordinator, lease, shards.get(state.getShard()), outputDirectory, ruleSets);
+                }
+                if (!waiting) {
+                    break;
+                }
+                Thread.sleep(pollMillis);
+            }
+
+            ProgressReport report = coordinator.mergeProgress();
+            log.info("Lot terminé : {} partie(s), {} document(s) produit(s), {} en échec",
+                    report.getShardsDone(), report.getWritten(), report.getFailed());
+            return report;
+        } catch (IOException e) {
+            log.error("Erreur de coordination du traitement par parties", e);
+            throw new CustomAppException("Erreur de coordination du traitement par parties", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomAppException("Traitement par parties interrompu", e);
+        }
+    }
+
+    //Traite une partie sous bail, renouvelé en tâche de fond ; un bail perdu en cours de route n'est pas marqué terminé
+    private void processShard(ShardCoordinator coordinator, ShardLease lease, List<Path> inputs, Path outputDirectory,
+                              RuleSets ruleSets) throws IOException, CustomAppException {
+        String shardName = ShardCoordinator.shardName(lease.getShard());
+        long startedAt = System.currentTimeMillis();
+        log.info("Partie {} prise par {} : {} document(s)", shardName, coordinator.getWorkerId(), inputs.size());
+        coordinator.writeProgress(new ShardProgress(lease.getShard(), coordinator.getWorkerId(), lease.getGeneration(),
+                ShardProgress.State.RUNNING, inputs.size(), 0, 0, startedAt, 0));
+
+        AtomicBoolean lost = new AtomicBoolean();
+        long renewalMillis = Math.max(1, coordinator.getLeaseTtlMillis() / 3);
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+        heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                if (!coordinator.renew(lease)) {
+                    lost.set(true);
+                }
+            } catch (IOException e) {
+                log.warn("Renouvellement du bail de la partie {} impossible : {}", shardName, e.getMessage());
+            }
+        }, renewalMillis, renewalMillis, TimeUnit.MILLISECONDS);
+
+        List<StageStatistics> statistics;
+        try {
+            statistics = inputs.isEmpty() ? List.of() : modeCitationPipeline.run(inputs, outputDirectory, ruleSets, shardName);
+        } finally {
+            heartbeat.shutdownNow();
+        }
+
+        if (lost.get() || !coordinator.complete(lease)) {
+            log.warn("Bail de la partie {} repris par un autre processus : la partie sera terminée par celui-ci", shardName);
+            return;
+        }
+        long written = statistics.isEmpty() ? 0 : statistics.get(statistics.size() - 1).getProcessed();
+        long failed = statistics.stream().mapToLong(StageStatistics::getFailed).sum();
+        coordinator.writeProgress(new ShardProgress(lease.getShard(), coordinator.getWorkerId(), lease.getGeneration(),
+                ShardProgress.State.DONE, inputs.size(), written, failed, startedAt, System.currentTimeMillis() - startedAt));
+        coordinator.mergeProgress();
+    }
+
+    private static List<List<Path>> partition(ShardCoordinator coordinator, Path inputDirectory, List<Path> inputs) {
+        List<List<Path>> shards = new ArrayList<>();
+        for (int shard = 0; shard < coordinator.getShardCount(); shard++) {
+            shards.add(new ArrayList<>());
+        }
+        for (Path input : inputs) {
+            shards.get(coordinator.shardOf(inputDirectory.relativize(input).toString())).add(input);
+        }
+        return shards;
+    }
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
@@ -10,9 +10,13 @@
 package com.ouestfrance.modecitation.Starter;
 
 import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Readiness.ReadinessGate;
+import com.ouestfrance.modecitation.Readiness.WarmUp;
+import com.ouestfrance.modecitation.Readiness.WarmUpResult;
 import com.ouestfrance.modecitation.Treatment.ModeCitationTreatment;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -23,17 +27,58 @@ public class StartupRunner implements CommandLineRunner {
     @Autowired
     private ModeCitationTreatment modeCitationService;
 
+    //Mode d'exécution : "single" (un document), "batch" (tout un répertoire), "shard" (un répertoire
+    //partagé entre plusieurs processus), "pipe" (flux de documents de l'entrée vers la sortie standard),
+    //"envelope" (lot d'articles en un seul appel, de l'entrée vers la sortie standard), "feed" (gros fichier de
+    //flux traité article par article) ou "loadtest" (essai de charge sur un corpus synthétique)
+    @Value("${run.mode:single}")
+    private String runMode;
+
+    @Autowired
+    private WarmUp warmUp;
+
+    @Autowired
+    private ReadinessGate readinessGate;
+
     //Lance le service de traitement des citations au démarrage
     @Override
     public void run(String... args) {
         try {
             log.info("Démarrage de l'application Mode Citation");
-            modeCitationService.applyQuoteMode();
+            ready();
+            if ("batch".equals(runMode)) {
+                modeCitationService.applyQuoteModeBatch();
+            } else if ("shard".equals(runMode)) {
+                modeCitationService.applyQuoteModeSharded();
+            } else if ("pipe".equals(runMode)) {
+                modeCitationService.applyQuoteModePipe();
+            } else if ("envelope".equals(runMode)) {
+                modeCitationService.applyQuoteModeEnvelope();
+            } else if ("feed".equals(runMode)) {
+                modeCitationService.applyQuoteModeFeed();
+            } else if ("loadtest".equals(runMode)) {
+                modeCitationService.applyQuoteModeLoadTest();
+            } else {
+                modeCitationService.applyQuoteMode();
+            }
             log.info("Traitement des citations terminé avec succès");
         } catch (CustomAppException e) {
             log.error("Une erreur est survenue lors de l'application du mode citation", e);
         }
     }
+
+    //Les modes de longue durée (pipe, shard) ne se déclarent prêts qu'après la mise en température, pour que
+    //les premiers documents réels ne paient pas le démarrage à froid ; les autres le sont immédiatement
+    private void ready() throws CustomAppException {
+        if (readinessGate == null) {
+            return;
+        }
+        WarmUpResult result = null;
+        if (warmUp != null && warmUp.isEnabled() && ("pipe".equals(runMode) || "shard".equals(runMode))) {
+            result = warmUp.run();
+        }
+        readinessGate.markReady(result);
+    }
 }
 
 
@@ -0,0 +1,179 @@
+/*
+ * Nom         : BatchJournal.java
+ *
+ * Description : Journal de reprise du traitement par lot, en ajout seul (une ligne JSON par document terminé).
+ *               Les écritures sont synchronisées sur disque par paquets, au nombre de lignes ou à l'intervalle
+ *               de temps ; un arrêt brutal ne fait perdre que les dernières lignes, dont les documents sont
+ *               simplement retraités à la reprise.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Log4j2
+public class BatchJournal implements Closeable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    //Documents terminés lors des exécutions précédentes, par chemin d'entrée (la dernière ligne l'emporte)
+    private final Map<String, JournalEntry> completed;
+
+    private final FileChannel channel;
+
+    private final Writer writer;
+
+    private final int syncBatch;
+
+    private final long syncIntervalNanos;
+
+    private int pendingLines;
+
+    private long lastSyncNanos = System.nanoTime();
+
+    private BatchJournal(Map<String, JournalEntry> completed, FileChannel channel, int syncBatch, long syncIntervalMillis) {
+        this.completed = completed;
+        this.channel = channel;
+        this.writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        this.syncBatch = Math.max(1, syncBatch);
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+    }
+
+    //Ouvre le journal en ajout après avoir relu les documents déjà terminés ; une dernière ligne tronquée
+    //par un arrêt brutal est ignorée
+    public static BatchJournal open(Path path, int syncBatch, long syncIntervalMillis) throws IOException {
+        Map<String, JournalEntry> completed = new HashMap<>();
+        int corrupted = 0;
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    JournalEntry entry;
+                    try {
+                        entry = OBJECT_MAPPER.readValue(line, JournalEntry.class);
+                    } catch (IOException e) {
+                        corrupted++;
+                        continue;
+                    }
+                    if (entry.isCompleted()) {
+                        completed.put(entry.getInput(), entry);
+                    } else {
+                        completed.remove(entry.getInput());
+                    }
+                }
+            }
+        }
+        if (corrupted > 0) {
+            log.warn("{} ligne(s) illisible(s) ignorée(s) dans le journal {}", corrupted, path);
+        }
+
+        boolean truncated = endsWithTruncatedLine(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (truncated) {
+            // Isole la ligne tronquée pour que la suivante reste lisible
+            channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+        }
+        return new BatchJournal(completed, channel, syncBatch, syncIntervalMillis);
+    }
+
+    private static boolean endsWithTruncatedLine(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return false;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    //Le journal contenait déjà des documents terminés : l'exécution en cours est une reprise
+    public boolean isResumed() {
+        return !completed.isEmpty();
+    }
+
+    public int getCompletedCount() {
+        return completed.size();
+    }
+
+    //Le document a déjà été produit à partir d'un contenu identique
+    public boolean isCompleted(Path input, String hash) {
+        JournalEntry entry = completed.get(input.toString());
+        return entry != null && entry.getHash() != null && entry.getHash().equals(hash);
+    }
+
+    public synchronized void record(JournalEntry entry) throws IOException {
+        writer.write(OBJECT_MAPPER.writeValueAsString(entry));
+        writer.write('\n');
+        pendingLines++;
+        if (pendingLines >= syncBatch || System.nanoTime() - lastSyncNanos >= syncIntervalNanos) {
+            sync();
+        }
+    }
+
+    //Transmet les lignes en attente au système puis les force sur disque
+    public synchronized void sync() throws IOException {
+        writer.flush();
+        channel.force(false);
+        pendingLines = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            writer.close();
+        }
+    }
+
+    public static String hash(byte[] content) {
+        MessageDigest digest = sha256();
+        return HexFormat.of().formatHex(digest.digest(content));
+    }
+
+    public static String hash(InputStream inputStream) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
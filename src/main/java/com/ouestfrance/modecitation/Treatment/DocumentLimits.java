@@ -0,0 +1,72 @@
+/*
+ * Nom         : DocumentLimits.java
+ *
+ * Description : Limites de traitement d'un document (taille d'entrée, nombre de noeuds DOM, durée)
+ *               et comportement en cas de dépassement : abandon ou recopie sans modification.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+@Getter
+@AllArgsConstructor
+public class DocumentLimits {
+
+    //Valeur des limites désactivées
+    public static final long UNLIMITED = 0;
+
+    private final long maxInputBytes;
+
+    private final long maxNodes;
+
+    private final long maxDurationMillis;
+
+    //true : un document hors limites est recopié tel quel ; false : il n'est pas produit
+    private final boolean passthrough;
+
+    public static DocumentLimits unlimited() {
+        return new DocumentLimits(UNLIMITED, UNLIMITED, UNLIMITED, false);
+    }
+
+    public void checkInputSize(long size) throws DocumentLimitException {
+        if (maxInputBytes > 0 && size > maxInputBytes) {
+            throw new DocumentLimitException("Taille du document (" + size + " octets) supérieure à la limite de " + maxInputBytes + " octets");
+        }
+    }
+
+    //Compte les noeuds du document en s'arrêtant dès que la limite est franchie
+    public void checkNodeCount(Document document) throws DocumentLimitException {
+        if (maxNodes <= 0) {
+            return;
+        }
+        long count = 0;
+        Node node = document.getDocumentElement();
+        while (node != null) {
+            if (++count > maxNodes) {
+                throw new DocumentLimitException("Nombre de noeuds du document supérieur à la limite de " + maxNodes);
+            }
+            node = nextInDocumentOrder(node);
+        }
+    }
+
+    //Parcours itératif en profondeur, sans récursion pour ne pas dépendre de la profondeur du document
+    private static Node nextInDocumentOrder(Node node) {
+        if (node.getFirstChild() != null) {
+            return node.getFirstChild();
+        }
+        for (Node current = node; current != null; current = current.getParentNode()) {
+            if (current.getNextSibling() != null) {
+                return current.getNextSibling();
+            }
+        }
+        return null;
+    }
+}
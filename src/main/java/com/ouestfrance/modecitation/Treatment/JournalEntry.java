@@ -0,0 +1,46 @@
+/*
+ * Nom         : JournalEntry.java
+ *
+ * Description : Ligne du journal de reprise : document d'entrée, empreinte de son contenu, statut et sortie produite.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"input", "hash", "status", "output", "completedAt"})
+public class JournalEntry {
+
+    private String input;
+
+    //Empreinte SHA-256 du contenu d'entrée (décompressé), en hexadécimal
+    private String hash;
+
+    private DocumentReport.Status status;
+
+    //Fichier ou entrée d'archive produit, absent si le document n'a pas été écrit
+    private String output;
+
+    private long completedAt;
+
+    //Le document a été produit (transformé ou recopié tel quel) et n'est pas à refaire
+    @JsonIgnore
+    public boolean isCompleted() {
+        return status == DocumentReport.Status.SUCCESS || status == DocumentReport.Status.PASSTHROUGH;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Nom         : MemoryBudget.java
+ *
+ * Description : Budget global d'octets en cours de traitement : un document n'entre dans le pipeline
+ *               que si sa taille tient dans le budget restant, ce qui borne le nombre de documents
+ *               traités simultanément selon leur volume.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import lombok.Getter;
+
+public class MemoryBudget {
+
+    @Getter
+    private final long capacity;
+
+    private long inFlight;
+
+    @Getter
+    private long maxInFlight;
+
+    //Capacité en octets ; 0 ou moins pour un budget illimité
+    public MemoryBudget(long capacity) {
+        this.capacity = capacity;
+    }
+
+    //Réserve des octets en attendant qu'ils se libèrent ; un document plus gros que le budget entier
+    //est admis seul pour ne pas bloquer le traitement indéfiniment
+    public synchronized void acquire(long bytes) throws InterruptedException {
+        if (capacity > 0) {
+            while (inFlight > 0 && inFlight + bytes > capacity) {
+                wait();
+            }
+        }
+        inFlight += bytes;
+        maxInFlight = Math.max(maxInFlight, inFlight);
+    }
+
+    public synchronized void release(long bytes) {
+        inFlight -= bytes;
+        notifyAll();
+    }
+
+    public synchronized long getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Nom         : ModeCitationPipeline.java
+ *
+ * Description : Pipeline par étages (lecture, analyse, application des règles, écriture) reliés par
+ *               des files bornées, pour recouvrir les attentes d'entrées/sorties par le calcul. Quand le
+ *               groupe de traitement partagé est actif, l'analyse et l'application s'y exécutent : leurs
+ *               threads d'étage sont plafonnés à processing.threads.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.Monitoring.DocumentEvents;
+import com.ouestfrance.modecitation.Monitoring.DocumentLoadEvent;
+import com.ouestfrance.modecitation.Monitoring.DocumentWriteEvent;
+import com.ouestfrance.modecitation.Output.OutputSink;
+import com.ouestfrance.modecitation.Patch.DocumentPatch;
+import com.ouestfrance.modecitation.Patch.PatchRecorder;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Report.JsonLinesWriter;
+import com.ouestfrance.modecitation.Report.WarningType;
+import com.ouestfrance.modecitation.Rules.CompiledRule;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Scheduling.PriorityScheduler;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+@Service
+@Log4j2
+public class ModeCitationPipeline {
+
+    @Value("${pipeline.read.threads:2}")
+    private int readThreads;
+
+    @Value("${pipeline.parse.threads:2}")
+    private int parseThreads;
+
+    @Value("${pipeline.apply.threads:4}")
+    private int applyThreads;
+
+    @Value("${pipeline.write.threads:2}")
+    private int writeThreads;
+
+    @Value("${pipeline.queue.capacity:16}")
+    private int queueCapacity;
+
+    @Value("${pipeline.report.interval.seconds:10}")
+    private long reportIntervalSeconds;
+
+    @Value("${report.file.name:reports.jsonl}")
+    private String reportFileName;
+
+    //Relevé des citations balisées, écrit en JSON Lines à côté des sorties
+    @Value("${quotes.extract:false}")
+    private boolean extractQuotes;
+
+    @Value("${quotes.file.name:quotes.jsonl}")
+    private String quotesFileName;
+
+    @Value("${quotes.context.chars:80}")
+    private int quoteContextChars;
+
+    //Compression des sorties : none (fichiers XML), gzip (un fichier .gz par document) ou zip (une archive)
+    @Value("${output.compression:none}")
+    private String outputCompression;
+
+    @Value("${output.archive.name:articles.zip}")
+    private String outputArchiveName;
+
+    //Format des sorties : document (document complet réécrit) ou patch (liste des citations à baliser)
+    @Value("${output.format:document}")
+    private String outputFormat;
+
+    //Limites par document, 0 pour désactiver
+    @Value("${limits.max.input.bytes:0}")
+    private long maxInputBytes;
+
+    @Value("${limits.max.nodes:0}")
+    private long maxNodes;
+
+    @Value("${limits.max.duration.millis:0}")
+    private long maxDurationMillis;
+
+    //Document hors limites : reject (non produit) ou passthrough (recopié sans modification)
+    @Value("${limits.overflow:reject}")
+    private String limitsOverflow;
+
+    //Budget global d'octets d'entrée en cours de traitement, 0 pour ne pas en fixer
+    @Value("${limits.inflight.bytes:0}")
+    private long inFlightBytes;
+
+    @Autowired
+    private RulesService rulesService;
+
+    @Autowired
+    private XmlService xmlService;
+
+    //Les étages d'analyse et d'application des règles s'exécutent en priorité de masse sur le groupe partagé
+    @Autowired
+    private PriorityScheduler priorityScheduler;
+
+    //Traite une liste de fichiers XML avec un jeu de règles unique
+    public List<StageStatistics> run(List<Path> inputs, Path outputDirectory, List<CompiledRule> rules) throws CustomAppException {
+        return run(inputs, outputDirectory, RuleSets.of(rules));
+    }
+
+    //Traite une liste de fichiers XML et écrit chaque résultat sous le même nom dans le répertoire de sortie ;
+    //chaque document reçoit le jeu de règles de sa publication
+    public List<StageStatistics> run(List<Path> inputs, Path outputDirectory, RuleSets ruleSets) throws CustomAppException {
+        return run(inputs, outputDirectory, ruleSets, null);
+    }
+
+    //Traite une partie d'un lot : les fichiers de bilan, de citations et l'archive portent le nom de la partie
+    //(reports.shard-007.jsonl...) pour que plusieurs parties puissent écrire dans le même répertoire
+    public List<StageStatistics> run(List<Path> inputs, Path outputDirectory, RuleSets ruleSets, String part) throws CustomAppException {
+        return run(inputs, outputDirectory, ruleSets, part, null);
+    }
+
+    //Traite une partie d'un lot en tenant le journal de reprise : les documents déjà produits à partir d'un
+    //contenu identique sont écartés dès la lecture, chaque document terminé est inscrit au journal
+    public List<StageStatistics> run(List<Path> inputs, Path outputDirectory, RuleSets ruleSets, String part,
+                                     BatchJournal journal) throws CustomAppException {
+        return run(inputs, outputDirectory, ruleSets, part, journal, null);
+    }
+
+    //Idem, en transmettant à latencies la durée de traitement (ns) de chaque document, de sa lecture à son écriture
+    public List<StageStatistics> run(List<Path> inputs, Path outputDirectory, RuleSets ruleSets, String part,
+                                     BatchJournal journal, LongConsumer latencies) throws CustomAppException {
+        // Les entrées d'une archive ne sont lisibles qu'une fois l'archive terminée : leurs lignes de journal
+        // attendent sa fermeture, pour qu'un arrêt brutal fasse retraiter ces documents au lieu de les perdre
+        List<JournalEntry> pendingEntries = Collections.synchronizedList(new ArrayList<>());
+        List<StageStatistics> statistics;
+        try (JsonLinesWriter reportWriter = new JsonLinesWriter(outputDirectory.resolve(partName(reportFileName, part)));
+             JsonLinesWriter quoteWriter = extractQuotes ? new JsonLinesWriter(outputDirectory.resolve(partName(quotesFileName, part))) : null;
+             OutputSink outputSink = OutputSink.create(outputCompression, outputDirectory, partName(outputArchiveName, part), xmlService)) {
+            MemoryBudget memoryBudget = new MemoryBudget(inFlightBytes);
+            LongAdder skipped = new LongAdder();
+            boolean deferJournal = !outputSink.isReadablePerDocument();
+            statistics = run(inputs, outputSink, ruleSets, memoryBudget, journal, document -> {
+                memoryBudget.release(document.getReservedBytes());
+                if (document.isSkipped()) {
+                    skipped.increment();
+                    return;
+                }
+                DocumentReport report = document.getReport();
+                long durationNanos = System.nanoTime() - document.getStartNanos();
+                report.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(durationNanos));
+                if (latencies != null) {
+                    latencies.accept(durationNanos);
+                }
+                reportWriter.write(report);
+                // Les citations d'un document abandonné ou recopié tel quel ne figurent pas dans la sortie
+                if (quoteWriter != null && report.getStatus() == DocumentReport.Status.SUCCESS) {
+                    report.getQuotes().forEach(quoteWriter::write);
+                }
+                if (journal != null) {
+                    JournalEntry entry = journalEntry(document);
+                    if (entry == null) {
+                        return;
+                    }
+                    if (deferJournal) {
+                        pendingEntries.add(entry);
+                    } else {
+                        record(journal, entry);
+                    }
+                }
+            });
+            if (journal != null) {
+                log.info("{} document(s) déjà traités écartés d'après le journal de reprise", skipped.sum());
+            }
+            log.info("Octets d'entrée simultanément en traitement : {} au maximum (budget : {})",
+                    memoryBudget.getMaxInFlight(), inFlightBytes > 0 ? inFlightBytes : "illimité");
+        } catch (IOException e) {
+            log.error("Erreur lors de l'écriture des sorties du traitement par lot", e);
+            throw new CustomAppException("Erreur lors de l'écriture des sorties du traitement par lot", e);
+        }
+        if (journal != null && !pendingEntries.isEmpty()) {
+            pendingEntries.forEach(entry -> record(journal, entry));
+            log.info("{} document(s) de l'archive inscrit(s) au journal de reprise", pendingEntries.size());
+        }
+        return statistics;
+    }
+
+    private List<StageStatistics> run(List<Path> inputs, OutputSink outputSink, RuleSets ruleSets,
+                                      MemoryBudget memoryBudget, BatchJournal journal,
+                                      Consumer<PipelineDocument> completion) throws CustomAppException {
+        checkSchedulerCap("pipeline.parse.threads", parseThreads);
+        checkSchedulerCap("pipeline.apply.threads", applyThreads);
+        DocumentLimits limits = new DocumentLimits(maxInputBytes, maxNodes, maxDurationMillis, "passthrough".equals(limitsOverflow));
+        boolean patchOutput = "patch".equals(outputFormat);
+
+        PipelineStage write = new PipelineStage("write", writeThreads, queueCapacity, document -> {
+            if (document.isSkipped()) {
+                return;
+            }
+            PatchRecorder patch = document.getReport().getPatch();
+            DocumentWriteEvent event = new DocumentWriteEvent();
+            event.begin();
+            if (!document.isPassthrough() && patch != null && patch.isAvailable()) {
+                document.setWrittenName(outputSink.write(document.getName(), document.getOutputName() + DocumentPatch.EXTENSION,
+                        patch.toPatch()::writeTo));
+                DocumentEvents.written(event, document.getReport(), "patch");
+            } else {
+                if (!document.isPassthrough() && patch != null) {
+                    document.getReport().addWarning(WarningType.PATCH_UNAVAILABLE, null, patch.getUnavailableReason());
+                }
+                document.setWrittenName(outputSink.write(document.getName(), document.getOutputName(), outputStream -> {
+                    if (document.isPassthrough()) {
+                        copyOriginal(document, outputStream);
+                    } else {
+                        xmlService.writeDocument(document.getDocument(), outputStream);
+                    }
+                }));
+                DocumentEvents.written(event, document.getReport(), document.isPassthrough() ? "passthrough" : "document");
+            }
+            document.getReport().setPatch(null);
+            document.setDocument(null);
+            document.setContent(null);
+        }, null, completion);
+        PipelineStage apply = new PipelineStage("apply", applyThreads, queueCapacity, withinLimits("apply", limits, bulk(document ->
+                rulesService.applyRules(document.getDocument(), document.getRuleSet().getRules(), document.getReport()))), write, completion);
+        PipelineStage parse = new PipelineStage("parse", parseThreads, queueCapacity, withinLimits("parse", limits, bulk(document -> {
+            document.getReport().startDeadline(limits.getMaxDurationMillis());
+            DocumentLoadEvent event = new DocumentLoadEvent();
+            event.begin();
+            document.setDocument(xmlService.loadXMLFromBytes(document.getContent()));
+            DocumentEvents.loaded(event, document.getReport(), document.getDocument(), document.getContent().length);
+            limits.checkNodeCount(document.getDocument());
+            RuleSet ruleSet = ruleSets.select(document.getDocument());
+            document.setRuleSet(ruleSet);
+            document.getReport().setRuleSet(ruleSet.getName());
+            if (patchOutput) {
+                // Le correctif est exprimé en positions dans le contenu d'origine, conservé jusqu'à l'écriture
+                document.getReport().setPatch(PatchRecorder.attach(document.getName(), document.getContent(), document.getDocument()));
+            } else if (!limits.isPassthrough()) {
+                document.setContent(null);
+            }
+        })), apply, completion);
+        PipelineStage read = new PipelineStage("read", readThreads, queueCapacity, withinLimits("read", limits, document -> {
+            limits.checkInputSize(Files.size(document.getInput()));
+            document.setContent(xmlService.readBytesFromSource(document.getInput().toString()));
+            if (journal != null) {
+                document.setInputHash(BatchJournal.hash(document.getContent()));
+                if (journal.isCompleted(document.getInput(), document.getInputHash())) {
+                    document.setSkipped(true);
+                    document.setContent(null);
+                    return;
+                }
+            }
+            limits.checkInputSize(document.getContent().length);
+        }), parse, completion);
+        List<PipelineStage> stages = List.of(read, parse, apply, write);
+
+        log.info("Démarrage du pipeline sur {} document(s)", inputs.size());
+        stages.forEach(PipelineStage::start);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> logStatistics(stages), reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+        try {
+            for (Path input : inputs) {
+                PipelineDocument document = new PipelineDocument(input, OutputSink.outputNameOf(input.getFileName().toString()));
+                if (extractQuotes) {
+                    document.getReport().collectQuotes(quoteContextChars);
+                }
+                document.setReservedBytes(sizeOf(input));
+                memoryBudget.acquire(document.getReservedBytes());
+                read.submit(document);
+            }
+            read.finish();
+            for (PipelineStage stage : stages) {
+                stage.awaitTermination();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stages.forEach(PipelineStage::abort);
+            throw new CustomAppException("Pipeline interrompu", e);
+        } finally {
+            reporter.shutdownNow();
+        }
+
+        log.info("Pipeline terminé");
+        logStatistics(stages);
+        return stages.stream().map(PipelineStage::getStatistics).toList();
+    }
+
+    //Applique une action d'étage en traitant les dépassements de limite : en mode passthrough le document
+    //n'est plus transformé et sera recopié tel quel, sinon l'exception remonte et le document est abandonné
+    private PipelineStage.Action withinLimits(String stage, DocumentLimits limits, PipelineStage.Action action) {
+        return document -> {
+            if (document.isPassthrough() || document.isSkipped()) {
+                return;
+            }
+            try {
+                action.apply(document);
+            } catch (DocumentLimitException e) {
+                if (!limits.isPassthrough()) {
+                    throw e;
+                }
+                log.warn("Document {} recopié sans modification ({}) : {}", document.getName(), stage, e.getMessage());
+                document.getReport().limitExceeded(stage, e, true);
+                document.setPassthrough(true);
+                document.setDocument(null);
+            }
+        };
+    }
+
+    //Les étages d'analyse et d'application confient leur travail au groupe de traitement et attendent son
+    //résultat : au-delà de processing.threads, un thread d'étage ne fait qu'attendre en retenant son document
+    private void checkSchedulerCap(String property, int stageThreads) throws CustomAppException {
+        if (priorityScheduler != null && priorityScheduler.isEnabled() && stageThreads > priorityScheduler.getThreads()) {
+            throw new CustomAppException(property + " (" + stageThreads + ") dépasse processing.threads ("
+                    + priorityScheduler.getThreads() + ") : les threads en trop attendraient le groupe de traitement");
+        }
+    }
+
+    //Exécute une action d'étage sur le groupe de traitement partagé, en priorité de masse : un document
+    //interactif soumis pendant le lot n'attend pas derrière les documents du lot déjà en file
+    private PipelineStage.Action bulk(PipelineStage.Action action) {
+        if (priorityScheduler == null) {
+            return action;
+        }
+        return document -> priorityScheduler.call(Priority.BULK, () -> {
+            action.apply(document);
+            return null;
+        });
+    }
+
+    //Ligne de journal d'un document terminé ; l'empreinte d'un document recopié sans avoir été lu
+    //est calculée en flux depuis la source. null si elle ne peut être calculée
+    private JournalEntry journalEntry(PipelineDocument document) {
+        DocumentReport report = document.getReport();
+        try {
+            String hash = document.getInputHash();
+            if (hash == null && !report.isFailed()) {
+                try (InputStream inputStream = xmlService.openSource(document.getInput().toString())) {
+                    hash = BatchJournal.hash(inputStream);
+                }
+            }
+            return new JournalEntry(document.getInput().toString(), hash, report.getStatus(),
+                    document.getWrittenName(), System.currentTimeMillis());
+        } catch (IOException e) {
+            // Le document sera simplement retraité à la reprise
+            log.error("Impossible d'inscrire le document {} au journal de reprise : {}", document.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void record(BatchJournal journal, JournalEntry entry) {
+        try {
+            journal.record(entry);
+        } catch (IOException e) {
+            // Le document sera simplement retraité à la reprise
+            log.error("Impossible d'inscrire le document {} au journal de reprise : {}", entry.getInput(), e.getMessage());
+        }
+    }
+
+    //Recopie le document d'origine : depuis la mémoire s'il a été lu, sinon en flux depuis la source
+    private void copyOriginal(PipelineDocument document, OutputStream outputStream) throws IOException {
+        if (document.getContent() != null) {
+            outputStream.write(document.getContent());
+            return;
+        }
+        try (InputStream inputStream = xmlService.openSource(document.getInput().toString())) {
+            inputStream.transferTo(outputStream);
+        }
+    }
+
+    //Insère le nom de la partie avant l'extension : reports.jsonl devient reports.shard-007.jsonl
+    static String partName(String fileName, String part) {
+        if (part == null) {
+            return fileName;
+        }
+        int extension = fileName.lastIndexOf('.');
+        return extension < 0 ? fileName + "." + part : fileName.substring(0, extension) + "." + part + fileName.substring(extension);
+    }
+
+    private static long sizeOf(Path input) {
+        try {
+            return Files.size(input);
+        } catch (IOException e) {
+            // Le fichier illisible sera signalé par l'étage de lecture
+            return 0;
+        }
+    }
+
+    private void logStatistics(List<PipelineStage> stages) {
+        for (PipelineStage stage : stages) {
+            log.info("Étage {}", stage.getStatistics());
+        }
+        if (priorityScheduler != null && priorityScheduler.isEnabled()) {
+            priorityScheduler.logStatistics();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Nom         : ModeCitationProcessor.java
+ *
+ * Description : Traitement d'un document de flux à flux : lecture, choix du jeu de règles, pose des citations
+ *               et écriture. Réentrant : sans état modifiable partagé entre les appels, il peut être appelé
+ *               simultanément depuis autant de threads que nécessaire, sans verrou global.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.Monitoring.DocumentEvents;
+import com.ouestfrance.modecitation.Monitoring.DocumentLoadEvent;
+import com.ouestfrance.modecitation.Monitoring.DocumentWriteEvent;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Scheduling.PriorityScheduler;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Shadow.ShadowCapture;
+import com.ouestfrance.modecitation.Shadow.ShadowRunner;
+import com.ouestfrance.modecitation.Services.XmlService;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+@Service
+@Log4j2
+public class ModeCitationProcessor {
+
+    //Nom porté par le bilan des documents traités sans nom
+    public static final String STREAM_NAME = "stream";
+
+    private static final String STAGE = "process";
+
+    @Value("${quotes.extract:false}")
+    private boolean extractQuotes;
+
+    @Value("${quotes.context.chars:80}")
+    private int quoteContextChars;
+
+    @Value("${limits.max.input.bytes:0}")
+    private long maxInputBytes;
+
+    @Value("${limits.max.nodes:0}")
+    private long maxNodes;
+
+    @Value("${limits.max.duration.millis:0}")
+    private long maxDurationMillis;
+
+    @Value("${limits.overflow:reject}")
+    private String limitsOverflow;
+
+    //Regroupement des demandes simultanées d'un même document
+    @Value("${processing.coalesce:false}")
+    private boolean coalesce;
+
+    private final SingleFlight<FlightKey, ProcessedDocument> singleFlight = new SingleFlight<>();
+
+    //Clé de regroupement : empreinte du contenu, jeu de règles en vigueur (comparé par identité : un
+    //rechargement des règles ouvre une nouvelle clé), forme de la sortie et classe de priorité, pour qu'une
+    //demande interactive n'attende jamais un traitement de masse
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class FlightKey {
+        private final String contentHash;
+        private final RuleSets ruleSets;
+        private final boolean fragment;
+        private final Priority priority;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class ProcessedDocument {
+        private final byte[] output;
+        private final DocumentReport report;
+    }
+
+    @Autowired
+    private RulesService rulesService;
+
+    @Autowired
+    private XmlService xmlService;
+
+    @Autowired
+    private RuleSetRegistry ruleSetRegistry;
+
+    @Autowired
+    private PriorityScheduler priorityScheduler;
+
+    //Comparaison avec une configuration candidate (mode shadow), hors du chemin critique
+    @Autowired
+    private ShadowRunner shadowRunner;
+
+    //Processeur hors contexte Spring, pour un usage en bibliothèque : jeux de règles donnés, traitement dans le
+    //thread appelant, sans limites, regroupement ni mode shadow
+    public static ModeCitationProcessor standalone(RuleSets ruleSets, XmlService xmlService) {
+        ModeCitationProcessor processor = new ModeCitationProcessor();
+        processor.rulesService = new RulesService();
+        processor.xmlService = xmlService;
+        processor.ruleSetRegistry = RuleSetRegistry.of(ruleSets);
+        processor.limitsOverflow = "reject";
+        return processor;
+    }
+
+    public DocumentReport process(InputStream inputStream, OutputStream outputStream) throws CustomAppException {
+        return process(STREAM_NAME, inputStream, outputStream);
+    }
+
+    //Lit le document en entier (dans la limite de taille configurée) puis le traite. Un document plus gros que
+    //la limite n'est lu que jusqu'à elle : refusé, ou recopié en entier en mode passthrough
+    public DocumentReport process(String name, InputStream inputStream, OutputStream outputStream) throws CustomAppException {
+        byte[] content;
+        try {
+            content = maxInputBytes > 0 ? inputStream.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxInputBytes + 1))
+                    : inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new CustomAppException("Erreur lors de la lecture du document " + name, e);
+        }
+        if (maxInputBytes > 0 && content.length > maxInputBytes) {
+            return oversized(name, content, inputStream, outputStream);
+        }
+        return process(name, content, outputStream);
+    }
+
+    //Document dont seul le début a été lu : il n'est jamais traité ni recopié à partir de ce seul début
+    private DocumentReport oversized(String name, byte[] prefix, InputStream inputStream, OutputStream outputStream) throws CustomAppException {
+        boolean passthrough = "passthrough".equals(limitsOverflow);
+        DocumentLimitException limit = new DocumentLimitException("Taille du document supérieure à la limite de " + maxInputBytes + " octets");
+        DocumentReport report = new DocumentReport(name);
+        report.limitExceeded(STAGE, limit, passthrough);
+        if (!passthrough) {
+            throw limit;
+        }
+        log.warn("Document {} recopié sans modification : {}", name, limit.getMessage());
+        try {
+            outputStream.write(prefix);
+            inputStream.transferTo(outputStream);
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new CustomAppException("Erreur lors de la recopie du document " + name, e);
+        }
+        return report;
+    }
+
+    //Traite un document et écrit le résultat dans le flux ; le bilan retourné porte les citations posées et
+    //les anomalies. Un document hors limites est recopié tel quel (limits.overflow=passthrough) ou refusé
+    //par une DocumentLimitException ; un traitement annulé remonte en DocumentCancelledException, sans jamais
+    //être recopié, et toute autre erreur en CustomAppException
+    public DocumentReport process(String name, byte[] content, OutputStream outputStream) throws CustomAppException {
+        return process(name, content, outputStream, Priority.INTERACTIVE);
+    }
+
+    //Idem dans la classe de priorité donnée ; un document soumis à l'unité est interactif par défaut
+    public DocumentReport process(String name, byte[] content, OutputStream outputStream, Priority priority) throws CustomAppException {
+        return coalesce(name, content, outputStream, false, priority);
+    }
+
+    //Traite un élément extrait d'un document englobant (article d'un flux) : le résultat est écrit sans
+    //déclaration XML, pour être réinséré à la place de l'élément d'origine
+    public DocumentReport processFragment(String name, byte[] content, OutputStream outputStream, Priority priority) throws CustomAppException {
+        return coalesce(name, content, outputStream, true, priority);
+    }
+
+    //Nombre de demandes servies par le traitement simultané d'un document identique
+    public long getCoalescedCount() {
+        return singleFlight.getCoalesced();
+    }
+
+    //Les demandes simultanées d'un même contenu avec le même jeu de règles et la même priorité attendent un
+    //traitement unique, dont le résultat est recopié dans le flux de chacune ; le bilan d'une demande servie
+    //ainsi porte coalesced=true. Un thread du groupe de traitement n'attend jamais une autre demande : le
+    //traitement en tête pourrait être encore en file derrière lui
+    private DocumentReport coalesce(String name, byte[] content, OutputStream outputStream, boolean fragment, Priority priority) throws CustomAppException {
+        if (!coalesce || priorityScheduler != null && priorityScheduler.isWorkerThread()) {
+            return schedule(priority, () -> process(name, content, outputStream, fragment));
+        }
+        FlightKey key = new FlightKey(BatchJournal.hash(content), ruleSetRegistry.getRuleSets(), fragment, priority);
+        SingleFlight.Outcome<ProcessedDocument> outcome = singleFlight.execute(key, () -> {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length + 1024);
+            DocumentReport report = schedule(priority, () -> process(name, content, buffer, fragment));
+            return new ProcessedDocument(buffer.toByteArray(), report);
+        });
+        try {
+            outputStream.write(outcome.getValue().getOutput());
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new CustomAppException("Erreur lors de l'écriture du document " + name, e);
+        }
+        if (!outcome.isShared()) {
+            return outcome.getValue().getReport();
+        }
+        log.debug("Document {} servi par le traitement simultané de {}", name, outcome.getValue().getReport().getDocument());
+        return outcome.getValue().getReport().coalescedAs(name);
+    }
+
+    //Exécute le traitement sur le groupe de traitement partagé, dans le thread appelant s'il n'y en a pas
+    private DocumentReport schedule(Priority priority, PriorityScheduler.Task<DocumentReport, CustomAppException> task) throws CustomAppException {
+        if (priorityScheduler == null) {
+            return task.call();
+        }
+        try {
+            return priorityScheduler.call(priority, task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DocumentCancelledException("Traitement du document interrompu", e);
+        }
+    }
+
+    private DocumentReport process(String name, byte[] content, OutputStream outputStream, boolean fragment) throws CustomAppException {
+        DocumentReport report = new DocumentReport(name);
+        if (extractQuotes) {
+            report.collectQuotes(quoteContextChars);
+        }
+        DocumentLimits limits = new DocumentLimits(maxInputBytes, maxNodes, maxDurationMillis, "passthrough".equals(limitsOverflow));
+        ShadowCapture shadow = shadowRunner != null ? shadowRunner.begin(outputStream, content.length) : null;
+        OutputStream target = shadow != null ? shadow.getOutput() : outputStream;
+        try {
+            limits.checkInputSize(content.length);
+            report.startDeadline(limits.getMaxDurationMillis());
+            DocumentLoadEvent loadEvent = new DocumentLoadEvent();
+            loadEvent.begin();
+            Document document = xmlService.loadXMLFromBytes(content);
+            DocumentEvents.loaded(loadEvent, report, document, content.length);
+            limits.checkNodeCount(document);
+
+            RuleSet ruleSet = ruleSetRegistry.getRuleSets().select(document);
+            report.setRuleSet(ruleSet.getName());
+            rulesService.applyRules(document, ruleSet.getRules(), report);
+
+            DocumentWriteEvent writeEvent = new DocumentWriteEvent();
+            writeEvent.begin();
+            if (fragment) {
+                xmlService.writeFragment(document, target);
+            } else {
+                xmlService.writeDocument(document, target);
+            }
+            DocumentEvents.written(writeEvent, report, fragment ? "fragment" : "document");
+            if (shadow != null) {
+                completeShadow(name, shadow);
+                shadowRunner.submit(shadow, name, content, fragment, report);
+            }
+            return report;
+        } catch (DocumentLimitException e) {
+            report.limitExceeded(STAGE, e, limits.isPassthrough());
+            if (!limits.isPassthrough()) {
+                throw e;
+            }
+            log.warn("Document {} recopié sans modification : {}", name, e.getMessage());
+            copyOriginal(name, content, outputStream);
+            return report;
+        }
+    }
+
+    //Arrête la mesure de la configuration active et écrit sa sortie, retenue pour le mode shadow, dans le flux
+    private static void completeShadow(String name, ShadowCapture shadow) throws CustomAppException {
+        try {
+            shadow.complete();
+        } catch (IOException e) {
+            throw new CustomAppException("Erreur lors de l'écriture du document " + name, e);
+        }
+    }
+
+    private static void copyOriginal(String name, byte[] content, OutputStream outputStream) throws CustomAppException {
+        try {
+            outputStream.write(content);
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new CustomAppException("Erreur lors de l'écriture du document " + name, e);
+        }
+    }
+}
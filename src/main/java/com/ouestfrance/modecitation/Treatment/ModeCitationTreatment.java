@@ -9,26 +9,100 @@
 
 package com.ouestfrance.modecitation.Treatment;
 
+import com.ouestfrance.modecitation.Envelope.EnvelopeProcessor;
+import com.ouestfrance.modecitation.Envelope.EnvelopeResponse;
 import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Feed.FeedProcessor;
+import com.ouestfrance.modecitation.Feed.FeedSummary;
+import com.ouestfrance.modecitation.LoadTest.LoadTestResult;
+import com.ouestfrance.modecitation.LoadTest.LoadTestRunner;
+import com.ouestfrance.modecitation.Monitoring.DocumentEvents;
+import com.ouestfrance.modecitation.Monitoring.DocumentLoadEvent;
+import com.ouestfrance.modecitation.Monitoring.DocumentWriteEvent;
+import com.ouestfrance.modecitation.Patch.DocumentPatch;
+import com.ouestfrance.modecitation.Patch.PatchRecorder;
+import com.ouestfrance.modecitation.Pipe.PipeSummary;
+import com.ouestfrance.modecitation.Pipe.StreamPipe;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Report.JsonLinesWriter;
+import com.ouestfrance.modecitation.Report.WarningType;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Shard.ProgressReport;
+import com.ouestfrance.modecitation.Shard.ShardedBatchWorker;
 import com.ouestfrance.modecitation.Services.RulesService;
 import com.ouestfrance.modecitation.Services.XmlService;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @Log4j2
 public class ModeCitationTreatment {
 
+    private static final DateTimeFormatter RESUME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
     @Value("${input.xml.source}")
     private String inputXmlSource;
 
     @Value("${output.xml.path}")
     private String outputXmlPath;
 
-    @Value("${rules.json.path}")
-    private String rulesJsonPath;
+    @Value("${input.xml.directory:}")
+    private String inputXmlDirectory;
+
+    @Value("${output.xml.directory:}")
+    private String outputXmlDirectory;
+
+    //Essai de charge : corpus synthétique et sorties, par défaut sous output.xml.directory
+    @Value("${corpus.directory:}")
+    private String corpusDirectory;
+
+    @Value("${loadtest.output.directory:}")
+    private String loadTestOutputDirectory;
+
+    @Value("${report.file.name:reports.jsonl}")
+    private String reportFileName;
+
+    @Value("${output.format:document}")
+    private String outputFormat;
+
+    @Value("${quotes.extract:false}")
+    private boolean extractQuotes;
+
+    @Value("${quotes.file.name:quotes.jsonl}")
+    private String quotesFileName;
+
+    @Value("${quotes.context.chars:80}")
+    private int quoteContextChars;
+
+    //Journal de reprise du traitement par lot, tenu dans le répertoire de sortie
+    @Value("${journal.enabled:false}")
+    private boolean journalEnabled;
+
+    @Value("${journal.file.name:journal.jsonl}")
+    private String journalFileName;
+
+    //Synchronisation du journal sur disque toutes les N lignes ou au plus tard après l'intervalle
+    @Value("${journal.sync.batch:64}")
+    private int journalSyncBatch;
+
+    @Value("${journal.sync.interval.millis:1000}")
+    private long journalSyncIntervalMillis;
 
     @Autowired
     private RulesService rulesService;
@@ -36,25 +110,216 @@ public class ModeCitationTreatment {
     @Autowired
     private XmlService xmlService;
 
+    @Autowired
+    private ModeCitationPipeline modeCitationPipeline;
+
+    @Autowired
+    private RuleSetRegistry ruleSetRegistry;
+
+    @Autowired
+    private ShardedBatchWorker shardedBatchWorker;
+
+    @Autowired
+    private StreamPipe streamPipe;
+
+    @Autowired
+    private FeedProcessor feedProcessor;
+
+    @Autowired
+    private EnvelopeProcessor envelopeProcessor;
+
+    @Autowired
+    private LoadTestRunner loadTestRunner;
+
     //Applique le mode citation aux documents XML en utilisant les règles JSON
     public void applyQuoteMode() throws CustomAppException {
+        DocumentReport report = new DocumentReport(inputXmlSource);
+        if (extractQuotes) {
+            report.collectQuotes(quoteContextChars);
+        }
         try {
-            log.info("Lecture des règles depuis : {}", rulesJsonPath);
-            var allRulesNode = rulesService.readRules(rulesJsonPath);
+            var ruleSets = ruleSetRegistry.getRuleSets();
 
             log.info("Lecture du document XML depuis : {}", inputXmlSource);
-            var document = xmlService.loadDocument(inputXmlSource);
+            Document document;
+            DocumentLoadEvent loadEvent = new DocumentLoadEvent();
+            loadEvent.begin();
+            if ("patch".equals(outputFormat)) {
+                byte[] content = xmlService.readBytesFromSource(inputXmlSource);
+                document = xmlService.loadXMLFromBytes(content);
+                DocumentEvents.loaded(loadEvent, report, document, content.length);
+                report.setPatch(PatchRecorder.attach(inputXmlSource, content, document));
+            } else {
+                // La source est lue et analysée d'un bloc : sa taille n'est pas connue
+                document = xmlService.loadDocument(inputXmlSource);
+                DocumentEvents.loaded(loadEvent, report, document, 0);
+            }
 
-            log.info("Application des règles au document XML");
-            rulesService.applyRules(document, allRulesNode);
+            RuleSet ruleSet = ruleSets.select(document);
+            report.setRuleSet(ruleSet.getName());
+            log.info("Application du jeu de règles {} au document XML", ruleSet.getName());
+            rulesService.applyRules(document, ruleSet.getRules(), report);
 
-            log.info("Enregistrement du document modifié dans : {}", outputXmlPath);
-            xmlService.saveDocumentToFile(document, outputXmlPath);
+            DocumentWriteEvent writeEvent = new DocumentWriteEvent();
+            writeEvent.begin();
+            if (report.getPatch() != null && report.getPatch().isAvailable()) {
+                savePatch(report.getPatch().toPatch());
+                DocumentEvents.written(writeEvent, report, "patch");
+            } else {
+                if (report.getPatch() != null) {
+                    report.addWarning(WarningType.PATCH_UNAVAILABLE, null, report.getPatch().getUnavailableReason());
+                }
+                log.info("Enregistrement du document modifié dans : {}", outputXmlPath);
+                xmlService.saveDocumentToFile(document, outputXmlPath);
+                DocumentEvents.written(writeEvent, report, "document");
+            }
+            if (extractQuotes) {
+                writeQuotes(report);
+            }
             log.info("Traitement du mode citation terminé");
         } catch (Exception e) {
             log.error("Erreur lors de l'application du mode citation", e);
+            report.fail("single", e);
             throw new CustomAppException("Erreur lors de l'application du mode citation", e);
+        } finally {
+            writeReport(report);
+        }
+    }
+
+    //Écrit le correctif du document à côté du fichier de sortie, sous le même nom suffixé de .patch.json
+    private void savePatch(DocumentPatch patch) throws IOException {
+        Path patchPath = Path.of(outputXmlPath + DocumentPatch.EXTENSION);
+        log.info("Enregistrement du correctif ({} citation(s)) dans : {}", patch.getEdits().size(), patchPath);
+        try (OutputStream outputStream = xmlService.openOutputFile(patchPath)) {
+            patch.writeTo(outputStream);
+        }
+    }
+
+    //Écrit les citations relevées à côté du fichier de sortie
+    private void writeQuotes(DocumentReport report) throws IOException {
+        Path quotesPath = Path.of(outputXmlPath).resolveSibling(quotesFileName);
+        try (JsonLinesWriter quoteWriter = new JsonLinesWriter(quotesPath)) {
+            report.getQuotes().forEach(quoteWriter::write);
+        }
+        log.info("{} citation(s) relevée(s) dans : {}", report.getQuotes().size(), quotesPath);
+    }
+
+    //Écrit le bilan du document à côté du fichier de sortie
+    private void writeReport(DocumentReport report) {
+        Path reportPath = Path.of(outputXmlPath).resolveSibling(reportFileName);
+        try (JsonLinesWriter reportWriter = new JsonLinesWriter(reportPath)) {
+            reportWriter.write(report);
+            log.info("Bilan du traitement écrit dans : {} ({} anomalie(s))", reportPath, report.getWarnings().size());
+        } catch (IOException e) {
+            log.error("Erreur lors de l'écriture du bilan de traitement", e);
+        }
+    }
+
+    //Applique le mode citation à tous les fichiers XML d'un répertoire via le pipeline par étages
+    public List<StageStatistics> applyQuoteModeBatch() throws CustomAppException {
+        try {
+            var ruleSets = ruleSetRegistry.getRuleSets();
+
+            List<Path> inputs = listInputFiles(Path.of(inputXmlDirectory));
+            Path outputDirectory = Files.createDirectories(Path.of(outputXmlDirectory));
+            log.info("Traitement par lot de {} fichier(s) depuis : {}", inputs.size(), inputXmlDirectory);
+
+            if (!journalEnabled) {
+                return modeCitationPipeline.run(inputs, outputDirectory, ruleSets);
+            }
+            try (BatchJournal journal = BatchJournal.open(outputDirectory.resolve(journalFileName), journalSyncBatch, journalSyncIntervalMillis)) {
+                // Une reprise écrit ses bilans et son archive à part pour ne pas écraser ceux de l'exécution interrompue
+                String part = null;
+                if (journal.isResumed()) {
+                    part = "resume-" + RESUME_FORMAT.format(LocalDateTime.now());
+                    log.info("Reprise du lot : {} document(s) déjà terminés d'après le journal", journal.getCompletedCount());
+                }
+                return modeCitationPipeline.run(inputs, outputDirectory, ruleSets, part, journal);
+            }
+        } catch (IOException e) {
+            log.error("Erreur lors du parcours du répertoire d'entrée", e);
+            throw new CustomAppException("Erreur lors du parcours du répertoire d'entrée", e);
+        }
+    }
+
+    //Applique le mode citation au répertoire d'entrée en coopération avec d'autres processus (mode shard)
+    public ProgressReport applyQuoteModeSharded() throws CustomAppException {
+        try {
+            var ruleSets = ruleSetRegistry.getRuleSets();
+
+            Path inputDirectory = Path.of(inputXmlDirectory);
+            List<Path> inputs = listInputFiles(inputDirectory);
+            Path outputDirectory = Files.createDirectories(Path.of(outputXmlDirectory));
+            log.info("Traitement par parties de {} fichier(s) depuis : {}", inputs.size(), inputXmlDirectory);
+
+            return shardedBatchWorker.run(inputDirectory, inputs, outputDirectory, ruleSets);
+        } catch (IOException e) {
+            log.error("Erreur lors du parcours du répertoire d'entrée", e);
+            throw new CustomAppException("Erreur lors du parcours du répertoire d'entrée", e);
         }
     }
-}
 
+    //Traite les documents reçus sur l'entrée standard et écrit les résultats sur la sortie standard ; la sortie
+    //standard est réservée aux résultats, tout autre affichage est renvoyé vers la sortie d'erreur
+    public PipeSummary applyQuoteModePipe() throws CustomAppException {
+        PrintStream stdout = System.out;
+        OutputStream outputStream = new FileOutputStream(FileDescriptor.out);
+        System.setOut(System.err);
+        try {
+            return streamPipe.run(System.in, outputStream);
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    //Lit une enveloppe de plusieurs articles sur l'entrée standard et écrit la réponse sur la sortie standard ;
+    //comme en mode pipe, les logs vont sur la sortie d'erreur
+    public EnvelopeResponse applyQuoteModeEnvelope() throws CustomAppException {
+        PrintStream stdout = System.out;
+        OutputStream outputStream = new FileOutputStream(FileDescriptor.out);
+        System.setOut(System.err);
+        try {
+            EnvelopeResponse response = envelopeProcessor.process(System.in, outputStream);
+            log.info("Enveloppe traitée : {} document(s), {} en échec, {} ms", response.getDocuments(),
+                    response.getFailed(), response.getDurationMillis());
+            return response;
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    //Traite un gros fichier de flux (input.xml.source) article par article et écrit le flux produit dans output.xml.path
+    public FeedSummary applyQuoteModeFeed() throws CustomAppException {
+        if (inputXmlSource.startsWith("http://") || inputXmlSource.startsWith("https://") || inputXmlSource.endsWith(".gz")) {
+            throw new CustomAppException("Le mode feed nécessite un fichier local non compressé : " + inputXmlSource);
+        }
+        Path reportPath = Path.of(outputXmlPath).resolveSibling(reportFileName);
+        log.info("Traitement par articles du flux : {}", inputXmlSource);
+        try (OutputStream outputStream = xmlService.openOutputFile(Path.of(outputXmlPath));
+             JsonLinesWriter reportWriter = new JsonLinesWriter(reportPath)) {
+            FeedSummary summary = feedProcessor.run(Path.of(inputXmlSource), outputStream, reportWriter);
+            log.info("Flux produit dans : {}, bilans dans : {}", outputXmlPath, reportPath);
+            return summary;
+        } catch (IOException e) {
+            log.error("Erreur lors de l'écriture du flux produit", e);
+            throw new CustomAppException("Erreur lors de l'écriture du flux produit", e);
+        }
+    }
+
+    //Mesure le pipeline du mode batch sur un corpus synthétique reproductible (voir corpus.*)
+    public LoadTestResult applyQuoteModeLoadTest() throws CustomAppException {
+        Path corpus = corpusDirectory.isEmpty() ? Path.of(outputXmlDirectory, "corpus") : Path.of(corpusDirectory);
+        Path output = loadTestOutputDirectory.isEmpty() ? Path.of(outputXmlDirectory, "loadtest") : Path.of(loadTestOutputDirectory);
+        return loadTestRunner.run(corpus, output, ruleSetRegistry.getRuleSets());
+    }
+
+    //Liste les fichiers XML (éventuellement compressés en .xml.gz) d'un répertoire, triés par nom pour un ordre de traitement stable
+    private List<Path> listInputFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(".xml") || path.getFileName().toString().endsWith(".xml.gz"))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Nom         : PipelineDocument.java
+ *
+ * Description : Document en transit dans le pipeline de traitement par lot, enrichi à chaque étage.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import lombok.Getter;
+import lombok.Setter;
+import org.w3c.dom.Document;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+public class PipelineDocument {
+
+    private final Path input;
+
+    //Nom du document produit, la destination (fichier, fichier gzip, entrée d'archive) en décide l'emplacement
+    private final String outputName;
+
+    //Contenu brut lu par l'étage de lecture, libéré une fois le document analysé
+    private byte[] content;
+
+    private Document document;
+
+    //Jeu de règles choisi dès l'analyse d'après la publication du document
+    private RuleSet ruleSet;
+
+    private final DocumentReport report;
+
+    //Octets réservés dans le budget mémoire global, rendus à la sortie du pipeline
+    private long reservedBytes;
+
+    //Document hors limites recopié sans modification
+    private boolean passthrough;
+
+    //Empreinte du contenu d'entrée, calculée à la lecture quand le lot tient un journal de reprise
+    private String inputHash;
+
+    //Document déjà produit lors d'une exécution précédente à partir du même contenu : il n'est pas retraité
+    private boolean skipped;
+
+    //Fichier ou entrée d'archive effectivement écrit
+    private String writtenName;
+
+    //Instant d'entrée dans le pipeline, pour mesurer la durée de traitement du document
+    private final long startNanos = System.nanoTime();
+
+    public PipelineDocument(Path input, String outputName) {
+        this.input = input;
+        this.outputName = outputName;
+        this.report = new DocumentReport(input != null ? input.getFileName().toString() : null);
+    }
+
+    public String getName() {
+        return input.getFileName().toString();
+    }
+}
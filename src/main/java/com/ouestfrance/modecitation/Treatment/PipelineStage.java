@@ -0,0 +1,207 @@
+/*
+ * Nom         : PipelineStage.java
+ *
+ * Description : Étage du pipeline de traitement par lot : une file bornée alimentée par l'étage
+ *               précédent et un nombre configurable de threads qui la consomment.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.Monitoring.PipelineStageEvent;
+import com.ouestfrance.modecitation.Monitoring.ThreadAllocations;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+@Log4j2
+public class PipelineStage {
+
+    //Traitement appliqué par l'étage à chaque document
+    @FunctionalInterface
+    public interface Action {
+        void apply(PipelineDocument document) throws Exception;
+    }
+
+    //Marqueur de fin de flux, envoyé une fois par thread consommateur
+    private static final PipelineDocument END = new PipelineDocument(null, null);
+
+    @Getter
+    private final String name;
+
+    private final int parallelism;
+
+    private final BlockingQueue<PipelineDocument> queue;
+
+    private final Action action;
+
+    private final PipelineStage next;
+
+    //Appelé quand un document quitte le pipeline : en échec à cet étage, ou traité par le dernier étage
+    private final Consumer<PipelineDocument> completion;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final AtomicInteger runningWorkers;
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private final LongAdder processed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder busyNanos = new LongAdder();
+
+    //Octets alloués par les threads de l'étage, ajoutés par chacun à sa fin : ils ne sont plus mesurables ensuite
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    private volatile long startNanos;
+
+    private volatile long endNanos;
+
+    public PipelineStage(String name, int parallelism, int queueCapacity, Action action, PipelineStage next,
+                         Consumer<PipelineDocument> completion) {
+        this.name = name;
+        this.parallelism = Math.max(1, parallelism);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.action = action;
+        this.next = next;
+        this.completion = completion;
+        this.runningWorkers = new AtomicInteger(this.parallelism);
+    }
+
+    //Démarre les threads consommateurs de l'étage
+    public void start() {
+        startNanos = System.nanoTime();
+        for (int i = 0; i < parallelism; i++) {
+            Thread worker = new Thread(this::consume, "pipeline-" + name + "-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    //Dépose un document dans la file de l'étage, en bloquant tant qu'elle est pleine (contre-pression)
+    public void submit(PipelineDocument document) throws InterruptedException {
+        queue.put(document);
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    //Signale qu'aucun document ne sera plus soumis à l'étage
+    public void finish() throws InterruptedException {
+        for (int i = 0; i < parallelism; i++) {
+            queue.put(END);
+        }
+    }
+
+    //Attend que tous les threads de l'étage aient terminé
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    //Interrompt les threads de l'étage sans attendre la fin du flux
+    public void abort() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    public StageStatistics getStatistics() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return new StageStatistics(name, parallelism, processed.sum(), failed.sum(), queue.size(),
+                maxQueueDepth.get(), end - startNanos, busyNanos.sum(), allocatedBytes.sum());
+    }
+
+    private void consume() {
+        long allocatedAtStart = ThreadAllocations.currentThreadAllocatedBytes();
+        try {
+            while (true) {
+                PipelineDocument document = queue.take();
+                if (document == END) {
+                    break;
+                }
+                long begin = System.nanoTime();
+                boolean success = process(document);
+                busyNanos.add(System.nanoTime() - begin);
+                if (success && next != null) {
+                    next.submit(document);
+                } else {
+                    completion.accept(document);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Étage {} interrompu", name);
+        } finally {
+            allocatedBytes.add(ThreadAllocations.currentThreadAllocatedBytes() - allocatedAtStart);
+            if (runningWorkers.decrementAndGet() == 0) {
+                endNanos = System.nanoTime();
+                signalNextStage();
+                terminated.countDown();
+            }
+        }
+    }
+
+    private boolean process(PipelineDocument document) {
+        PipelineStageEvent event = new PipelineStageEvent();
+        event.begin();
+        boolean success = apply(document);
+        event.end();
+        if (event.shouldCommit()) {
+            event.stage = name;
+            event.document = document.getName();
+            event.failed = !success;
+            event.sizeBytes = document.getReservedBytes();
+            event.nodeCount = document.getReport().getNodeCount();
+            event.commit();
+        }
+        return success;
+    }
+
+    private boolean apply(PipelineDocument document) {
+        try {
+            action.apply(document);
+            processed.increment();
+            return true;
+        } catch (DocumentLimitException e) {
+            failed.increment();
+            document.getReport().limitExceeded(name, e, false);
+            log.warn("Document {} abandonné à l'étage {} : {}", document.getName(), name, e.getMessage());
+            return false;
+        } catch (DocumentCancelledException e) {
+            failed.increment();
+            document.getReport().cancelled(name, e);
+            log.warn("Document {} annulé à l'étage {} : {}", document.getName(), name, e.getMessage());
+            return false;
+        } catch (Exception e) {
+            failed.increment();
+            document.getReport().fail(name, e);
+            log.error("Échec à l'étage {} pour le document {} : {}", name, document.getName(), e.getMessage());
+            log.debug("Détail de l'échec", e);
+            return false;
+        }
+    }
+
+    private void signalNextStage() {
+        if (next == null) {
+            return;
+        }
+        try {
+            next.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            next.abort();
+        }
+    }
+}
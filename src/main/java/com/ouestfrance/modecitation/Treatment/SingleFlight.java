@@ -0,0 +1,114 @@
+/*
+ * Nom         : SingleFlight.java
+ *
+ * Description : Regroupement des calculs identiques simultanés : tant qu'un calcul est en cours pour une clé, les
+ *               demandes suivantes de même clé attendent ce calcul et en reçoivent le résultat (ou l'erreur) au
+ *               lieu de le refaire. Rien n'est conservé une fois le calcul terminé : ce n'est pas un cache. Un
+ *               calcul annulé pour la demande qui le menait (DocumentCancelledException) n'annule pas les autres :
+ *               elles le relancent, l'une d'elles en tête.
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Computation<V> {
+        V compute() throws CustomAppException;
+    }
+
+    //Résultat d'une demande : shared est vrai si le calcul a été fait pour une autre demande simultanée
+    @Getter
+    @AllArgsConstructor
+    public static class Outcome<V> {
+        private final V value;
+        private final boolean shared;
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    public Outcome<V> execute(K key, Computation<V> computation) throws CustomAppException {
+        while (true) {
+            CompletableFuture<V> own = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+            if (running == null) {
+                return lead(key, own, computation);
+            }
+            coalesced.increment();
+            try {
+                return new Outcome<>(await(running), true);
+            } catch (LeaderCancelledException e) {
+                // Le calcul annulé est retiré sans attendre la demande en tête, puis relancé
+                coalesced.decrement();
+                inFlight.remove(key, running);
+            }
+        }
+    }
+
+    private Outcome<V> lead(K key, CompletableFuture<V> own, Computation<V> computation) throws CustomAppException {
+        try {
+            V value = computation.compute();
+            own.complete(value);
+            return new Outcome<>(value, false);
+        } catch (CustomAppException | RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    //Nombre de demandes servies par le calcul d'une autre
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    //Nombre de calculs en cours
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    //Annulation du calcul de la demande en tête, qui ne concerne pas la demande en attente
+    private static final class LeaderCancelledException extends Exception {
+        private LeaderCancelledException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> running) throws CustomAppException, LeaderCancelledException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DocumentCancelledException("Attente du traitement identique en cours interrompue", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DocumentCancelledException) {
+                throw new LeaderCancelledException();
+            }
+            if (cause instanceof CustomAppException) {
+                throw (CustomAppException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+}
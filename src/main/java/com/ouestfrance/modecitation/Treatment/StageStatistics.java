@@ -0,0 +1,56 @@
+/*
+ * Nom         : StageStatistics.java
+ *
+ * Description : Instantané des compteurs d'un étage du pipeline (débit, profondeur de file, allocation).
+ *
+ * Date        : 19/10/2026
+ *
+ */
+
+package com.ouestfrance.modecitation.Treatment;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+@Getter
+@AllArgsConstructor
+public class StageStatistics {
+
+    private final String name;
+
+    private final int parallelism;
+
+    private final long processed;
+
+    private final long failed;
+
+    private final int queueDepth;
+
+    private final int maxQueueDepth;
+
+    private final long elapsedNanos;
+
+    private final long busyNanos;
+
+    //Octets alloués par les threads de l'étage (hors traitements confiés au groupe de traitement), 0 si la JVM ne
+    //les mesure pas
+    private final long allocatedBytes;
+
+    //Nombre de documents traités par seconde depuis le démarrage de l'étage
+    public double getThroughput() {
+        return elapsedNanos > 0 ? processed * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+    }
+
+    //Part du temps où les threads de l'étage étaient occupés (1.0 = tous les threads saturés)
+    public double getUtilization() {
+        return elapsedNanos > 0 ? busyNanos / ((double) elapsedNanos * parallelism) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[threads=%d, traités=%d, échecs=%d, file=%d, file max=%d, débit=%.1f doc/s, occupation=%.0f%%]",
+                name, parallelism, processed, failed, queueDepth, maxQueueDepth, getThroughput(), getUtilization() * 100);
+    }
+}
@@ -0,0 +1,142 @@
+package com.ouestfrance.modecitation.Envelope;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.LoadTest.CorpusGenerator;
+import com.ouestfrance.modecitation.LoadTest.CorpusSpec;
+import com.ouestfrance.modecitation.Rules.CompiledRule;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Scheduling.PriorityScheduler;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Banc d'essai hors suite par défaut : mvn test -Pbenchmark
+@Tag("benchmark")
+public class EnvelopeBenchmarkTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final int[] BATCH_SIZES = {1, 10, 100};
+
+    private static final int ARTICLES = 1_000;
+
+    private static final int WARMUP_ROUNDS = 3;
+
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Test
+    // Compare le débit et le coût par appel d'enveloppes de 1, 10 et 100 articles, lecture et écriture JSON comprises
+    public void benchmarkBatchSizes() throws Exception {
+        PriorityScheduler priorityScheduler = new PriorityScheduler();
+        injectPrivateField(priorityScheduler, "threads", 2);
+        injectPrivateField(priorityScheduler, "bulkShare", 0.25);
+        try {
+            EnvelopeProcessor envelopeProcessor = envelopeProcessor(priorityScheduler);
+            CorpusGenerator generator = new CorpusGenerator(new CorpusSpec(42, ARTICLES, 12, 0.3, 0.2, 2, 0));
+            List<String> articles = new ArrayList<>();
+            for (int i = 0; i < ARTICLES; i++) {
+                articles.add(generator.article(i));
+            }
+
+            String expected = null;
+            System.out.printf("%d articles%n", ARTICLES);
+            System.out.printf("%-10s %10s %14s %16s%n", "Enveloppe", "Appels", "Articles/s", "µs par appel");
+            for (int batchSize : BATCH_SIZES) {
+                List<byte[]> envelopes = envelopes(articles, batchSize);
+                String firstResult = firstResult(envelopeProcessor, envelopes.get(0));
+                if (expected == null) {
+                    expected = firstResult;
+                }
+                assertEquals(expected, firstResult);
+
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    run(envelopeProcessor, envelopes);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                    run(envelopeProcessor, envelopes);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long calls = (long) envelopes.size() * MEASURED_ROUNDS;
+                System.out.printf("%-10d %10d %14.1f %16.1f%n", batchSize, calls,
+                        (double) ARTICLES * MEASURED_ROUNDS / seconds, seconds * 1e6 / calls);
+            }
+        } finally {
+            priorityScheduler.shutdown();
+        }
+    }
+
+    private static void run(EnvelopeProcessor envelopeProcessor, List<byte[]> envelopes) throws Exception {
+        for (byte[] envelope : envelopes) {
+            envelopeProcessor.process(new ByteArrayInputStream(envelope), new ByteArrayOutputStream(envelope.length + 4096));
+        }
+    }
+
+    //Document produit pour le premier article, identique quelle que soit la taille de l'enveloppe
+    private static String firstResult(EnvelopeProcessor envelopeProcessor, byte[] envelope) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        envelopeProcessor.process(new ByteArrayInputStream(envelope), outputStream);
+        JsonNode response = OBJECT_MAPPER.readTree(outputStream.toByteArray());
+        assertEquals(0, response.get("failed").asInt());
+        return response.get("results").get(0).get("xml").asText();
+    }
+
+    //Enveloppes JSON de batchSize articles, préparées avant la mesure comme les aurait un appelant
+    private static List<byte[]> envelopes(List<String> articles, int batchSize) throws Exception {
+        List<byte[]> envelopes = new ArrayList<>();
+        for (int from = 0; from < articles.size(); from += batchSize) {
+            List<EnvelopeDocument> documents = new ArrayList<>();
+            for (int i = from; i < Math.min(articles.size(), from + batchSize); i++) {
+                documents.add(new EnvelopeDocument(CorpusGenerator.fileName(i), articles.get(i)));
+            }
+            envelopes.add(OBJECT_MAPPER.writeValueAsBytes(new EnvelopeRequest(documents)));
+        }
+        return envelopes;
+    }
+
+    private EnvelopeProcessor envelopeProcessor(PriorityScheduler priorityScheduler) throws Exception {
+        List<CompiledRule> rules;
+        try (InputStream inputStream = getClass().getResourceAsStream("/JSONrules/ModeCitationRules.json")) {
+            rules = RuleCompiler.compile(OBJECT_MAPPER.readTree(inputStream).get("all"));
+        }
+        RuleSetRegistry ruleSetRegistry = mock(RuleSetRegistry.class);
+        when(ruleSetRegistry.getRuleSets()).thenReturn(new RuleSets(new RuleSet(RuleSets.DEFAULT_NAME, List.of(), rules), List.of()));
+
+        ModeCitationProcessor modeCitationProcessor = new ModeCitationProcessor();
+        injectPrivateField(modeCitationProcessor, "rulesService", new RulesService());
+        injectPrivateField(modeCitationProcessor, "xmlService", new XmlService());
+        injectPrivateField(modeCitationProcessor, "ruleSetRegistry", ruleSetRegistry);
+        injectPrivateField(modeCitationProcessor, "priorityScheduler", priorityScheduler);
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "reject");
+
+        EnvelopeProcessor envelopeProcessor = new EnvelopeProcessor();
+        injectPrivateField(envelopeProcessor, "modeCitationProcessor", modeCitationProcessor);
+        injectPrivateField(envelopeProcessor, "priorityScheduler", priorityScheduler);
+        injectPrivateField(envelopeProcessor, "maxDocuments", 0);
+        injectPrivateField(envelopeProcessor, "priority", "interactive");
+        return envelopeProcessor;
+    }
+
+    private static void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
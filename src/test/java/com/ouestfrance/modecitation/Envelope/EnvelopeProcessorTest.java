@@ -0,0 +1,265 @@
+package com.ouestfrance.modecitation.Envelope;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Scheduling.PriorityScheduler;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class EnvelopeProcessorTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private EnvelopeProcessor envelopeProcessor;
+
+    private PriorityScheduler priorityScheduler;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ModeCitationProcessor modeCitationProcessor = new ModeCitationProcessor();
+        RuleSets ruleSets = new RuleSets(new RuleSet(RuleSets.DEFAULT_NAME, List.of(),
+                RuleCompiler.compile(OBJECT_MAPPER.readTree("[{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }]"))), List.of());
+        RuleSetRegistry ruleSetRegistry = mock(RuleSetRegistry.class);
+        when(ruleSetRegistry.getRuleSets()).thenReturn(ruleSets);
+        injectPrivateField(modeCitationProcessor, "rulesService", new RulesService());
+        injectPrivateField(modeCitationProcessor, "xmlService", new XmlService());
+        injectPrivateField(modeCitationProcessor, "ruleSetRegistry", ruleSetRegistry);
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "reject");
+
+        envelopeProcessor = new EnvelopeProcessor();
+        injectPrivateField(envelopeProcessor, "modeCitationProcessor", modeCitationProcessor);
+        injectPrivateField(envelopeProcessor, "maxDocuments", 10);
+        injectPrivateField(envelopeProcessor, "priority", "interactive");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (priorityScheduler != null) {
+            priorityScheduler.shutdown();
+        }
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie que chaque article de l'enveloppe a son résultat, dans l'ordre, et qu'un échec n'arrête pas les autres
+    public void testProcess_PerDocumentResults() throws Exception {
+        EnvelopeRequest request = new EnvelopeRequest(List.of(
+                new EnvelopeDocument("a", "<doc><texte><p>Il a dit «ipsum»</p></texte></doc>"),
+                new EnvelopeDocument("b", "<doc><texte><p>non fermé</texte></doc>"),
+                new EnvelopeDocument(null, "<doc><texte><p>«dolor»</p></texte></doc>"),
+                new EnvelopeDocument("d", null)));
+
+        EnvelopeResponse response = envelopeProcessor.process(request);
+
+        assertEquals(4, response.getDocuments());
+        assertEquals(2, response.getFailed());
+        List<EnvelopeResult> results = response.getResults();
+        assertEquals(List.of("a", "b", "2", "d"), results.stream().map(EnvelopeResult::getId).toList());
+        assertTrue(results.get(0).getXml().contains("<q class=\"containsQuotes\">«ipsum»</q>"));
+        assertEquals(1, results.get(0).getReport().getQuotesWrapped());
+        assertNull(results.get(1).getXml());
+        assertEquals(DocumentReport.Status.FAILED, results.get(1).getReport().getStatus());
+        assertEquals("envelope", results.get(1).getReport().getFailedStage());
+        assertTrue(results.get(2).getXml().contains("<q class=\"containsQuotes\">«dolor»</q>"));
+        assertFalse(results.get(2).getXml().contains("ipsum"));
+        assertNull(results.get(3).getXml());
+    }
+
+    @Test
+    // Vérifie la lecture de l'enveloppe JSON et l'écriture de la réponse, sans fermer les flux de l'appelant
+    public void testProcess_JsonStreams() throws Exception {
+        byte[] input = OBJECT_MAPPER.writeValueAsBytes(new EnvelopeRequest(List.of(
+                new EnvelopeDocument("a", "<doc><texte><p>«a»</p></texte></doc>"),
+                new EnvelopeDocument("b", "<doc><texte><p>b</p></texte></doc>"))));
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(input);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        List<Boolean> closed = new ArrayList<>();
+        OutputStream tracked = new OutputStream() {
+            @Override
+            public void write(int b) {
+                outputStream.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                outputStream.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                closed.add(true);
+            }
+        };
+
+        envelopeProcessor.process(inputStream, tracked);
+
+        assertTrue(closed.isEmpty());
+        JsonNode response = OBJECT_MAPPER.readTree(outputStream.toByteArray());
+        assertEquals(2, response.get("documents").asInt());
+        assertEquals(0, response.get("failed").asInt());
+        assertEquals("a", response.get("results").get(0).get("id").asText());
+        assertTrue(response.get("results").get(0).get("xml").asText().contains("<q class=\"containsQuotes\">«a»</q>"));
+        assertEquals("SUCCESS", response.get("results").get(1).get("report").get("status").asText());
+    }
+
+    @Test
+    // Vérifie qu'une enveloppe illisible ou trop grosse est refusée en entier
+    public void testProcess_RejectedEnvelope() throws Exception {
+        assertThrows(CustomAppException.class, () -> envelopeProcessor.process(
+                new ByteArrayInputStream("{\"documents\": [".getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream()));
+        assertThrows(CustomAppException.class, () -> envelopeProcessor.process(new EnvelopeRequest(null)));
+
+        List<EnvelopeDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            documents.add(new EnvelopeDocument(null, "<doc/>"));
+        }
+        assertThrows(CustomAppException.class, () -> envelopeProcessor.process(new EnvelopeRequest(documents)));
+    }
+
+    @Test
+    // Vérifie que l'enveloppe est découpée en tranches réparties sur les threads du groupe : les articles d'une
+    // tranche sont traités à la suite par le même thread, les tranches en parallèle, et l'ordre est conservé
+    public void testProcess_ChunksSpreadOverWorkers() throws Exception {
+        priorityScheduler = new PriorityScheduler();
+        injectPrivateField(priorityScheduler, "threads", 4);
+        injectPrivateField(priorityScheduler, "bulkShare", 0.25);
+        ModeCitationProcessor modeCitationProcessor = mock(ModeCitationProcessor.class);
+        Map<String, String> threads = new ConcurrentHashMap<>();
+        // Le premier article de chaque tranche attend que les trois tranches aient démarré
+        CountDownLatch chunksStarted = new CountDownLatch(3);
+        when(modeCitationProcessor.process(anyString(), any(byte[].class), any(OutputStream.class), any(Priority.class))).thenAnswer(invocation -> {
+            String id = invocation.getArgument(0);
+            // Comme le vrai processeur : un traitement soumis depuis le groupe s'exécute sur place
+            return priorityScheduler.call(Priority.INTERACTIVE, () -> {
+                threads.put(id, Thread.currentThread().getName());
+                if (Integer.parseInt(id.substring(4)) % 4 == 0) {
+                    chunksStarted.countDown();
+                    assertTrue(chunksStarted.await(10, TimeUnit.SECONDS));
+                }
+                return new DocumentReport(id);
+            });
+        });
+        injectPrivateField(envelopeProcessor, "modeCitationProcessor", modeCitationProcessor);
+        injectPrivateField(envelopeProcessor, "priorityScheduler", priorityScheduler);
+        injectPrivateField(envelopeProcessor, "chunkDocuments", 4);
+
+        List<EnvelopeDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            documents.add(new EnvelopeDocument("doc-" + i, "<doc/>"));
+        }
+        EnvelopeResponse response = envelopeProcessor.process(new EnvelopeRequest(documents));
+
+        assertEquals(0, response.getFailed());
+        assertEquals(0, chunksStarted.getCount());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("doc-" + i, response.getResults().get(i).getId());
+            assertTrue(threads.get("doc-" + i).startsWith("processing-"));
+            assertEquals(threads.get("doc-" + (i - i % 4)), threads.get("doc-" + i));
+        }
+        assertEquals(3, new HashSet<>(threads.values()).size());
+        priorityScheduler.shutdown();
+    }
+
+    @Test
+    // Vérifie qu'une enveloppe annulée (appelant interrompu) ne laisse pas les threads du groupe interrompus : une
+    // enveloppe suivante est traitée normalement sur ces mêmes threads
+    public void testProcess_NormalEnvelopeAfterCancelledOne() throws Exception {
+        priorityScheduler = new PriorityScheduler();
+        injectPrivateField(priorityScheduler, "threads", 1);
+        injectPrivateField(priorityScheduler, "bulkShare", 0.25);
+        ModeCitationProcessor modeCitationProcessor = mock(ModeCitationProcessor.class);
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        when(modeCitationProcessor.process(anyString(), any(byte[].class), any(OutputStream.class), any(Priority.class))).thenAnswer(invocation -> {
+            DocumentReport report = new DocumentReport(invocation.getArgument(0));
+            if ("lent".equals(report.getDocument())) {
+                slowStarted.countDown();
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.onSpinWait();
+                }
+            }
+            // Comme le vrai processeur : l'interruption est constatée au point d'arrêt suivant
+            report.checkDeadline();
+            return report;
+        });
+        injectPrivateField(envelopeProcessor, "modeCitationProcessor", modeCitationProcessor);
+        injectPrivateField(envelopeProcessor, "priorityScheduler", priorityScheduler);
+        injectPrivateField(envelopeProcessor, "chunkDocuments", 2);
+
+        AtomicReference<Exception> cancellation = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                envelopeProcessor.process(new EnvelopeRequest(List.of(new EnvelopeDocument("lent", "<doc/>"),
+                        new EnvelopeDocument("b", "<doc/>"), new EnvelopeDocument("c", "<doc/>"))));
+            } catch (Exception e) {
+                cancellation.set(e);
+            }
+        });
+        caller.start();
+        assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(10));
+        assertInstanceOf(DocumentCancelledException.class, cancellation.get());
+
+        List<EnvelopeDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            documents.add(new EnvelopeDocument("doc-" + i, "<doc/>"));
+        }
+        EnvelopeResponse response = envelopeProcessor.process(new EnvelopeRequest(documents));
+
+        assertEquals(0, response.getFailed());
+        for (EnvelopeResult result : response.getResults()) {
+            assertEquals(DocumentReport.Status.SUCCESS, result.getReport().getStatus());
+        }
+    }
+
+    @Test
+    // Vérifie qu'un article reçu en texte avec une autre déclaration d'encodage est analysé en UTF-8, sans perdre
+    // ses caractères accentués ni ses guillemets
+    public void testProcess_DeclaredEncodingRewritten() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><doc><texte><p>Élu, il a dit «ipsum»</p></texte></doc>";
+        EnvelopeResponse response = envelopeProcessor.process(new EnvelopeRequest(List.of(new EnvelopeDocument("a", xml))));
+
+        assertEquals(0, response.getFailed());
+        String output = response.getResults().get(0).getXml();
+        assertTrue(output.contains("encoding=\"UTF-8\""));
+        assertTrue(output.contains("<p>Élu, il a dit <q class=\"containsQuotes\">«ipsum»</q></p>"));
+        assertArrayEquals("<?xml version='1.0' encoding='UTF-8'?><a/>".getBytes(StandardCharsets.UTF_8),
+                XmlService.utf8Bytes("<?xml version='1.0' encoding='latin1'?><a/>"));
+    }
+}
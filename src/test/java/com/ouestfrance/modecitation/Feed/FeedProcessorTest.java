@@ -0,0 +1,122 @@
+package com.ouestfrance.modecitation.Feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Report.JsonLinesWriter;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FeedProcessorTest {
+
+    private static final int ITEMS = 500;
+
+    @TempDir
+    Path tempDir;
+
+    private FeedProcessor feedProcessor;
+
+    private ModeCitationProcessor modeCitationProcessor;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        modeCitationProcessor = new ModeCitationProcessor();
+        RuleSets ruleSets = new RuleSets(new RuleSet(RuleSets.DEFAULT_NAME, List.of(),
+                RuleCompiler.compile(new ObjectMapper().readTree("[{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }]"))), List.of());
+        RuleSetRegistry ruleSetRegistry = mock(RuleSetRegistry.class);
+        when(ruleSetRegistry.getRuleSets()).thenReturn(ruleSets);
+        injectPrivateField(modeCitationProcessor, "rulesService", new RulesService());
+        injectPrivateField(modeCitationProcessor, "xmlService", new XmlService());
+        injectPrivateField(modeCitationProcessor, "ruleSetRegistry", ruleSetRegistry);
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "passthrough");
+
+        feedProcessor = new FeedProcessor();
+        injectPrivateField(feedProcessor, "modeCitationProcessor", modeCitationProcessor);
+        injectPrivateField(feedProcessor, "itemElement", "item");
+        injectPrivateField(feedProcessor, "threads", 8);
+        injectPrivateField(feedProcessor, "window", 16);
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie que les articles traités en parallèle sont réinsérés dans leur ordre d'origine, le reste du flux
+    // étant recopié à l'identique
+    public void testRun_ItemsReassembledInOrder() throws Exception {
+        StringBuilder feed = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<rss version=\"2.0\"><channel><title>Flux</title>\n");
+        StringBuilder expected = new StringBuilder(feed);
+        for (int i = 0; i < ITEMS; i++) {
+            // Des articles de tailles variées pour que leurs traitements se terminent dans le désordre
+            String padding = "<p>texte</p>".repeat(i % 7 * 20);
+            feed.append("  <item><title>").append(i).append("</title><texte>").append(padding).append("<p>Il a dit «ipsum ")
+                    .append(i).append("»</p></texte></item>\n");
+            expected.append("  <item><title>").append(i).append("</title><texte>").append(padding)
+                    .append("<p>Il a dit <q class=\"containsQuotes\">«ipsum ").append(i).append("»</q></p></texte></item>\n");
+        }
+        feed.append("</channel></rss>\n");
+        expected.append("</channel></rss>\n");
+        Path input = tempDir.resolve("feed.xml");
+        Files.writeString(input, feed, StandardCharsets.UTF_8);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        StringWriter reports = new StringWriter();
+
+        FeedSummary summary;
+        try (JsonLinesWriter reportWriter = new JsonLinesWriter(reports)) {
+            summary = feedProcessor.run(input, outputStream, reportWriter);
+        }
+
+        assertEquals(ITEMS, summary.getItems());
+        assertEquals(0, summary.getUnchanged());
+        assertEquals(expected.toString(), outputStream.toString(StandardCharsets.UTF_8));
+        List<String> reportLines = reports.toString().lines().toList();
+        assertEquals(ITEMS, reportLines.size());
+        for (int i = 0; i < ITEMS; i++) {
+            assertTrue(reportLines.get(i).startsWith("{\"document\":\"feed.xml#" + i + "\""));
+        }
+    }
+
+    @Test
+    // Vérifie qu'un article illisible ou hors limites est recopié sans modification
+    public void testRun_FailedItemsCopiedUnchanged() throws Exception {
+        injectPrivateField(modeCitationProcessor, "maxNodes", 8L);
+        String feed = "<rss><channel>"
+                + "<item><texte><p>«a»</p></texte></item>"
+                + "<item><texte><p>«b»</texte></item>"
+                + "<item><texte><p>«c»</p><p>d</p><p>e</p><p>f</p></texte></item>"
+                + "</channel></rss>";
+        Path input = tempDir.resolve("feed.xml");
+        Files.writeString(input, feed, StandardCharsets.UTF_8);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        FeedSummary summary = feedProcessor.run(input, outputStream, null);
+
+        assertEquals(3, summary.getItems());
+        assertEquals(2, summary.getUnchanged());
+        assertEquals("<rss><channel>"
+                + "<item><texte><p><q class=\"containsQuotes\">«a»</q></p></texte></item>"
+                + "<item><texte><p>«b»</texte></item>"
+                + "<item><texte><p>«c»</p><p>d</p><p>e</p><p>f</p></texte></item>"
+                + "</channel></rss>", outputStream.toString(StandardCharsets.UTF_8));
+    }
+}
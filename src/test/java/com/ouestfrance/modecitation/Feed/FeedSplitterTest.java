@@ -0,0 +1,103 @@
+package com.ouestfrance.modecitation.Feed;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeedSplitterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    // Vérifie le découpage en articles, sans confondre avec un article le texte des commentaires, CDATA,
+    // instructions de traitement, valeurs d'attributs ou éléments au nom plus long
+    public void testNext_ItemBoundaries() throws Exception {
+        String feed = "<?xml version=\"1.0\"?>\n<rss><channel>"
+                + "<title><![CDATA[<item>faux</item>]]></title><!-- <item/> --><?pi <item>?>"
+                + "<item>a</item>\n"
+                + "<itemized>b</itemized>"
+                + "<item lien=\"x>y\" titre='</item>'>c</item>"
+                + "<item/>"
+                + "<item><item>imbriqué</item></item>"
+                + "</channel></rss>\n";
+
+        List<String> items = split(feed, "item");
+
+        assertEquals(List.of("<item>a</item>", "<item lien=\"x>y\" titre='</item>'>c</item>", "<item/>",
+                "<item><item>imbriqué</item></item>"), items);
+    }
+
+    @Test
+    // Vérifie que les octets entre les articles et la fin du flux sont couverts sans trou ni recouvrement
+    public void testNext_GapsCoverFeed() throws Exception {
+        String feed = "<rss><channel>\n  <item>a</item>\n  <item>b</item>\n</channel></rss>";
+        Path path = write(feed);
+
+        StringBuilder rebuilt = new StringBuilder();
+        try (MappedFeed mappedFeed = MappedFeed.open(path)) {
+            FeedSplitter splitter = new FeedSplitter(mappedFeed, "item");
+            for (FeedItem item = splitter.next(); item != null; item = splitter.next()) {
+                rebuilt.append(new String(mappedFeed.copy(item.getGapStart(), item.getStart()), StandardCharsets.UTF_8))
+                        .append('[').append(new String(mappedFeed.copy(item.getStart(), item.getEnd()), StandardCharsets.UTF_8)).append(']');
+            }
+            rebuilt.append(new String(mappedFeed.copy(splitter.getPosition(), mappedFeed.size()), StandardCharsets.UTF_8));
+        }
+
+        assertEquals("<rss><channel>\n  [<item>a</item>]\n  [<item>b</item>]\n</channel></rss>", rebuilt.toString());
+    }
+
+    @Test
+    // Vérifie que les espaces de noms de l'en-tête utilisés par un article lui sont ajoutés pour l'analyser seul
+    public void testContent_Namespaces() throws Exception {
+        Path path = write("<rss xmlns:dc=\"http://purl.org/dc/elements/1.1/\" xmlns:media='http://search.yahoo.com/mrss/'><channel>"
+                + "<item><dc:creator>A</dc:creator></item>"
+                + "<item xmlns:dc=\"urn:autre\"><dc:creator>B</dc:creator></item>"
+                + "<item><title>C</title></item>"
+                + "</channel></rss>");
+
+        try (MappedFeed mappedFeed = MappedFeed.open(path)) {
+            FeedSplitter splitter = new FeedSplitter(mappedFeed, "item");
+            assertEquals("<item xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:creator>A</dc:creator></item>",
+                    new String(splitter.content(splitter.next()), StandardCharsets.UTF_8));
+            assertEquals("<item xmlns:dc=\"urn:autre\"><dc:creator>B</dc:creator></item>",
+                    new String(splitter.content(splitter.next()), StandardCharsets.UTF_8));
+            assertEquals("<item><title>C</title></item>", new String(splitter.content(splitter.next()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    // Vérifie qu'un article non fermé ou un encodage autre que UTF-8 sont refusés
+    public void testNext_Errors() throws Exception {
+        assertThrows(CustomAppException.class, () -> split("<rss><item>a</rss>", "item"));
+        assertThrows(CustomAppException.class,
+                () -> split("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><rss><item>a</item></rss>", "item"));
+        assertEquals(List.of("<entry>a</entry>"), split("<feed><entry>a</entry></feed>", "entry"));
+        assertEquals(List.of(), split("", "item"));
+    }
+
+    private List<String> split(String feed, String itemElement) throws Exception {
+        List<String> items = new ArrayList<>();
+        try (MappedFeed mappedFeed = MappedFeed.open(write(feed))) {
+            FeedSplitter splitter = new FeedSplitter(mappedFeed, itemElement);
+            for (FeedItem item = splitter.next(); item != null; item = splitter.next()) {
+                items.add(new String(mappedFeed.copy(item.getStart(), item.getEnd()), StandardCharsets.UTF_8));
+            }
+        }
+        return items;
+    }
+
+    private Path write(String feed) throws Exception {
+        Path path = Files.createTempFile(tempDir, "feed", ".xml");
+        Files.writeString(path, feed, StandardCharsets.UTF_8);
+        return path;
+    }
+}
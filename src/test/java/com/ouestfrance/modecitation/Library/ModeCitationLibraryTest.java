@@ -0,0 +1,162 @@
+package com.ouestfrance.modecitation.Library;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModeCitationLibraryTest {
+
+    private static final String ARTICLE = "<doc><texte><p>Il a dit «ipsum»</p></texte></doc>";
+
+    private static final String EXPECTED = "<p>Il a dit <q class=\"containsQuotes\">«ipsum»</q></p>";
+
+    @TempDir
+    Path tempDir;
+
+    private Path rules;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        rules = tempDir.resolve("rules.json");
+        Files.write(rules, "{ \"all\": [{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }] }".getBytes(StandardCharsets.UTF_8));
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    // Vérifie le traitement d'un document en mémoire sur l'exécuteur de l'appelant, sans contexte Spring
+    public void testProcess_Bytes() throws Exception {
+        try (ModeCitationLibrary library = ModeCitationLibrary.create(rules, null, executor)) {
+            LibraryResult result = library.process("a.xml", ARTICLE.getBytes(StandardCharsets.UTF_8)).get(10, TimeUnit.SECONDS);
+
+            assertTrue(new String(result.getOutput(), StandardCharsets.UTF_8).contains(EXPECTED));
+            assertEquals("a.xml", result.getReport().getDocument());
+            assertEquals(1, result.getReport().getQuotesWrapped());
+        }
+    }
+
+    @Test
+    // Vérifie le traitement de flux, qui restent ouverts, et celui de fichiers compressés ou non
+    public void testProcess_StreamsAndPaths() throws Exception {
+        try (ModeCitationLibrary library = ModeCitationLibrary.create(rules)) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            DocumentReport report = library.process("flux", new ByteArrayInputStream(ARTICLE.getBytes(StandardCharsets.UTF_8)),
+                    outputStream).get(10, TimeUnit.SECONDS);
+            assertEquals("flux", report.getDocument());
+            assertTrue(outputStream.toString(StandardCharsets.UTF_8).contains(EXPECTED));
+
+            Path input = tempDir.resolve("article.xml.gz");
+            try (GZIPOutputStream gzip = new GZIPOutputStream(Files.newOutputStream(input))) {
+                gzip.write(ARTICLE.getBytes(StandardCharsets.UTF_8));
+            }
+            Path output = tempDir.resolve("sortie.xml.gz");
+            report = library.process(input, output, executor).get(10, TimeUnit.SECONDS);
+            assertEquals("article.xml.gz", report.getDocument());
+            try (InputStream gzip = new GZIPInputStream(Files.newInputStream(output))) {
+                assertTrue(new String(gzip.readAllBytes(), StandardCharsets.UTF_8).contains(EXPECTED));
+            }
+        }
+    }
+
+    @Test
+    // Vérifie qu'un document invalide termine le résultat en erreur, avec la CustomAppException pour cause,
+    // sans fichier de sortie partiel
+    public void testProcess_Failure() throws Exception {
+        try (ModeCitationLibrary library = ModeCitationLibrary.create(rules, null, executor)) {
+            Path input = tempDir.resolve("invalide.xml");
+            Files.write(input, "<doc><texte><p>non fermé</texte></doc>".getBytes(StandardCharsets.UTF_8));
+            Path output = tempDir.resolve("invalide.out.xml");
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> library.process(input, output).get(10, TimeUnit.SECONDS));
+            assertInstanceOf(CustomAppException.class, e.getCause());
+            assertFalse(Files.exists(output));
+
+            e = assertThrows(ExecutionException.class,
+                    () -> library.process(tempDir.resolve("absent.xml"), output).get(10, TimeUnit.SECONDS));
+            assertInstanceOf(CustomAppException.class, e.getCause());
+        }
+        assertThrows(CustomAppException.class, () -> ModeCitationLibrary.create(tempDir.resolve("absent.json")));
+    }
+
+    @Test
+    // Vérifie qu'une annulation avant le démarrage évite le traitement, et qu'une annulation en cours interrompt
+    // le thread de traitement, qui reste ensuite disponible pour les documents suivants
+    public void testCancel() throws Exception {
+        Queue<Runnable> pending = new ArrayDeque<>();
+        try (ModeCitationLibrary library = ModeCitationLibrary.create(rules, null, pending::add)) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            CompletableFuture<DocumentReport> future = library.process("flux",
+                    new ByteArrayInputStream(ARTICLE.getBytes(StandardCharsets.UTF_8)), outputStream);
+            assertTrue(future.cancel(true));
+            pending.poll().run();
+            assertTrue(future.isCancelled());
+            assertEquals(0, outputStream.size());
+        }
+
+        CountDownLatch started = new CountDownLatch(1);
+        InputStream blocking = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("lecture interrompue");
+                }
+                return -1;
+            }
+        };
+        try (ModeCitationLibrary library = ModeCitationLibrary.create(rules, null, executor)) {
+            CompletableFuture<DocumentReport> future = library.process("lent", blocking, new ByteArrayOutputStream());
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertTrue(future.cancel(true));
+            assertTrue(future.isCancelled());
+
+            LibraryResult next = library.process("suivant", ARTICLE.getBytes(StandardCharsets.UTF_8)).get(10, TimeUnit.SECONDS);
+            assertEquals(1, next.getReport().getQuotesWrapped());
+            assertFalse(executor.submit(() -> Thread.currentThread().isInterrupted()).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    // Vérifie que close() arrête l'exécuteur de la bibliothèque : les demandes suivantes échouent sans bloquer
+    public void testClose() throws Exception {
+        ModeCitationLibrary library = ModeCitationLibrary.create(rules);
+        assertEquals(1, library.process("a.xml", ARTICLE.getBytes(StandardCharsets.UTF_8)).get(10, TimeUnit.SECONDS)
+                .getReport().getQuotesWrapped());
+        library.close();
+
+        CompletableFuture<LibraryResult> rejected = library.process("b.xml", ARTICLE.getBytes(StandardCharsets.UTF_8));
+        assertTrue(rejected.isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,82 @@
+package com.ouestfrance.modecitation.LoadTest;
+
+import com.ouestfrance.modecitation.Services.XmlService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CorpusGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    // Vérifie qu'un article ne dépend que de la graine et de son rang
+    public void testArticle_Reproducible() {
+        CorpusGenerator generator = new CorpusGenerator(spec(7, 0.3, 0.05));
+
+        assertEquals(generator.article(3), new CorpusGenerator(spec(7, 0.3, 0.05)).article(3));
+        assertNotEquals(generator.article(3), generator.article(4));
+        assertNotEquals(generator.article(3), new CorpusGenerator(spec(8, 0.3, 0.05)).article(3));
+    }
+
+    @Test
+    // Vérifie que les articles générés sont bien formés et suivent le schéma des articles traités
+    public void testArticle_Schema() throws Exception {
+        CorpusGenerator generator = new CorpusGenerator(spec(42, 0.3, 0.05));
+        XmlService xmlService = new XmlService();
+
+        for (int i = 0; i < 50; i++) {
+            Document document = xmlService.loadXMLFromBytes(generator.article(i).getBytes(StandardCharsets.UTF_8));
+            assertEquals(1, document.getElementsByTagName("tetiere").getLength());
+            assertEquals(1, document.getElementsByTagName("titraille").getLength());
+            assertEquals(1, document.getElementsByTagName("texte").getLength());
+            assertTrue(document.getElementsByTagName("p").getLength() >= 4);
+        }
+    }
+
+    @Test
+    // Vérifie que la part de citations mal formées suit le paramètre : sans citation mal formée, chaque
+    // guillemet ouvrant a son guillemet fermant
+    public void testArticle_MalformedRate() {
+        String wellFormed = new CorpusGenerator(spec(42, 0.5, 0.0)).article(0);
+        String malformed = new CorpusGenerator(spec(42, 0.5, 1.0)).article(0);
+        String noQuotes = new CorpusGenerator(spec(42, 0.0, 0.0)).article(0);
+
+        assertTrue(count(wellFormed, '«') > 10);
+        assertEquals(count(wellFormed, '«'), count(wellFormed, '»'));
+        assertNotEquals(count(malformed, '«'), count(malformed, '»'));
+        assertEquals(0, count(noQuotes, '«'));
+    }
+
+    @Test
+    // Vérifie qu'un corpus de mêmes paramètres est réutilisé, et régénéré quand ils changent
+    public void testGenerate_ReusedWhileSpecUnchanged() throws Exception {
+        Path directory = tempDir.resolve("corpus");
+        long bytes = new CorpusGenerator(spec(42, 0.3, 0.05)).generate(directory);
+        Path first = directory.resolve(CorpusGenerator.fileName(0));
+        String original = Files.readString(first, StandardCharsets.UTF_8);
+        assertTrue(Files.exists(directory.resolve(CorpusGenerator.fileName(9))));
+
+        Files.writeString(first, original + "<!-- marque -->", StandardCharsets.UTF_8);
+        new CorpusGenerator(spec(42, 0.3, 0.05)).generate(directory);
+        assertTrue(Files.readString(first, StandardCharsets.UTF_8).endsWith("<!-- marque -->"));
+
+        assertNotEquals(bytes, new CorpusGenerator(spec(43, 0.3, 0.05)).generate(directory));
+        assertNotEquals(original, Files.readString(first, StandardCharsets.UTF_8));
+    }
+
+    private static CorpusSpec spec(long seed, double quoteDensity, double malformedRate) {
+        return new CorpusSpec(seed, 10, 20, quoteDensity, 0.2, 2, malformedRate);
+    }
+
+    private static long count(String text, char c) {
+        return text.chars().filter(ch -> ch == c).count();
+    }
+}
@@ -0,0 +1,95 @@
+package com.ouestfrance.modecitation.LoadTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationPipeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadTestRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LoadTestRunner loadTestRunner;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ModeCitationPipeline modeCitationPipeline = new ModeCitationPipeline();
+        injectPrivateField(modeCitationPipeline, "rulesService", new RulesService());
+        injectPrivateField(modeCitationPipeline, "xmlService", new XmlService());
+        injectPrivateField(modeCitationPipeline, "readThreads", 1);
+        injectPrivateField(modeCitationPipeline, "parseThreads", 2);
+        injectPrivateField(modeCitationPipeline, "applyThreads", 2);
+        injectPrivateField(modeCitationPipeline, "writeThreads", 1);
+        injectPrivateField(modeCitationPipeline, "queueCapacity", 4);
+        injectPrivateField(modeCitationPipeline, "reportIntervalSeconds", 60L);
+        injectPrivateField(modeCitationPipeline, "reportFileName", "reports.jsonl");
+        injectPrivateField(modeCitationPipeline, "outputCompression", "none");
+        injectPrivateField(modeCitationPipeline, "outputArchiveName", "articles.zip");
+        injectPrivateField(modeCitationPipeline, "outputFormat", "document");
+        injectPrivateField(modeCitationPipeline, "limitsOverflow", "reject");
+
+        loadTestRunner = new LoadTestRunner();
+        injectPrivateField(loadTestRunner, "modeCitationPipeline", modeCitationPipeline);
+        injectPrivateField(loadTestRunner, "seed", 42L);
+        injectPrivateField(loadTestRunner, "documents", 40);
+        injectPrivateField(loadTestRunner, "paragraphs", 10);
+        injectPrivateField(loadTestRunner, "quoteDensity", 0.3);
+        injectPrivateField(loadTestRunner, "formattingRate", 0.2);
+        injectPrivateField(loadTestRunner, "nesting", 2);
+        injectPrivateField(loadTestRunner, "malformedRate", 0.05);
+        injectPrivateField(loadTestRunner, "warmupRuns", 1);
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie que l'essai traite tout le corpus et produit des mesures cohérentes, écrites en JSON
+    public void testRun_Measures() throws Exception {
+        RuleSets ruleSets = RuleSets.of(RuleCompiler.compile(new ObjectMapper().readTree(
+                "[{ \"desc\": \"test\", \"type\": \"element\", \"element\": \"p\", \"parents\": [\"texte\"], \"select\": \"text\" }]")));
+
+        LoadTestResult result = loadTestRunner.run(tempDir.resolve("corpus"), tempDir.resolve("out"), ruleSets);
+
+        assertEquals(40, result.getDocuments());
+        assertEquals(0, result.getFailed());
+        assertTrue(result.getBytes() > 0);
+        assertTrue(result.getDocumentsPerSecond() > 0);
+        assertTrue(result.getP50Millis() > 0);
+        assertTrue(result.getP50Millis() <= result.getP99Millis());
+        assertTrue(result.getP99Millis() <= result.getMaxMillis());
+        assertTrue(result.getAllocatedBytesPerDocument() > 0);
+        JsonNode json = new ObjectMapper().readTree(tempDir.resolve("out").resolve(LoadTestRunner.RESULT_FILE_NAME).toFile());
+        assertEquals(40, json.get("documents").asInt());
+        assertEquals(42, json.get("corpus").get("seed").asInt());
+        assertTrue(Files.exists(tempDir.resolve("out").resolve(CorpusGenerator.fileName(39))));
+    }
+
+    @Test
+    // Vérifie le calcul des centiles au rang le plus proche
+    public void testPercentile() {
+        long[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+        assertEquals(5, LoadTestRunner.percentile(sorted, 0.50));
+        assertEquals(10, LoadTestRunner.percentile(sorted, 0.99));
+        assertEquals(10, LoadTestRunner.percentile(sorted, 1.0));
+        assertEquals(1, LoadTestRunner.percentile(sorted, 0.0));
+        assertEquals(0, LoadTestRunner.percentile(new long[0], 0.5));
+    }
+}
@@ -0,0 +1,119 @@
+package com.ouestfrance.modecitation.Monitoring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationPipeline;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    // Vérifie le décompte des noeuds (éléments et textes) à partir de l'élément racine
+    public void testCountNodes() throws Exception {
+        XmlService xmlService = new XmlService();
+
+        assertEquals(6, DocumentEvents.countNodes(xmlService.loadXMLFromBytes(
+                "<doc><texte><p>a<b>b</b></p></texte></doc>".getBytes(StandardCharsets.UTF_8))));
+        assertEquals(1, DocumentEvents.countNodes(xmlService.loadXMLFromBytes("<doc/>".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    // Vérifie que la configuration fournie enregistre les évènements du pipeline avec taille et nombre de noeuds
+    public void testRecording_PipelineEvents() throws Exception {
+        byte[] content = "<doc><texte><p>Il a dit «ipsum»</p><p>«dolor»</p></texte></doc>".getBytes(StandardCharsets.UTF_8);
+        Path input = tempDir.resolve("article.xml");
+        Files.write(input, content);
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        ModeCitationPipeline pipeline = newPipeline();
+        Configuration configuration;
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream("/jfr/modecitation.jfc"), StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(reader);
+        }
+
+        Path recordingPath = tempDir.resolve("modecitation.jfr");
+        try (Recording recording = new Recording(configuration)) {
+            recording.start();
+            pipeline.run(List.of(input), outputDirectory,
+                    RuleCompiler.compile(new ObjectMapper().readTree("[{ \"desc\": \"paragraphes\", \"xpath\": \"//texte/p/text()\" }]")));
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath).stream()
+                .filter(event -> event.getEventType().getName().startsWith("com.ouestfrance.modecitation."))
+                .filter(event -> "article.xml".equals(event.getString("document")))
+                .toList();
+        RecordedEvent load = single(events, "DocumentLoad");
+        assertEquals(content.length, load.getLong("sizeBytes"));
+        assertEquals(6, load.getLong("nodeCount"));
+        RecordedEvent rule = single(events, "RuleApplication");
+        assertEquals("paragraphes", rule.getString("rule"));
+        assertEquals(2, rule.getInt("matches"));
+        assertEquals(2, rule.getInt("quotesWrapped"));
+        assertEquals(content.length, rule.getLong("sizeBytes"));
+        assertEquals(6, rule.getLong("nodeCount"));
+        RecordedEvent write = single(events, "DocumentWrite");
+        assertEquals("document", write.getString("format"));
+        assertEquals(6, write.getLong("nodeCount"));
+        assertEquals(List.of("read", "parse", "apply", "write"), events.stream()
+                .filter(event -> event.getEventType().getName().endsWith(".PipelineStage"))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .peek(event -> assertFalse(event.getBoolean("failed")))
+                .map(event -> event.getString("stage"))
+                .toList());
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.ouestfrance.modecitation." + name))
+                .toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+
+    private static ModeCitationPipeline newPipeline() throws Exception {
+        ModeCitationPipeline pipeline = new ModeCitationPipeline();
+        Map<String, Object> fields = Map.ofEntries(
+                Map.entry("rulesService", new RulesService()),
+                Map.entry("xmlService", new XmlService()),
+                Map.entry("readThreads", 1),
+                Map.entry("parseThreads", 1),
+                Map.entry("applyThreads", 1),
+                Map.entry("writeThreads", 1),
+                Map.entry("queueCapacity", 1),
+                Map.entry("reportIntervalSeconds", 60L),
+                Map.entry("reportFileName", "reports.jsonl"),
+                Map.entry("outputCompression", "none"),
+                Map.entry("outputArchiveName", "articles.zip"),
+                Map.entry("outputFormat", "document"),
+                Map.entry("limitsOverflow", "reject"));
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            Field field = ModeCitationPipeline.class.getDeclaredField(entry.getKey());
+            field.setAccessible(true);
+            field.set(pipeline, entry.getValue());
+        }
+        return pipeline;
+    }
+}
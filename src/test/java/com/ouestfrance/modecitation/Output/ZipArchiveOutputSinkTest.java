@@ -0,0 +1,50 @@
+package com.ouestfrance.modecitation.Output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipArchiveOutputSinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    // Vérifie qu'un document dont l'écriture échoue en cours de route ne laisse pas d'entrée tronquée : l'archive
+    // ne contient que les documents complets, suivis de leur index
+    public void testWrite_FailingWriterLeavesNoPartialEntry() throws Exception {
+        Path archive = tempDir.resolve("articles.zip");
+        try (ZipArchiveOutputSink sink = new ZipArchiveOutputSink(archive)) {
+            assertEquals("a.xml", sink.write("a.xml", "a.xml", out -> out.write("<doc>a</doc>".getBytes(StandardCharsets.UTF_8))));
+            IOException e = assertThrows(IOException.class, () -> sink.write("b.xml", "b.xml", out -> {
+                out.write("<doc>début".getBytes(StandardCharsets.UTF_8));
+                throw new IOException("écriture interrompue");
+            }));
+            assertEquals("écriture interrompue", e.getMessage());
+            assertEquals("c.xml", sink.write("c.xml", "c.xml", out -> out.write("<doc>c</doc>".getBytes(StandardCharsets.UTF_8))));
+        }
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(archive))) {
+            for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+                entries.put(entry.getName(), new String(zipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(List.of("a.xml", "c.xml", ZipArchiveOutputSink.INDEX_ENTRY_NAME), List.copyOf(entries.keySet()));
+        assertEquals("<doc>c</doc>", entries.get("c.xml"));
+        String[] index = entries.get(ZipArchiveOutputSink.INDEX_ENTRY_NAME).split("\n");
+        assertEquals(2, index.length);
+        assertTrue(index[1].contains("\"entry\":\"c.xml\""));
+    }
+}
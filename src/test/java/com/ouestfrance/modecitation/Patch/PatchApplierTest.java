@@ -0,0 +1,111 @@
+package com.ouestfrance.modecitation.Patch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.CompiledRule;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PatchApplierTest {
+
+    private XmlService xmlService;
+
+    private RulesService rulesService;
+
+    private List<CompiledRule> rules;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        xmlService = new XmlService();
+        rulesService = new RulesService();
+        try (InputStream inputStream = getClass().getResourceAsStream("/JSONrules/ModeCitationRules.json")) {
+            rules = RuleCompiler.compile(new ObjectMapper().readTree(inputStream).get("all"));
+        }
+    }
+
+    @Test
+    // Vérifie que le correctif appliqué aux exemples donne le même document que la réécriture complète
+    public void testApply_SameResultAsFullRewrite() throws Exception {
+        for (String sample : List.of("/XMLinput/ContenuEnEntree.xml", "/XMLinput/ContenuEnEntree2.xml")) {
+            byte[] original;
+            try (InputStream inputStream = getClass().getResourceAsStream(sample)) {
+                original = inputStream.readAllBytes();
+            }
+
+            Document rewritten = xmlService.loadXMLFromBytes(original);
+            rulesService.applyRules(rewritten, rules, new DocumentReport(sample));
+            ByteArrayOutputStream fullOutput = new ByteArrayOutputStream();
+            xmlService.writeDocument(rewritten, fullOutput);
+
+            Document patched = xmlService.loadXMLFromBytes(original);
+            DocumentReport report = new DocumentReport(sample);
+            report.setPatch(PatchRecorder.attach(sample, original, patched));
+            rulesService.applyRules(patched, rules, report);
+            assertTrue(report.getPatch().isAvailable(), sample);
+            DocumentPatch patch = roundTrip(report.getPatch().toPatch());
+            ByteArrayOutputStream patchedOutput = new ByteArrayOutputStream();
+            PatchApplier.apply(original, patch, patchedOutput);
+
+            assertEquals(report.getQuotesWrapped(), patch.getEdits().size(), sample);
+            assertTrue(xmlService.loadXMLFromBytes(fullOutput.toByteArray())
+                    .isEqualNode(xmlService.loadXMLFromBytes(patchedOutput.toByteArray())), sample);
+        }
+    }
+
+    @Test
+    // Vérifie que seules les plages modifiées changent, le reste du contenu d'origine étant conservé à l'octet près
+    public void testApply_KeepsUntouchedBytes() throws Exception {
+        String xml = "<?xml version='1.0'?>\n<doc>\n  <texte>\n    <p   class='texte' >Lorem &#171;ipsum&#187; <b>«dolor»</b></p>\n  </texte>\n</doc>";
+        byte[] original = xml.getBytes(StandardCharsets.UTF_8);
+        Document document = xmlService.loadXMLFromBytes(original);
+        DocumentReport report = new DocumentReport("test.xml");
+        report.setPatch(PatchRecorder.attach("test.xml", original, document));
+
+        rulesService.applyRules(document, RuleCompiler.compile(new ObjectMapper().readTree(
+                "[{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }]")), report);
+        DocumentPatch patch = report.getPatch().toPatch();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PatchApplier.apply(original, patch, output);
+
+        assertEquals(2, patch.getEdits().size());
+        assertEquals("/doc[1]/texte[1]/p[1]", patch.getEdits().get(0).getLocation());
+        assertEquals("«ipsum»", patch.getEdits().get(0).getText());
+        assertEquals(PatchEdit.Type.REPLACE, patch.getEdits().get(1).getType());
+        assertEquals("<?xml version='1.0'?>\n<doc>\n  <texte>\n    <p   class='texte' >Lorem <q class=\"containsQuotes\">&#171;ipsum&#187;</q> "
+                + "<q class=\"containsQuotes\">«dolor»</q></p>\n  </texte>\n</doc>", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    // Vérifie qu'un correctif n'est pas appliqué à un autre contenu que celui dont il est issu
+    public void testApply_SourceMismatch() throws Exception {
+        byte[] original = "<doc><texte><p>«a»</p></texte></doc>".getBytes(StandardCharsets.UTF_8);
+        Document document = xmlService.loadXMLFromBytes(original);
+        DocumentReport report = new DocumentReport("test.xml");
+        report.setPatch(PatchRecorder.attach("test.xml", original, document));
+        rulesService.applyRules(document, RuleCompiler.compile(new ObjectMapper().readTree(
+                "[{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }]")), report);
+        DocumentPatch patch = report.getPatch().toPatch();
+
+        byte[] modified = "<doc><texte><p>«b»</p></texte></doc>".getBytes(StandardCharsets.UTF_8);
+        assertThrows(CustomAppException.class, () -> PatchApplier.apply(modified, patch, new ByteArrayOutputStream()));
+    }
+
+    private static DocumentPatch roundTrip(DocumentPatch patch) throws Exception {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        patch.writeTo(json);
+        return DocumentPatch.read(new ByteArrayInputStream(json.toByteArray()));
+    }
+}
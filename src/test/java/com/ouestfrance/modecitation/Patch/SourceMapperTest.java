@@ -0,0 +1,68 @@
+package com.ouestfrance.modecitation.Patch;
+
+import com.ouestfrance.modecitation.Services.XmlService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SourceMapperTest {
+
+    private XmlService xmlService;
+
+    @BeforeEach
+    public void setUp() {
+        xmlService = new XmlService();
+    }
+
+    @Test
+    // Vérifie que chaque élément et chaque texte est rapproché de sa plage d'octets d'origine
+    public void testAttach_ElementsAndTexts() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<!-- début --><doc a=\"x>y\"><?pi?><p>Été «a»</p><br/><![CDATA[<b>]]></doc>";
+        byte[] content = xml.getBytes(StandardCharsets.UTF_8);
+        Document document = xmlService.loadXMLFromBytes(content);
+
+        assertTrue(SourceMapper.attach(content, document));
+
+        Node p = document.getElementsByTagName("p").item(0);
+        assertEquals("<p>Été «a»</p>", slice(content, SourceMapper.of(p)));
+        assertEquals("Été «a»", slice(content, SourceMapper.of(p.getFirstChild())));
+        assertEquals("<br/>", slice(content, SourceMapper.of(document.getElementsByTagName("br").item(0))));
+        assertTrue(slice(content, SourceMapper.of(document.getDocumentElement())).startsWith("<doc a=\"x>y\">"));
+    }
+
+    @Test
+    // Vérifie la correspondance caractère/octet en présence d'entités, de caractères multi-octets et de fins de ligne CRLF
+    public void testByteOffsets_EntitiesAndLineEndings() throws Exception {
+        byte[] content = "<doc><p>a&amp;é\r\n«&#233;»</p></doc>".getBytes(StandardCharsets.UTF_8);
+        Document document = xmlService.loadXMLFromBytes(content);
+        assertTrue(SourceMapper.attach(content, document));
+
+        Node text = document.getElementsByTagName("p").item(0).getFirstChild();
+        assertEquals("a&é\n«é»", text.getNodeValue());
+        int[] offsets = SourceMapper.byteOffsets(content, SourceMapper.of(text), text.getNodeValue());
+
+        assertNotNull(offsets);
+        int quoteStart = text.getNodeValue().indexOf('«');
+        assertEquals("«&#233;»", new String(content, offsets[quoteStart], offsets[quoteStart + 3] - offsets[quoteStart], StandardCharsets.UTF_8));
+        assertEquals("<", new String(content, offsets[text.getNodeValue().length()], 1, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    // Vérifie que les contenus non rapprochables sont refusés
+    public void testAttach_Unsupported() throws Exception {
+        byte[] doctype = "<!DOCTYPE doc [<!ENTITY e \"x\">]><doc><p>&e;</p></doc>".getBytes(StandardCharsets.UTF_8);
+        assertFalse(SourceMapper.attach(doctype, xmlService.loadXMLFromBytes(doctype)));
+
+        byte[] latin1 = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><doc><p>é</p></doc>".getBytes(StandardCharsets.ISO_8859_1);
+        assertFalse(SourceMapper.attach(latin1, xmlService.loadXMLFromBytes(latin1)));
+    }
+
+    private static String slice(byte[] content, SourceRef ref) {
+        return new String(content, ref.getStart(), ref.getEnd() - ref.getStart(), StandardCharsets.UTF_8);
+    }
+}
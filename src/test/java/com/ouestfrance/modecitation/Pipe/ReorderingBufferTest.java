@@ -0,0 +1,96 @@
+package com.ouestfrance.modecitation.Pipe;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReorderingBufferTest {
+
+    @Test
+    // Vérifie que les résultats arrivés dans le désordre sont écrits dans l'ordre, dès que leurs prédécesseurs le sont
+    public void testComplete_OutOfOrder() throws Exception {
+        List<String> written = new ArrayList<>();
+        ReorderingBuffer<String> buffer = new ReorderingBuffer<>(4, sink(written));
+
+        buffer.complete(2, "c");
+        buffer.complete(1, "b");
+        assertTrue(written.isEmpty());
+
+        buffer.complete(0, "a");
+        assertEquals(List.of("a", "b", "c"), written);
+
+        buffer.complete(3, "d");
+        assertEquals(List.of("a", "b", "c", "d"), written);
+        assertEquals(4, buffer.getWritten());
+        assertEquals(3, buffer.getMaxPending());
+    }
+
+    @Test
+    // Vérifie que la réservation bloque tant que la fenêtre est pleine et reprend quand un résultat est écrit
+    public void testReserve_BlocksWhenWindowFull() throws Exception {
+        ReorderingBuffer<String> buffer = new ReorderingBuffer<>(2, sink(new ArrayList<>()));
+        buffer.reserve();
+        buffer.reserve();
+
+        CountDownLatch reserved = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            try {
+                buffer.reserve();
+                reserved.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+
+        buffer.complete(1, "b");
+        assertFalse(reserved.await(200, TimeUnit.MILLISECONDS));
+
+        buffer.complete(0, "a");
+        assertTrue(reserved.await(5, TimeUnit.SECONDS));
+        reader.join();
+    }
+
+    @Test
+    // Vérifie qu'une erreur d'écriture est remontée sans bloquer les producteurs suivants
+    public void testComplete_WriteFailure() throws Exception {
+        ReorderingBuffer<String> buffer = new ReorderingBuffer<>(1, new ReorderingBuffer.Sink<>() {
+            @Override
+            public void write(String item) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void flush() {
+            }
+        });
+
+        for (int i = 0; i < 3; i++) {
+            buffer.reserve();
+            buffer.complete(i, "x");
+        }
+
+        IOException e = assertThrows(IOException.class, buffer::checkFailure);
+        assertEquals("Broken pipe", e.getMessage());
+        assertEquals(3, buffer.getWritten());
+    }
+
+    private static ReorderingBuffer.Sink<String> sink(List<String> written) {
+        return new ReorderingBuffer.Sink<>() {
+            @Override
+            public void write(String item) {
+                written.add(item);
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+    }
+}
@@ -0,0 +1,308 @@
+package com.ouestfrance.modecitation.Pipe;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.ModeCitationApplication;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class StreamPipeTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final int DOCUMENTS = 200;
+
+    @TempDir
+    Path tempDir;
+
+    private StreamPipe streamPipe;
+
+    private ModeCitationProcessor modeCitationProcessor;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        streamPipe = new StreamPipe();
+        modeCitationProcessor = mock(ModeCitationProcessor.class);
+        // Traitement factice : recopie le document en majuscules après un délai variable, pour que les
+        // résultats se terminent dans le désordre
+        when(modeCitationProcessor.process(anyString(), any(byte[].class), any(OutputStream.class), any(Priority.class))).thenAnswer(invocation -> {
+            String name = invocation.getArgument(0);
+            byte[] content = invocation.getArgument(1);
+            if (new String(content, StandardCharsets.UTF_8).contains("trop")) {
+                throw new DocumentLimitException("Nombre maximal de noeuds dépassé");
+            }
+            if (new String(content, StandardCharsets.UTF_8).contains("erreur")) {
+                throw new StackOverflowError("Pile épuisée");
+            }
+            Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+            invocation.<OutputStream>getArgument(2).write(new String(content, StandardCharsets.UTF_8).toUpperCase().getBytes(StandardCharsets.UTF_8));
+            return new DocumentReport(name);
+        });
+        injectPrivateField(streamPipe, "modeCitationProcessor", modeCitationProcessor);
+        injectPrivateField(streamPipe, "format", "ndjson");
+        injectPrivateField(streamPipe, "threads", 8);
+        injectPrivateField(streamPipe, "window", 16);
+        injectPrivateField(streamPipe, "priority", "interactive");
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie qu'en JSON Lines chaque document donne une ligne de résultat, dans l'ordre d'entrée
+    public void testRun_JsonLinesPreservesOrder() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            input.append(OBJECT_MAPPER.writeValueAsString(new DocumentLine("doc-" + i, "<doc>" + i + "</doc>"))).append('\n');
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        PipeSummary summary = streamPipe.run(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)), outputStream);
+
+        assertEquals(DOCUMENTS, summary.getDocuments());
+        assertEquals(0, summary.getFailed());
+        List<String> lines = outputStream.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(DOCUMENTS, lines.size());
+        for (int i = 0; i < DOCUMENTS; i++) {
+            JsonNode line = OBJECT_MAPPER.readTree(lines.get(i));
+            assertEquals("doc-" + i, line.get("id").asText());
+            assertEquals("<DOC>" + i + "</DOC>", line.get("xml").asText());
+            assertEquals("SUCCESS", line.get("report").get("status").asText());
+        }
+    }
+
+    @Test
+    // Vérifie qu'une ligne illisible ou un document en échec donnent un résultat en échec sans interrompre le flux
+    public void testRun_JsonLinesFailures() throws Exception {
+        String input = "{\"id\":\"a\",\"xml\":\"<doc/>\"}\n"
+                + "pas du json\n"
+                + "{\"id\":\"c\"}\n"
+                + "{\"id\":\"d\",\"xml\":\"<doc>trop</doc>\"}\n"
+                + "\n"
+                + "{\"xml\":\"<doc/>\"}\n";
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        PipeSummary summary = streamPipe.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), outputStream);
+
+        assertEquals(5, summary.getDocuments());
+        assertEquals(3, summary.getFailed());
+        List<JsonNode> lines = outputStream.toString(StandardCharsets.UTF_8).lines().map(this::readTree).toList();
+        assertEquals(List.of("a", "1", "c", "d", "4"), lines.stream().map(line -> line.get("id").asText()).toList());
+        assertEquals("FAILED", lines.get(1).get("report").get("status").asText());
+        assertFalse(lines.get(1).has("xml"));
+        assertEquals("FAILED", lines.get(2).get("report").get("status").asText());
+        assertEquals("CANCELLED", lines.get(3).get("report").get("status").asText());
+        assertEquals("<DOC/>", lines.get(4).get("xml").asText());
+    }
+
+    @Test
+    // Vérifie qu'une Error levée pendant le traitement d'un document donne un résultat en échec à sa place, sans
+    // bloquer la remise en ordre des documents suivants
+    public void testRun_ErrorDoesNotBlockReordering() throws Exception {
+        injectPrivateField(streamPipe, "threads", 2);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            String xml = i % 5 == 2 ? "<doc>erreur</doc>" : "<doc>" + i + "</doc>";
+            input.append(OBJECT_MAPPER.writeValueAsString(new DocumentLine("doc-" + i, xml))).append('\n');
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        PipeSummary summary = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> streamPipe.run(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)), outputStream));
+
+        assertEquals(20, summary.getDocuments());
+        assertEquals(4, summary.getFailed());
+        List<JsonNode> lines = outputStream.toString(StandardCharsets.UTF_8).lines().map(this::readTree).toList();
+        assertEquals(20, lines.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("doc-" + i, lines.get(i).get("id").asText());
+            if (i % 5 == 2) {
+                assertEquals("FAILED", lines.get(i).get("report").get("status").asText());
+                assertEquals("Pile épuisée", lines.get(i).get("report").get("error").asText());
+            } else {
+                assertEquals("<DOC>" + i + "</DOC>", lines.get(i).get("xml").asText());
+            }
+        }
+    }
+
+    @Test
+    // Vérifie qu'en JSON Lines une ligne plus longue que la taille maximale d'un document donne un résultat en
+    // échec à sa place, sans empêcher la lecture des lignes suivantes
+    public void testRun_JsonLinesOversizedLine() throws Exception {
+        injectPrivateField(streamPipe, "maxInputBytes", 64L);
+        String oversized = OBJECT_MAPPER.writeValueAsString(new DocumentLine("long", "<doc>" + "x".repeat(200_000) + "</doc>"));
+        String input = "{\"id\":\"a\",\"xml\":\"<doc>a</doc>\"}\n" + oversized + "\n{\"id\":\"c\",\"xml\":\"<doc>c</doc>\"}";
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        PipeSummary summary = streamPipe.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), outputStream);
+
+        assertEquals(3, summary.getDocuments());
+        assertEquals(1, summary.getFailed());
+        List<JsonNode> lines = outputStream.toString(StandardCharsets.UTF_8).lines().map(this::readTree).toList();
+        assertEquals(List.of("a", "1", "c"), lines.stream().map(line -> line.get("id").asText()).toList());
+        assertEquals("FAILED", lines.get(1).get("report").get("status").asText());
+        assertEquals("Ligne de " + oversized.length() + " octets supérieure à la limite de 64 octets",
+                lines.get(1).get("report").get("error").asText());
+        assertEquals("<DOC>C</DOC>", lines.get(2).get("xml").asText());
+    }
+
+    @Test
+    // Vérifie qu'en JSON Lines la déclaration d'encodage d'un document, transmis en UTF-8, est réécrite en UTF-8
+    public void testRun_JsonLinesDeclaredEncoding() throws Exception {
+        String input = OBJECT_MAPPER.writeValueAsString(new DocumentLine("a",
+                "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><doc>é</doc>")) + "\n";
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        streamPipe.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), outputStream);
+
+        JsonNode line = OBJECT_MAPPER.readTree(outputStream.toString(StandardCharsets.UTF_8));
+        assertEquals("<?XML VERSION=\"1.0\" ENCODING=\"UTF-8\"?><DOC>É</DOC>", line.get("xml").asText());
+    }
+
+    @Test
+    // Vérifie le format à longueur préfixée : trames dans l'ordre d'entrée, trame vide pour un document en échec
+    public void testRun_LengthPrefixed() throws Exception {
+        injectPrivateField(streamPipe, "format", "length-prefixed");
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        DataOutputStream frames = new DataOutputStream(input);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            byte[] content = (i == 7 ? "<doc>trop</doc>" : "<doc>" + i + "</doc>").getBytes(StandardCharsets.UTF_8);
+            frames.writeInt(content.length);
+            frames.write(content);
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        PipeSummary summary = streamPipe.run(new ByteArrayInputStream(input.toByteArray()), outputStream);
+
+        assertEquals(DOCUMENTS, summary.getDocuments());
+        assertEquals(1, summary.getFailed());
+        DataInputStream results = new DataInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        for (int i = 0; i < DOCUMENTS; i++) {
+            byte[] output = new byte[results.readInt()];
+            results.readFully(output);
+            assertEquals(i == 7 ? "" : "<DOC>" + i + "</DOC>", new String(output, StandardCharsets.UTF_8));
+        }
+        assertEquals(-1, results.read());
+    }
+
+    @Test
+    // Vérifie qu'une trame tronquée en fin de flux interrompt le mode pipe
+    public void testRun_TruncatedFrame() throws Exception {
+        injectPrivateField(streamPipe, "format", "length-prefixed");
+        byte[] input = {0, 0, 0, 10, '<', 'd'};
+
+        assertThrows(com.ouestfrance.modecitation.Exception.CustomAppException.class,
+                () -> streamPipe.run(new ByteArrayInputStream(input), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    // Vérifie qu'une trame annoncée plus longue que la limite est sautée sans être chargée et donne un résultat en
+    // échec, et qu'une longueur aberrante sur un flux court n'alloue pas la taille annoncée
+    public void testRun_OversizedFrame() throws Exception {
+        injectPrivateField(streamPipe, "format", "length-prefixed");
+        injectPrivateField(streamPipe, "maxInputBytes", 16L);
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        DataOutputStream frames = new DataOutputStream(input);
+        byte[] oversized = "<doc>beaucoup trop long</doc>".getBytes(StandardCharsets.UTF_8);
+        frames.writeInt(oversized.length);
+        frames.write(oversized);
+        byte[] valid = "<doc>1</doc>".getBytes(StandardCharsets.UTF_8);
+        frames.writeInt(valid.length);
+        frames.write(valid);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        PipeSummary summary = streamPipe.run(new ByteArrayInputStream(input.toByteArray()), outputStream);
+
+        assertEquals(2, summary.getDocuments());
+        assertEquals(1, summary.getFailed());
+        DataInputStream results = new DataInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(0, results.readInt());
+        byte[] output = new byte[results.readInt()];
+        results.readFully(output);
+        assertEquals("<DOC>1</DOC>", new String(output, StandardCharsets.UTF_8));
+
+        injectPrivateField(streamPipe, "maxInputBytes", 0L);
+        byte[] hostile = {0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, '<', 'd'};
+        assertThrows(com.ouestfrance.modecitation.Exception.CustomAppException.class,
+                () -> streamPipe.run(new ByteArrayInputStream(hostile), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    // Vérifie de bout en bout, dans un processus lancé en --run.mode=pipe, que la sortie standard ne porte que les
+    // résultats (ni logs ni bannière), dans l'ordre d'entrée
+    public void testPipeMode_StandardStreams() throws Exception {
+        Path rules = tempDir.resolve("rules.json");
+        Files.writeString(rules, "{ \"all\": [{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }] }", StandardCharsets.UTF_8);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            input.append(OBJECT_MAPPER.writeValueAsString(new DocumentLine("article" + i,
+                    "<doc><texte><p>Il a dit «ipsum " + i + "»</p></texte></doc>"))).append('\n');
+        }
+        Path stdin = tempDir.resolve("stdin.jsonl");
+        Files.writeString(stdin, input, StandardCharsets.UTF_8);
+        Path stdout = tempDir.resolve("stdout.jsonl");
+        List<String> command = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                ModeCitationApplication.class.getName(),
+                "--run.mode=pipe",
+                "--rules.json.path=" + rules,
+                "--pipe.threads=4",
+                "--pipe.window=8");
+
+        Process process = new ProcessBuilder(command)
+                .directory(tempDir.toFile())
+                .redirectInput(stdin.toFile())
+                .redirectOutput(stdout.toFile())
+                .redirectError(tempDir.resolve("stderr.log").toFile())
+                .start();
+
+        assertTrue(process.waitFor(2, TimeUnit.MINUTES));
+        List<String> lines = Files.readAllLines(stdout, StandardCharsets.UTF_8);
+        assertEquals(DOCUMENTS, lines.size(), Files.readString(tempDir.resolve("stderr.log")));
+        for (int i = 0; i < DOCUMENTS; i++) {
+            JsonNode line = OBJECT_MAPPER.readTree(lines.get(i));
+            assertEquals("article" + i, line.get("id").asText());
+            assertTrue(line.get("xml").asText().contains("<q class=\"containsQuotes\">«ipsum " + i + "»</q>"));
+            assertEquals(1, line.get("report").get("quotesWrapped").asInt());
+        }
+        assertTrue(Files.readString(tempDir.resolve("stderr.log")).contains("[StreamPipe]"));
+    }
+
+    private JsonNode readTree(String line) {
+        try {
+            return OBJECT_MAPPER.readTree(line);
+        } catch (Exception e) {
+            throw new AssertionError(line, e);
+        }
+    }
+
+    private record DocumentLine(String id, String xml) {
+    }
+}
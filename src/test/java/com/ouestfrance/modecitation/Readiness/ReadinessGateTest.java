@@ -0,0 +1,61 @@
+package com.ouestfrance.modecitation.Readiness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadinessGateTest {
+
+    @TempDir
+    Path tempDir;
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie que le fichier de disponibilité porte le bilan de la mise en température et disparaît à l'arrêt
+    public void testMarkReady_ReadinessFile() throws Exception {
+        ReadinessGate readinessGate = new ReadinessGate();
+        Path file = tempDir.resolve("run").resolve("ready.json");
+        injectPrivateField(readinessGate, "readinessFile", file.toString());
+        assertFalse(readinessGate.isReady());
+        assertFalse(Files.exists(file));
+
+        readinessGate.markReady(new WarmUpResult(200, 4, 1500, 900.0, 120.5, true));
+
+        assertTrue(readinessGate.isReady());
+        assertEquals(4, readinessGate.getWarmUp().getBatches());
+        JsonNode content = new ObjectMapper().readTree(file.toFile());
+        assertEquals(200, content.get("documents").asLong());
+        assertEquals(120.5, content.get("lastLatencyMicros").asDouble());
+        assertTrue(content.get("stabilized").asBoolean());
+        assertFalse(Files.exists(file.resolveSibling("ready.json.tmp")));
+
+        readinessGate.shutdown();
+
+        assertFalse(readinessGate.isReady());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    // Vérifie qu'aucun fichier n'est écrit sans readiness.file et que l'état prêt est levé sans mise en température
+    public void testMarkReady_WithoutFile() throws Exception {
+        ReadinessGate readinessGate = new ReadinessGate();
+        injectPrivateField(readinessGate, "readinessFile", "");
+
+        readinessGate.markReady(null);
+
+        assertTrue(readinessGate.isReady());
+        assertNull(readinessGate.getWarmUp());
+    }
+}
@@ -0,0 +1,108 @@
+package com.ouestfrance.modecitation.Readiness;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class WarmUpTest {
+
+    private WarmUp warmUp;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        warmUp = new WarmUp();
+        injectPrivateField(warmUp, "enabled", true);
+        injectPrivateField(warmUp, "batchDocuments", 10);
+        injectPrivateField(warmUp, "stabilityTolerance", 0.5);
+        injectPrivateField(warmUp, "stableBatches", 2);
+        injectPrivateField(warmUp, "maxDocuments", 1000L);
+        injectPrivateField(warmUp, "maxMillis", 60000L);
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie que les échantillons passent par le traitement complet jusqu'à stabilisation et que le bilan est rempli
+    public void testRun_FullProcessing() throws Exception {
+        ModeCitationProcessor modeCitationProcessor = new ModeCitationProcessor();
+        RuleSets ruleSets;
+        try (InputStream inputStream = getClass().getResourceAsStream("/JSONrules/ModeCitationRules.json")) {
+            ruleSets = RuleSets.of(RuleCompiler.compile(new ObjectMapper().readTree(inputStream).get("all")));
+        }
+        RuleSetRegistry ruleSetRegistry = mock(RuleSetRegistry.class);
+        when(ruleSetRegistry.getRuleSets()).thenReturn(ruleSets);
+        injectPrivateField(modeCitationProcessor, "rulesService", new RulesService());
+        injectPrivateField(modeCitationProcessor, "xmlService", new XmlService());
+        injectPrivateField(modeCitationProcessor, "ruleSetRegistry", ruleSetRegistry);
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "reject");
+        injectPrivateField(warmUp, "modeCitationProcessor", modeCitationProcessor);
+
+        WarmUpResult result = warmUp.run();
+
+        assertTrue(result.getBatches() >= 3);
+        assertEquals(result.getBatches() * 10L, result.getDocuments());
+        assertTrue(result.getFirstLatencyMicros() > 0);
+        assertTrue(result.getLastLatencyMicros() > 0);
+        assertEquals(result.getBatches() < 100, result.isStabilized());
+    }
+
+    @Test
+    // Vérifie qu'une latence qui ne se stabilise pas arrête la mise en température à la borne de documents
+    public void testRun_StopsAtMaxDocuments() throws Exception {
+        ModeCitationProcessor modeCitationProcessor = mock(ModeCitationProcessor.class);
+        AtomicInteger calls = new AtomicInteger();
+        // Latence doublée à chaque série : jamais stable
+        when(modeCitationProcessor.process(anyString(), any(byte[].class), any(OutputStream.class), any(Priority.class))).thenAnswer(invocation -> {
+            int batch = calls.getAndIncrement() / 10;
+            long end = System.nanoTime() + (1_000_000L << batch);
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return new DocumentReport("warmup");
+        });
+        injectPrivateField(warmUp, "modeCitationProcessor", modeCitationProcessor);
+        injectPrivateField(warmUp, "maxDocuments", 45L);
+
+        WarmUpResult result = warmUp.run();
+
+        assertFalse(result.isStabilized());
+        assertEquals(45, result.getDocuments());
+        assertEquals(45, calls.get());
+        assertEquals(5, result.getBatches());
+        assertTrue(result.getLastLatencyMicros() > result.getFirstLatencyMicros());
+    }
+
+    @Test
+    // Vérifie qu'un échec de traitement d'un échantillon interrompt le démarrage
+    public void testRun_ProcessingFailure() throws Exception {
+        ModeCitationProcessor modeCitationProcessor = mock(ModeCitationProcessor.class);
+        when(modeCitationProcessor.process(anyString(), any(byte[].class), any(OutputStream.class), any(Priority.class)))
+                .thenThrow(new CustomAppException("Règles invalides"));
+        injectPrivateField(warmUp, "modeCitationProcessor", modeCitationProcessor);
+
+        assertThrows(CustomAppException.class, () -> warmUp.run());
+    }
+}
@@ -0,0 +1,86 @@
+package com.ouestfrance.modecitation.Rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleCompilerTest {
+
+    private ObjectMapper objectMapper;
+
+    private Document document;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        String xml = "<doc><texte><p>a</p><p class=\"\">b</p><p class=\"texte\">c<b>x</b>d</p><p class=\"autre\">e</p></texte>"
+                + "<encadre><p>f</p></encadre></doc>";
+        document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    // Vérifie qu'une règle historique sans type est compilée en XPath
+    public void testCompile_LegacyXPathRule() throws Exception {
+        List<CompiledRule> rules = RuleCompiler.compile(objectMapper.readTree(
+                "[{ \"desc\": \"test\", \"xpath\": \"//texte/p[@class='texte']/text()\" }]"));
+
+        assertEquals(1, rules.size());
+        assertEquals("test", rules.get(0).getDesc());
+        assertInstanceOf(XPathRuleMatcher.class, rules.get(0).getMatcher());
+        assertEquals(List.of("c", "d"), texts(rules.get(0).getMatcher().select(document)));
+    }
+
+    @Test
+    // Vérifie que le matcher natif sélectionne les mêmes noeuds que l'XPath équivalent
+    public void testCompile_ElementRuleMatchesXPath() throws Exception {
+        String[][] equivalences = {
+                {"{ \"name\": \"class\", \"empty\": true }", "//texte/p[not(@class) or not(string-length(@class))]/text()"},
+                {"{ \"name\": \"class\", \"absent\": true }", "//texte/p[not(@class)]/text()"},
+                {"{ \"name\": \"class\", \"equals\": \"texte\" }", "//texte/p[@class='texte']/text()"},
+        };
+        for (String[] equivalence : equivalences) {
+            RuleMatcher nativeMatcher = RuleCompiler.compileRule(objectMapper.readTree("{ \"type\": \"element\", \"element\": \"p\","
+                    + " \"parents\": [\"texte\"], \"attributes\": [" + equivalence[0] + "], \"select\": \"text\" }")).getMatcher();
+            RuleMatcher xpathMatcher = new XPathRuleMatcher(equivalence[1]);
+
+            assertEquals(xpathMatcher.select(document), nativeMatcher.select(document), equivalence[1]);
+        }
+    }
+
+    @Test
+    // Vérifie la sélection des éléments eux-mêmes et la description XPath du matcher natif
+    public void testCompile_ElementTarget() throws Exception {
+        CompiledRule rule = RuleCompiler.compileRule(objectMapper.readTree(
+                "{ \"type\": \"element\", \"element\": \"p\", \"parents\": [\"encadre\", \"doc\"], \"select\": \"element\" }"));
+
+        List<Node> nodes = rule.getMatcher().select(document);
+        assertEquals(1, nodes.size());
+        assertEquals("f", nodes.get(0).getTextContent());
+        assertEquals("//doc/encadre/p", rule.getDesc());
+    }
+
+    @Test
+    // Vérifie que les règles invalides sont refusées dès la compilation
+    public void testCompile_InvalidRules() {
+        assertThrows(CustomAppException.class, () -> RuleCompiler.compile(objectMapper.readTree("[{ \"desc\": \"test\" }]")));
+        assertThrows(CustomAppException.class, () -> RuleCompiler.compile(objectMapper.readTree("[{ \"xpath\": \"//p[\" }]")));
+        assertThrows(CustomAppException.class, () -> RuleCompiler.compile(objectMapper.readTree("[{ \"type\": \"inconnu\" }]")));
+        assertThrows(CustomAppException.class, () -> RuleCompiler.compile(objectMapper.readTree(
+                "[{ \"type\": \"element\", \"element\": \"p\", \"attributes\": [{ \"name\": \"class\" }] }]")));
+    }
+
+    private static List<String> texts(List<Node> nodes) {
+        return nodes.stream().map(Node::getTextContent).toList();
+    }
+}
@@ -0,0 +1,83 @@
+package com.ouestfrance.modecitation.Rules;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Services.XmlService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Banc d'essai hors suite par défaut : mvn test -Pbenchmark
+@Tag("benchmark")
+public class RuleMatcherBenchmarkTest {
+
+    private static final String[] SAMPLES = {"/XMLinput/ContenuEnEntree.xml", "/XMLinput/ContenuEnEntree2.xml"};
+
+    private static final int WARMUP_ITERATIONS = 2_000;
+
+    private static final int MEASURED_ITERATIONS = 10_000;
+
+    @Test
+    // Compare le coût de sélection des règles livrées en natif et de leurs équivalents XPath historiques
+    public void benchmarkNativeVersusXPath() throws Exception {
+        XmlService xmlService = new XmlService();
+        List<Document> documents = new ArrayList<>();
+        for (String sample : SAMPLES) {
+            try (InputStream inputStream = getClass().getResourceAsStream(sample)) {
+                documents.add(xmlService.loadXMLFromBytes(inputStream.readAllBytes()));
+            }
+        }
+
+        List<CompiledRule> nativeRules;
+        try (InputStream inputStream = getClass().getResourceAsStream("/JSONrules/ModeCitationRules.json")) {
+            JsonNode allRulesNode = new ObjectMapper().readTree(inputStream).get("all");
+            nativeRules = RuleCompiler.compile(allRulesNode);
+        }
+        List<RuleMatcher> nativeMatchers = new ArrayList<>();
+        List<RuleMatcher> xpathMatchers = new ArrayList<>();
+        for (CompiledRule rule : nativeRules) {
+            nativeMatchers.add(rule.getMatcher());
+            xpathMatchers.add(new XPathRuleMatcher(rule.getMatcher().describe()));
+        }
+
+        for (Document document : documents) {
+            for (int i = 0; i < nativeMatchers.size(); i++) {
+                assertEquals(xpathMatchers.get(i).select(document), nativeMatchers.get(i).select(document));
+            }
+        }
+
+        run(xpathMatchers, documents, WARMUP_ITERATIONS);
+        run(nativeMatchers, documents, WARMUP_ITERATIONS);
+        double xpathNanos = run(xpathMatchers, documents, MEASURED_ITERATIONS);
+        double nativeNanos = run(nativeMatchers, documents, MEASURED_ITERATIONS);
+
+        System.out.printf("Sélection des %d règles sur %d documents : XPath %.1f µs, natif %.1f µs (x%.1f)%n",
+                nativeMatchers.size(), documents.size(), xpathNanos / 1_000, nativeNanos / 1_000, xpathNanos / nativeNanos);
+    }
+
+    //Durée moyenne, en nanosecondes, d'une sélection de toutes les règles sur tous les documents
+    private static double run(List<RuleMatcher> matchers, List<Document> documents, int iterations) throws Exception {
+        long selected = 0;
+        long start = System.nanoTime();
+        for (int n = 0; n < iterations; n++) {
+            for (Document document : documents) {
+                for (RuleMatcher matcher : matchers) {
+                    List<Node> nodes = matcher.select(document);
+                    selected += nodes.size();
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (selected == 0) {
+            throw new IllegalStateException("Aucun noeud sélectionné");
+        }
+        return elapsed / (double) iterations;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ouestfrance.modecitation.Rules;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleSetsTest {
+
+    private RuleSet defaultSet;
+
+    private RuleSet ouestFrance;
+
+    private RuleSet voiles;
+
+    private RuleSets ruleSets;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        defaultSet = new RuleSet(RuleSets.DEFAULT_NAME, List.of(), List.of());
+        ouestFrance = new RuleSet("ouest-france", List.of("ouest-france.fr", "Edition du Soir"), List.of());
+        voiles = new RuleSet("voiles", List.of("voilesetvoiliers.com"), List.of());
+        ruleSets = new RuleSets(defaultSet, List.of(ouestFrance, voiles));
+    }
+
+    @Test
+    // Vérifie que le premier canal de la tetiere possédant un jeu de règles est retenu
+    public void testSelect_FirstKnownChannel() throws Exception {
+        assertSame(voiles, ruleSets.select(parse("inconnu.fr, voilesetvoiliers.com,ouest-france.fr")));
+        assertSame(ouestFrance, ruleSets.select(parse("Edition du Soir")));
+        assertEquals(3, ruleSets.size());
+    }
+
+    @Test
+    // Vérifie que les canaux exclus, inconnus ou absents mènent au jeu par défaut
+    public void testSelect_Default() throws Exception {
+        assertSame(defaultSet, ruleSets.select(parse("!ouest-france.fr,!voilesetvoiliers.com,!Edition du Soir")));
+        assertSame(defaultSet, ruleSets.select(parse("inconnu.fr")));
+        assertSame(defaultSet, ruleSets.select(parse(null)));
+    }
+
+    @Test
+    // Vérifie qu'un canal ne peut pas être desservi par deux jeux de règles
+    public void testConstructor_DuplicateChannel() {
+        RuleSet other = new RuleSet("autre", List.of("ouest-france.fr"), List.of());
+
+        assertThrows(CustomAppException.class, () -> new RuleSets(defaultSet, List.of(ouestFrance, other)));
+    }
+
+    private static Document parse(String channel) throws Exception {
+        String tetiere = channel != null ? "<tetiere channel=\"" + channel + "\"/>" : "<tetiere/>";
+        String xml = "<doc><article>" + tetiere + "<texte><p>«a»</p></texte></article></doc>";
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,259 @@
+package com.ouestfrance.modecitation.Scheduling;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.LoadTest.CorpusGenerator;
+import com.ouestfrance.modecitation.LoadTest.CorpusSpec;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationPipeline;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PrioritySchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PriorityScheduler priorityScheduler;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        priorityScheduler = new PriorityScheduler();
+        injectPrivateField(priorityScheduler, "threads", 4);
+        injectPrivateField(priorityScheduler, "bulkShare", 0.25);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        priorityScheduler.shutdown();
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie que sans thread configuré le traitement s'exécute dans le thread appelant
+    public void testCall_InlineWhenDisabled() throws Exception {
+        injectPrivateField(priorityScheduler, "threads", 0);
+
+        assertEquals(Thread.currentThread().getName(), priorityScheduler.call(Priority.BULK, () -> Thread.currentThread().getName()));
+        assertEquals(1, priorityScheduler.getStatistics().get(1).getCompleted());
+    }
+
+    @Test
+    // Vérifie que le traitement s'exécute sur le groupe et que ses exceptions sont relancées telles quelles
+    public void testCall_ExceptionsPropagated() throws Exception {
+        assertTrue(priorityScheduler.call(Priority.INTERACTIVE, () -> Thread.currentThread().getName()).startsWith("processing-"));
+
+        CustomAppException checked = assertThrows(CustomAppException.class, () -> priorityScheduler.call(Priority.BULK, () -> {
+            throw new CustomAppException("erreur");
+        }));
+        assertEquals("erreur", checked.getMessage());
+        assertThrows(IllegalStateException.class, () -> priorityScheduler.call(Priority.BULK, () -> {
+            throw new IllegalStateException();
+        }));
+        // Un traitement soumis depuis un thread du groupe s'exécute directement, sans interblocage
+        assertEquals("ok", priorityScheduler.call(Priority.BULK, () -> priorityScheduler.call(Priority.INTERACTIVE, () -> "ok")));
+    }
+
+    @Test
+    // Vérifie qu'un traitement annulé par l'interruption de son appelant ne laisse pas le thread du groupe
+    // interrompu : le traitement suivant sur ce même thread s'exécute normalement
+    public void testCall_CancelledTaskDoesNotPoisonWorker() throws Exception {
+        injectPrivateField(priorityScheduler, "threads", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<String> worker = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                priorityScheduler.call(Priority.INTERACTIVE, () -> {
+                    worker.set(Thread.currentThread().getName());
+                    started.countDown();
+                    // Comme DocumentReport.checkDeadline : l'interruption est constatée sans être effacée
+                    while (!Thread.currentThread().isInterrupted()) {
+                        Thread.onSpinWait();
+                    }
+                    return null;
+                });
+            } catch (InterruptedException e) {
+                // Annulation attendue
+            }
+        });
+        caller.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(worker.get(), priorityScheduler.call(Priority.INTERACTIVE, () -> Thread.currentThread().getName()));
+        assertFalse(priorityScheduler.call(Priority.INTERACTIVE, () -> Thread.currentThread().isInterrupted()));
+    }
+
+    @Test
+    // Vérifie que l'attente des traitements interactifs reste bornée par la durée d'un traitement de masse
+    // pendant qu'une charge de masse occupe tous les threads avec une longue file
+    public void testCall_InteractiveLatencyBoundedUnderBulkLoad() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<CompletableFuture<Void>> bulkSubmitters = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            bulkSubmitters.add(CompletableFuture.runAsync(() -> {
+                while (running.get()) {
+                    try {
+                        priorityScheduler.call(Priority.BULK, () -> sleep(5));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, runnable -> new Thread(runnable).start()));
+        }
+        Thread.sleep(200);
+
+        long maxInteractiveNanos = 0;
+        for (int i = 0; i < 50; i++) {
+            long start = System.nanoTime();
+            priorityScheduler.call(Priority.INTERACTIVE, () -> sleep(1));
+            maxInteractiveNanos = Math.max(maxInteractiveNanos, System.nanoTime() - start);
+            Thread.sleep(10);
+        }
+        running.set(false);
+        CompletableFuture.allOf(bulkSubmitters.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        PriorityClassStatistics interactive = priorityScheduler.getStatistics().get(0);
+        PriorityClassStatistics bulk = priorityScheduler.getStatistics().get(1);
+        assertEquals(50, interactive.getCompleted());
+        // 64 traitements de masse de 5 ms en file sur 4 threads : environ 75 ms d'attente chacun
+        assertTrue(bulk.getMeanWaitMillis() > 40, bulk.toString());
+        assertTrue(interactive.getMaxWaitMillis() < 30, interactive.toString());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(maxInteractiveNanos) < 50, interactive.toString());
+    }
+
+    @Test
+    // Vérifie que les traitements de masse gardent leur part quand les traitements interactifs saturent le groupe
+    public void testCall_BulkNotStarved() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong bulkDone = new AtomicLong();
+        AtomicLong interactiveDone = new AtomicLong();
+        List<CompletableFuture<Void>> submitters = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            Priority priority = i % 2 == 0 ? Priority.INTERACTIVE : Priority.BULK;
+            AtomicLong done = priority == Priority.BULK ? bulkDone : interactiveDone;
+            submitters.add(CompletableFuture.runAsync(() -> {
+                while (running.get()) {
+                    try {
+                        priorityScheduler.call(priority, () -> sleep(1));
+                        done.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, runnable -> new Thread(runnable).start()));
+        }
+        Thread.sleep(1000);
+        running.set(false);
+        CompletableFuture.allOf(submitters.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        double bulkShare = bulkDone.get() / (double) (bulkDone.get() + interactiveDone.get());
+        assertTrue(bulkShare > 0.18 && bulkShare < 0.35, "part des traitements de masse : " + bulkShare);
+    }
+
+    @Test
+    // Vérifie de bout en bout qu'un document interactif soumis pendant un lot n'attend pas derrière le lot
+    public void testProcess_InteractiveDuringBatch() throws Exception {
+        injectPrivateField(priorityScheduler, "threads", 2);
+        RuleSets ruleSets = RuleSets.of(RuleCompiler.compile(new ObjectMapper().readTree(
+                "[{ \"desc\": \"test\", \"type\": \"element\", \"element\": \"p\", \"parents\": [\"texte\"], \"select\": \"text\" }]")));
+        ModeCitationPipeline modeCitationPipeline = new ModeCitationPipeline();
+        injectPrivateField(modeCitationPipeline, "rulesService", new RulesService());
+        injectPrivateField(modeCitationPipeline, "xmlService", new XmlService());
+        injectPrivateField(modeCitationPipeline, "priorityScheduler", priorityScheduler);
+        injectPrivateField(modeCitationPipeline, "readThreads", 2);
+        injectPrivateField(modeCitationPipeline, "parseThreads", 2);
+        injectPrivateField(modeCitationPipeline, "applyThreads", 2);
+        injectPrivateField(modeCitationPipeline, "writeThreads", 1);
+        injectPrivateField(modeCitationPipeline, "queueCapacity", 16);
+        injectPrivateField(modeCitationPipeline, "reportIntervalSeconds", 60L);
+        injectPrivateField(modeCitationPipeline, "reportFileName", "reports.jsonl");
+        injectPrivateField(modeCitationPipeline, "outputCompression", "none");
+        injectPrivateField(modeCitationPipeline, "outputArchiveName", "articles.zip");
+        injectPrivateField(modeCitationPipeline, "outputFormat", "document");
+        injectPrivateField(modeCitationPipeline, "limitsOverflow", "reject");
+        ModeCitationProcessor modeCitationProcessor = new ModeCitationProcessor();
+        RuleSetRegistry ruleSetRegistry = mock(RuleSetRegistry.class);
+        when(ruleSetRegistry.getRuleSets()).thenReturn(ruleSets);
+        injectPrivateField(modeCitationProcessor, "rulesService", new RulesService());
+        injectPrivateField(modeCitationProcessor, "xmlService", new XmlService());
+        injectPrivateField(modeCitationProcessor, "ruleSetRegistry", ruleSetRegistry);
+        injectPrivateField(modeCitationProcessor, "priorityScheduler", priorityScheduler);
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "reject");
+
+        CorpusSpec spec = new CorpusSpec(42, 300, 20, 0.3, 0.2, 2, 0.05);
+        CorpusGenerator generator = new CorpusGenerator(spec);
+        generator.generate(tempDir.resolve("corpus"));
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < spec.getDocuments(); i++) {
+            inputs.add(tempDir.resolve("corpus").resolve(CorpusGenerator.fileName(i)));
+        }
+        List<Long> batchLatencies = new ArrayList<>();
+        CompletableFuture<Void> batch = CompletableFuture.runAsync(() -> {
+            try {
+                modeCitationPipeline.run(inputs, Files.createDirectories(tempDir.resolve("out")), ruleSets, null, null,
+                        latency -> {
+                            synchronized (batchLatencies) {
+                                batchLatencies.add(latency);
+                            }
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        byte[] breakingNews = generator.article(1000).getBytes(StandardCharsets.UTF_8);
+        List<Long> interactiveLatencies = new ArrayList<>();
+        Thread.sleep(300);
+        while (!batch.isDone()) {
+            long start = System.nanoTime();
+            DocumentReport report = modeCitationProcessor.process("urgent.xml", breakingNews, new ByteArrayOutputStream());
+            interactiveLatencies.add(System.nanoTime() - start);
+            assertEquals(DocumentReport.Status.SUCCESS, report.getStatus());
+            Thread.sleep(20);
+        }
+        batch.get();
+
+        assertTrue(interactiveLatencies.size() >= 3, "documents interactifs : " + interactiveLatencies.size());
+        double interactiveMean = interactiveLatencies.stream().mapToLong(Long::longValue).average().orElseThrow();
+        double batchMean = batchLatencies.stream().mapToLong(Long::longValue).average().orElseThrow();
+        assertTrue(interactiveMean * 3 < batchMean, String.format("interactif %.1f ms, lot %.1f ms, %s",
+                interactiveMean / 1e6, batchMean / 1e6, priorityScheduler.getStatistics()));
+    }
+
+    private static Void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package com.ouestfrance.modecitation.Services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.CompiledRule;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+// Banc d'essai hors suite par défaut : mvn test -Pbenchmark
+@Tag("benchmark")
+public class DomBackendBenchmarkTest {
+
+    //Copies du corps de l'article d'exemple concaténées pour former un grand article
+    private static final int ARTICLE_COPIES = 40;
+
+    private static final int RETAINED_DOCUMENTS = 40;
+
+    private static final int WARMUP_ITERATIONS = 20;
+
+    private static final int MEASURED_ITERATIONS = 50;
+
+    @Test
+    // Compare, pour chaque implémentation DOM, le tas retenu par document et le débit analyse + règles + écriture
+    public void benchmarkDomBackends() throws Exception {
+        byte[] article = largeArticle();
+        List<CompiledRule> rules;
+        try (InputStream inputStream = getClass().getResourceAsStream("/JSONrules/ModeCitationRules.json")) {
+            rules = RuleCompiler.compile(new ObjectMapper().readTree(inputStream).get("all"));
+        }
+        RulesService rulesService = new RulesService();
+        XmlService xmlService = new XmlService();
+        byte[] expected = process(xmlService, rulesService, rules, article);
+
+        System.out.printf("Grand article : %d Ko%n", article.length / 1024);
+        System.out.printf("%-16s %14s %14s %12s%n", "Implémentation", "Tas analysé", "Tas appliqué", "Documents/s");
+        for (DomBackend backend : DomBackend.values()) {
+            xmlService.setDomBackend(backend);
+            assertArrayEquals(expected, process(xmlService, rulesService, rules, article));
+
+            long parsedBytes = retainedBytes(xmlService, rulesService, rules, article, false);
+            long appliedBytes = retainedBytes(xmlService, rulesService, rules, article, true);
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                process(xmlService, rulesService, rules, article);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                process(xmlService, rulesService, rules, article);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-16s %11d Ko %11d Ko %12.1f%n", backend.getName(),
+                    parsedBytes / 1024, appliedBytes / 1024, MEASURED_ITERATIONS / seconds);
+        }
+    }
+
+    //Analyse, application des règles et sérialisation d'un document
+    private static byte[] process(XmlService xmlService, RulesService rulesService, List<CompiledRule> rules, byte[] article) throws Exception {
+        Document document = xmlService.loadXMLFromBytes(article);
+        rulesService.applyRules(document, rules, new DocumentReport("benchmark"));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(article.length + 4096);
+        xmlService.writeDocument(document, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    //Tas occupé par document, mesuré en conservant RETAINED_DOCUMENTS documents analysés (et traités si applied)
+    private static long retainedBytes(XmlService xmlService, RulesService rulesService, List<CompiledRule> rules,
+                                      byte[] article, boolean applied) throws Exception {
+        List<Document> documents = new ArrayList<>();
+        long before = usedHeap();
+        for (int i = 0; i < RETAINED_DOCUMENTS; i++) {
+            Document document = xmlService.loadXMLFromBytes(article);
+            if (applied) {
+                rulesService.applyRules(document, rules, new DocumentReport("benchmark"));
+            }
+            documents.add(document);
+        }
+        long after = usedHeap();
+        if (documents.size() != RETAINED_DOCUMENTS) {
+            throw new IllegalStateException();
+        }
+        return (after - before) / RETAINED_DOCUMENTS;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    //Article d'exemple dont le corps est répété ARTICLE_COPIES fois
+    private byte[] largeArticle() throws Exception {
+        XmlService xmlService = new XmlService();
+        Document document;
+        try (InputStream inputStream = getClass().getResourceAsStream("/XMLinput/ContenuEnEntree.xml")) {
+            document = xmlService.loadXMLFromBytes(inputStream.readAllBytes());
+        }
+        Element body = (Element) document.getElementsByTagName("texte").item(0);
+        List<Node> children = new ArrayList<>();
+        for (Node child = body.getFirstChild(); child != null; child = child.getNextSibling()) {
+            children.add(child);
+        }
+        for (int i = 1; i < ARTICLE_COPIES; i++) {
+            for (Node child : children) {
+                body.appendChild(child.cloneNode(true));
+            }
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        xmlService.writeDocument(document, outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -1,7 +1,14 @@
 package com.ouestfrance.modecitation.Services;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Report.QuoteRecord;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Report.WarningType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -13,10 +20,15 @@ import org.w3c.dom.NodeList;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -77,15 +89,15 @@ public class RulesServiceTest {
 
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.newDocument();
+        Document document = builder.parse(new ByteArrayInputStream(
+                "<root><test>«a»</test><test>b</test></root>".getBytes(StandardCharsets.UTF_8)));
 
         RulesService spyRulesService = Mockito.spy(rulesService);
-        doReturn(document).when(spyRulesService).reloadDocument(any(Document.class));
-        doNothing().when(spyRulesService).applyOneRule(any(Document.class), anyString());
 
         spyRulesService.applyRules(document, rulesNode);
 
-        verify(spyRulesService, times(2)).applyOneRule(any(Document.class), eq("//test"));
+        verify(spyRulesService, times(2)).deepCheck(argThat(node -> "test".equals(node.getNodeName())), any(Document.class), any(DocumentReport.class));
+        assertEquals(1, document.getElementsByTagName("q").getLength());
     }
 
 
@@ -106,9 +118,11 @@ public class RulesServiceTest {
 
         RulesService spyRulesService = Mockito.spy(rulesService);
 
-        spyRulesService.applyRules(document, rulesNode);
+        assertThrows(CustomAppException.class, () -> {
+            spyRulesService.applyRules(document, rulesNode);
+        });
 
-        verify(spyRulesService, times(0)).applyOneRule(any(Document.class), anyString());
+        verify(spyRulesService, times(0)).deepCheck(any(Node.class), any(Document.class), any(DocumentReport.class));
     }
 
 
@@ -123,16 +137,17 @@ public class RulesServiceTest {
 
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.newDocument();
+        Document document = builder.parse(new ByteArrayInputStream(
+                "<root><test>«a»</test><test>b</test></root>".getBytes(StandardCharsets.UTF_8)));
 
         RulesService spyRulesService = Mockito.spy(rulesService);
-        doThrow(new RuntimeException("Test exception")).when(spyRulesService).applyOneRule(any(Document.class), anyString());
+        doThrow(new RuntimeException("Test exception")).when(spyRulesService).deepCheck(any(Node.class), any(Document.class), any(DocumentReport.class));
 
         assertThrows(CustomAppException.class, () -> {
             spyRulesService.applyRules(document, rulesNode);
         });
 
-        verify(spyRulesService, times(1)).applyOneRule(any(Document.class), eq("//test"));
+        verify(spyRulesService, times(1)).deepCheck(any(Node.class), any(Document.class), any(DocumentReport.class));
     }
 
     @Test
@@ -143,15 +158,17 @@ public class RulesServiceTest {
         Document document = builder.newDocument();
         Element testElement = document.createElement("test");
         document.appendChild(testElement);
+        JsonNode rulesNode = new ObjectMapper().readTree("[{ \"desc\": \"test\", \"xpath\": \"//test\" }]");
 
         RulesService spyRulesService = Mockito.spy(rulesService);
-        doThrow(new RuntimeException("Test exception")).when(spyRulesService).deepCheck(any(Node.class), any(Document.class));
+        doThrow(new RuntimeException("Test exception")).when(spyRulesService).processFormattingTagsOutsideQuotes(any(Node.class), any(DocumentReport.class));
 
         assertThrows(CustomAppException.class, () -> {
-            spyRulesService.applyOneRule(document, "//test");
+            spyRulesService.applyRules(document, rulesNode);
         });
 
-        verify(spyRulesService, times(1)).deepCheck(any(Node.class), any(Document.class));
+        verify(spyRulesService, times(1)).processFormattingTagsOutsideQuotes(any(Node.class), any(DocumentReport.class));
+        verify(spyRulesService, times(0)).deepCheck(any(Node.class), any(Document.class), any(DocumentReport.class));
     }
 
     @Test
@@ -167,13 +184,13 @@ public class RulesServiceTest {
         node.appendChild(textNode);
 
         RulesService spyRulesService = Mockito.spy(rulesService);
-        doThrow(new RuntimeException("Test exception")).when(spyRulesService).applySurroundedContents(any(Node.class), any(Document.class));
+        doThrow(new RuntimeException("Test exception")).when(spyRulesService).applySurroundedContents(any(Node.class), any(Document.class), any(DocumentReport.class));
 
         assertThrows(CustomAppException.class, () -> {
             spyRulesService.deepCheck(node, document);
         });
 
-        verify(spyRulesService, times(1)).applySurroundedContents(any(Node.class), any(Document.class));
+        verify(spyRulesService, times(1)).applySurroundedContents(any(Node.class), any(Document.class), any(DocumentReport.class));
     }
 
     @Test
@@ -214,8 +231,8 @@ public class RulesServiceTest {
     }
 
     @Test
-    // Vérifie que les balises de formatage sont correctement remplacées par des balises <q>
-    public void testReplaceFormattingWithQuote_Success() throws Exception {
+    // Vérifie que les balises de formatage entourant une citation sont correctement remplacées par des balises <q>
+    public void testProcessFormattingTagsOutsideQuotes_Success() throws Exception {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
         Document document = builder.newDocument();
@@ -224,14 +241,14 @@ public class RulesServiceTest {
         document.appendChild(parent);
 
         Element pElement = document.createElement("p");
-        pElement.appendChild(document.createTextNode("Text before «"));
+        pElement.appendChild(document.createTextNode("Text before "));
         Element bElement = document.createElement("b");
-        bElement.appendChild(document.createTextNode("bold text"));
+        bElement.appendChild(document.createTextNode("«bold text»"));
         pElement.appendChild(bElement);
-        pElement.appendChild(document.createTextNode("» text after"));
+        pElement.appendChild(document.createTextNode(" text after"));
         parent.appendChild(pElement);
 
-        rulesService.replaceFormattingWithQuote(document);
+        rulesService.processFormattingTagsOutsideQuotes(pElement);
 
         NodeList qNodes = document.getElementsByTagName("q");
         assertEquals(1, qNodes.getLength());
@@ -241,16 +258,163 @@ public class RulesServiceTest {
 
     @Test
     // Vérifie que CustomAppException est lancée si une exception survient lors du remplacement des balises de formatage par <q>
-    public void testReplaceFormattingWithQuote_Exception() throws Exception {
+    public void testProcessFormattingTagsOutsideQuotes_Exception() throws Exception {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
         Document document = builder.newDocument();
+        Element pElement = document.createElement("p");
+        Element bElement = document.createElement("b");
+        bElement.appendChild(document.createTextNode("«bold text»"));
+        pElement.appendChild(bElement);
 
         RulesService spyRulesService = Mockito.spy(rulesService);
-        doThrow(new CustomAppException("Test exception")).when(spyRulesService).replaceFormattingWithQuote(any(Document.class));
+        doThrow(new RuntimeException("Test exception")).when(spyRulesService).isNestedWithinQuotes(any(Node.class));
 
         assertThrows(CustomAppException.class, () -> {
-            spyRulesService.replaceFormattingWithQuote(document);
+            spyRulesService.processFormattingTagsOutsideQuotes(pElement);
         });
     }
+
+    @Test
+    // Vérifie que les anomalies sont consignées dans le bilan avec l'emplacement du paragraphe
+    public void testApplyRules_ReportsWarnings() throws Exception {
+        Path jsonFile = tempDir.resolve("rules.json");
+        String jsonContent = "{ \"all\": [{ \"desc\": \"paragraphes\", \"xpath\": \"//texte/p/text()\" },"
+                + " { \"desc\": \"absents\", \"xpath\": \"//absent/text()\" }] }";
+        Files.write(jsonFile, jsonContent.getBytes());
+        JsonNode rulesNode = rulesService.readRules(jsonFile.toString());
+
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Document document = builder.parse(new ByteArrayInputStream(
+                "<doc><texte><p>Lorem «ipsum» dolor</p><p>Lorem «ipsum dolor</p><p>«a «b» c»</p></texte></doc>".getBytes(StandardCharsets.UTF_8)));
+
+        DocumentReport report = new DocumentReport("test.xml");
+        rulesService.applyRules(document, rulesNode, report);
+
+        assertEquals(1, report.getQuotesWrapped());
+        assertEquals(3, report.getWarnings().size());
+        assertEquals(WarningType.UNBALANCED_QUOTES, report.getWarnings().get(0).getType());
+        assertEquals("/doc[1]/texte[1]/p[2]", report.getWarnings().get(0).getLocation());
+        assertEquals("paragraphes", report.getWarnings().get(0).getRule());
+        assertEquals(WarningType.NESTED_QUOTES_SKIPPED, report.getWarnings().get(1).getType());
+        assertEquals("/doc[1]/texte[1]/p[3]", report.getWarnings().get(1).getLocation());
+        assertEquals(WarningType.RULE_MATCHED_NOTHING, report.getWarnings().get(2).getType());
+        assertEquals("absents", report.getWarnings().get(2).getRule());
+    }
+
+    @Test
+    // Vérifie qu'une erreur déjà qualifiée est propagée sans être réenveloppée à chaque niveau
+    public void testDeepCheck_PropagatesCustomAppException() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document document = builder.newDocument();
+        Element node = document.createElement("test");
+        document.appendChild(node);
+        node.appendChild(document.createTextNode("Some text with «quotes»."));
+
+        CustomAppException failure = new CustomAppException("Test exception");
+        RulesService spyRulesService = Mockito.spy(rulesService);
+        doThrow(failure).when(spyRulesService).applySurroundedContents(any(Node.class), any(Document.class), any(DocumentReport.class));
+
+        CustomAppException thrown = assertThrows(CustomAppException.class, () -> {
+            spyRulesService.deepCheck(node, document);
+        });
+        assertSame(failure, thrown);
+    }
+
+    @Test
+    // Vérifie que la détection linéaire des citations imbriquées équivaut à l'ancienne expression régulière
+    public void testContainsNestedQuotes_MatchesRegex() {
+        Pattern nestedQuotePattern = Pattern.compile("«[^«]*«.*»[^«]*?»");
+        char[] alphabet = {'«', '»', 'a', ' ', '\n', '\r', '\u2028'};
+        Random random = new Random(42);
+        for (int n = 0; n < 100_000; n++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(16); i > 0; i--) {
+                text.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            assertEquals(nestedQuotePattern.matcher(text).find(), rulesService.containsNestedQuotes(text.toString()), text.toString());
+        }
+        assertTrue(rulesService.containsNestedQuotes("«ipsum «dolor» sit»"));
+        assertFalse(rulesService.containsNestedQuotes("«Lorem» ipsum «dolor»"));
+        assertFalse(rulesService.containsNestedQuotes("«a«b\r»c»"));
+        assertFalse(rulesService.containsNestedQuotes("«a«b\u0085»c»"));
+        assertFalse(rulesService.containsNestedQuotes("«a«b\u2028»c»"));
+        assertFalse(rulesService.containsNestedQuotes("«a«b\u2029»c»"));
+    }
+
+    @Test
+    // Vérifie que l'application des règles s'interrompt une fois l'échéance du document passée
+    public void testApplyRules_DeadlineExceeded() throws Exception {
+        Path jsonFile = tempDir.resolve("rules.json");
+        Files.write(jsonFile, "{ \"all\": [{ \"desc\": \"test\", \"xpath\": \"//p/text()\" }] }".getBytes());
+        JsonNode rulesNode = rulesService.readRules(jsonFile.toString());
+
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Document document = builder.parse(new ByteArrayInputStream("<doc><p>«ipsum»</p></doc>".getBytes(StandardCharsets.UTF_8)));
+
+        DocumentReport report = new DocumentReport("test.xml");
+        report.startDeadline(1);
+        Thread.sleep(5);
+
+        assertThrows(DocumentLimitException.class, () -> {
+            rulesService.applyRules(document, rulesNode, report);
+        });
+        assertEquals(0, report.getQuotesWrapped());
+    }
+
+    @Test
+    // Vérifie que les citations balisées sont relevées pendant le même passage, avec leur règle et leur contexte
+    public void testApplyRules_CollectsQuotes() throws Exception {
+        Path jsonFile = tempDir.resolve("rules.json");
+        Files.write(jsonFile, "{ \"all\": [{ \"desc\": \"paragraphes\", \"xpath\": \"//texte/p/text()\" }] }".getBytes());
+        JsonNode rulesNode = rulesService.readRules(jsonFile.toString());
+
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Document document = builder.parse(new ByteArrayInputStream(("<doc><texte><p>Intro</p>"
+                + "<p>Le maire a déclaré  «Nous   verrons» puis <b>«Rien»</b> avant de partir.</p></texte></doc>").getBytes(StandardCharsets.UTF_8)));
+
+        DocumentReport report = new DocumentReport("test.xml");
+        report.collectQuotes(12);
+        rulesService.applyRules(document, rulesNode, report);
+
+        List<QuoteRecord> quotes = report.getQuotes();
+        assertEquals(2, quotes.size());
+        QuoteRecord replaced = quotes.get(0);
+        assertEquals("«Rien»", replaced.getText());
+        assertEquals("/doc[1]/texte[1]/p[2]", replaced.getLocation());
+        assertEquals("paragraphes", replaced.getRule());
+        assertEquals("rrons» puis", replaced.getBefore());
+        assertEquals("avant de pa", replaced.getAfter());
+        QuoteRecord wrapped = quotes.get(1);
+        assertEquals("«Nous   verrons»", wrapped.getText());
+        assertEquals("test.xml", wrapped.getDocument());
+        assertEquals("a déclaré", wrapped.getBefore());
+        assertEquals("puis «Rien»", wrapped.getAfter());
+    }
+
+    @Test
+    // Vérifie que le répertoire des règles donne un jeu compilé par publication, en plus du jeu par défaut
+    public void testLoadRuleSets() throws Exception {
+        Path defaultRules = tempDir.resolve("rules.json");
+        Files.write(defaultRules, "{ \"all\": [{ \"desc\": \"défaut\", \"xpath\": \"//p/text()\" }] }".getBytes(StandardCharsets.UTF_8));
+        Path directory = Files.createDirectories(tempDir.resolve("publications"));
+        Files.write(directory.resolve("voiles.json"), ("{ \"channels\": [\"voilesetvoiliers.com\"], \"all\": ["
+                + "{ \"desc\": \"voiles\", \"type\": \"element\", \"element\": \"p\", \"parents\": [\"texte\"] }] }").getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("notes.txt"), "ignoré".getBytes(StandardCharsets.UTF_8));
+
+        RuleSets ruleSets = rulesService.loadRuleSets(defaultRules.toString(), directory.toString());
+
+        assertEquals(2, ruleSets.size());
+        assertEquals("défaut", ruleSets.getDefaultSet().getRules().get(0).getDesc());
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Document document = builder.parse(new ByteArrayInputStream(
+                "<doc><tetiere channel=\"voilesetvoiliers.com\"/><texte><p>«a»</p></texte></doc>".getBytes(StandardCharsets.UTF_8)));
+        RuleSet selected = ruleSets.select(document);
+        assertEquals("voiles", selected.getName());
+        assertEquals("voiles", selected.getRules().get(0).getDesc());
+
+        Files.write(directory.resolve("sans-canal.json"), "{ \"all\": [] }".getBytes(StandardCharsets.UTF_8));
+        assertThrows(CustomAppException.class, () -> rulesService.loadRuleSets(defaultRules.toString(), directory.toString()));
+    }
 }
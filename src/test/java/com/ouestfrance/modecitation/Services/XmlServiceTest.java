@@ -12,9 +12,15 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -190,4 +196,94 @@ public class XmlServiceTest {
         });
     }
 
+    @Test
+    // Vérifie le chargement d'un document XML depuis son contenu brut, encodage lu dans le prologue
+    public void testLoadXMLFromBytes_Success() throws Exception {
+        byte[] xmlContent = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><doc>é</doc>".getBytes(StandardCharsets.ISO_8859_1);
+
+        Document document = xmlService.loadXMLFromBytes(xmlContent);
+        assertEquals("é", document.getDocumentElement().getTextContent());
+    }
+
+    @Test
+    // Vérifie que CustomAppException est lancée pour un contenu brut invalide
+    public void testLoadXMLFromBytes_Exception() {
+        assertThrows(CustomAppException.class, () -> {
+            xmlService.loadXMLFromBytes("<doc><invalid></doc>".getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
+    @Test
+    // Vérifie que la sérialisation dans un flux conserve la déclaration suivie d'un retour à la ligne
+    public void testWriteDocument_Success() throws Exception {
+        Document document = xmlService.loadXMLFromBytes("<?xml version=\"1.0\" encoding=\"utf-8\"?><doc>«é»</doc>".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        xmlService.writeDocument(document, outputStream);
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>\n<doc>«é»</doc>",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    // Vérifie qu'un fragment est sérialisé sans déclaration XML
+    public void testWriteFragment_Success() throws Exception {
+        Document document = xmlService.loadXMLFromBytes("<item><p>«é»</p></item>".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        xmlService.writeFragment(document, outputStream);
+
+        assertEquals("<item><p>«é»</p></item>", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    // Vérifie qu'un fichier .gz est décompressé de façon transparente à la lecture
+    public void testLoadDocumentFromGzipFile_Success() throws Exception {
+        Path xmlFile = tempDir.resolve("test.xml.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(xmlFile))) {
+            outputStream.write("<?xml version=\"1.0\" encoding=\"utf-8\"?><doc>«é»</doc>".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals("«é»", xmlService.loadDocument(xmlFile.toString()).getDocumentElement().getTextContent());
+        assertEquals("«é»", xmlService.loadXMLFromBytes(xmlService.readBytesFromSource(xmlFile.toString()))
+                .getDocumentElement().getTextContent());
+    }
+
+    @Test
+    // Vérifie que la sauvegarde dans un fichier .gz produit un flux gzip
+    public void testSaveDocumentToGzipFile_Success() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document document = builder.newDocument();
+        document.appendChild(document.createElement("doc"));
+
+        Path xmlFile = tempDir.resolve("output.xml.gz");
+        xmlService.saveDocumentToFile(document, xmlFile.toString());
+
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(xmlFile))) {
+            assertTrue(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).contains("<doc/>"));
+        }
+    }
+
+    @Test
+    // Vérifie que chaque implémentation DOM charge le même document et que le nom inconnu est refusé
+    public void testSetDomBackend() throws Exception {
+        byte[] content = "<doc><texte><p>«ipsum» <b>dolor</b></p></texte></doc>".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        xmlService.writeDocument(xmlService.loadXMLFromBytes(content), expected);
+        assertEquals(DomBackend.XERCES_DEFERRED, xmlService.getDomBackend());
+
+        for (DomBackend backend : DomBackend.values()) {
+            xmlService.setDomBackendName(backend.getName());
+            Document document = xmlService.loadXMLFromBytes(content);
+            assertEquals(backend.getName().startsWith("xerces"), document.getClass().getName().startsWith("org.apache.xerces."));
+            assertEquals(backend.isDeferred(), document.getClass().getSimpleName().startsWith("Deferred"));
+            assertEquals(backend == DomBackend.XERCES_CORE, "CoreDocumentImpl".equals(document.getClass().getSimpleName()));
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            xmlService.writeDocument(document, outputStream);
+            assertEquals(expected.toString(StandardCharsets.UTF_8), outputStream.toString(StandardCharsets.UTF_8));
+        }
+
+        assertThrows(CustomAppException.class, () -> xmlService.setDomBackendName("compact"));
+    }
 }
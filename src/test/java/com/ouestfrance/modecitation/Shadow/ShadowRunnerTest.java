@@ -0,0 +1,240 @@
+package com.ouestfrance.modecitation.Shadow;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.CompiledRule;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import com.ouestfrance.modecitation.Treatment.ModeCitationProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ShadowRunnerTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final byte[] ARTICLE = ("<doc><texte><p>Il a dit «ipsum»</p><p>rien</p></texte>"
+            + "<encadre><p>«b»</p></encadre></doc>").getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    private ModeCitationProcessor modeCitationProcessor;
+
+    private ShadowRunner shadowRunner;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        modeCitationProcessor = new ModeCitationProcessor();
+        RuleSetRegistry ruleSetRegistry = mock(RuleSetRegistry.class);
+        when(ruleSetRegistry.getRuleSets()).thenReturn(RuleSets.of(
+                RuleCompiler.compile(OBJECT_MAPPER.readTree("[{ \"desc\": \"texte\", \"xpath\": \"//texte/p/text()\" }]"))));
+        injectPrivateField(modeCitationProcessor, "rulesService", new RulesService());
+        injectPrivateField(modeCitationProcessor, "xmlService", new XmlService());
+        injectPrivateField(modeCitationProcessor, "ruleSetRegistry", ruleSetRegistry);
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "reject");
+
+        // Règles candidates : les encadrés au lieu du texte
+        Path candidateRules = tempDir.resolve("candidate.json");
+        Files.writeString(candidateRules, "{ \"all\": [{ \"desc\": \"encadrés\", \"xpath\": \"//encadre/p/text()\" }] }");
+        shadowRunner = new ShadowRunner();
+        injectPrivateField(shadowRunner, "enabled", true);
+        injectPrivateField(shadowRunner, "candidateRulesJsonPath", candidateRules.toString());
+        injectPrivateField(shadowRunner, "candidateRulesDirectory", "");
+        injectPrivateField(shadowRunner, "rulesJsonPath", "");
+        injectPrivateField(shadowRunner, "rulesDirectory", "");
+        injectPrivateField(shadowRunner, "candidateDomBackend", "jdk");
+        injectPrivateField(shadowRunner, "domBackend", "xerces-deferred");
+        injectPrivateField(shadowRunner, "threads", 1);
+        injectPrivateField(shadowRunner, "queueCapacity", 8);
+        injectPrivateField(shadowRunner, "reportFile", tempDir.resolve("shadow").resolve("shadow.jsonl").toString());
+        injectPrivateField(shadowRunner, "rulesService", new RulesService());
+        injectPrivateField(modeCitationProcessor, "shadowRunner", shadowRunner);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        shadowRunner.shutdown();
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private List<JsonNode> reportLines() throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(tempDir.resolve("shadow").resolve("shadow.jsonl"))) {
+            lines.add(OBJECT_MAPPER.readTree(line));
+        }
+        return lines;
+    }
+
+    @Test
+    // Vérifie que les paragraphes produits différemment par la candidate sont rapportés avec les écarts de coût,
+    // et que la sortie active reste celle de la configuration active
+    public void testShadow_ReportsParagraphDifferences() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        DocumentReport report = modeCitationProcessor.process("article.xml", ARTICLE, outputStream);
+        shadowRunner.shutdown();
+
+        assertEquals(1, report.getQuotesWrapped());
+        String output = outputStream.toString(StandardCharsets.UTF_8);
+        assertTrue(output.contains("<p>Il a dit <q class=\"containsQuotes\">«ipsum»</q></p>"));
+        assertTrue(output.contains("<encadre><p>«b»</p></encadre>"));
+
+        List<JsonNode> lines = reportLines();
+        assertEquals(1, lines.size());
+        JsonNode comparison = lines.get(0);
+        assertEquals("article.xml", comparison.get("document").asText());
+        assertEquals(3, comparison.get("paragraphs").asInt());
+        assertEquals(1, comparison.get("primaryQuotes").asInt());
+        assertEquals(1, comparison.get("candidateQuotes").asInt());
+        JsonNode differences = comparison.get("differences");
+        assertEquals(2, differences.size());
+        assertEquals(0, differences.get(0).get("paragraph").asInt());
+        assertTrue(differences.get(0).get("primary").asText().contains("<q class=\"containsQuotes\">"));
+        assertFalse(differences.get(0).get("candidate").asText().contains("<q"));
+        assertEquals(2, differences.get(1).get("paragraph").asInt());
+        assertTrue(differences.get(1).get("candidate").asText().contains("<q class=\"containsQuotes\">«b»</q>"));
+        assertTrue(comparison.get("primaryLatencyMicros").asLong() > 0);
+        assertTrue(comparison.get("candidateLatencyMicros").asLong() > 0);
+        assertEquals(comparison.get("candidateLatencyMicros").asLong() - comparison.get("primaryLatencyMicros").asLong(),
+                comparison.get("latencyDeltaMicros").asLong(), 1);
+        assertTrue(comparison.get("primaryAllocatedBytes").asLong() > 0);
+        assertFalse(comparison.has("candidateError"));
+
+        ShadowSummary summary = shadowRunner.getSummary();
+        assertEquals(1, summary.getCompared());
+        assertEquals(1, summary.getDiffering());
+        assertEquals(0, summary.getDropped());
+    }
+
+    @Test
+    // Vérifie que la mesure de la configuration active s'arrête avant l'écriture dans le flux de l'appelant : un
+    // flux lent et coûteux ne fausse ni la latence ni l'allocation comparées
+    public void testShadow_MeasureExcludesCallerStream() throws Exception {
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        OutputStream slowStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                byte[] waste = new byte[16 * 1024 * 1024];
+                waste[0] = 1;
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.write(b, off, len);
+            }
+        };
+
+        modeCitationProcessor.process("article.xml", ARTICLE, slowStream);
+        shadowRunner.shutdown();
+
+        assertTrue(received.toString(StandardCharsets.UTF_8).contains("<p>Il a dit <q class=\"containsQuotes\">«ipsum»</q></p>"));
+        JsonNode comparison = reportLines().get(0);
+        assertTrue(comparison.get("primaryLatencyMicros").asLong() < 500_000, comparison.toString());
+        assertTrue(comparison.get("primaryAllocatedBytes").asLong() < 16 * 1024 * 1024, comparison.toString());
+    }
+
+    @Test
+    // Vérifie qu'une configuration candidate inutilisable reste dans le rapport sans toucher la sortie active
+    public void testShadow_CandidateFailureIsolated() throws Exception {
+        injectPrivateField(shadowRunner, "candidateRulesJsonPath", tempDir.resolve("absent.json").toString());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        DocumentReport report = modeCitationProcessor.process("article.xml", ARTICLE, outputStream);
+        modeCitationProcessor.process("article2.xml", ARTICLE, new ByteArrayOutputStream());
+        shadowRunner.shutdown();
+
+        assertEquals(DocumentReport.Status.SUCCESS, report.getStatus());
+        assertTrue(outputStream.toString(StandardCharsets.UTF_8).contains("<q class=\"containsQuotes\">«ipsum»</q>"));
+        List<JsonNode> lines = reportLines();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).has("candidateError"));
+        assertEquals(2, shadowRunner.getSummary().getCandidateFailed());
+    }
+
+    @Test
+    // Vérifie que la file est bornée : un document qui n'y trouve pas de place est traité sans être comparé
+    public void testShadow_BoundedQueue() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // La candidate reste bloquée sur le premier document
+        RulesService blockingRulesService = new RulesService() {
+            @Override
+            public void applyRules(Document document, List<CompiledRule> rules, DocumentReport report) throws CustomAppException {
+                entered.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.applyRules(document, rules, report);
+            }
+        };
+        injectPrivateField(shadowRunner, "rulesService", blockingRulesService);
+        injectPrivateField(shadowRunner, "queueCapacity", 1);
+
+        List<ByteArrayOutputStream> outputs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            outputs.add(outputStream);
+            modeCitationProcessor.process("article" + i + ".xml", ARTICLE, outputStream);
+            if (i == 0) {
+                assertTrue(entered.await(10, TimeUnit.SECONDS));
+            }
+        }
+        release.countDown();
+        shadowRunner.shutdown();
+
+        for (ByteArrayOutputStream outputStream : outputs) {
+            assertArrayEquals(outputs.get(0).toByteArray(), outputStream.toByteArray());
+        }
+        ShadowSummary summary = shadowRunner.getSummary();
+        assertEquals(2, summary.getCompared());
+        assertEquals(2, summary.getDropped());
+    }
+
+    @Test
+    // Vérifie qu'aucun document n'est retenu tant que le mode shadow est désactivé
+    public void testShadow_Disabled() throws Exception {
+        injectPrivateField(shadowRunner, "enabled", false);
+
+        modeCitationProcessor.process("article.xml", ARTICLE, new ByteArrayOutputStream());
+        shadowRunner.shutdown();
+
+        assertFalse(Files.exists(tempDir.resolve("shadow").resolve("shadow.jsonl")));
+        assertEquals(0, shadowRunner.getSummary().getCompared());
+    }
+}
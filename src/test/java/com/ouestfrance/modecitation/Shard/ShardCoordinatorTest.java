@@ -0,0 +1,87 @@
+package com.ouestfrance.modecitation.Shard;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardCoordinatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    // Vérifie que la partie d'un fichier ne dépend que de son chemin relatif
+    public void testShardOf_Stable() throws Exception {
+        ShardCoordinator first = new ShardCoordinator(tempDir, 16, "w1", 1000);
+        ShardCoordinator second = new ShardCoordinator(tempDir, 16, "w2", 1000);
+
+        for (int i = 0; i < 100; i++) {
+            int shard = first.shardOf("2026/10/article" + i + ".xml");
+            assertTrue(shard >= 0 && shard < 16);
+            assertEquals(shard, second.shardOf("2026\\10\\article" + i + ".xml"));
+        }
+    }
+
+    @Test
+    // Vérifie qu'une génération de bail n'est obtenue que par un seul processus
+    public void testTryAcquire_Exclusive() throws Exception {
+        ShardCoordinator first = new ShardCoordinator(tempDir, 4, "w1", 60_000);
+        ShardCoordinator second = new ShardCoordinator(tempDir, 4, "w2", 60_000);
+
+        ShardLease lease = first.tryAcquire(2, 0);
+
+        assertNotNull(lease);
+        assertNull(second.tryAcquire(2, 0));
+        ShardState state = second.snapshot()[2];
+        assertEquals(1, state.getGeneration());
+        assertFalse(state.isExpired(System.currentTimeMillis(), second.getLeaseTtlMillis()));
+    }
+
+    @Test
+    // Vérifie qu'un bail expiré est repris et que l'ancien détenteur ne peut plus ni le renouveler ni terminer la partie
+    public void testTakeOver_ExpiredLease() throws Exception {
+        ShardCoordinator crashed = new ShardCoordinator(tempDir, 4, "w1", 1000);
+        ShardCoordinator survivor = new ShardCoordinator(tempDir, 4, "w2", 1000);
+        ShardLease oldLease = crashed.tryAcquire(1, 0);
+        Files.setLastModifiedTime(oldLease.getPath(), FileTime.fromMillis(System.currentTimeMillis() - 5000));
+
+        ShardState state = survivor.snapshot()[1];
+        assertTrue(state.isExpired(System.currentTimeMillis(), survivor.getLeaseTtlMillis()));
+        ShardLease newLease = survivor.tryAcquire(1, state.getGeneration());
+
+        assertNotNull(newLease);
+        assertEquals(2, newLease.getGeneration());
+        assertFalse(crashed.renew(oldLease));
+        assertFalse(crashed.complete(oldLease));
+        assertTrue(survivor.complete(newLease));
+        assertTrue(survivor.snapshot()[1].isDone());
+        assertNull(crashed.tryAcquire(1, 2));
+    }
+
+    @Test
+    // Vérifie la consolidation de l'avancement publié par plusieurs processus
+    public void testMergeProgress() throws Exception {
+        ShardCoordinator first = new ShardCoordinator(tempDir, 3, "w1", 60_000);
+        ShardCoordinator second = new ShardCoordinator(tempDir, 3, "w2", 60_000);
+        first.complete(first.tryAcquire(0, 0));
+        first.writeProgress(new ShardProgress(0, "w1", 1, ShardProgress.State.DONE, 10, 9, 1, 0, 5));
+        second.tryAcquire(1, 0);
+        second.writeProgress(new ShardProgress(1, "w2", 1, ShardProgress.State.RUNNING, 7, 0, 0, 0, 0));
+
+        ProgressReport report = second.mergeProgress();
+
+        assertEquals(1, report.getShardsDone());
+        assertEquals(1, report.getShardsRunning());
+        assertEquals(1, report.getShardsPending());
+        assertEquals(17, report.getDocuments());
+        assertEquals(9, report.getWritten());
+        assertEquals(1, report.getFailed());
+        assertEquals(1, report.getShardsDoneByWorker().get("w1"));
+        assertTrue(Files.readString(tempDir.resolve("progress.json")).contains("\"shardsDone\":1"));
+    }
+}
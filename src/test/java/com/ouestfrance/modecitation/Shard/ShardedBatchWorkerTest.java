@@ -0,0 +1,82 @@
+package com.ouestfrance.modecitation.Shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.ModeCitationApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedBatchWorkerTest {
+
+    private static final int SHARDS = 6;
+
+    private static final int DOCUMENTS = 40;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    // Vérifie que plusieurs JVM se partagent le lot, reprennent la partie d'un processus arrêté et consolident l'avancement
+    public void testRun_SeveralProcesses() throws Exception {
+        Path input = Files.createDirectories(tempDir.resolve("in"));
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Files.write(input.resolve("article" + i + ".xml"),
+                    ("<doc><texte><p>Lorem «ipsum " + i + "» dolor</p></texte></doc>").getBytes(StandardCharsets.UTF_8));
+        }
+        Path rules = tempDir.resolve("rules.json");
+        Files.write(rules, "{ \"all\": [{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }] }".getBytes(StandardCharsets.UTF_8));
+        Path output = tempDir.resolve("out");
+        Path work = tempDir.resolve("work");
+
+        // Bail laissé par un processus arrêté : la partie 2 doit être reprise par les autres
+        ShardCoordinator crashed = new ShardCoordinator(work, SHARDS, "arrêté", 1000);
+        ShardLease staleLease = crashed.tryAcquire(2, 0);
+        Files.setLastModifiedTime(staleLease.getPath(), FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+
+        List<Process> workers = new ArrayList<>();
+        for (int w = 0; w < 3; w++) {
+            workers.add(new ProcessBuilder(javaCommand(), "-cp", System.getProperty("java.class.path"),
+                    ModeCitationApplication.class.getName(),
+                    "--run.mode=shard",
+                    "--spring.main.banner-mode=off",
+                    "--rules.json.path=" + rules,
+                    "--input.xml.directory=" + input,
+                    "--output.xml.directory=" + output,
+                    "--shard.count=" + SHARDS,
+                    "--shard.work.directory=" + work,
+                    "--shard.worker.id=w" + w,
+                    "--shard.lease.ttl.seconds=5",
+                    "--shard.poll.millis=100")
+                    .redirectErrorStream(true)
+                    .redirectOutput(tempDir.resolve("worker" + w + ".log").toFile())
+                    .start());
+        }
+        for (Process worker : workers) {
+            assertTrue(worker.waitFor(120, TimeUnit.SECONDS), "Processus toujours actif");
+        }
+
+        for (int i = 0; i < DOCUMENTS; i++) {
+            assertTrue(Files.readString(output.resolve("article" + i + ".xml"), StandardCharsets.UTF_8)
+                    .contains("<q class=\"containsQuotes\">«ipsum " + i + "»</q>"));
+        }
+        ProgressReport report = new ObjectMapper().readValue(work.resolve("progress.json").toFile(), ProgressReport.class);
+        assertEquals(SHARDS, report.getShardsDone());
+        assertEquals(DOCUMENTS, report.getDocuments());
+        assertEquals(DOCUMENTS, report.getWritten());
+        assertFalse(report.getShardsDoneByWorker().containsKey("arrêté"));
+        assertTrue(Files.exists(work.resolve("leases").resolve("shard-002.g2")));
+    }
+
+    private static String javaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+}
@@ -1,9 +1,13 @@
 package com.ouestfrance.modecitation.Starter;
 
 import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Readiness.ReadinessGate;
+import com.ouestfrance.modecitation.Readiness.WarmUp;
+import com.ouestfrance.modecitation.Readiness.WarmUpResult;
 import com.ouestfrance.modecitation.Treatment.ModeCitationTreatment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 import java.lang.reflect.Field;
 
@@ -19,11 +23,11 @@ public class StartupRunnerTest {
         modeCitationTreatment = mock(ModeCitationTreatment.class);
         startupRunner = new StartupRunner();
 
-        injectPrivateField(startupRunner, modeCitationTreatment);
+        injectPrivateField(startupRunner, "modeCitationService", modeCitationTreatment);
     }
 
-    private void injectPrivateField(Object target, Object value) throws Exception {
-        Field field = target.getClass().getDeclaredField("modeCitationService");
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
         field.setAccessible(true);
         field.set(target, value);
     }
@@ -42,4 +46,41 @@ public class StartupRunnerTest {
         startupRunner.run();
         verify(modeCitationTreatment, times(1)).applyQuoteMode();
     }
+
+    @Test
+    // Vérifie qu'en mode pipe l'application ne se déclare prête qu'après la mise en température, avant le traitement
+    public void testRun_WarmUpBeforePipe() throws Exception {
+        WarmUp warmUp = mock(WarmUp.class);
+        ReadinessGate readinessGate = mock(ReadinessGate.class);
+        WarmUpResult result = new WarmUpResult(100, 2, 50, 400.0, 90.0, true);
+        when(warmUp.isEnabled()).thenReturn(true);
+        when(warmUp.run()).thenReturn(result);
+        injectPrivateField(startupRunner, "warmUp", warmUp);
+        injectPrivateField(startupRunner, "readinessGate", readinessGate);
+        injectPrivateField(startupRunner, "runMode", "pipe");
+
+        startupRunner.run();
+
+        InOrder inOrder = inOrder(warmUp, readinessGate, modeCitationTreatment);
+        inOrder.verify(warmUp).run();
+        inOrder.verify(readinessGate).markReady(result);
+        inOrder.verify(modeCitationTreatment).applyQuoteModePipe();
+    }
+
+    @Test
+    // Vérifie qu'un mode ponctuel se déclare prêt sans mise en température
+    public void testRun_NoWarmUpForSingle() throws Exception {
+        WarmUp warmUp = mock(WarmUp.class);
+        ReadinessGate readinessGate = mock(ReadinessGate.class);
+        when(warmUp.isEnabled()).thenReturn(true);
+        injectPrivateField(startupRunner, "warmUp", warmUp);
+        injectPrivateField(startupRunner, "readinessGate", readinessGate);
+        injectPrivateField(startupRunner, "runMode", "single");
+
+        startupRunner.run();
+
+        verify(warmUp, never()).run();
+        verify(readinessGate).markReady(null);
+        verify(modeCitationTreatment).applyQuoteMode();
+    }
 }
@@ -0,0 +1,183 @@
+package com.ouestfrance.modecitation.Treatment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.ModeCitationApplication;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchJournalTest {
+
+    private static final int DOCUMENTS = 1000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    // Vérifie qu'un document n'est considéré comme terminé que pour la même empreinte et un statut produit
+    public void testIsCompleted() throws Exception {
+        Path path = tempDir.resolve("journal.jsonl");
+        try (BatchJournal journal = BatchJournal.open(path, 64, 1000)) {
+            assertFalse(journal.isResumed());
+            journal.record(new JournalEntry("in/a.xml", "h1", DocumentReport.Status.SUCCESS, "a.xml", 1L));
+            journal.record(new JournalEntry("in/b.xml", "h2", DocumentReport.Status.PASSTHROUGH, "b.xml", 2L));
+            journal.record(new JournalEntry("in/c.xml", "h3", DocumentReport.Status.SUCCESS, "c.xml", 3L));
+            journal.record(new JournalEntry("in/c.xml", "h3", DocumentReport.Status.FAILED, null, 4L));
+            journal.record(new JournalEntry("in/d.xml", "h4", DocumentReport.Status.CANCELLED, null, 5L));
+        }
+
+        try (BatchJournal journal = BatchJournal.open(path, 64, 1000)) {
+            assertTrue(journal.isResumed());
+            assertEquals(2, journal.getCompletedCount());
+            assertTrue(journal.isCompleted(Path.of("in/a.xml"), "h1"));
+            assertFalse(journal.isCompleted(Path.of("in/a.xml"), "autre"));
+            assertTrue(journal.isCompleted(Path.of("in/b.xml"), "h2"));
+            assertFalse(journal.isCompleted(Path.of("in/c.xml"), "h3"));
+            assertFalse(journal.isCompleted(Path.of("in/d.xml"), "h4"));
+        }
+    }
+
+    @Test
+    // Vérifie que les lignes sont transmises au système par paquets, sans attendre la fermeture du journal
+    public void testRecord_SyncBatch() throws Exception {
+        Path path = tempDir.resolve("journal.jsonl");
+        try (BatchJournal journal = BatchJournal.open(path, 3, 60_000)) {
+            journal.record(new JournalEntry("a.xml", "h1", DocumentReport.Status.SUCCESS, "a.xml", 1L));
+            journal.record(new JournalEntry("b.xml", "h2", DocumentReport.Status.SUCCESS, "b.xml", 2L));
+            assertEquals(0, Files.size(path));
+            journal.record(new JournalEntry("c.xml", "h3", DocumentReport.Status.SUCCESS, "c.xml", 3L));
+            assertEquals(3, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+            journal.record(new JournalEntry("d.xml", "h4", DocumentReport.Status.SUCCESS, "d.xml", 4L));
+        }
+        assertEquals(4, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    // Vérifie qu'une dernière ligne tronquée par un arrêt brutal est ignorée et n'altère pas les suivantes
+    public void testOpen_TruncatedLastLine() throws Exception {
+        Path path = tempDir.resolve("journal.jsonl");
+        Files.write(path, ("{\"input\":\"a.xml\",\"hash\":\"h1\",\"status\":\"SUCCESS\",\"output\":\"a.xml\",\"completedAt\":1}\n"
+                + "{\"input\":\"b.xml\",\"hash\":\"h2\",\"sta").getBytes(StandardCharsets.UTF_8));
+
+        try (BatchJournal journal = BatchJournal.open(path, 1, 1000)) {
+            assertEquals(1, journal.getCompletedCount());
+            journal.record(new JournalEntry("b.xml", "h2", DocumentReport.Status.SUCCESS, "b.xml", 2L));
+        }
+
+        try (BatchJournal journal = BatchJournal.open(path, 1, 1000)) {
+            assertEquals(2, journal.getCompletedCount());
+            assertTrue(journal.isCompleted(Path.of("b.xml"), "h2"));
+        }
+        assertEquals(3, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    // Vérifie que l'empreinte est identique en mémoire et en flux
+    public void testHash() throws Exception {
+        byte[] content = "<doc>«ipsum»</doc>".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(64, BatchJournal.hash(content).length());
+        assertEquals(BatchJournal.hash(content), BatchJournal.hash(new ByteArrayInputStream(content)));
+        assertNotEquals(BatchJournal.hash(content), BatchJournal.hash("<doc/>".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    // Vérifie qu'un lot tué en cours de route reprend sans refaire les documents inscrits au journal
+    public void testBatch_KilledAndResumed() throws Exception {
+        Path input = Files.createDirectories(tempDir.resolve("in"));
+        StringBuilder paragraphs = new StringBuilder();
+        for (int p = 0; p < 50; p++) {
+            paragraphs.append("<p>Il a dit «lorem ipsum dolor sit amet» puis s'en est allé</p>");
+        }
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Files.write(input.resolve(String.format("article%04d.xml", i)),
+                    ("<doc><texte><p>«ipsum " + i + "»</p>" + paragraphs + "</texte></doc>").getBytes(StandardCharsets.UTF_8));
+        }
+        Path rules = tempDir.resolve("rules.json");
+        Files.write(rules, "{ \"all\": [{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }] }".getBytes(StandardCharsets.UTF_8));
+        Path output = tempDir.resolve("out");
+        Path journalPath = output.resolve("journal.jsonl");
+
+        Process killed = startBatch(input, output, rules, "killed");
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(120);
+        while (countLines(journalPath) < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(killed.isAlive(), "Le lot s'est terminé avant d'être interrompu");
+        killed.destroyForcibly();
+        assertTrue(killed.waitFor(30, TimeUnit.SECONDS));
+
+        Set<String> journaledBeforeKill = new HashSet<>();
+        try (BatchJournal journal = BatchJournal.open(journalPath, 1, 1000)) {
+            for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+                try {
+                    journaledBeforeKill.add(new ObjectMapper().readValue(line, JournalEntry.class).getInput());
+                } catch (Exception e) {
+                    // Ligne tronquée par l'arrêt
+                }
+            }
+            assertEquals(journaledBeforeKill.size(), journal.getCompletedCount());
+        }
+        assertTrue(journaledBeforeKill.size() < DOCUMENTS);
+
+        Process resumed = startBatch(input, output, rules, "resumed");
+        assertTrue(resumed.waitFor(300, TimeUnit.SECONDS), "Reprise toujours active");
+        assertEquals(0, resumed.exitValue());
+
+        for (int i = 0; i < DOCUMENTS; i++) {
+            assertTrue(Files.readString(output.resolve(String.format("article%04d.xml", i)), StandardCharsets.UTF_8)
+                    .contains("<q class=\"containsQuotes\">«ipsum " + i + "»</q>"));
+        }
+        Path resumeReports;
+        try (Stream<Path> files = Files.list(output)) {
+            resumeReports = files.filter(path -> path.getFileName().toString().startsWith("reports.resume-")).findFirst().orElseThrow();
+        }
+        assertEquals(DOCUMENTS - journaledBeforeKill.size(), Files.readAllLines(resumeReports, StandardCharsets.UTF_8).size());
+        try (BatchJournal journal = BatchJournal.open(journalPath, 1, 1000)) {
+            assertEquals(DOCUMENTS, journal.getCompletedCount());
+        }
+    }
+
+    private Process startBatch(Path input, Path output, Path rules, String name) throws Exception {
+        List<String> command = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                ModeCitationApplication.class.getName(),
+                "--run.mode=batch",
+                "--spring.main.banner-mode=off",
+                "--rules.json.path=" + rules,
+                "--input.xml.directory=" + input,
+                "--output.xml.directory=" + output,
+                "--pipeline.apply.threads=1",
+                "--journal.enabled=true",
+                "--journal.sync.batch=1");
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(tempDir.resolve(name + ".log").toFile())
+                .start();
+    }
+
+    private static long countLines(Path path) throws Exception {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            return lines.count();
+        } catch (UncheckedIOException e) {
+            // Ligne en cours d'écriture
+            return 0;
+        }
+    }
+}
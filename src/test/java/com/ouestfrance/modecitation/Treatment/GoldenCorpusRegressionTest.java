@@ -0,0 +1,274 @@
+package com.ouestfrance.modecitation.Treatment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ouestfrance.modecitation.Monitoring.ThreadAllocations;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Scheduling.PriorityScheduler;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Suite de non-régression hors suite par défaut : mvn test -Pregression
+// Après un changement voulu des sorties ou des performances : mvn test -Pregression -Dgolden.update=true réécrit
+// les documents attendus et les références de src/test/resources/golden, avec l'environnement de la mesure ; les
+// références de débit et d'allocation ne sont vérifiées que dans ce même environnement (même nombre de processeurs,
+// mêmes ramasse-miettes, même version majeure de la JVM) ; ailleurs le test est abandonné avec son rapport. Les
+// références se réenregistrent sur la machine d'intégration continue de référence
+@Tag("regression")
+public class GoldenCorpusRegressionTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final Path GOLDEN = Path.of("src/test/resources/golden");
+
+    private static final Path REPORT = Path.of("target/golden-report.json");
+
+    private static final String RULES = "src/main/resources/JSONrules/ModeCitationRules.json";
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int MEASURED_ROUNDS = 10;
+
+    //Tolérances par défaut, à défaut de celles du fichier de référence
+    private static final double THROUGHPUT_TOLERANCE = 0.5;
+
+    private static final double ALLOCATION_TOLERANCE = 0.25;
+
+    @TempDir
+    Path tempDir;
+
+    private ModeCitationTreatment modeCitationTreatment;
+
+    private PriorityScheduler priorityScheduler;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // Réglages de application.properties, sans contexte Spring
+        priorityScheduler = new PriorityScheduler();
+        injectPrivateField(priorityScheduler, "threads", 4);
+        injectPrivateField(priorityScheduler, "bulkShare", 0.25);
+
+        ModeCitationPipeline modeCitationPipeline = new ModeCitationPipeline();
+        injectPrivateField(modeCitationPipeline, "rulesService", new RulesService());
+        injectPrivateField(modeCitationPipeline, "xmlService", new XmlService());
+        injectPrivateField(modeCitationPipeline, "priorityScheduler", priorityScheduler);
+        injectPrivateField(modeCitationPipeline, "readThreads", 2);
+        injectPrivateField(modeCitationPipeline, "parseThreads", 2);
+        injectPrivateField(modeCitationPipeline, "applyThreads", 4);
+        injectPrivateField(modeCitationPipeline, "writeThreads", 2);
+        injectPrivateField(modeCitationPipeline, "queueCapacity", 16);
+        injectPrivateField(modeCitationPipeline, "reportIntervalSeconds", 60L);
+        injectPrivateField(modeCitationPipeline, "reportFileName", "reports.jsonl");
+        injectPrivateField(modeCitationPipeline, "outputCompression", "none");
+        injectPrivateField(modeCitationPipeline, "outputArchiveName", "articles.zip");
+        injectPrivateField(modeCitationPipeline, "outputFormat", "document");
+        injectPrivateField(modeCitationPipeline, "limitsOverflow", "reject");
+
+        RuleSetRegistry ruleSetRegistry = new RuleSetRegistry();
+        injectPrivateField(ruleSetRegistry, "rulesService", new RulesService());
+        injectPrivateField(ruleSetRegistry, "rulesJsonPath", RULES);
+        injectPrivateField(ruleSetRegistry, "rulesDirectory", "");
+
+        modeCitationTreatment = new ModeCitationTreatment();
+        injectPrivateField(modeCitationTreatment, "modeCitationPipeline", modeCitationPipeline);
+        injectPrivateField(modeCitationTreatment, "ruleSetRegistry", ruleSetRegistry);
+        injectPrivateField(modeCitationTreatment, "inputXmlDirectory", GOLDEN.resolve("input").toString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        priorityScheduler.shutdown();
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie les documents produits à partir du corpus de référence octet par octet, puis le débit et l'allocation
+    // par document par rapport aux références enregistrées, et écrit le rapport dans target/golden-report.json
+    public void testGoldenCorpus() throws Exception {
+        boolean update = Boolean.getBoolean("golden.update");
+        int documents = xmlFiles(GOLDEN.resolve("input")).size();
+
+        Path firstOutput = tempDir.resolve("round-0");
+        runBatch(firstOutput);
+        ObjectNode report = OBJECT_MAPPER.createObjectNode();
+        report.put("corpus", documents);
+        ObjectNode outputs = compareOutputs(firstOutput, GOLDEN.resolve("expected"));
+        report.set("outputs", outputs);
+
+        for (int i = 1; i <= WARMUP_ROUNDS; i++) {
+            runBatch(tempDir.resolve("round-" + i));
+        }
+        // Allocation mesurée par thread : les étages rapportent celle de leurs threads, terminés en fin de passe ;
+        // les threads qui durent (groupe de traitement, thread du test) sont mesurés avant et après
+        Map<Long, Long> persistentThreads = ThreadAllocations.liveThreadAllocatedBytes();
+        long allocatedBytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            for (StageStatistics stage : runBatch(tempDir.resolve("round-" + (WARMUP_ROUNDS + 1 + i)))) {
+                allocatedBytes += stage.getAllocatedBytes();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        allocatedBytes += ThreadAllocations.allocatedSince(persistentThreads);
+        long processed = (long) documents * MEASURED_ROUNDS;
+        double documentsPerSecond = processed / seconds;
+        double allocatedPerDocument = (double) allocatedBytes / processed;
+
+        JsonNode baseline = Files.exists(GOLDEN.resolve("baseline.json"))
+                ? OBJECT_MAPPER.readTree(GOLDEN.resolve("baseline.json").toFile()) : OBJECT_MAPPER.createObjectNode();
+        double throughputTolerance = baseline.path("throughputTolerance").asDouble(THROUGHPUT_TOLERANCE);
+        double allocationTolerance = baseline.path("allocationTolerance").asDouble(ALLOCATION_TOLERANCE);
+        // Les références ne valent que sur la machine et la JVM où elles ont été enregistrées : ailleurs, les
+        // mesures sont reportées sans être vérifiées
+        ObjectNode environment = environment();
+        boolean sameEnvironment = environment.equals(baseline.path("environment"));
+        report.set("environment", environment);
+        report.put("environmentMatches", sameEnvironment);
+        ArrayNode metrics = report.putArray("metrics");
+        // Le débit ne doit pas tomber sous la référence moins la tolérance, l'allocation ne doit pas la dépasser de plus
+        boolean throughputPassed = metric(metrics, "documentsPerSecond", documentsPerSecond,
+                baseline.path("documentsPerSecond").asDouble(0), 1 - throughputTolerance, false, sameEnvironment);
+        boolean allocationPassed = metric(metrics, "allocatedBytesPerDocument", allocatedPerDocument,
+                baseline.path("allocatedBytesPerDocument").asDouble(0), 1 + allocationTolerance, true, sameEnvironment);
+        boolean outputsPassed = outputs.get("passed").asBoolean();
+        report.put("passed", outputsPassed && throughputPassed && allocationPassed);
+        report.put("updated", update);
+        Files.createDirectories(REPORT.getParent());
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(REPORT.toFile(), report);
+
+        if (update) {
+            updateGolden(firstOutput, environment, documentsPerSecond, allocatedPerDocument, throughputTolerance, allocationTolerance);
+            return;
+        }
+        assertTrue(outputsPassed, "Documents produits différents des documents attendus : " + outputs);
+        // Ailleurs que sur la machine de référence, la vérification des performances est abandonnée de façon
+        // visible (test marqué comme ignoré) plutôt que réputée réussie
+        Assumptions.assumeTrue(baseline.has("environment"), "Pas d'environnement de référence dans baseline.json : "
+                + "mesures reportées dans " + REPORT + " sans être vérifiées");
+        if (!sameEnvironment) {
+            Assumptions.abort("Références de performance enregistrées dans l'environnement " + baseline.get("environment")
+                    + ", différent de " + environment + " : mesures reportées dans " + REPORT + " sans être vérifiées");
+        }
+        assertTrue(throughputPassed, "Débit en baisse : " + metrics.get(0));
+        assertTrue(allocationPassed, "Allocation par document en hausse : " + metrics.get(1));
+    }
+
+    //Traite le corpus avec ModeCitationTreatment en mode batch vers un répertoire de sortie propre à la passe
+    private List<StageStatistics> runBatch(Path output) throws Exception {
+        injectPrivateField(modeCitationTreatment, "outputXmlDirectory", output.toString());
+        return modeCitationTreatment.applyQuoteModeBatch();
+    }
+
+    //Machine et JVM de la mesure : nombre de processeurs, ramasse-miettes et version de la JVM
+    private static ObjectNode environment() {
+        ObjectNode environment = OBJECT_MAPPER.createObjectNode();
+        environment.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        environment.put("garbageCollectors", ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .map(GarbageCollectorMXBean::getName).collect(Collectors.joining(", ")));
+        // Version majeure seulement : les mises à jour correctives ne changent pas l'ordre de grandeur des mesures
+        environment.put("vm", System.getProperty("java.vm.name") + " " + System.getProperty("java.specification.version"));
+        return environment;
+    }
+
+    //Compare les documents produits aux documents attendus : mêmes noms, mêmes octets
+    private static ObjectNode compareOutputs(Path actualDirectory, Path expectedDirectory) throws IOException {
+        TreeSet<String> actual = xmlFiles(actualDirectory);
+        TreeSet<String> expected = Files.isDirectory(expectedDirectory) ? xmlFiles(expectedDirectory) : new TreeSet<>();
+        ObjectNode outputs = OBJECT_MAPPER.createObjectNode();
+        ArrayNode mismatched = outputs.putArray("mismatched");
+        ArrayNode missing = outputs.putArray("missing");
+        ArrayNode unexpected = outputs.putArray("unexpected");
+        int compared = 0;
+        for (String name : expected) {
+            if (!actual.contains(name)) {
+                missing.add(name);
+                continue;
+            }
+            compared++;
+            if (!Arrays.equals(Files.readAllBytes(expectedDirectory.resolve(name)), Files.readAllBytes(actualDirectory.resolve(name)))) {
+                mismatched.add(name);
+            }
+        }
+        for (String name : actual) {
+            if (!expected.contains(name)) {
+                unexpected.add(name);
+            }
+        }
+        outputs.put("compared", compared);
+        outputs.put("passed", mismatched.isEmpty() && missing.isEmpty() && unexpected.isEmpty());
+        return outputs;
+    }
+
+    //Ajoute une mesure au rapport ; sans référence enregistrée, ou avec une référence d'un autre environnement, la
+    //mesure est reportée sans être vérifiée
+    private static boolean metric(ArrayNode metrics, String name, double measured, double baseline, double factor,
+                                  boolean upperBound, boolean sameEnvironment) {
+        ObjectNode metric = metrics.addObject();
+        metric.put("name", name);
+        metric.put("measured", Math.round(measured * 10) / 10.0);
+        boolean passed = true;
+        metric.put("checked", baseline > 0 && sameEnvironment);
+        if (baseline > 0) {
+            double limit = baseline * factor;
+            passed = !sameEnvironment || (upperBound ? measured <= limit : measured >= limit);
+            metric.put("baseline", baseline);
+            metric.put(upperBound ? "maximum" : "minimum", Math.round(limit * 10) / 10.0);
+            metric.put("ratio", Math.round(measured / baseline * 1000) / 1000.0);
+        }
+        metric.put("passed", passed);
+        return passed;
+    }
+
+    private static void updateGolden(Path output, ObjectNode environment, double documentsPerSecond,
+                                     double allocatedPerDocument, double throughputTolerance, double allocationTolerance) throws IOException {
+        Path expected = Files.createDirectories(GOLDEN.resolve("expected"));
+        for (String name : xmlFiles(expected)) {
+            Files.delete(expected.resolve(name));
+        }
+        for (String name : xmlFiles(output)) {
+            Files.copy(output.resolve(name), expected.resolve(name));
+        }
+        ObjectNode baseline = OBJECT_MAPPER.createObjectNode();
+        baseline.set("environment", environment);
+        baseline.put("documentsPerSecond", Math.round(documentsPerSecond * 10) / 10.0);
+        baseline.put("allocatedBytesPerDocument", Math.round(allocatedPerDocument));
+        baseline.put("throughputTolerance", throughputTolerance);
+        baseline.put("allocationTolerance", allocationTolerance);
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(GOLDEN.resolve("baseline.json").toFile(), baseline);
+    }
+
+    private static TreeSet<String> xmlFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).filter(name -> name.endsWith(".xml"))
+                    .collect(Collectors.toCollection(TreeSet::new));
+        }
+    }
+}
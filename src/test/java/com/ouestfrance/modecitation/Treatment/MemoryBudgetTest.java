@@ -0,0 +1,47 @@
+package com.ouestfrance.modecitation.Treatment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryBudgetTest {
+
+    @Test
+    // Vérifie qu'une réservation attend que le budget se libère
+    public void testAcquire_WaitsForRelease() throws Exception {
+        MemoryBudget memoryBudget = new MemoryBudget(100);
+        memoryBudget.acquire(80);
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                memoryBudget.acquire(50);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        memoryBudget.release(80);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(50, memoryBudget.getInFlight());
+        assertEquals(80, memoryBudget.getMaxInFlight());
+    }
+
+    @Test
+    // Vérifie qu'un document plus gros que le budget est admis s'il est seul en traitement
+    public void testAcquire_OversizedDocumentAlone() throws Exception {
+        MemoryBudget memoryBudget = new MemoryBudget(100);
+
+        memoryBudget.acquire(500);
+
+        assertEquals(500, memoryBudget.getInFlight());
+        memoryBudget.release(500);
+        assertEquals(0, memoryBudget.getInFlight());
+    }
+}
@@ -0,0 +1,394 @@
+package com.ouestfrance.modecitation.Treatment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Patch.DocumentPatch;
+import com.ouestfrance.modecitation.Patch.PatchApplier;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Rules.CompiledRule;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Scheduling.PriorityScheduler;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModeCitationPipelineTest {
+
+    private ModeCitationPipeline modeCitationPipeline;
+
+    private List<CompiledRule> rules;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        modeCitationPipeline = new ModeCitationPipeline();
+        injectPrivateField(modeCitationPipeline, "rulesService", new RulesService());
+        injectPrivateField(modeCitationPipeline, "xmlService", new XmlService());
+        injectPrivateField(modeCitationPipeline, "readThreads", 2);
+        injectPrivateField(modeCitationPipeline, "parseThreads", 2);
+        injectPrivateField(modeCitationPipeline, "applyThreads", 3);
+        injectPrivateField(modeCitationPipeline, "writeThreads", 1);
+        injectPrivateField(modeCitationPipeline, "queueCapacity", 1);
+        injectPrivateField(modeCitationPipeline, "reportIntervalSeconds", 60L);
+        injectPrivateField(modeCitationPipeline, "reportFileName", "reports.jsonl");
+        injectPrivateField(modeCitationPipeline, "outputCompression", "none");
+        injectPrivateField(modeCitationPipeline, "outputArchiveName", "articles.zip");
+        injectPrivateField(modeCitationPipeline, "outputFormat", "document");
+        injectPrivateField(modeCitationPipeline, "limitsOverflow", "reject");
+
+        rules = RuleCompiler.compile(new ObjectMapper().readTree("[{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }]"));
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie que chaque document traverse tous les étages et que la citation est appliquée
+    public void testRun_Success() throws Exception {
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Path input = tempDir.resolve("article" + i + ".xml");
+            Files.write(input, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><doc><texte><p>Lorem «ipsum " + i + "» dolor</p></texte></doc>")
+                    .getBytes(StandardCharsets.UTF_8));
+            inputs.add(input);
+        }
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+
+        List<StageStatistics> statistics = modeCitationPipeline.run(inputs, outputDirectory, rules);
+
+        assertEquals(List.of("read", "parse", "apply", "write"), statistics.stream().map(StageStatistics::getName).toList());
+        for (StageStatistics stage : statistics) {
+            assertEquals(20, stage.getProcessed());
+            assertEquals(0, stage.getFailed());
+            assertTrue(stage.getMaxQueueDepth() <= 1);
+        }
+        for (int i = 0; i < 20; i++) {
+            String output = Files.readString(outputDirectory.resolve("article" + i + ".xml"), StandardCharsets.UTF_8);
+            assertTrue(output.contains("<q class=\"containsQuotes\">«ipsum " + i + "»</q>"));
+        }
+    }
+
+    @Test
+    // Vérifie qu'un document invalide est compté en échec sans bloquer les suivants
+    public void testRun_InvalidDocument() throws Exception {
+        Path invalid = tempDir.resolve("invalid.xml");
+        Files.write(invalid, "<doc><invalid></doc>".getBytes(StandardCharsets.UTF_8));
+        Path valid = tempDir.resolve("valid.xml");
+        Files.write(valid, "<doc><texte><p>«ipsum»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+
+        List<StageStatistics> statistics = modeCitationPipeline.run(List.of(invalid, valid), outputDirectory, rules);
+
+        assertEquals(1, statistics.get(1).getFailed());
+        assertEquals(1, statistics.get(3).getProcessed());
+        assertTrue(Files.exists(outputDirectory.resolve("valid.xml")));
+        assertFalse(Files.exists(outputDirectory.resolve("invalid.xml")));
+
+        List<String> reports = Files.readAllLines(outputDirectory.resolve("reports.jsonl"), StandardCharsets.UTF_8);
+        assertEquals(2, reports.size());
+        assertTrue(reports.stream().anyMatch(line -> line.contains("\"document\":\"invalid.xml\"")
+                && line.contains("\"status\":\"FAILED\"") && line.contains("\"failedStage\":\"parse\"")));
+        assertTrue(reports.stream().anyMatch(line -> line.contains("\"document\":\"valid.xml\"")
+                && line.contains("\"status\":\"SUCCESS\"") && line.contains("\"quotesWrapped\":1")));
+    }
+
+    @Test
+    // Vérifie qu'une entrée .xml.gz est lue de façon transparente et que la sortie gzip est produite
+    public void testRun_Gzip() throws Exception {
+        Path input = tempDir.resolve("article.xml.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(input))) {
+            outputStream.write("<doc><texte><p>«ipsum»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+        }
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        injectPrivateField(modeCitationPipeline, "outputCompression", "gzip");
+
+        modeCitationPipeline.run(List.of(input), outputDirectory, rules);
+
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(outputDirectory.resolve("article.xml.gz")))) {
+            String output = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(output.contains("<q class=\"containsQuotes\">«ipsum»</q>"));
+        }
+    }
+
+    @Test
+    // Vérifie que le mode zip regroupe tous les documents dans une archive indexée
+    public void testRun_Zip() throws Exception {
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Path input = tempDir.resolve("article" + i + ".xml");
+            Files.write(input, ("<doc><texte><p>«ipsum " + i + "»</p></texte></doc>").getBytes(StandardCharsets.UTF_8));
+            inputs.add(input);
+        }
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        injectPrivateField(modeCitationPipeline, "outputCompression", "zip");
+        injectPrivateField(modeCitationPipeline, "writeThreads", 3);
+
+        modeCitationPipeline.run(inputs, outputDirectory, rules);
+
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(outputDirectory.resolve("articles.zip")))) {
+            for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+                entries.put(entry.getName(), new String(zipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(6, entries.size());
+        assertTrue(entries.get("article3.xml").contains("<q class=\"containsQuotes\">«ipsum 3»</q>"));
+
+        String[] index = entries.get("index.jsonl").split("\n");
+        assertEquals(5, index.length);
+        assertTrue(index[0].contains("\"input\":\"article"));
+        assertTrue(index[0].contains("\"size\":"));
+        assertFalse(Files.exists(outputDirectory.resolve("article3.xml")));
+    }
+
+    @Test
+    // Vérifie qu'un document trop gros est recopié sans modification en mode passthrough
+    public void testRun_InputSizeLimitPassthrough() throws Exception {
+        Path large = tempDir.resolve("large.xml");
+        String largeContent = "<doc><texte><p>«ipsum» " + "x".repeat(500) + "</p></texte></doc>";
+        Files.write(large, largeContent.getBytes(StandardCharsets.UTF_8));
+        Path small = tempDir.resolve("small.xml");
+        Files.write(small, "<doc><texte><p>«ipsum»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        injectPrivateField(modeCitationPipeline, "maxInputBytes", 200L);
+        injectPrivateField(modeCitationPipeline, "limitsOverflow", "passthrough");
+
+        modeCitationPipeline.run(List.of(large, small), outputDirectory, rules);
+
+        assertEquals(largeContent, Files.readString(outputDirectory.resolve("large.xml"), StandardCharsets.UTF_8));
+        assertTrue(Files.readString(outputDirectory.resolve("small.xml"), StandardCharsets.UTF_8).contains("<q class=\"containsQuotes\">"));
+        List<String> reports = Files.readAllLines(outputDirectory.resolve("reports.jsonl"), StandardCharsets.UTF_8);
+        assertTrue(reports.stream().anyMatch(line -> line.contains("\"document\":\"large.xml\"")
+                && line.contains("\"status\":\"PASSTHROUGH\"") && line.contains("\"failedStage\":\"read\"")));
+    }
+
+    @Test
+    // Vérifie qu'un document dépassant le nombre de noeuds est abandonné proprement en mode reject
+    public void testRun_NodeLimitReject() throws Exception {
+        Path input = tempDir.resolve("article.xml");
+        Files.write(input, "<doc><texte><p>«a»</p><p>«b»</p><p>«c»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        injectPrivateField(modeCitationPipeline, "maxNodes", 5L);
+
+        List<StageStatistics> statistics = modeCitationPipeline.run(List.of(input), outputDirectory, rules);
+
+        assertEquals(1, statistics.get(1).getFailed());
+        assertFalse(Files.exists(outputDirectory.resolve("article.xml")));
+        String report = Files.readString(outputDirectory.resolve("reports.jsonl"), StandardCharsets.UTF_8);
+        assertTrue(report.contains("\"status\":\"CANCELLED\""));
+        assertTrue(report.contains("\"failedStage\":\"parse\""));
+    }
+
+    @Test
+    // Vérifie qu'un budget mémoire plus petit qu'un document laisse tout de même passer le lot
+    public void testRun_InFlightBudget() throws Exception {
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Path input = tempDir.resolve("article" + i + ".xml");
+            Files.write(input, ("<doc><texte><p>«ipsum " + i + "»</p></texte></doc>").getBytes(StandardCharsets.UTF_8));
+            inputs.add(input);
+        }
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        injectPrivateField(modeCitationPipeline, "inFlightBytes", 10L);
+
+        List<StageStatistics> statistics = modeCitationPipeline.run(inputs, outputDirectory, rules);
+
+        assertEquals(10, statistics.get(3).getProcessed());
+        for (StageStatistics stage : statistics) {
+            assertTrue(stage.getMaxQueueDepth() <= 1);
+        }
+    }
+
+    @Test
+    // Vérifie qu'en format patch un correctif est produit par document, et le document complet s'il n'est pas exprimable
+    public void testRun_PatchOutput() throws Exception {
+        Path input = tempDir.resolve("article.xml");
+        String content = "<doc>\n  <texte>\n    <p>Lorem «ipsum» dolor</p>\n  </texte>\n</doc>";
+        Files.write(input, content.getBytes(StandardCharsets.UTF_8));
+        Path withDoctype = tempDir.resolve("doctype.xml");
+        Files.write(withDoctype, "<!DOCTYPE doc><doc><texte><p>«ipsum»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        injectPrivateField(modeCitationPipeline, "outputFormat", "patch");
+
+        modeCitationPipeline.run(List.of(input, withDoctype), outputDirectory, rules);
+
+        assertFalse(Files.exists(outputDirectory.resolve("article.xml")));
+        DocumentPatch patch;
+        try (InputStream inputStream = Files.newInputStream(outputDirectory.resolve("article.xml.patch.json"))) {
+            patch = DocumentPatch.read(inputStream);
+        }
+        assertEquals(1, patch.getEdits().size());
+        assertEquals("/doc[1]/texte[1]/p[1]", patch.getEdits().get(0).getLocation());
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        PatchApplier.apply(Files.readAllBytes(input), patch, patched);
+        assertEquals(content.replace("«ipsum»", "<q class=\"containsQuotes\">«ipsum»</q>"), patched.toString(StandardCharsets.UTF_8));
+
+        assertTrue(Files.readString(outputDirectory.resolve("doctype.xml"), StandardCharsets.UTF_8).contains("<q class=\"containsQuotes\">"));
+        List<String> reports = Files.readAllLines(outputDirectory.resolve("reports.jsonl"), StandardCharsets.UTF_8);
+        assertTrue(reports.stream().anyMatch(line -> line.contains("\"document\":\"doctype.xml\"") && line.contains("PATCH_UNAVAILABLE")));
+    }
+
+    @Test
+    // Vérifie que les citations sont écrites en JSON Lines à côté des sorties, hors documents en échec
+    public void testRun_ExtractQuotes() throws Exception {
+        Path input = tempDir.resolve("article.xml");
+        Files.write(input, "<doc><texte><p>Il a dit «ipsum» hier</p><p>«dolor»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+        Path invalid = tempDir.resolve("invalid.xml");
+        Files.write(invalid, "<doc><texte><p>«sit»</p></texte>".getBytes(StandardCharsets.UTF_8));
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        injectPrivateField(modeCitationPipeline, "extractQuotes", true);
+        injectPrivateField(modeCitationPipeline, "quotesFileName", "quotes.jsonl");
+        injectPrivateField(modeCitationPipeline, "quoteContextChars", 40);
+
+        modeCitationPipeline.run(List.of(input, invalid), outputDirectory, rules);
+
+        List<String> quotes = Files.readAllLines(outputDirectory.resolve("quotes.jsonl"), StandardCharsets.UTF_8);
+        assertEquals(2, quotes.size());
+        assertTrue(quotes.get(0).startsWith("{\"document\":\"article.xml\",\"location\":\"/doc[1]/texte[1]/p[1]\",\"rule\":\"test\","
+                + "\"text\":\"«ipsum»\",\"before\":\"Il a dit\",\"after\":\"hier\"}"));
+        assertTrue(quotes.get(1).contains("\"location\":\"/doc[1]/texte[1]/p[2]\""));
+    }
+
+    @Test
+    // Vérifie que chaque document reçoit le jeu de règles de sa publication
+    public void testRun_RuleSetPerChannel() throws Exception {
+        Path voiles = tempDir.resolve("voiles.xml");
+        Files.write(voiles, "<doc><tetiere channel=\"voilesetvoiliers.com\"/><texte><p>«a»</p></texte><encadre><p>«b»</p></encadre></doc>"
+                .getBytes(StandardCharsets.UTF_8));
+        Path other = tempDir.resolve("other.xml");
+        Files.write(other, "<doc><tetiere channel=\"!voilesetvoiliers.com\"/><texte><p>«a»</p></texte><encadre><p>«b»</p></encadre></doc>"
+                .getBytes(StandardCharsets.UTF_8));
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        RuleSet encadres = new RuleSet("voiles", List.of("voilesetvoiliers.com"),
+                RuleCompiler.compile(new ObjectMapper().readTree("[{ \"desc\": \"encadrés\", \"xpath\": \"//encadre/p/text()\" }]")));
+        RuleSets ruleSets = new RuleSets(new RuleSet(RuleSets.DEFAULT_NAME, List.of(), rules), List.of(encadres));
+
+        modeCitationPipeline.run(List.of(voiles, other), outputDirectory, ruleSets);
+
+        assertTrue(Files.readString(outputDirectory.resolve("voiles.xml"), StandardCharsets.UTF_8)
+                .contains("<texte><p>«a»</p></texte><encadre><p><q class=\"containsQuotes\">«b»</q></p></encadre>"));
+        assertTrue(Files.readString(outputDirectory.resolve("other.xml"), StandardCharsets.UTF_8)
+                .contains("<texte><p><q class=\"containsQuotes\">«a»</q></p></texte><encadre><p>«b»</p></encadre>"));
+        List<String> reports = Files.readAllLines(outputDirectory.resolve("reports.jsonl"), StandardCharsets.UTF_8);
+        assertTrue(reports.stream().anyMatch(line -> line.contains("\"document\":\"voiles.xml\"") && line.contains("\"ruleSet\":\"voiles\"")));
+        assertTrue(reports.stream().anyMatch(line -> line.contains("\"document\":\"other.xml\"") && line.contains("\"ruleSet\":\"default\"")));
+    }
+
+    @Test
+    // Vérifie qu'une reprise écarte les documents déjà produits et inchangés, et retraite les autres
+    public void testRun_ResumeFromJournal() throws Exception {
+        Path done = tempDir.resolve("done.xml");
+        Files.write(done, "<doc><texte><p>«a»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+        Path changed = tempDir.resolve("changed.xml");
+        Files.write(changed, "<doc><texte><p>«b»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+        Path pending = tempDir.resolve("pending.xml");
+        Files.write(pending, "<doc><texte><p>«c»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        Path journalPath = outputDirectory.resolve("journal.jsonl");
+        try (BatchJournal journal = BatchJournal.open(journalPath, 64, 1000)) {
+            modeCitationPipeline.run(List.of(done, changed), outputDirectory, RuleSets.of(rules), null, journal);
+        }
+        Files.delete(outputDirectory.resolve("done.xml"));
+        Files.write(changed, "<doc><texte><p>«b2»</p></texte></doc>".getBytes(StandardCharsets.UTF_8));
+
+        try (BatchJournal journal = BatchJournal.open(journalPath, 64, 1000)) {
+            assertTrue(journal.isResumed());
+            modeCitationPipeline.run(List.of(done, changed, pending), outputDirectory, RuleSets.of(rules), "resume", journal);
+        }
+
+        assertFalse(Files.exists(outputDirectory.resolve("done.xml")));
+        assertTrue(Files.readString(outputDirectory.resolve("changed.xml"), StandardCharsets.UTF_8).contains("«b2»"));
+        assertTrue(Files.exists(outputDirectory.resolve("pending.xml")));
+        List<String> reports = Files.readAllLines(outputDirectory.resolve("reports.resume.jsonl"), StandardCharsets.UTF_8);
+        assertEquals(2, reports.size());
+        assertTrue(reports.stream().noneMatch(line -> line.contains("\"document\":\"done.xml\"")));
+        assertEquals(4, Files.readAllLines(journalPath, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    // Vérifie qu'en mode zip les documents ne sont inscrits au journal qu'une fois l'archive terminée et lisible
+    public void testRun_ZipJournalAfterArchive() throws Exception {
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path input = tempDir.resolve("article" + i + ".xml");
+            Files.write(input, ("<doc><texte><p>«ipsum " + i + "»</p></texte></doc>").getBytes(StandardCharsets.UTF_8));
+            inputs.add(input);
+        }
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        Path journalPath = outputDirectory.resolve("journal.jsonl");
+        injectPrivateField(modeCitationPipeline, "outputCompression", "zip");
+        List<Integer> journalLinesDuringRun = new ArrayList<>();
+
+        // Journal synchronisé à chaque ligne : toute ligne inscrite avant la fin de l'archive serait visible
+        try (BatchJournal journal = BatchJournal.open(journalPath, 1, 0)) {
+            modeCitationPipeline.run(inputs, outputDirectory, RuleSets.of(rules), null, journal, latency -> {
+                try {
+                    journalLinesDuringRun.add(Files.readAllLines(journalPath, StandardCharsets.UTF_8).size());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertEquals(3, Files.readAllLines(journalPath, StandardCharsets.UTF_8).size());
+        }
+
+        assertEquals(List.of(0, 0, 0), journalLinesDuringRun);
+        int entries = 0;
+        try (ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(outputDirectory.resolve("articles.zip")))) {
+            for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+                entries++;
+            }
+        }
+        assertEquals(4, entries);
+    }
+
+    @Test
+    // Vérifie qu'un étage configuré avec plus de threads que le groupe de traitement partagé est refusé avant
+    // le démarrage du lot, et que la même configuration est acceptée sans groupe de traitement
+    public void testRun_StageThreadsAboveSchedulerRejected() throws Exception {
+        Path input = tempDir.resolve("article.xml");
+        Files.write(input, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><doc><texte><p>Lorem «ipsum» dolor</p></texte></doc>"
+                .getBytes(StandardCharsets.UTF_8));
+        Path outputDirectory = Files.createDirectories(tempDir.resolve("out"));
+        PriorityScheduler priorityScheduler = new PriorityScheduler();
+        injectPrivateField(priorityScheduler, "threads", 2);
+        injectPrivateField(priorityScheduler, "bulkShare", 0.25);
+        injectPrivateField(modeCitationPipeline, "priorityScheduler", priorityScheduler);
+        try {
+            CustomAppException e = assertThrows(CustomAppException.class, () -> modeCitationPipeline.run(List.of(input), outputDirectory, rules));
+            assertTrue(e.getMessage().contains("pipeline.apply.threads (3)"));
+            assertFalse(Files.exists(outputDirectory.resolve("article.xml")));
+
+            injectPrivateField(modeCitationPipeline, "applyThreads", 2);
+            modeCitationPipeline.run(List.of(input), outputDirectory, rules);
+            assertTrue(Files.exists(outputDirectory.resolve("article.xml")));
+        } finally {
+            priorityScheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.ouestfrance.modecitation.Treatment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Suite de charge hors suite par défaut : mvn test -Pstress
+@Tag("stress")
+public class ModeCitationProcessorStressTest {
+
+    private static final int DOCUMENTS = 4_000;
+
+    private static final int THREADS = 32;
+
+    private static final String[] SAMPLES = {"/XMLinput/ContenuEnEntree.xml", "/XMLinput/ContenuEnEntree2.xml"};
+
+    private static final String[] WORDS = {"Lorem", "ipsum", "dolor", "sit", "amet", "élan", "façade", "l'été", "&amp;", "«", "»", "“", "”"};
+
+    @Test
+    // Vérifie que des milliers de documents traités simultanément sur une même instance donnent les mêmes
+    // sorties et bilans qu'un traitement séquentiel
+    public void stressProcess_ConcurrentMatchesSequential() throws Exception {
+        ModeCitationProcessor processor = newProcessor();
+        List<byte[]> inputs = documents();
+
+        List<byte[]> expected = new ArrayList<>();
+        List<Integer> expectedQuotes = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            DocumentReport report = processor.process("doc" + i, new ByteArrayInputStream(inputs.get(i)), outputStream);
+            expected.add(outputStream.toByteArray());
+            expectedQuotes.add(report.getQuotesWrapped());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        // Chaque thread parcourt le lot dans un ordre différent pour multiplier les entrelacements
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * (DOCUMENTS / THREADS);
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int n = 0; n < DOCUMENTS / THREADS * 2; n++) {
+                    int i = (offset + n * (thread % 2 == 0 ? 1 : 7)) % DOCUMENTS;
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    DocumentReport report = processor.process("doc" + i, new ByteArrayInputStream(inputs.get(i)), outputStream);
+                    assertArrayEquals(expected.get(i), outputStream.toByteArray(), "doc" + i);
+                    assertEquals(expectedQuotes.get(i), report.getQuotesWrapped(), "doc" + i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(expectedQuotes.stream().mapToInt(Integer::intValue).sum() > DOCUMENTS);
+    }
+
+    private ModeCitationProcessor newProcessor() throws Exception {
+        RuleSets ruleSets;
+        try (InputStream inputStream = getClass().getResourceAsStream("/JSONrules/ModeCitationRules.json")) {
+            RuleSet stress = new RuleSet("stress", List.of("stress"), RuleCompiler.compile(new ObjectMapper().readTree(
+                    "[{ \"desc\": \"textes\", \"xpath\": \"//texte/p/text()\" }, { \"desc\": \"encadrés\", \"xpath\": \"//encadre/p\" }]")));
+            ruleSets = new RuleSets(new RuleSet(RuleSets.DEFAULT_NAME, List.of(),
+                    RuleCompiler.compile(new ObjectMapper().readTree(inputStream).get("all"))), List.of(stress));
+        }
+        RuleSetRegistry ruleSetRegistry = mock(RuleSetRegistry.class);
+        when(ruleSetRegistry.getRuleSets()).thenReturn(ruleSets);
+
+        ModeCitationProcessor processor = new ModeCitationProcessor();
+        injectPrivateField(processor, "rulesService", new RulesService());
+        injectPrivateField(processor, "xmlService", new XmlService());
+        injectPrivateField(processor, "ruleSetRegistry", ruleSetRegistry);
+        injectPrivateField(processor, "limitsOverflow", "reject");
+        return processor;
+    }
+
+    //Documents d'exemple et documents générés (citations, mise en forme, entités, accents) ; même graine à chaque exécution
+    private List<byte[]> documents() throws Exception {
+        List<byte[]> samples = new ArrayList<>();
+        for (String sample : SAMPLES) {
+            try (InputStream inputStream = getClass().getResourceAsStream(sample)) {
+                samples.add(inputStream.readAllBytes());
+            }
+        }
+        Random random = new Random(38);
+        List<byte[]> documents = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            if (i % 10 == 0) {
+                documents.add(samples.get(i / 10 % samples.size()));
+                continue;
+            }
+            StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<doc><tetiere channel=\"")
+                    .append(i % 3 == 0 ? "stress" : "autre").append("\"/><texte>");
+            for (int p = 0; p < 1 + random.nextInt(12); p++) {
+                xml.append("<p>").append(sentence(random)).append("</p>");
+            }
+            xml.append("</texte><encadre>");
+            for (int p = 0; p < random.nextInt(4); p++) {
+                xml.append("<p>").append(sentence(random)).append("</p>");
+            }
+            documents.add(xml.append("</encadre></doc>").toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return documents;
+    }
+
+    private static String sentence(Random random) {
+        StringBuilder sentence = new StringBuilder();
+        for (int w = 0; w < 4 + random.nextInt(20); w++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            switch (random.nextInt(8)) {
+                case 0 -> sentence.append("<b>").append(word).append("</b>");
+                case 1 -> sentence.append("<i>«").append(word).append("»</i>");
+                case 2 -> sentence.append("«").append(word).append(" ").append(WORDS[random.nextInt(5)]).append("»");
+                default -> sentence.append(word);
+            }
+            sentence.append(' ');
+        }
+        return sentence.toString().trim();
+    }
+
+    private static void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
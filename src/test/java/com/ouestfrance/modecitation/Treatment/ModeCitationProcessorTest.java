@@ -0,0 +1,283 @@
+package com.ouestfrance.modecitation.Treatment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import com.ouestfrance.modecitation.Exception.DocumentLimitException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.RuleCompiler;
+import com.ouestfrance.modecitation.Rules.RuleSet;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
+import com.ouestfrance.modecitation.Scheduling.Priority;
+import com.ouestfrance.modecitation.Scheduling.PriorityScheduler;
+import com.ouestfrance.modecitation.Services.RulesService;
+import com.ouestfrance.modecitation.Services.XmlService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ModeCitationProcessorTest {
+
+    private ModeCitationProcessor modeCitationProcessor;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        modeCitationProcessor = new ModeCitationProcessor();
+        RuleSet voiles = new RuleSet("voiles", List.of("voilesetvoiliers.com"),
+                RuleCompiler.compile(new ObjectMapper().readTree("[{ \"desc\": \"encadrés\", \"xpath\": \"//encadre/p/text()\" }]")));
+        RuleSets ruleSets = new RuleSets(new RuleSet(RuleSets.DEFAULT_NAME, List.of(),
+                RuleCompiler.compile(new ObjectMapper().readTree("[{ \"desc\": \"test\", \"xpath\": \"//texte/p/text()\" }]"))), List.of(voiles));
+        RuleSetRegistry ruleSetRegistry = mock(RuleSetRegistry.class);
+        when(ruleSetRegistry.getRuleSets()).thenReturn(ruleSets);
+
+        injectPrivateField(modeCitationProcessor, "rulesService", new RulesService());
+        injectPrivateField(modeCitationProcessor, "xmlService", new XmlService());
+        injectPrivateField(modeCitationProcessor, "ruleSetRegistry", ruleSetRegistry);
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "reject");
+    }
+
+    private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    // Vérifie le traitement de flux à flux et le bilan retourné
+    public void testProcess_Success() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        DocumentReport report = modeCitationProcessor.process(new ByteArrayInputStream(
+                "<doc><texte><p>Il a dit «ipsum»</p></texte></doc>".getBytes(StandardCharsets.UTF_8)), outputStream);
+
+        assertEquals(DocumentReport.Status.SUCCESS, report.getStatus());
+        assertEquals(ModeCitationProcessor.STREAM_NAME, report.getDocument());
+        assertEquals(RuleSets.DEFAULT_NAME, report.getRuleSet());
+        assertEquals(1, report.getQuotesWrapped());
+        assertTrue(outputStream.toString(StandardCharsets.UTF_8).contains("<p>Il a dit <q class=\"containsQuotes\">«ipsum»</q></p>"));
+    }
+
+    @Test
+    // Vérifie que le jeu de règles est choisi d'après la publication du document
+    public void testProcess_RuleSetPerChannel() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        DocumentReport report = modeCitationProcessor.process("voiles.xml",
+                "<doc><tetiere channel=\"voilesetvoiliers.com\"/><texte><p>«a»</p></texte><encadre><p>«b»</p></encadre></doc>"
+                        .getBytes(StandardCharsets.UTF_8), outputStream);
+
+        assertEquals("voiles", report.getRuleSet());
+        assertTrue(outputStream.toString(StandardCharsets.UTF_8)
+                .contains("<texte><p>«a»</p></texte><encadre><p><q class=\"containsQuotes\">«b»</q></p></encadre>"));
+    }
+
+    @Test
+    // Vérifie qu'un document hors limites est refusé, ou recopié tel quel en mode passthrough
+    public void testProcess_LimitExceeded() throws Exception {
+        byte[] content = "<doc><texte><p>«a»</p><p>«b»</p></texte></doc>".getBytes(StandardCharsets.UTF_8);
+        injectPrivateField(modeCitationProcessor, "maxNodes", 3L);
+
+        assertThrows(DocumentLimitException.class,
+                () -> modeCitationProcessor.process("article.xml", content, new ByteArrayOutputStream()));
+
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "passthrough");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        DocumentReport report = modeCitationProcessor.process("article.xml", content, outputStream);
+
+        assertEquals(DocumentReport.Status.PASSTHROUGH, report.getStatus());
+        assertArrayEquals(content, outputStream.toByteArray());
+    }
+
+    @Test
+    // Vérifie qu'un traitement annulé (thread interrompu) n'est jamais recopié, même en mode passthrough
+    public void testProcess_CancelledNeverPassedThrough() throws Exception {
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "passthrough");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(DocumentCancelledException.class, () -> modeCitationProcessor.process("article.xml",
+                    "<doc><texte><p>«a»</p></texte></doc>".getBytes(StandardCharsets.UTF_8), outputStream));
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(0, outputStream.size());
+    }
+
+    @Test
+    // Vérifie que la limite de taille s'applique à la lecture du flux
+    public void testProcess_InputSizeLimit() throws Exception {
+        injectPrivateField(modeCitationProcessor, "maxInputBytes", 10L);
+
+        assertThrows(DocumentLimitException.class, () -> modeCitationProcessor.process(new ByteArrayInputStream(
+                "<doc><texte><p>«a»</p></texte></doc>".getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    // Vérifie qu'en mode passthrough un flux plus gros que la limite est recopié en entier, pas seulement son début
+    public void testProcess_InputSizeLimitPassthrough() throws Exception {
+        injectPrivateField(modeCitationProcessor, "maxInputBytes", 10L);
+        injectPrivateField(modeCitationProcessor, "limitsOverflow", "passthrough");
+        byte[] content = "<doc><texte><p>«a»</p></texte></doc>".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        DocumentReport report = modeCitationProcessor.process("article.xml", new ByteArrayInputStream(content), outputStream);
+
+        assertEquals(DocumentReport.Status.PASSTHROUGH, report.getStatus());
+        assertArrayEquals(content, outputStream.toByteArray());
+    }
+
+    @Test
+    // Vérifie que des demandes simultanées identiques sont traitées une seule fois et reçoivent toutes le résultat
+    public void testProcess_CoalescesConcurrentIdenticalRequests() throws Exception {
+        int requests = 4;
+        AtomicInteger loads = new AtomicInteger();
+        // Le premier traitement attend que les autres demandes se soient jointes à lui
+        injectPrivateField(modeCitationProcessor, "xmlService", new XmlService() {
+            @Override
+            public Document loadXMLFromBytes(byte[] xml) throws CustomAppException {
+                loads.incrementAndGet();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (modeCitationProcessor.getCoalescedCount() < requests - 1 && System.nanoTime() < deadline) {
+                    Thread.onSpinWait();
+                }
+                return super.loadXMLFromBytes(xml);
+            }
+        });
+        injectPrivateField(modeCitationProcessor, "coalesce", true);
+        byte[] content = "<doc><texte><p>Il a dit «ipsum»</p></texte></doc>".getBytes(StandardCharsets.UTF_8);
+
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        List<Future<DocumentReport>> reports = new ArrayList<>();
+        List<ByteArrayOutputStream> outputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < requests; i++) {
+                String name = "demande" + i + ".xml";
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                outputs.add(outputStream);
+                reports.add(executor.submit(() -> modeCitationProcessor.process(name, content, outputStream)));
+            }
+            int coalesced = 0;
+            for (int i = 0; i < requests; i++) {
+                DocumentReport report = reports.get(i).get(30, TimeUnit.SECONDS);
+                assertEquals("demande" + i + ".xml", report.getDocument());
+                assertEquals(1, report.getQuotesWrapped());
+                if (Boolean.TRUE.equals(report.getCoalesced())) {
+                    coalesced++;
+                }
+                assertArrayEquals(outputs.get(0).toByteArray(), outputs.get(i).toByteArray());
+            }
+            assertEquals(1, loads.get());
+            assertEquals(requests - 1, coalesced);
+            assertEquals(requests - 1, modeCitationProcessor.getCoalescedCount());
+            assertTrue(outputs.get(0).toString(StandardCharsets.UTF_8).contains("<q class=\"containsQuotes\">«ipsum»</q>"));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Une fois le traitement terminé, une nouvelle demande identique est traitée à nouveau
+        modeCitationProcessor.process("suivante.xml", content, new ByteArrayOutputStream());
+        assertEquals(2, loads.get());
+    }
+
+    //Le premier chargement attend release ; les suivants sont immédiats
+    private XmlService blockingFirstLoad(AtomicInteger loads, CountDownLatch release) {
+        return new XmlService() {
+            @Override
+            public Document loadXMLFromBytes(byte[] xml) throws CustomAppException {
+                if (loads.incrementAndGet() == 1) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.loadXMLFromBytes(xml);
+            }
+        };
+    }
+
+    @Test
+    // Vérifie qu'une demande interactive n'attend pas le traitement de masse identique en cours
+    public void testProcess_InteractiveNotCoalescedWithBulk() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        injectPrivateField(modeCitationProcessor, "xmlService", blockingFirstLoad(loads, release));
+        injectPrivateField(modeCitationProcessor, "coalesce", true);
+        byte[] content = "<doc><texte><p>Il a dit «ipsum»</p></texte></doc>".getBytes(StandardCharsets.UTF_8);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<DocumentReport> bulk = executor.submit(() -> modeCitationProcessor.process("masse.xml", content,
+                    new ByteArrayOutputStream(), Priority.BULK));
+            while (loads.get() == 0) {
+                Thread.onSpinWait();
+            }
+            Future<DocumentReport> interactive = executor.submit(() -> modeCitationProcessor.process("interactif.xml", content,
+                    new ByteArrayOutputStream(), Priority.INTERACTIVE));
+
+            DocumentReport report = interactive.get(10, TimeUnit.SECONDS);
+            assertNull(report.getCoalesced());
+            assertFalse(bulk.isDone());
+            release.countDown();
+            assertNull(bulk.get(10, TimeUnit.SECONDS).getCoalesced());
+            assertEquals(0, modeCitationProcessor.getCoalescedCount());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    // Vérifie qu'un thread du groupe de traitement ne se joint pas à un traitement identique en cours, qui
+    // pourrait attendre en file qu'un thread se libère
+    public void testProcess_WorkerThreadNotCoalesced() throws Exception {
+        PriorityScheduler priorityScheduler = new PriorityScheduler();
+        injectPrivateField(priorityScheduler, "threads", 2);
+        injectPrivateField(priorityScheduler, "bulkShare", 0.25);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        injectPrivateField(modeCitationProcessor, "priorityScheduler", priorityScheduler);
+        injectPrivateField(modeCitationProcessor, "xmlService", blockingFirstLoad(loads, release));
+        injectPrivateField(modeCitationProcessor, "coalesce", true);
+        byte[] content = "<doc><texte><p>Il a dit «ipsum»</p></texte></doc>".getBytes(StandardCharsets.UTF_8);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<DocumentReport> leader = executor.submit(() -> modeCitationProcessor.process("tete.xml", content,
+                    new ByteArrayOutputStream(), Priority.INTERACTIVE));
+            while (loads.get() == 0) {
+                Thread.onSpinWait();
+            }
+            // Comme le fait le mode enveloppe : le processeur appelé depuis un thread du groupe
+            Future<DocumentReport> fromWorker = executor.submit(() -> priorityScheduler.call(Priority.INTERACTIVE,
+                    () -> modeCitationProcessor.process("groupe.xml", content, new ByteArrayOutputStream(), Priority.INTERACTIVE)));
+
+            assertNull(fromWorker.get(10, TimeUnit.SECONDS).getCoalesced());
+            release.countDown();
+            assertEquals(1, leader.get(10, TimeUnit.SECONDS).getQuotesWrapped());
+            assertEquals(0, modeCitationProcessor.getCoalescedCount());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            priorityScheduler.shutdown();
+        }
+    }
+}
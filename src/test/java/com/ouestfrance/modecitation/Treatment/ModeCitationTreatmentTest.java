@@ -1,7 +1,11 @@
 package com.ouestfrance.modecitation.Treatment;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Report.DocumentReport;
+import com.ouestfrance.modecitation.Rules.CompiledRule;
+import com.ouestfrance.modecitation.Rules.RuleMatcher;
+import com.ouestfrance.modecitation.Rules.RuleSetRegistry;
+import com.ouestfrance.modecitation.Rules.RuleSets;
 import com.ouestfrance.modecitation.Services.RulesService;
 import com.ouestfrance.modecitation.Services.XmlService;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,10 +19,14 @@ import org.w3c.dom.Document;
 import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class ModeCitationTreatmentTest {
@@ -32,6 +40,12 @@ public class ModeCitationTreatmentTest {
     @Mock
     private XmlService xmlService;
 
+    @Mock
+    private ModeCitationPipeline modeCitationPipeline;
+
+    @Mock
+    private RuleSetRegistry ruleSetRegistry;
+
     @TempDir
     Path tempDir;
 
@@ -41,7 +55,9 @@ public class ModeCitationTreatmentTest {
 
         injectPrivateField(modeCitationTreatment, "inputXmlSource", tempDir.resolve("input.xml").toString());
         injectPrivateField(modeCitationTreatment, "outputXmlPath", tempDir.resolve("output.xml").toString());
-        injectPrivateField(modeCitationTreatment, "rulesJsonPath", tempDir.resolve("rules.json").toString());
+        injectPrivateField(modeCitationTreatment, "inputXmlDirectory", tempDir.toString());
+        injectPrivateField(modeCitationTreatment, "outputXmlDirectory", tempDir.resolve("out").toString());
+        injectPrivateField(modeCitationTreatment, "reportFileName", "reports.jsonl");
     }
 
     private void injectPrivateField(Object target, String fieldName, Object value) throws Exception {
@@ -60,16 +76,19 @@ public class ModeCitationTreatmentTest {
         Files.write(tempDir.resolve("rules.json"), jsonContent.getBytes());
 
         Document document = mock(Document.class);
-        JsonNode jsonNode = mock(JsonNode.class);
+        List<CompiledRule> rules = List.of(new CompiledRule("test", mock(RuleMatcher.class)));
 
         when(xmlService.loadDocument(anyString())).thenReturn(document);
-        when(rulesService.readRules(anyString())).thenReturn(jsonNode);
+        when(ruleSetRegistry.getRuleSets()).thenReturn(RuleSets.of(rules));
 
         modeCitationTreatment.applyQuoteMode();
 
         verify(xmlService, times(1)).loadDocument(anyString());
-        verify(rulesService, times(1)).readRules(anyString());
-        verify(rulesService, times(1)).applyRules(any(Document.class), any(JsonNode.class));
+        verify(ruleSetRegistry, times(1)).getRuleSets();
+        verify(rulesService, times(1)).applyRules(eq(document), eq(rules), any(DocumentReport.class));
+        String report = Files.readString(tempDir.resolve("reports.jsonl"));
+        assertTrue(report.contains("\"status\":\"SUCCESS\""));
+        assertTrue(report.contains("\"ruleSet\":\"default\""));
         verify(xmlService, times(1)).saveDocumentToFile(any(Document.class), anyString());
     }
 
@@ -82,6 +101,7 @@ public class ModeCitationTreatmentTest {
         String jsonContent = "{ \"all\": [{ \"desc\": \"test\", \"xpath\": \"//test\" }] }";
         Files.write(tempDir.resolve("rules.json"), jsonContent.getBytes());
 
+        when(ruleSetRegistry.getRuleSets()).thenReturn(RuleSets.of(List.of()));
         doThrow(new CustomAppException("Test exception")).when(xmlService).loadDocument(anyString());
 
         assertThrows(CustomAppException.class, () -> {
@@ -89,8 +109,38 @@ public class ModeCitationTreatmentTest {
         });
 
         verify(xmlService, times(1)).loadDocument(anyString());
-        verify(rulesService, times(1)).readRules(anyString());
-        verify(rulesService, times(0)).applyRules(any(Document.class), any(JsonNode.class));
+        verify(ruleSetRegistry, times(1)).getRuleSets();
+        verify(rulesService, times(0)).applyRules(any(Document.class), anyList(), any(DocumentReport.class));
         verify(xmlService, times(0)).saveDocumentToFile(any(Document.class), anyString());
+        assertTrue(Files.readString(tempDir.resolve("reports.jsonl")).contains("\"status\":\"FAILED\""));
+    }
+
+    @Test
+    // Vérifie que applyQuoteModeBatch transmet au pipeline les seuls fichiers XML du répertoire, triés
+    public void testApplyQuoteModeBatch_Success() throws Exception {
+        Files.write(tempDir.resolve("b.xml"), "<doc/>".getBytes());
+        Files.write(tempDir.resolve("a.xml"), "<doc/>".getBytes());
+        Files.write(tempDir.resolve("notes.txt"), "ignoré".getBytes());
+
+        RuleSets ruleSets = RuleSets.of(List.of(new CompiledRule("test", mock(RuleMatcher.class))));
+        when(ruleSetRegistry.getRuleSets()).thenReturn(ruleSets);
+
+        modeCitationTreatment.applyQuoteModeBatch();
+
+        verify(modeCitationPipeline, times(1)).run(
+                eq(List.of(tempDir.resolve("a.xml"), tempDir.resolve("b.xml"))), eq(tempDir.resolve("out")), eq(ruleSets));
+        assertTrue(Files.isDirectory(tempDir.resolve("out")));
+    }
+
+    @Test
+    // Vérifie que CustomAppException est lancée si le répertoire d'entrée n'existe pas
+    public void testApplyQuoteModeBatch_MissingDirectory() throws Exception {
+        injectPrivateField(modeCitationTreatment, "inputXmlDirectory", tempDir.resolve("absent").toString());
+
+        assertThrows(CustomAppException.class, () -> {
+            modeCitationTreatment.applyQuoteModeBatch();
+        });
+
+        verify(modeCitationPipeline, times(0)).run(any(), any(), any(RuleSets.class));
     }
 }
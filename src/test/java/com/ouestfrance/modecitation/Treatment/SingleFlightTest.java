@@ -0,0 +1,159 @@
+package com.ouestfrance.modecitation.Treatment;
+
+import com.ouestfrance.modecitation.Exception.CustomAppException;
+import com.ouestfrance.modecitation.Exception.DocumentCancelledException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    //Soumet requests demandes de même clé ; le calcul attend que toutes sauf la sienne se soient jointes à lui
+    private List<Future<SingleFlight.Outcome<String>>> submitConcurrently(ExecutorService executor, int requests,
+                                                                         SingleFlight.Computation<String> computation) {
+        List<Future<SingleFlight.Outcome<String>>> outcomes = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            outcomes.add(executor.submit(() -> singleFlight.execute("cle", () -> {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (singleFlight.getCoalesced() < requests - 1 && System.nanoTime() < deadline) {
+                    Thread.onSpinWait();
+                }
+                return computation.compute();
+            })));
+        }
+        return outcomes;
+    }
+
+    @Test
+    // Vérifie que des demandes simultanées de même clé partagent un seul calcul
+    public void testExecute_CoalescesConcurrentRequests() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<SingleFlight.Outcome<String>>> outcomes = submitConcurrently(executor, 3,
+                    () -> "résultat" + computations.incrementAndGet());
+
+            int shared = 0;
+            for (Future<SingleFlight.Outcome<String>> outcome : outcomes) {
+                assertEquals("résultat1", outcome.get(30, TimeUnit.SECONDS).getValue());
+                shared += outcome.get().isShared() ? 1 : 0;
+            }
+            assertEquals(1, computations.get());
+            assertEquals(2, shared);
+            assertEquals(2, singleFlight.getCoalesced());
+            assertEquals(0, singleFlight.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    // Vérifie que l'erreur du calcul est remise à toutes les demandes qui l'attendaient
+    public void testExecute_SharesFailure() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<SingleFlight.Outcome<String>>> outcomes = submitConcurrently(executor, 2, () -> {
+                throw new CustomAppException("échec du calcul");
+            });
+
+            for (Future<SingleFlight.Outcome<String>> outcome : outcomes) {
+                Exception e = assertThrows(Exception.class, () -> outcome.get(30, TimeUnit.SECONDS));
+                assertInstanceOf(CustomAppException.class, e.getCause());
+                assertEquals("échec du calcul", e.getCause().getMessage());
+            }
+            assertEquals(0, singleFlight.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    // Vérifie que rien n'est conservé une fois le calcul terminé, ni pour une autre clé
+    public void testExecute_NotCached() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+
+        assertFalse(singleFlight.execute("cle", () -> "a" + computations.incrementAndGet()).isShared());
+        assertEquals("a2", singleFlight.execute("cle", () -> "a" + computations.incrementAndGet()).getValue());
+        assertEquals("b3", singleFlight.execute("autre", () -> "b" + computations.incrementAndGet()).getValue());
+
+        assertEquals(0, singleFlight.getCoalesced());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    // Vérifie qu'une demande qui attend le calcul d'une autre peut être interrompue
+    public void testExecute_WaitInterrupted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = new Thread(() -> {
+            try {
+                singleFlight.execute("cle", () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "résultat";
+                });
+            } catch (CustomAppException e) {
+                fail(e);
+            }
+        });
+        leader.setDaemon(true);
+        leader.start();
+        try {
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            Thread.currentThread().interrupt();
+            assertThrows(CustomAppException.class, () -> singleFlight.execute("cle", () -> "autre"));
+            // L'interruption reste signalée à l'appelant
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+        }
+        leader.join(10000);
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    // Vérifie qu'une demande en attente relance le calcul, au lieu d'en recevoir l'annulation, quand la demande
+    // en tête est annulée
+    public void testExecute_LeaderCancelled() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<SingleFlight.Outcome<String>> leader = executor.submit(() -> singleFlight.execute("cle", () -> {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (singleFlight.getCoalesced() < 1 && System.nanoTime() < deadline) {
+                    Thread.onSpinWait();
+                }
+                throw new DocumentCancelledException("Traitement annulé");
+            }));
+            while (singleFlight.getInFlight() == 0) {
+                Thread.onSpinWait();
+            }
+
+            SingleFlight.Outcome<String> outcome = singleFlight.execute("cle", () -> "relancé");
+
+            assertEquals("relancé", outcome.getValue());
+            assertFalse(outcome.isShared());
+            assertEquals(0, singleFlight.getCoalesced());
+            Exception e = assertThrows(Exception.class, () -> leader.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(DocumentCancelledException.class, e.getCause());
+            assertEquals(0, singleFlight.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}